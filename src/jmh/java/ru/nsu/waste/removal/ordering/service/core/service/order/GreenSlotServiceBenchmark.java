@@ -0,0 +1,126 @@
+package ru.nsu.waste.removal.ordering.service.core.service.order;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterContext;
+import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterKey;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
+import ru.nsu.waste.removal.ordering.service.core.model.order.SlotOption;
+import ru.nsu.waste.removal.ordering.service.core.repository.cluster.GeoClusterRepository;
+import ru.nsu.waste.removal.ordering.service.core.service.cluster.GeoClusterService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Формирование вариантов слотов для 1000 пользователей, одновременно открывающих форму заказа.
+ * Контекст кластера пользователя в приложении берется из кэша, а занятость слотов - из индекса,
+ * поэтому репозиторий здесь заменен картой в памяти: измеряется путь без обращений к БД.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(GreenSlotServiceBenchmark.USER_COUNT)
+public class GreenSlotServiceBenchmark {
+
+    static final int USER_COUNT = 1_000;
+
+    private static final String TZ_ALMATY = "Asia/Almaty";
+    private static final int POSTAL_CODE_COUNT = 50;
+    private static final Instant NOW = Instant.parse("2026-02-18T10:15:30Z");
+    private static final OffsetDateTime FIRST_SLOT_FROM =
+            ZonedDateTime.of(2026, 2, 19, 10, 0, 0, 0, ZoneId.of(TZ_ALMATY)).toOffsetDateTime();
+
+    private final AtomicLong nextUserId = new AtomicLong();
+
+    private GreenSlotService greenSlotService;
+
+    /**
+     * Пользователь i живет в индексе i % POSTAL_CODE_COUNT и держит заказ в одном из шести слотов
+     * завтрашнего дня, так что у каждого пользователя есть соседи с «зелеными» слотами.
+     */
+    @Setup
+    public void setUp() {
+        Map<Long, GeoClusterContext> contexts = new HashMap<>();
+        List<PlannedSlotOrder> orders = new ArrayList<>(USER_COUNT);
+        for (int i = 1; i <= USER_COUNT; i++) {
+            String postalCode = "%06d".formatted(50_000 + i % POSTAL_CODE_COUNT);
+            OffsetDateTime pickupFrom = FIRST_SLOT_FROM.plusHours(2L * (i % 6));
+            contexts.put((long) i, new GeoClusterContext(new GeoClusterKey(postalCode), TZ_ALMATY));
+            orders.add(new PlannedSlotOrder(i, i, postalCode, pickupFrom, pickupFrom.plusHours(2)));
+        }
+
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        GeoClusterRepository geoClusterRepository = new InMemoryGeoClusterRepository(contexts, orders);
+        GreenSlotOccupancyIndex greenSlotOccupancyIndex = new GreenSlotOccupancyIndex(geoClusterRepository, clock);
+        greenSlotOccupancyIndex.reload();
+        greenSlotService = new GreenSlotService(
+                new GeoClusterService(geoClusterRepository),
+                greenSlotOccupancyIndex,
+                clock
+        );
+    }
+
+    @Benchmark
+    public List<SlotOption> getSlotOptions(UserState user) {
+        return greenSlotService.getSlotOptions(user.userId);
+    }
+
+    @State(Scope.Thread)
+    public static class UserState {
+
+        private long userId;
+
+        @Setup
+        public void setUp(GreenSlotServiceBenchmark benchmark) {
+            userId = benchmark.nextUserId.getAndIncrement() % USER_COUNT + 1;
+        }
+    }
+
+    private static final class InMemoryGeoClusterRepository extends GeoClusterRepository {
+
+        private final Map<Long, GeoClusterContext> contexts;
+        private final List<PlannedSlotOrder> orders;
+
+        private InMemoryGeoClusterRepository(Map<Long, GeoClusterContext> contexts, List<PlannedSlotOrder> orders) {
+            super(null);
+            this.contexts = contexts;
+            this.orders = orders;
+        }
+
+        @Override
+        public Optional<GeoClusterContext> findUserClusterContext(long userId) {
+            return Optional.ofNullable(contexts.get(userId));
+        }
+
+        @Override
+        public List<PlannedSlotOrder> findActivePlannedSlotOrders(OffsetDateTime from) {
+            return orders.stream()
+                    .filter(order -> !order.pickupFrom().isBefore(from))
+                    .toList();
+        }
+    }
+}
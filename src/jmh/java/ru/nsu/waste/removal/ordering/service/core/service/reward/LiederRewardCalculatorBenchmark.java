@@ -0,0 +1,65 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шаг аналитического и табличного калькуляторов Лидер на хранимых значениях силы привычки.
+ * Сила привычки берется по кругу из случайной выборки фиксированных точек шкалы, чтобы шаг
+ * не сворачивался JIT-компилятором в константу и табличный поиск не попадал всегда в одну ветку.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiederRewardCalculatorBenchmark {
+
+    private static final int HABIT_STRENGTH_SCALE = 1_000_000;
+    private static final int SAMPLE_SIZE = 1 << 12;
+    private static final long SAMPLE_SEED = 20260317L;
+
+    @Param({"ANALYTIC", "TABLE"})
+    private LiederRewardCalculatorType calculatorType;
+
+    @Param({"false", "true"})
+    private boolean success;
+
+    private LiederRewardCalculator calculator;
+    private double[] strengths;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        calculator = switch (calculatorType) {
+            case ANALYTIC -> new LiederOptimizedRewardCalculator(0.10, 0.90, 50);
+            case TABLE -> LiederTableRewardCalculator.of(0.10, 0.90, 50);
+        };
+
+        SplittableRandom random = new SplittableRandom(SAMPLE_SEED);
+        strengths = new double[SAMPLE_SIZE];
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            strengths[i] = random.nextInt(HABIT_STRENGTH_SCALE + 1) / (double) HABIT_STRENGTH_SCALE;
+        }
+    }
+
+    @Benchmark
+    public LiederRewardCalculator.StepResult step() {
+        double strength = strengths[next];
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return calculator.step(strength, success);
+    }
+}
@@ -18,6 +18,10 @@ public final class AttributeNames {
 
     public static final String PANEL = "panel";
 
+    public static final String RUN = "run";
+
+    public static final String GROUP_TAKE_OFFER = "groupTakeOffer";
+
     public static final String ERROR_MESSAGE = "errorMessage";
 
     public static final String SUCCESS_MESSAGE = "successMessage";
@@ -28,6 +28,16 @@ public final class Paths {
 
     public static final String COURIER_COMPLETE_ORDER = COURIER_WITH_ID + "/orders/complete";
 
+    public static final String COURIER_COMPLETE_ORDER_GROUP = COURIER_WITH_ID + "/order-groups/complete";
+
+    public static final String COURIER_FEED = COURIER_WITH_ID + "/feed";
+
+    public static final String RUN = "/run";
+
+    public static final String COURIER_RUN = COURIER_WITH_ID + RUN;
+
+    public static final String COURIER_TAKE_RUN = COURIER_RUN + "/take";
+
     public static final String QUIZ = "/quiz";
 
     public static final String REGISTRATION_QUIZ = REGISTRATION + QUIZ;
@@ -16,6 +16,8 @@ public final class TemplateNames {
 
     public static final String COURIER_PANEL = "courier_panel";
 
+    public static final String COURIER_RUN = "courier_run";
+
     public static final String USER_LOGIN = "user_login";
 
     public static final String REGISTER_QUIZ_UNAVAILABLE = "register_quiz_unavailable";
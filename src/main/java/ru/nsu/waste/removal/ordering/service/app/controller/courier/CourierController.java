@@ -2,18 +2,23 @@ package ru.nsu.waste.removal.ordering.service.app.controller.courier;
 
 import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import ru.nsu.waste.removal.ordering.service.app.constant.AttributeNames;
 import ru.nsu.waste.removal.ordering.service.app.constant.Paths;
 import ru.nsu.waste.removal.ordering.service.app.constant.TemplateNames;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderActionForm;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderGroupActionForm;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRunActionForm;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierOrderGroupTakeViewModel;
 import ru.nsu.waste.removal.ordering.service.core.facade.CourierFacade;
 
 @Controller
@@ -31,6 +36,43 @@ public class CourierController {
         return TemplateNames.COURIER_PANEL;
     }
 
+    @GetMapping(value = Paths.COURIER_FEED, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter subscribeToFeed(@PathVariable(Paths.COURIER_ID) long courierId) {
+        return courierFacade.subscribeToFeed(courierId);
+    }
+
+    @GetMapping(Paths.COURIER_RUN)
+    public String getRun(@PathVariable(Paths.COURIER_ID) long courierId, Model model) {
+        model.addAttribute(AttributeNames.RUN, courierFacade.getRun(courierId));
+        return TemplateNames.COURIER_RUN;
+    }
+
+    @PostMapping(Paths.COURIER_TAKE_RUN)
+    public String takeRun(
+            @PathVariable(Paths.COURIER_ID) long courierId,
+            @ModelAttribute CourierRunActionForm form,
+            RedirectAttributes redirectAttributes
+    ) {
+        if (hasValidationErrors(form)) {
+            redirectAttributes.addFlashAttribute(AttributeNames.ERROR_MESSAGE, "Некорректный состав маршрута");
+            return redirectToRun(courierId);
+        }
+
+        try {
+            int takenOrders = courierFacade.takeRun(courierId, form);
+            redirectAttributes.addFlashAttribute(
+                    AttributeNames.SUCCESS_MESSAGE,
+                    "В работу взят маршрут из %s заказов".formatted(takenOrders)
+            );
+        } catch (IllegalStateException exception) {
+            redirectAttributes.addFlashAttribute(AttributeNames.ERROR_MESSAGE, exception.getMessage());
+            return redirectToRun(courierId);
+        }
+
+        return redirectToPanel(courierId);
+    }
+
     @PostMapping(Paths.COURIER_TAKE_ORDER)
     public String takeOrder(
             @PathVariable(Paths.COURIER_ID) long courierId,
@@ -67,11 +109,25 @@ public class CourierController {
         }
 
         try {
-            courierFacade.takeOrderGroup(courierId, form);
-            String successMessage = form.getExpectedOrderCount() != null && form.getExpectedOrderCount() > 1
-                    ? "В работу взято %s заказов".formatted(form.getExpectedOrderCount())
-                    : "Заказ успешно взят в работу";
-            redirectAttributes.addFlashAttribute(AttributeNames.SUCCESS_MESSAGE, successMessage);
+            CourierOrderGroupTakeViewModel take = courierFacade.takeOrderGroup(courierId, form);
+            if (take.offer() != null) {
+                redirectAttributes.addFlashAttribute(
+                        AttributeNames.ERROR_MESSAGE,
+                        "Часть заказов группы уже недоступна: свободно %s из %s"
+                                .formatted(take.offer().orderKeys().size(), take.requestedCount())
+                );
+                redirectAttributes.addFlashAttribute(AttributeNames.GROUP_TAKE_OFFER, take.offer());
+            } else if (take.takenCount() < take.requestedCount()) {
+                redirectAttributes.addFlashAttribute(
+                        AttributeNames.SUCCESS_MESSAGE,
+                        "В работу взято %s из %s заказов группы".formatted(take.takenCount(), take.requestedCount())
+                );
+            } else {
+                String successMessage = take.takenCount() > 1
+                        ? "В работу взято %s заказов".formatted(take.takenCount())
+                        : "Заказ успешно взят в работу";
+                redirectAttributes.addFlashAttribute(AttributeNames.SUCCESS_MESSAGE, successMessage);
+            }
         } catch (IllegalStateException exception) {
             redirectAttributes.addFlashAttribute(AttributeNames.ERROR_MESSAGE, exception.getMessage());
         }
@@ -100,10 +156,41 @@ public class CourierController {
         return redirectToPanel(courierId);
     }
 
+    @PostMapping(Paths.COURIER_COMPLETE_ORDER_GROUP)
+    public String completeOrderGroup(
+            @PathVariable(Paths.COURIER_ID) long courierId,
+            @ModelAttribute CourierOrderGroupActionForm form,
+            RedirectAttributes redirectAttributes
+    ) {
+        if (hasValidationErrors(form)) {
+            redirectAttributes.addFlashAttribute(
+                    AttributeNames.ERROR_MESSAGE,
+                    "Некорректные данные группы заказов"
+            );
+            return redirectToPanel(courierId);
+        }
+
+        try {
+            int completedOrders = courierFacade.completeOrderGroup(courierId, form);
+            redirectAttributes.addFlashAttribute(
+                    AttributeNames.SUCCESS_MESSAGE,
+                    "Выполненными отмечено %s заказов".formatted(completedOrders)
+            );
+        } catch (IllegalStateException exception) {
+            redirectAttributes.addFlashAttribute(AttributeNames.ERROR_MESSAGE, exception.getMessage());
+        }
+
+        return redirectToPanel(courierId);
+    }
+
     private String redirectToPanel(long courierId) {
         return REDIRECT_PREFIX + Paths.COURIER + "/" + courierId + Paths.COURIER_HOME;
     }
 
+    private String redirectToRun(long courierId) {
+        return REDIRECT_PREFIX + Paths.COURIER + "/" + courierId + Paths.RUN;
+    }
+
     private boolean hasValidationErrors(Object form) {
         return !validator.validate(form).isEmpty();
     }
@@ -10,6 +10,7 @@ import ru.nsu.waste.removal.ordering.service.app.constant.AttributeNames;
 import ru.nsu.waste.removal.ordering.service.app.constant.Paths;
 import ru.nsu.waste.removal.ordering.service.app.constant.TemplateNames;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.EcoDashboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryCursor;
 import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
 import ru.nsu.waste.removal.ordering.service.core.facade.UserFacade;
 
@@ -41,8 +42,13 @@ public class UserController {
     }
 
     @GetMapping(Paths.USER_HISTORY)
-    public String getUserHistory(@PathVariable(Paths.USER_ID) long userId, Model model) {
-        model.addAttribute(AttributeNames.HISTORY, userFacade.getHistory(userId));
+    public String getUserHistory(
+            @PathVariable(Paths.USER_ID) long userId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            Model model
+    ) {
+        UserHistoryCursor selectedCursor = UserHistoryCursor.fromQuery(cursor);
+        model.addAttribute(AttributeNames.HISTORY, userFacade.getHistory(userId, selectedCursor));
         model.addAttribute(AttributeNames.USER_ID, userId);
         return TemplateNames.USER_HISTORY;
     }
@@ -1,13 +1,14 @@
 package ru.nsu.waste.removal.ordering.service.app.form;
 
-import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @Getter
 @Setter
@@ -24,7 +25,12 @@ public class CourierOrderGroupActionForm {
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private OffsetDateTime pickupTo;
 
-    @NotNull(message = "Ожидаемое количество заказов обязательно")
-    @Min(value = 1L, message = "Ожидаемое количество заказов должно быть не меньше 1")
-    private Integer expectedOrderCount;
+    @NotEmpty(message = "Группа не содержит заказов")
+    private List<Long> orderIds;
+
+    @NotEmpty(message = "Группа не содержит заказов")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private List<OffsetDateTime> orderCreatedAts;
+
+    private boolean acceptPartial;
 }
@@ -0,0 +1,21 @@
+package ru.nsu.waste.removal.ordering.service.app.form;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+public class CourierRunActionForm {
+
+    @NotEmpty(message = "Маршрут не содержит заказов")
+    private List<Long> orderIds;
+
+    @NotEmpty(message = "Маршрут не содержит заказов")
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private List<OffsetDateTime> orderCreatedAts;
+}
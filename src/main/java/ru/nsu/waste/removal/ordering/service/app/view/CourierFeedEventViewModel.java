@@ -0,0 +1,35 @@
+package ru.nsu.waste.removal.ordering.service.app.view;
+
+import java.util.List;
+
+/**
+ * Изменение ленты заказов для панели курьера. Даты уже переведены в часовой пояс курьера
+ * и отформатированы так же, как на странице панели.
+ *
+ * @param order новый заказ; null для событий о взятых и завершенных заказах
+ */
+public record CourierFeedEventViewModel(
+        List<Long> orderIds,
+        Long courierId,
+        CourierFeedOrderViewModel order
+) {
+
+    public record CourierFeedOrderViewModel(
+            String groupKey,
+            String clusterKey,
+            String pickupFrom,
+            String pickupTo,
+            String pickupFromText,
+            String pickupToText,
+            long orderId,
+            String orderCreatedAt,
+            String city,
+            String detailedAddress,
+            String postalCode,
+            String type,
+            String status,
+            boolean greenChosen,
+            List<String> fractions
+    ) {
+    }
+}
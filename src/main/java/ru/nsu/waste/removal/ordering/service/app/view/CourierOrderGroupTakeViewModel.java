@@ -0,0 +1,28 @@
+package ru.nsu.waste.removal.ordering.service.app.view;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * @param offer оставшиеся свободными заказы группы, если группа не была взята целиком; иначе null
+ */
+public record CourierOrderGroupTakeViewModel(
+        int requestedCount,
+        int takenCount,
+        CourierOrderGroupOfferViewModel offer
+) {
+
+    public record CourierOrderGroupOfferViewModel(
+            String clusterKey,
+            OffsetDateTime pickupFrom,
+            OffsetDateTime pickupTo,
+            List<CourierOrderKeyViewModel> orderKeys
+    ) {
+    }
+
+    public record CourierOrderKeyViewModel(
+            long orderId,
+            OffsetDateTime orderCreatedAt
+    ) {
+    }
+}
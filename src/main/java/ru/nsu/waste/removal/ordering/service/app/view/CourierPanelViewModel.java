@@ -8,11 +8,13 @@ public record CourierPanelViewModel(
         String fullName,
         String postalCode,
         long totalPoints,
+        long feedVersion,
         List<CourierOrderGroupViewModel> availableOrderGroups,
         List<CourierOrderGroupViewModel> assignedOrderGroups
 ) {
 
     public record CourierOrderGroupViewModel(
+            String groupKey,
             String clusterKey,
             OffsetDateTime pickupFrom,
             OffsetDateTime pickupTo,
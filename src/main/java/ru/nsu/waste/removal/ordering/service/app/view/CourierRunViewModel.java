@@ -0,0 +1,21 @@
+package ru.nsu.waste.removal.ordering.service.app.view;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record CourierRunViewModel(
+        long courierId,
+        String postalCode,
+        OffsetDateTime startsAt,
+        OffsetDateTime finishesAt,
+        int travelMinutes,
+        List<CourierRunStopViewModel> stops
+) {
+
+    public record CourierRunStopViewModel(
+            int position,
+            OffsetDateTime pickupAt,
+            CourierPanelViewModel.CourierOrderViewModel order
+    ) {
+    }
+}
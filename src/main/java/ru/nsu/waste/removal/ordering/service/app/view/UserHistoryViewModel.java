@@ -6,7 +6,9 @@ import java.util.List;
 public record UserHistoryViewModel(
         long userId,
         long currentPoints,
-        List<ItemViewModel> items
+        List<ItemViewModel> items,
+        boolean firstPage,
+        String nextCursor
 ) {
 
     public record ItemViewModel(
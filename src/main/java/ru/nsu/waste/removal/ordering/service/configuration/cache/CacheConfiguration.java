@@ -0,0 +1,14 @@
+package ru.nsu.waste.removal.ordering.service.configuration.cache;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Кэши почти неизменяемого контекста пользователя (тип, почтовый индекс, часовой пояс).
+ * Размер и время жизни задаются в {@code spring.cache.caffeine.spec}; со статистикой Caffeine
+ * Spring Boot публикует метрики {@code cache.gets} с тегом result=hit/miss по каждому кэшу.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+}
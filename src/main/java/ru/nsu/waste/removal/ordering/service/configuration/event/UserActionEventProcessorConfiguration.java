@@ -0,0 +1,25 @@
+package ru.nsu.waste.removal.ordering.service.configuration.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class UserActionEventProcessorConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService userActionEventPartitionExecutor(
+            @Value("${app.jobs.user-action-event-processor.parallelism:4}") int parallelism
+    ) {
+        if (parallelism <= 0) {
+            throw new IllegalStateException("User action event processor parallelism must be positive");
+        }
+        return Executors.newFixedThreadPool(
+                parallelism,
+                Thread.ofVirtual().name("user-action-event-partition-", 0).factory()
+        );
+    }
+}
@@ -2,39 +2,62 @@ package ru.nsu.waste.removal.ordering.service.core.facade;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderActionForm;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderGroupActionForm;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRunActionForm;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierFeedEventViewModel;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierOrderGroupTakeViewModel;
 import ru.nsu.waste.removal.ordering.service.app.view.CourierPanelViewModel;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierRunViewModel;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroup;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupKey;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupTake;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierPanel;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierProfileInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRunStop;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierFeedBroadcaster;
 import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierPanelService;
+import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierRunService;
 
 import java.time.DateTimeException;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
 public class CourierFacade {
 
+    private static final DateTimeFormatter FEED_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     private final CourierPanelService courierPanelService;
     private final CourierInfoService courierInfoService;
+    private final CourierFeedBroadcaster courierFeedBroadcaster;
+    private final CourierRunService courierRunService;
 
     public CourierPanelViewModel getPanel(long courierId) {
+        CourierProfileInfo profile = courierInfoService.getProfile(courierId);
+        ZoneId courierZoneId = resolveCourierZoneId(profile);
+        // Версия берется до чтения заказов: изменения, попавшие между ними, панель получит повторно.
+        long feedVersion = courierFeedBroadcaster.currentVersion(profile.postalCode());
         CourierPanel panel = courierPanelService.getPanel(courierId);
-        ZoneId courierZoneId = resolveCourierZoneId(courierId);
 
         return new CourierPanelViewModel(
                 panel.courierId(),
                 panel.fullName(),
                 panel.postalCode(),
                 panel.totalPoints(),
+                feedVersion,
                 panel.availableOrderGroups().stream()
                         .map(group -> toGroupViewModel(group, courierZoneId, true))
                         .toList(),
@@ -44,18 +67,95 @@ public class CourierFacade {
         );
     }
 
+    /**
+     * Подписывает панель курьера на изменения заказов его почтового индекса.
+     */
+    public SseEmitter subscribeToFeed(long courierId) {
+        CourierProfileInfo profile = courierInfoService.getProfile(courierId);
+        ZoneId courierZoneId = resolveCourierZoneId(profile);
+        return courierFeedBroadcaster.subscribe(
+                profile.postalCode(),
+                event -> toFeedEventViewModel(event, courierZoneId)
+        );
+    }
+
+    public CourierRunViewModel getRun(long courierId) {
+        CourierProfileInfo profile = courierInfoService.getProfile(courierId);
+        ZoneId courierZoneId = resolveCourierZoneId(profile);
+        CourierRun run = courierRunService.planRun(courierId);
+
+        List<CourierRunViewModel.CourierRunStopViewModel> stops = new ArrayList<>(run.stops().size());
+        for (CourierRunStop stop : run.stops()) {
+            stops.add(new CourierRunViewModel.CourierRunStopViewModel(
+                    stops.size() + 1,
+                    convertToCourierTimezone(stop.pickupAt(), courierZoneId),
+                    toOrderViewModel(stop.order(), courierZoneId)
+            ));
+        }
+        return new CourierRunViewModel(
+                profile.courierId(),
+                profile.postalCode(),
+                convertToCourierTimezone(run.startsAt(), courierZoneId),
+                convertToCourierTimezone(run.finishesAt(), courierZoneId),
+                run.travelMinutes(),
+                List.copyOf(stops)
+        );
+    }
+
+    public int takeRun(long courierId, CourierRunActionForm form) {
+        List<OrderKey> orderKeys = toOrderKeys(
+                form.getOrderIds(),
+                form.getOrderCreatedAts(),
+                "Некорректный состав маршрута"
+        );
+        courierRunService.takeRun(courierId, orderKeys);
+        return orderKeys.size();
+    }
+
     public void takeOrder(long courierId, CourierOrderActionForm form) {
         courierPanelService.takeOrder(courierId, toOrderKey(form));
     }
 
-    public void takeOrderGroup(long courierId, CourierOrderGroupActionForm form) {
-        courierPanelService.takeOrderGroup(courierId, toOrderGroupKey(form), form.getExpectedOrderCount());
+    public CourierOrderGroupTakeViewModel takeOrderGroup(long courierId, CourierOrderGroupActionForm form) {
+        CourierOrderGroupKey groupKey = toOrderGroupKey(form);
+        CourierOrderGroupTake take = courierPanelService.takeOrderGroup(
+                courierId,
+                groupKey,
+                toOrderKeys(form.getOrderIds(), form.getOrderCreatedAts(), "Некорректный состав группы заказов"),
+                form.isAcceptPartial()
+        );
+        if (!take.takenOrderKeys().isEmpty()) {
+            return new CourierOrderGroupTakeViewModel(take.requestedCount(), take.takenOrderKeys().size(), null);
+        }
+        return new CourierOrderGroupTakeViewModel(
+                take.requestedCount(),
+                0,
+                new CourierOrderGroupTakeViewModel.CourierOrderGroupOfferViewModel(
+                        groupKey.clusterKey(),
+                        groupKey.pickupFrom(),
+                        groupKey.pickupTo(),
+                        take.availableOrderKeys().stream()
+                                .map(orderKey -> new CourierOrderGroupTakeViewModel.CourierOrderKeyViewModel(
+                                        orderKey.id(),
+                                        orderKey.createdAt()
+                                ))
+                                .toList()
+                )
+        );
     }
 
     public void completeOrder(long courierId, CourierOrderActionForm form) {
         courierPanelService.completeOrder(courierId, toOrderKey(form));
     }
 
+    public int completeOrderGroup(long courierId, CourierOrderGroupActionForm form) {
+        return courierPanelService.completeOrderGroup(
+                courierId,
+                toOrderGroupKey(form),
+                toOrderKeys(form.getOrderIds(), form.getOrderCreatedAts(), "Некорректный состав группы заказов")
+        );
+    }
+
     private OrderKey toOrderKey(CourierOrderActionForm form) {
         if (form.getOrderId() == null || form.getOrderCreatedAt() == null) {
             throw new IllegalStateException("Некорректный ключ заказа");
@@ -63,6 +163,25 @@ public class CourierFacade {
         return new OrderKey(form.getOrderId(), form.getOrderCreatedAt());
     }
 
+    private List<OrderKey> toOrderKeys(
+            List<Long> orderIds,
+            List<OffsetDateTime> orderCreatedAts,
+            String invalidKeysMessage
+    ) {
+        if (orderIds == null || orderCreatedAts == null || orderIds.size() != orderCreatedAts.size()) {
+            throw new IllegalStateException(invalidKeysMessage);
+        }
+
+        List<OrderKey> orderKeys = new ArrayList<>(orderIds.size());
+        for (int index = 0; index < orderIds.size(); index++) {
+            if (orderIds.get(index) == null || orderCreatedAts.get(index) == null) {
+                throw new IllegalStateException(invalidKeysMessage);
+            }
+            orderKeys.add(new OrderKey(orderIds.get(index), orderCreatedAts.get(index)));
+        }
+        return orderKeys;
+    }
+
     private CourierOrderGroupKey toOrderGroupKey(CourierOrderGroupActionForm form) {
         if (form.getClusterKey() == null || form.getClusterKey().isBlank()
                 || form.getPickupFrom() == null
@@ -82,6 +201,7 @@ public class CourierFacade {
         String takeActionLabel = withTakeAction ? buildTakeActionLabel(ordersCount) : "";
 
         return new CourierPanelViewModel.CourierOrderGroupViewModel(
+                toGroupKey(group.clusterKey(), group.pickupFrom(), group.pickupTo()),
                 group.clusterKey(),
                 convertToCourierTimezone(group.pickupFrom(), courierZoneId),
                 convertToCourierTimezone(group.pickupTo(), courierZoneId),
@@ -121,8 +241,50 @@ public class CourierFacade {
         );
     }
 
-    private ZoneId resolveCourierZoneId(long courierId) {
-        String timezone = courierInfoService.getProfile(courierId).timezone();
+    private CourierFeedEventViewModel toFeedEventViewModel(CourierFeedEvent event, ZoneId courierZoneId) {
+        List<Long> orderIds = event.orderKeys().stream()
+                .map(OrderKey::id)
+                .toList();
+        CourierOrderInfo order = event.order();
+        if (order == null) {
+            return new CourierFeedEventViewModel(orderIds, event.courierId(), null);
+        }
+
+        OffsetDateTime pickupFrom = convertToCourierTimezone(order.pickupFrom(), courierZoneId);
+        OffsetDateTime pickupTo = convertToCourierTimezone(order.pickupTo(), courierZoneId);
+        return new CourierFeedEventViewModel(
+                orderIds,
+                event.courierId(),
+                new CourierFeedEventViewModel.CourierFeedOrderViewModel(
+                        toGroupKey(order.postalCode(), order.pickupFrom(), order.pickupTo()),
+                        order.postalCode(),
+                        String.valueOf(pickupFrom),
+                        String.valueOf(pickupTo),
+                        pickupFrom == null ? "" : FEED_TIME_FORMATTER.format(pickupFrom),
+                        pickupTo == null ? "" : FEED_TIME_FORMATTER.format(pickupTo),
+                        order.orderId(),
+                        String.valueOf(order.orderCreatedAt()),
+                        order.city(),
+                        order.detailedAddress(),
+                        order.postalCode(),
+                        order.type(),
+                        localizeOrderStatus(order.status()),
+                        order.greenChosen(),
+                        order.fractions()
+                )
+        );
+    }
+
+    /**
+     * Ключ группы на странице панели: почтовый индекс и границы слота как моменты времени,
+     * чтобы группы совпадали независимо от смещения, в котором пришли даты.
+     */
+    private String toGroupKey(String clusterKey, OffsetDateTime pickupFrom, OffsetDateTime pickupTo) {
+        return clusterKey + "|" + pickupFrom.toInstant() + "|" + pickupTo.toInstant();
+    }
+
+    private ZoneId resolveCourierZoneId(CourierProfileInfo profile) {
+        String timezone = profile.timezone();
         try {
             return ZoneId.of(timezone);
         } catch (DateTimeException exception) {
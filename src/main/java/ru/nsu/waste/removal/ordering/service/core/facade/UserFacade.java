@@ -11,6 +11,7 @@ import ru.nsu.waste.removal.ordering.service.app.view.UserLeaderboardViewModel;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.EcoDashboard;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.EcoDashboardPeriod;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistory;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryCursor;
 import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
 import ru.nsu.waste.removal.ordering.service.core.model.order.ActiveOrderInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
@@ -18,19 +19,17 @@ import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboard;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntry;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.AchieverProfileRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.achievement.AchievementService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.EcoDashboardService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.UserHistoryService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecotask.EcoTaskService;
 import ru.nsu.waste.removal.ordering.service.core.service.infocard.InfoCardService;
+import ru.nsu.waste.removal.ordering.service.core.service.level.LevelCatalog;
 import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.user.UserInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.user.UserLeaderboardService;
 
-import java.time.Clock;
 import java.time.DateTimeException;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
@@ -45,21 +44,19 @@ import java.util.Set;
 public class UserFacade {
 
     private static final int FULL_PROGRESS_PERCENT = 100;
-    private static final int WEEK_DAYS = 7;
     private static final int LEADERBOARD_TOP_LIMIT = 10;
+    private static final int HISTORY_PAGE_SIZE = 20;
 
     private final UserInfoService userInfoService;
     private final OrderInfoService orderInfoService;
     private final AchieverProfileRepository achieverProfileRepository;
-    private final LevelRepository levelRepository;
-    private final UserLeaderboardRepository userLeaderboardRepository;
+    private final LevelCatalog levelCatalog;
     private final UserLeaderboardService userLeaderboardService;
     private final AchievementService achievementService;
     private final EcoTaskService ecoTaskService;
     private final InfoCardService infoCardService;
     private final EcoDashboardService ecoDashboardService;
     private final UserHistoryService userHistoryService;
-    private final Clock clock;
 
     public UserHomeViewModel getHome(long userId) {
         UserProfileInfo profile = userInfoService.getProfileByUserId(userId);
@@ -117,8 +114,8 @@ public class UserFacade {
         );
     }
 
-    public UserHistoryViewModel getHistory(long userId) {
-        UserHistory history = userHistoryService.getUserHistory(userId);
+    public UserHistoryViewModel getHistory(long userId, UserHistoryCursor cursor) {
+        UserHistory history = userHistoryService.getUserHistory(userId, cursor, HISTORY_PAGE_SIZE);
 
         return new UserHistoryViewModel(
                 history.userId(),
@@ -130,7 +127,9 @@ public class UserFacade {
                                 item.pointsDelta(),
                                 item.balanceAfter()
                         ))
-                        .toList()
+                        .toList(),
+                cursor.isInitial(),
+                history.nextCursor() == null ? null : history.nextCursor().toQuery()
         );
     }
 
@@ -238,7 +237,7 @@ public class UserFacade {
                         "Профиль достигателя не найден для пользователя с id = %s".formatted(userId)
                 ));
 
-        Optional<Level> nextLevel = levelRepository.findNextTargetLevelByTotalPoints(totalPoints);
+        Optional<Level> nextLevel = levelCatalog.findNextTarget(totalPoints);
         if (nextLevel.isEmpty()) {
             return new UserHomeViewModel.AchieverMotivationViewModel(
                     levelId,
@@ -262,8 +261,7 @@ public class UserFacade {
     }
 
     private UserHomeViewModel.SocializerMotivationViewModel buildSocializerMotivation(long userId) {
-        OffsetDateTime since = OffsetDateTime.now(clock).minusDays(WEEK_DAYS);
-        Integer rankPosition = userLeaderboardRepository.findWeeklyRankPosition(userId, since)
+        Integer rankPosition = userLeaderboardService.findRankPosition(userId, LeaderboardPeriod.WEEK)
                 .orElse(null);
 
         return new UserHomeViewModel.SocializerMotivationViewModel(rankPosition);
@@ -1,11 +1,14 @@
 package ru.nsu.waste.removal.ordering.service.core.mapper.courier;
 
 import org.mapstruct.Mapper;
-import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.MarkDoneParams;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.CompleteOrdersParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrderGroupParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrderParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrdersParams;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface CourierParamsMapper {
@@ -23,13 +26,23 @@ public interface CourierParamsMapper {
             String clusterKey,
             OffsetDateTime pickupFrom,
             OffsetDateTime pickupTo,
+            List<OrderKey> orderKeys,
+            boolean acceptPartial,
             OffsetDateTime assignedAt
     );
 
-    MarkDoneParams mapToMarkDoneParams(
+    TakeOrdersParams mapToTakeOrdersParams(
             long courierId,
-            long orderId,
-            OffsetDateTime orderCreatedAt,
+            List<OrderKey> orderKeys,
+            List<String> postalCodes,
+            boolean acceptPartial,
+            OffsetDateTime assignedAt
+    );
+
+    CompleteOrdersParams mapToCompleteOrdersParams(
+            long courierId,
+            List<OrderKey> orderKeys,
+            long rewardPerOrder,
             OffsetDateTime completedAt
     );
 }
@@ -2,7 +2,8 @@ package ru.nsu.waste.removal.ordering.service.core.mapper.history;
 
 import org.mapstruct.Mapper;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddEventParams;
-import ru.nsu.waste.removal.ordering.service.core.repository.history.param.CountByUserIdAndEventTypeInPeriodParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventBalanceParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventRewardParams;
 
 import java.time.OffsetDateTime;
 
@@ -16,10 +17,17 @@ public interface UserActionHistoryParamsMapper {
             long pointsDifference
     );
 
-    CountByUserIdAndEventTypeInPeriodParams mapToCountByUserIdAndEventTypeInPeriodParams(
-            long userId,
-            String eventType,
-            OffsetDateTime from,
-            OffsetDateTime to
+    UpdateEventRewardParams mapToUpdateEventRewardParams(
+            long eventId,
+            OffsetDateTime eventCreatedAt,
+            String contentJson,
+            long pointsDifference,
+            long balanceAfter
+    );
+
+    UpdateEventBalanceParams mapToUpdateEventBalanceParams(
+            long eventId,
+            OffsetDateTime eventCreatedAt,
+            long balanceAfter
     );
 }
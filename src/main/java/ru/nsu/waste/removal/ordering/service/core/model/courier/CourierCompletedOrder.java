@@ -0,0 +1,14 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.time.OffsetDateTime;
+
+public record CourierCompletedOrder(
+        OrderKey orderKey,
+        long userId,
+        String postalCode,
+        OffsetDateTime pickupFrom,
+        OffsetDateTime pickupTo
+) {
+}
@@ -0,0 +1,54 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.util.List;
+
+/**
+ * Изменение ленты заказов почтового индекса.
+ *
+ * @param courierId курьер, взявший или завершивший заказы; null для нового заказа
+ * @param order     строка ленты нового заказа; null для остальных событий
+ */
+public record CourierFeedEvent(
+        CourierFeedEventType type,
+        String postalCode,
+        List<OrderKey> orderKeys,
+        Long courierId,
+        CourierOrderInfo order
+) {
+
+    public static CourierFeedEvent orderAdded(CourierOrderInfo order) {
+        return new CourierFeedEvent(
+                CourierFeedEventType.ORDER_ADDED,
+                order.postalCode(),
+                List.of(new OrderKey(order.orderId(), order.orderCreatedAt())),
+                null,
+                order
+        );
+    }
+
+    public static CourierFeedEvent ordersTaken(String postalCode, long courierId, List<OrderKey> orderKeys) {
+        return new CourierFeedEvent(
+                CourierFeedEventType.ORDERS_TAKEN,
+                postalCode,
+                List.copyOf(orderKeys),
+                courierId,
+                null
+        );
+    }
+
+    public static CourierFeedEvent orderCompleted(String postalCode, long courierId, OrderKey orderKey) {
+        return ordersCompleted(postalCode, courierId, List.of(orderKey));
+    }
+
+    public static CourierFeedEvent ordersCompleted(String postalCode, long courierId, List<OrderKey> orderKeys) {
+        return new CourierFeedEvent(
+                CourierFeedEventType.ORDER_COMPLETED,
+                postalCode,
+                List.copyOf(orderKeys),
+                courierId,
+                null
+        );
+    }
+}
@@ -0,0 +1,23 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+/**
+ * Изменения ленты заказов почтового индекса, которые получают подписанные курьеры.
+ */
+public enum CourierFeedEventType {
+    ORDER_ADDED("order-added"),
+    ORDERS_TAKEN("orders-taken"),
+    ORDER_COMPLETED("order-completed");
+
+    private final String eventName;
+
+    CourierFeedEventType(String eventName) {
+        this.eventName = eventName;
+    }
+
+    /**
+     * Имя события в потоке Server-Sent Events.
+     */
+    public String eventName() {
+        return eventName;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.util.List;
+
+/**
+ * Итог взятия группы заказов.
+ *
+ * @param takenOrderKeys     заказы, назначенные курьеру; пусто, если группа изменилась и частичное взятие
+ *                           не было разрешено
+ * @param availableOrderKeys заказы из запрошенных, которые удалось заблокировать: их курьеру можно предложить
+ *                           взять повторным запросом
+ */
+public record CourierOrderGroupTake(
+        int requestedCount,
+        List<OrderKey> takenOrderKeys,
+        List<OrderKey> availableOrderKeys
+) {
+}
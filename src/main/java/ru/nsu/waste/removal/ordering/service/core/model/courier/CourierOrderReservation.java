@@ -0,0 +1,13 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+/**
+ * @param postalCode почтовый индекс назначенного заказа; для остальных статусов {@code null}
+ */
+public record CourierOrderReservation(
+        OrderKey orderKey,
+        CourierOrderReservationStatus status,
+        String postalCode
+) {
+}
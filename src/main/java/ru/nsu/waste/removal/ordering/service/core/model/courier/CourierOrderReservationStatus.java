@@ -0,0 +1,23 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+/**
+ * Судьба запрошенного заказа группы при попытке взять ее.
+ */
+public enum CourierOrderReservationStatus {
+    /**
+     * Заказ назначен курьеру.
+     */
+    ASSIGNED,
+    /**
+     * Заказ свободен и был заблокирован, но группа целиком не взята.
+     */
+    RESERVED,
+    /**
+     * Заказ свободен, но его строку держит другая транзакция.
+     */
+    CONTENDED,
+    /**
+     * Заказ уже взят, отменен или переехал в другой слот.
+     */
+    UNAVAILABLE
+}
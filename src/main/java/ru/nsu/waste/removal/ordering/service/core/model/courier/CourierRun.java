@@ -0,0 +1,17 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Маршрут курьера: заказы в порядке объезда с плановым временем забора.
+ *
+ * @param travelMinutes суммарное время в пути между остановками без учета ожидания и самих заборов
+ */
+public record CourierRun(
+        OffsetDateTime startsAt,
+        OffsetDateTime finishesAt,
+        int travelMinutes,
+        List<CourierRunStop> stops
+) {
+}
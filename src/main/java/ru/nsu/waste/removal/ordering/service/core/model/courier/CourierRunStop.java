@@ -0,0 +1,12 @@
+package ru.nsu.waste.removal.ordering.service.core.model.courier;
+
+import java.time.OffsetDateTime;
+
+/**
+ * @param pickupAt плановое начало забора: прибытие к адресу, но не раньше начала интервала заказа
+ */
+public record CourierRunStop(
+        CourierOrderInfo order,
+        OffsetDateTime pickupAt
+) {
+}
@@ -2,9 +2,13 @@ package ru.nsu.waste.removal.ordering.service.core.model.ecoprofile;
 
 import java.util.List;
 
+/**
+ * @param nextCursor позиция для следующей страницы или null, если более ранних событий нет
+ */
 public record UserHistory(
         long userId,
         long currentPoints,
-        List<UserHistoryItem> items
+        List<UserHistoryItem> items,
+        UserHistoryCursor nextCursor
 ) {
 }
@@ -0,0 +1,58 @@
+package ru.nsu.waste.removal.ordering.service.core.model.ecoprofile;
+
+import java.time.DateTimeException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Позиция в ленте истории: (created_at, id) последнего показанного события. Следующая страница
+ * содержит события строго до этой позиции в порядке убывания (created_at, id).
+ */
+public record UserHistoryCursor(
+        OffsetDateTime createdAt,
+        long id
+) {
+
+    private static final String SEPARATOR = ",";
+
+    /**
+     * Позиция перед самым новым событием: OffsetDateTime.MAX передается в PostgreSQL как infinity.
+     */
+    public static UserHistoryCursor initial() {
+        return new UserHistoryCursor(OffsetDateTime.MAX, Long.MAX_VALUE);
+    }
+
+    /**
+     * Разбирает курсор из параметра запроса вида {@code created_at,id}; пустое или некорректное
+     * значение означает первую страницу.
+     */
+    public static UserHistoryCursor fromQuery(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return initial();
+        }
+
+        int separatorIndex = raw.lastIndexOf(SEPARATOR);
+        if (separatorIndex < 0) {
+            return initial();
+        }
+        try {
+            return new UserHistoryCursor(
+                    OffsetDateTime.parse(raw.substring(0, separatorIndex).trim()),
+                    Long.parseLong(raw.substring(separatorIndex + 1).trim())
+            );
+        } catch (DateTimeException | NumberFormatException exception) {
+            return initial();
+        }
+    }
+
+    public boolean isInitial() {
+        return equals(initial());
+    }
+
+    /**
+     * Значение для параметра запроса; время приводится к UTC, чтобы в нем не было знака «+».
+     */
+    public String toQuery() {
+        return createdAt.withOffsetSameInstant(ZoneOffset.UTC) + SEPARATOR + id;
+    }
+}
@@ -1,21 +1,28 @@
 package ru.nsu.waste.removal.ordering.service.core.model.ecotask;
 
-import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
-
 import java.time.OffsetDateTime;
 
+/**
+ * Активное назначение эко-задания вместе с накопленным прогрессом.
+ *
+ * @param backfilledUntil момент, до которого прогресс уже посчитан по сырым таблицам, или null
+ */
 public record ActiveEcoTaskAssignment(
         long userEcoTaskId,
+        long userId,
         int ecoTaskId,
-        String ecoTaskCode,
-        long points,
-        EcoTaskRuleType ruleType,
-        long target,
-        String orderTypeFilter,
-        String orderStatusFilter,
-        Boolean greenChosenFilter,
-        UserActionEventType actionEventTypeFilter,
         OffsetDateTime assignedAt,
-        OffsetDateTime expiredAt
+        OffsetDateTime expiredAt,
+        OffsetDateTime backfilledUntil,
+        EcoTaskProgress progress
 ) {
+
+    /**
+     * Проверяет, попадает ли момент события в окно назначения и не учтен ли он уже при заполнении прогресса.
+     */
+    public boolean counts(OffsetDateTime occurredAt) {
+        return !occurredAt.isBefore(assignedAt)
+                && !occurredAt.isAfter(expiredAt)
+                && (backfilledUntil == null || !occurredAt.isBefore(backfilledUntil));
+    }
 }
@@ -0,0 +1,26 @@
+package ru.nsu.waste.removal.ordering.service.core.model.ecotask;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.FractionMask;
+
+import java.util.Collection;
+
+/**
+ * Прогресс назначения эко-задания: счетчик засчитанных событий и маска засчитанных фракций
+ * (см. {@link FractionMask}).
+ */
+public record EcoTaskProgress(
+        long value,
+        long fractionMask
+) {
+
+    public static final EcoTaskProgress ZERO = new EcoTaskProgress(0L, 0L);
+
+    public EcoTaskProgress increment() {
+        return new EcoTaskProgress(value + 1, fractionMask);
+    }
+
+    public EcoTaskProgress withFractions(Collection<Long> fractionIds) {
+        long mask = fractionMask | FractionMask.ofFitting(fractionIds);
+        return mask == fractionMask ? this : new EcoTaskProgress(Long.bitCount(mask), mask);
+    }
+}
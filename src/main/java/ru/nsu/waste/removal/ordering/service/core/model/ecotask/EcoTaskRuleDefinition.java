@@ -0,0 +1,15 @@
+package ru.nsu.waste.removal.ordering.service.core.model.ecotask;
+
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+/**
+ * Строка каталога eco_task с несобранным правилом.
+ */
+public record EcoTaskRuleDefinition(
+        int ecoTaskId,
+        String code,
+        long points,
+        UserActionEventType triggerEvent,
+        String ruleJson
+) {
+}
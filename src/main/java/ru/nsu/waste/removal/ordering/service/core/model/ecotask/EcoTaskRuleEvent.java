@@ -0,0 +1,20 @@
+package ru.nsu.waste.removal.ordering.service.core.model.ecotask;
+
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Событие, по которому продвигаются правила эко-заданий.
+ *
+ * @param occurredAt момент, по которому событие попадает в окно назначения: для ORDER_DONE - время выполнения
+ *                   заказа, для остальных событий - время записи в историю
+ * @param orderDone  содержимое ORDER_DONE или null для остальных событий
+ */
+public record EcoTaskRuleEvent(
+        UserActionEventType eventType,
+        OffsetDateTime occurredAt,
+        OrderDoneEventContent orderDone
+) {
+}
@@ -4,5 +4,5 @@ public record AchievementUnlockedEventContent(
         int achievementId,
         String achievementCode,
         String achievementTitle
-) {
+) implements UserActionEventContent {
 }
@@ -5,5 +5,5 @@ public record EcoTaskCompletedEventContent(
         long ecoTaskId,
         String ecoTaskCode,
         long rewardPoints
-) {
+) implements UserActionEventContent {
 }
@@ -8,5 +8,5 @@ public record LevelUpEventContent(
         long oldTotalPoints,
         long newTotalPoints,
         boolean maxReached
-) {
+) implements UserActionEventContent {
 }
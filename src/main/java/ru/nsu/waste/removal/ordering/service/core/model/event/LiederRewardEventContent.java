@@ -1,7 +1,12 @@
 package ru.nsu.waste.removal.ordering.service.core.model.event;
 
+/**
+ * @param parameterVersion версия параметров из lieder_reward_parameters, по которым посчитана награда;
+ *                         0 - параметры по умолчанию из конфигурации
+ */
 public record LiederRewardEventContent(
         String algo,
+        int parameterVersion,
         double alpha,
         double theta,
         int maxPoints,
@@ -11,5 +16,5 @@ public record LiederRewardEventContent(
         double fValue,
         long calculatedPoints,
         long appliedPoints
-) {
+) implements UserActionEventContent {
 }
@@ -1,6 +0,0 @@
-package ru.nsu.waste.removal.ordering.service.core.model.event;
-
-public record LiederRewardRequestEventContent(
-        boolean success
-) {
-}
@@ -9,5 +9,5 @@ public record OrderCreatedEventContent(
         String pickupTo,
         boolean greenChosen,
         List<Long> fractionIds
-) {
+) implements UserActionEventContent {
 }
@@ -10,6 +10,7 @@ public record OrderDoneEventContent(
         String pickupTo,
         List<Long> fractionIds,
         long courierId,
-        String status
-) {
+        String status,
+        String completedAt
+) implements UserActionEventContent {
 }
@@ -11,6 +11,6 @@ public record OrderPaidWithPointsEventContent(
         List<Long> fractionIds,
         long spentPoints,
         String paymentStatus
-) {
+) implements UserActionEventContent {
 }
 
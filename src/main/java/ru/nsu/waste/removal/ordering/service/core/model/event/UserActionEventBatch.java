@@ -0,0 +1,47 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param context результаты обработчиков, общие для всех срезов пачки
+ */
+public record UserActionEventBatch(
+        List<UserActionHistoryEvent> events,
+        UserActionEventContext context
+) {
+
+    public UserActionEventBatch {
+        events = List.copyOf(events);
+    }
+
+    public UserActionEventBatch(List<UserActionHistoryEvent> events) {
+        this(events, UserActionEventContext.detached());
+    }
+
+    public static UserActionEventBatch of(UserActionHistoryEvent event) {
+        return new UserActionEventBatch(List.of(event));
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * События пачки, сгруппированные по пользователю. Порядок пользователей и порядок событий
+     * внутри группы совпадают с порядком обработки (tx_id, id).
+     */
+    public Map<Long, List<UserActionHistoryEvent>> eventsByUserId() {
+        Map<Long, List<UserActionHistoryEvent>> eventsByUserId = new LinkedHashMap<>();
+        for (UserActionHistoryEvent event : events) {
+            eventsByUserId.computeIfAbsent(event.userId(), ignored -> new ArrayList<>()).add(event);
+        }
+        return eventsByUserId;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+/**
+ * Типизированное содержимое события истории. Класс содержимого определяется типом события
+ * ({@link UserActionEventType#contentType()}); разбор выполняет UserActionEventContentReader.
+ */
+public sealed interface UserActionEventContent permits
+        AchievementUnlockedEventContent,
+        EcoTaskCompletedEventContent,
+        InfoCardViewedEventContent,
+        LevelUpEventContent,
+        LiederRewardEventContent,
+        OrderCreatedEventContent,
+        OrderDoneEventContent,
+        OrderPaidWithPointsEventContent {
+}
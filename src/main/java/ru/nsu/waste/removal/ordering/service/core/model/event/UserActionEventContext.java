@@ -0,0 +1,87 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+
+/**
+ * Результаты обработчиков, общие для всех срезов одной пачки: следующий обработчик берет из контекста
+ * то, что предыдущий уже посчитал, вместо повторного чтения из БД. Используется одним потоком обработки пачки.
+ * <p>
+ * Обработчик, который сам назначает очки событию с нулевым points_difference, обязан записать их через
+ * {@link #recordReward}, иначе в контексте конвейера такое событие будет считаться событием без очков.
+ * Записи среза, откаченного к точке сохранения, снимаются через {@link #forget}; для таких событий
+ * и для контекста вне конвейера значения читаются из БД.
+ */
+public final class UserActionEventContext {
+
+    private final boolean tracksRewards;
+    private final Map<Long, Long> rewardsByEventId = new HashMap<>();
+    private final Set<Long> unresolvedEventIds = new HashSet<>();
+    private final Map<Long, Long> totalPointsByUserId = new HashMap<>();
+
+    private UserActionEventContext(boolean tracksRewards) {
+        this.tracksRewards = tracksRewards;
+    }
+
+    /**
+     * Контекст пачки конвейера: все обработчики пачки записывают в него назначенные очки.
+     */
+    public static UserActionEventContext tracking() {
+        return new UserActionEventContext(true);
+    }
+
+    /**
+     * Контекст без гарантий полноты, например для повтора одного события: очки событий без записи неизвестны.
+     */
+    public static UserActionEventContext detached() {
+        return new UserActionEventContext(false);
+    }
+
+    public void recordReward(long eventId, long pointsDifference) {
+        rewardsByEventId.put(eventId, pointsDifference);
+        unresolvedEventIds.remove(eventId);
+    }
+
+    public void recordTotalPoints(long userId, long totalPoints) {
+        totalPointsByUserId.put(userId, totalPoints);
+    }
+
+    /**
+     * Итоговые очки события, если они известны без чтения из БД.
+     */
+    public OptionalLong findPointsDifference(UserActionHistoryEvent event) {
+        Long reward = rewardsByEventId.get(event.id());
+        if (reward != null) {
+            return OptionalLong.of(reward);
+        }
+        if (event.pointsDifference() != 0L) {
+            return OptionalLong.of(event.pointsDifference());
+        }
+        if (!tracksRewards || unresolvedEventIds.contains(event.id())) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(0L);
+    }
+
+    /**
+     * Сумма очков пользователя после обработки его событий пачки, если ее уже записал обработчик баланса.
+     */
+    public OptionalLong findTotalPoints(long userId) {
+        Long totalPoints = totalPointsByUserId.get(userId);
+        return totalPoints == null ? OptionalLong.empty() : OptionalLong.of(totalPoints);
+    }
+
+    /**
+     * Снимает записи среза, изменения которого откатились: дальше эти значения читаются из БД.
+     */
+    public void forget(UserActionEventBatch batch) {
+        for (UserActionHistoryEvent event : batch.events()) {
+            rewardsByEventId.remove(event.id());
+            unresolvedEventIds.add(event.id());
+            totalPointsByUserId.remove(event.userId());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+public record UserActionEventCursor(
+        long txId,
+        long eventId
+) {
+
+    public static UserActionEventCursor initial() {
+        return new UserActionEventCursor(0L, 0L);
+    }
+
+    /**
+     * Позиция сразу за текущей: события строго до нее - это события до курсора включительно.
+     */
+    public UserActionEventCursor next() {
+        return new UserActionEventCursor(txId, eventId + 1);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+public record UserActionEventPartition(
+        int index,
+        int count
+) {
+
+    public UserActionEventPartition {
+        if (count <= 0) {
+            throw new IllegalStateException("Partition count must be positive");
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalStateException(
+                    "Partition index = %s is out of range for %s partitions".formatted(index, count)
+            );
+        }
+    }
+
+    public static UserActionEventPartition single() {
+        return new UserActionEventPartition(0, 1);
+    }
+
+    public static UserActionEventPartition ofUser(long userId, int count) {
+        return new UserActionEventPartition((int) Math.floorMod(userId, (long) count), count);
+    }
+
+    public String processorName(String baseProcessorName) {
+        if (count == 1) {
+            return baseProcessorName;
+        }
+        return "%s-p%d-of-%d".formatted(baseProcessorName, index, count);
+    }
+}
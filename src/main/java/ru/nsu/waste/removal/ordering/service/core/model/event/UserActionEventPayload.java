@@ -0,0 +1,61 @@
+package ru.nsu.waste.removal.ordering.service.core.model.event;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Содержимое события истории: исходный JSON, вынесенные в колонки поля и лениво разобранное
+ * типизированное содержимое. JSON разбирается не больше одного раза, при первом обращении,
+ * и результат общий для всех обработчиков пачки.
+ * <p>
+ * Вынесенные поля равны null, если в содержимом их нет; для проверки по ним разбор не нужен.
+ * Записи содержимого неизменяемы, поэтому кэш без синхронизации в худшем случае приведет
+ * к повторному разбору, но не к чтению частично созданного объекта.
+ */
+public final class UserActionEventPayload {
+
+    private final String json;
+    private final Boolean success;
+    private final String orderType;
+    private final Boolean greenChosen;
+    private Optional<UserActionEventContent> content;
+
+    public UserActionEventPayload(String json, Boolean success, String orderType, Boolean greenChosen) {
+        this.json = json;
+        this.success = success;
+        this.orderType = orderType;
+        this.greenChosen = greenChosen;
+    }
+
+    public static UserActionEventPayload ofJson(String json) {
+        return new UserActionEventPayload(json, null, null, null);
+    }
+
+    public String json() {
+        return json;
+    }
+
+    public Boolean success() {
+        return success;
+    }
+
+    public String orderType() {
+        return orderType;
+    }
+
+    public Boolean greenChosen() {
+        return greenChosen;
+    }
+
+    /**
+     * Возвращает разобранное содержимое, при первом вызове разбирая JSON переданным парсером.
+     */
+    public Optional<UserActionEventContent> content(Function<String, Optional<UserActionEventContent>> parser) {
+        Optional<UserActionEventContent> parsed = content;
+        if (parsed == null) {
+            parsed = parser.apply(json);
+            content = parsed;
+        }
+        return parsed;
+    }
+}
@@ -3,25 +3,40 @@ package ru.nsu.waste.removal.ordering.service.core.model.event;
 import java.util.Locale;
 
 public enum UserActionEventType {
-    ORDER_DONE,
-    ORDER_CREATED,
-    ORDER_PAID_WITH_POINTS,
-    SEPARATE_CHOSEN,
-    GREEN_SLOT_CHOSEN,
-    LEVEL_UP,
-    LEADERBOARD_OPENED,
-    ECO_PROFILE_OPENED,
-    INFO_CARD_VIEWED,
-    ACHIEVEMENT_UNLOCKED,
-    ECO_TASK_COMPLETED,
-    ECO_TASK_REWARD_REQUEST,
-    SORTING_REGULARITY_CONFIRMED,
-    SORTING_REGULARITY_MISSED;
+    ORDER_DONE(OrderDoneEventContent.class),
+    ORDER_CREATED(OrderCreatedEventContent.class),
+    ORDER_PAID_WITH_POINTS(OrderPaidWithPointsEventContent.class),
+    SEPARATE_CHOSEN(LiederRewardEventContent.class),
+    GREEN_SLOT_CHOSEN(LiederRewardEventContent.class),
+    LEVEL_UP(LevelUpEventContent.class),
+    LEADERBOARD_OPENED(null),
+    ECO_PROFILE_OPENED(null),
+    INFO_CARD_VIEWED(InfoCardViewedEventContent.class),
+    ACHIEVEMENT_UNLOCKED(AchievementUnlockedEventContent.class),
+    ECO_TASK_COMPLETED(EcoTaskCompletedEventContent.class),
+    ECO_TASK_REWARD_REQUEST(LiederRewardEventContent.class),
+    SORTING_REGULARITY_CONFIRMED(LiederRewardEventContent.class),
+    SORTING_REGULARITY_MISSED(LiederRewardEventContent.class);
+
+    private final Class<? extends UserActionEventContent> contentType;
+
+    UserActionEventType(Class<? extends UserActionEventContent> contentType) {
+        this.contentType = contentType;
+    }
 
     public String dbName() {
         return name();
     }
 
+    /**
+     * Класс содержимого события или null, если у события нет содержимого. События наград Lieder
+     * до обработки содержат только признак success, после обработки - полный расчет награды;
+     * оба варианта читаются как {@link LiederRewardEventContent}.
+     */
+    public Class<? extends UserActionEventContent> contentType() {
+        return contentType;
+    }
+
     public static UserActionEventType fromDbName(String value) {
         return UserActionEventType.valueOf(value.trim().toUpperCase(Locale.ROOT));
     }
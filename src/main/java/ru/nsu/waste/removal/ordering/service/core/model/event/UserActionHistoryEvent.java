@@ -4,10 +4,19 @@ import java.time.OffsetDateTime;
 
 public record UserActionHistoryEvent(
         long id,
+        long txId,
         OffsetDateTime createdAt,
         long userId,
         UserActionEventType eventType,
         long pointsDifference,
-        String content
+        UserActionEventPayload payload
 ) {
+
+    public UserActionEventCursor cursor() {
+        return new UserActionEventCursor(txId, id);
+    }
+
+    public String content() {
+        return payload.json();
+    }
 }
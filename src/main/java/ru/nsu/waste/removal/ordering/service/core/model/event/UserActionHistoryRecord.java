@@ -8,6 +8,7 @@ public record UserActionHistoryRecord(
         OffsetDateTime createdAt,
         String eventType,
         long pointsDifference,
-        String content
+        long balanceAfter,
+        UserActionEventPayload payload
 ) {
 }
@@ -0,0 +1,39 @@
+package ru.nsu.waste.removal.ordering.service.core.model.order;
+
+import java.util.Collection;
+
+/**
+ * Битовая маска фракций: бит (fraction_id - 1) выставлен для каждой фракции.
+ * В bigint помещаются только фракции с id от 1 до 63.
+ */
+public final class FractionMask {
+
+    public static final long MAX_FRACTION_ID = Long.SIZE - 1;
+
+    private FractionMask() {
+    }
+
+    public static boolean fits(Long fractionId) {
+        return fractionId != null && fractionId >= 1 && fractionId <= MAX_FRACTION_ID;
+    }
+
+    public static long of(Collection<Long> fractionIds) {
+        long mask = 0L;
+        for (Long fractionId : fractionIds) {
+            if (!fits(fractionId)) {
+                throw new IllegalStateException(
+                        "Fraction id = %s does not fit into the fraction mask".formatted(fractionId)
+                );
+            }
+            mask |= 1L << (fractionId - 1);
+        }
+        return mask;
+    }
+
+    /**
+     * Маска по уже записанным данным (события, прогресс): фракции вне маски пропускаются, а не роняют обработку.
+     */
+    public static long ofFitting(Collection<Long> fractionIds) {
+        return of(fractionIds.stream().filter(FractionMask::fits).toList());
+    }
+}
@@ -10,6 +10,7 @@ public record OrderCreateParams(
         boolean greenChosen,
         String clusterKey,
         long costPoints,
-        OrderPaymentStatus paymentStatus
+        OrderPaymentStatus paymentStatus,
+        long fractionMask
 ) {
 }
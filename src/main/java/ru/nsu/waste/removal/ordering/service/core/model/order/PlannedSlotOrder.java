@@ -0,0 +1,15 @@
+package ru.nsu.waste.removal.ordering.service.core.model.order;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Активный (NEW или ASSIGNED) заказ, занимающий слот вывоза в кластере.
+ */
+public record PlannedSlotOrder(
+        long orderId,
+        long userId,
+        String postalCode,
+        OffsetDateTime pickupFrom,
+        OffsetDateTime pickupTo
+) {
+}
@@ -0,0 +1,54 @@
+package ru.nsu.waste.removal.ordering.service.core.model.partition;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Таблицы, секционированные по месяцам created_at (UTC), партициями которых управляет приложение.
+ * Имя партиции - имя таблицы с суффиксом месяца: {@code order_info_2027_01}.
+ */
+public enum PartitionedTable {
+    // На партиции order_info ссылается order_waste_fraction, поэтому отсоединять их нельзя.
+    ORDER_INFO("order_info", false),
+    USER_ACTION_HISTORY("user_action_history", true);
+
+    private static final DateTimeFormatter MONTH_SUFFIX_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final String tableName;
+    private final boolean retentionSupported;
+
+    PartitionedTable(String tableName, boolean retentionSupported) {
+        this.tableName = tableName;
+        this.retentionSupported = retentionSupported;
+    }
+
+    public String tableName() {
+        return tableName;
+    }
+
+    public boolean retentionSupported() {
+        return retentionSupported;
+    }
+
+    public String partitionName(YearMonth month) {
+        return tableName + "_" + MONTH_SUFFIX_FORMATTER.format(month);
+    }
+
+    /**
+     * Возвращает месяц партиции по ее имени. Партиции с именами не по схеме (созданные вручную)
+     * приложением не обслуживаются.
+     */
+    public Optional<YearMonth> parseMonth(String partitionName) {
+        String prefix = tableName + "_";
+        if (partitionName == null || !partitionName.startsWith(prefix)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(YearMonth.parse(partitionName.substring(prefix.length()), MONTH_SUFFIX_FORMATTER));
+        } catch (DateTimeParseException exception) {
+            return Optional.empty();
+        }
+    }
+}
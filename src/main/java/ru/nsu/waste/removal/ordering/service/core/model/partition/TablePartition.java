@@ -0,0 +1,16 @@
+package ru.nsu.waste.removal.ordering.service.core.model.partition;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Партиция секционированной таблицы. Границы - фактические из каталога (для партиции DEFAULT - null):
+ * у партиций из V1__init.sql они зависят от часового пояса сессии, в которой выполнялась миграция.
+ */
+public record TablePartition(
+        String name,
+        boolean detachPending,
+        long sizeBytes,
+        OffsetDateTime lowerBound,
+        OffsetDateTime upperBound
+) {
+}
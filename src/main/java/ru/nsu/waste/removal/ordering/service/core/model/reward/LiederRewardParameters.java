@@ -0,0 +1,19 @@
+package ru.nsu.waste.removal.ordering.service.core.model.reward;
+
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+
+/**
+ * Действующая версия параметров адаптивной награды.
+ *
+ * @param eventType тип события или null для параметров типа пользователя по умолчанию
+ */
+public record LiederRewardParameters(
+        UserType userType,
+        UserActionEventType eventType,
+        int version,
+        double alpha,
+        double theta,
+        int maxPoints
+) {
+}
@@ -0,0 +1,18 @@
+package ru.nsu.waste.removal.ordering.service.core.model.user;
+
+public record UserGamificationCounters(
+        long userId,
+        long doneOrders,
+        long doneSeparateOrders,
+        long doneGreenOrders,
+        long separateFractionMask,
+        long levelUps,
+        long leaderboardOpens,
+        long ecoProfileOpens,
+        long infoCardViews
+) {
+
+    public int distinctSeparateFractions() {
+        return Long.bitCount(separateFractionMask);
+    }
+}
@@ -0,0 +1,8 @@
+package ru.nsu.waste.removal.ordering.service.core.model.user;
+
+public record UserGamificationCountersMismatch(
+        long userId,
+        UserGamificationCounters actual,
+        UserGamificationCounters expected
+) {
+}
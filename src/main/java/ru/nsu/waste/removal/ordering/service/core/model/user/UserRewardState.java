@@ -2,6 +2,7 @@ package ru.nsu.waste.removal.ordering.service.core.model.user;
 
 public record UserRewardState(
         long userId,
+        UserType userType,
         long totalPoints,
         long currentPoints,
         long habitStrength
@@ -1,13 +1,14 @@
 package ru.nsu.waste.removal.ordering.service.core.repository.cluster;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterContext;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterKey;
-import ru.nsu.waste.removal.ordering.service.core.model.order.GreenSlot;
-import ru.nsu.waste.removal.ordering.service.core.repository.cluster.param.FindPlannedSlotsInClusterParams;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.CacheNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 
@@ -27,17 +28,15 @@ public class GeoClusterRepository {
             where ui.id = :userId
             """;
 
-    private static final String FIND_PLANNED_SLOTS_IN_CLUSTER_QUERY = """
-            select distinct
+    private static final String FIND_ACTIVE_PLANNED_SLOT_ORDERS_QUERY = """
+            select oi.id,
+                   oi.user_id,
+                   oi.postal_code,
                    oi.pickup_from,
                    oi.pickup_to
             from order_info oi
-            where oi.postal_code = :postalCode
-              and oi.user_id <> :userId
-              and oi.status in ('NEW', 'ASSIGNED')
+            where oi.status in ('NEW', 'ASSIGNED')
               and oi.pickup_from >= :from
-              and oi.pickup_from < :to
-            order by oi.pickup_from, oi.pickup_to
             """;
 
     private static final String COUNT_ACTIVE_ORDERS_IN_CLUSTER_QUERY = """
@@ -51,6 +50,7 @@ public class GeoClusterRepository {
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
+    @Cacheable(cacheNames = CacheNames.USER_CLUSTER_CONTEXT, unless = "#result == null")
     public Optional<GeoClusterContext> findUserClusterContext(long userId) {
         return namedParameterJdbcTemplate.query(
                 FIND_USER_CLUSTER_CONTEXT_QUERY,
@@ -62,15 +62,18 @@ public class GeoClusterRepository {
         ).stream().findFirst();
     }
 
-    public List<GreenSlot> findPlannedSlotsInCluster(FindPlannedSlotsInClusterParams params) {
+    /**
+     * Возвращает все активные заказы со слотом не раньше {@code from}: из них строится
+     * индекс занятости слотов.
+     */
+    public List<PlannedSlotOrder> findActivePlannedSlotOrders(OffsetDateTime from) {
         return namedParameterJdbcTemplate.query(
-                FIND_PLANNED_SLOTS_IN_CLUSTER_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, params.excludedUserId())
-                        .addValue(ParameterNames.POSTAL_CODE, params.clusterKey().value())
-                        .addValue(ParameterNames.FROM, params.from())
-                        .addValue(ParameterNames.TO, params.to()),
-                (rs, rowNum) -> new GreenSlot(
+                FIND_ACTIVE_PLANNED_SLOT_ORDERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.FROM, from),
+                (rs, rowNum) -> new PlannedSlotOrder(
+                        rs.getLong(ColumnNames.ID),
+                        rs.getLong(ColumnNames.USER_ID),
+                        rs.getString(ColumnNames.POSTAL_CODE),
                         rs.getObject(ColumnNames.PICKUP_FROM, OffsetDateTime.class),
                         rs.getObject(ColumnNames.PICKUP_TO, OffsetDateTime.class)
                 )
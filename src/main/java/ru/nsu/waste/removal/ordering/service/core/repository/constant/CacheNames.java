@@ -0,0 +1,15 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.constant;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CacheNames {
+
+    public static final String USER_GREEN_SLOT_CONTEXT = "userGreenSlotContext";
+
+    public static final String USER_TYPE = "userType";
+
+    public static final String USER_CLUSTER_CONTEXT = "userClusterContext";
+
+}
@@ -86,18 +86,6 @@ public final class ColumnNames {
 
     public static final String POINTS = "points";
 
-    public static final String TARGET = "target";
-
-    public static final String RULE_TYPE = "rule_type";
-
-    public static final String ORDER_TYPE_FILTER = "order_type_filter";
-
-    public static final String ORDER_STATUS_FILTER = "order_status_filter";
-
-    public static final String GREEN_CHOSEN_FILTER = "green_chosen_filter";
-
-    public static final String ACTION_EVENT_TYPE_FILTER = "action_event_type_filter";
-
     public static final String USER_ECO_TASK_ID = "user_eco_task_id";
 
     public static final String TRIGGER_EVENT = "trigger_event";
@@ -141,4 +129,65 @@ public final class ColumnNames {
     public static final String PAID_AT = "paid_at";
 
     public static final String IS_ACTIVE = "is_active";
+
+    public static final String TX_ID = "tx_id";
+
+    public static final String LAST_TX_ID = "last_tx_id";
+
+    public static final String LAST_EVENT_ID = "last_event_id";
+
+    public static final String PROCESSOR_NAME = "processor_name";
+
+    public static final String DONE_ORDERS = "done_orders";
+
+    public static final String DONE_SEPARATE_ORDERS = "done_separate_orders";
+
+    public static final String DONE_GREEN_ORDERS = "done_green_orders";
+
+    public static final String SEPARATE_FRACTION_MASK = "separate_fraction_mask";
+
+    public static final String LEVEL_UPS = "level_ups";
+
+    public static final String LEADERBOARD_OPENS = "leaderboard_opens";
+
+    public static final String ECO_PROFILE_OPENS = "eco_profile_opens";
+
+    public static final String INFO_CARD_VIEWS = "info_card_views";
+
+    public static final String WINDOW_START = "window_start";
+
+    public static final String PARTITION_NAME = "partition_name";
+
+    public static final String DETACH_PENDING = "detach_pending";
+
+    public static final String SIZE_BYTES = "size_bytes";
+
+    public static final String LOWER_BOUND = "lower_bound";
+
+    public static final String UPPER_BOUND = "upper_bound";
+
+    public static final String RULE = "rule";
+
+    public static final String PROGRESS = "progress";
+
+    public static final String FRACTION_MASK = "fraction_mask";
+
+    public static final String BACKFILLED_UNTIL = "backfilled_until";
+
+    public static final String ALPHA = "alpha";
+
+    public static final String THETA = "theta";
+
+    public static final String MAX_POINTS = "max_points";
+
+    public static final String LAST_USER_ID = "last_user_id";
+
+    public static final String BALANCE_AFTER = "balance_after";
+
+    public static final String SUCCESS = "success";
+
+    public static final String ORDER_TYPE = "order_type";
+
+    public static final String RESERVATION_STATUS = "reservation_status";
+
 }
@@ -36,6 +36,8 @@ public final class ParameterNames {
 
     public static final String POSTAL_CODE = "postalCode";
 
+    public static final String POSTAL_CODES = "postalCodes";
+
     public static final String DETAILED_ADDRESS = "detailedAddress";
 
     public static final String TIMEZONE = "timezone";
@@ -76,8 +78,6 @@ public final class ParameterNames {
 
     public static final String GREEN_CHOSEN = "greenChosen";
 
-    public static final String TRIGGER_EVENT = "triggerEvent";
-
     public static final String ID = "id";
 
     public static final String TOTAL_POINTS = "totalPoints";
@@ -110,6 +110,14 @@ public final class ParameterNames {
 
     public static final String ORDER_CREATED_AT = "orderCreatedAt";
 
+    public static final String ORDER_IDS = "orderIds";
+
+    public static final String ORDER_CREATED_ATS = "orderCreatedAts";
+
+    public static final String MIN_ORDER_CREATED_AT = "minOrderCreatedAt";
+
+    public static final String MAX_ORDER_CREATED_AT = "maxOrderCreatedAt";
+
     public static final String COMPLETED_AT = "completedAt";
 
     public static final String COURIER_POSTAL_CODE = "courierPostalCode";
@@ -124,4 +132,58 @@ public final class ParameterNames {
 
     public static final String FRACTION_IDS = "fractionIds";
 
+    public static final String FRACTION_MASK = "fractionMask";
+
+    public static final String SEED_NAME = "seedName";
+
+    public static final String PARTITION_COUNT = "partitionCount";
+
+    public static final String PARTITION_INDEX = "partitionIndex";
+
+    public static final String EVENT_ID = "eventId";
+
+    public static final String EVENT_CREATED_AT = "eventCreatedAt";
+
+    public static final String HANDLER_NAME = "handlerName";
+
+    public static final String ERROR_MESSAGE = "errorMessage";
+
+    public static final String TX_ID = "txId";
+
+    public static final String EVENT_IDS = "eventIds";
+
+    public static final String EVENT_REWARDS = "eventRewards";
+
+    public static final String POSITIONS = "positions";
+
+    public static final String EVENT_COUNTERS = "eventCounters";
+
+    public static final String AFTER_USER_ID = "afterUserId";
+
+    public static final String PERIOD = "period";
+
+    public static final String SCORES = "scores";
+
+    public static final String MIN_DAY = "minDay";
+
+    public static final String TABLE_NAME = "tableName";
+
+    public static final String PROGRESS = "progress";
+
+    public static final String EVENT_BALANCES = "eventBalances";
+
+    public static final String CURSOR_CREATED_AT = "cursorCreatedAt";
+
+    public static final String CURSOR_ID = "cursorId";
+
+    public static final String REWARD_STATES = "rewardStates";
+
+    public static final String ACCEPT_PARTIAL = "acceptPartial";
+
+    public static final String REQUESTED_COUNT = "requestedCount";
+
+    public static final String REWARD_PER_ORDER = "rewardPerOrder";
+
+    public static final String COMPLETED_AT_TEXT = "completedAtText";
+
 }
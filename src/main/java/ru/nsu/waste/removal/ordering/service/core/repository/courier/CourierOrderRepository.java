@@ -4,12 +4,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierCompletedOrder;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservation;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservationStatus;
+import ru.nsu.waste.removal.ordering.service.core.model.order.FractionMask;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
-import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.MarkDoneParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.CompleteOrdersParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrderGroupParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrderParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.param.TakeOrdersParams;
 
 import java.sql.Array;
 import java.time.OffsetDateTime;
@@ -22,45 +28,35 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CourierOrderRepository {
 
+    /**
+     * Названия фракций заказа oi по его маске fraction_mask (см. {@link FractionMask}).
+     */
+    private static final String ORDER_FRACTION_NAMES_COLUMN = """
+                   array(select wf.name
+                         from waste_fraction wf
+                         where wf.id <= %d
+                           and oi.fraction_mask & (cast(1 as bigint) << cast(wf.id - 1 as integer)) <> 0
+                         order by wf.name) as fractions
+            """.formatted(FractionMask.MAX_FRACTION_ID);
+
     private static final String FIND_AVAILABLE_ORDERS_BY_COURIER_ID_QUERY = """
             select oi.id,
                    oi.created_at,
                    oi.user_id,
                    oi.postal_code,
-                   a.city,
-                   a.detailed_address,
+                   oi.city,
+                   oi.detailed_address,
                    oi.type,
                    oi.status,
                    oi.pickup_from,
                    oi.pickup_to,
                    oi.green_chosen,
-                   coalesce(
-                           array_agg(wf.name order by wf.name) filter ( where wf.name is not null ),
-                           '{}'::text[]
-                   ) as fractions
+            """ + ORDER_FRACTION_NAMES_COLUMN + """
             from order_info oi
-                     join courier c on c.id = :courierId
-                     join user_info ui on ui.id = oi.user_id
-                     join address a on a.id = ui.address_id
-                     left join order_waste_fraction owf
-                               on owf.order_id = oi.id
-                                   and owf.order_created_at = oi.created_at
-                     left join waste_fraction wf on wf.id = owf.fraction_id
             where oi.status = 'NEW'
               and oi.courier_id is null
-              and oi.postal_code = c.postal_code
-            group by oi.id,
-                     oi.created_at,
-                     oi.user_id,
-                     oi.postal_code,
-                     a.city,
-                     a.detailed_address,
-                     oi.type,
-                     oi.status,
-                     oi.pickup_from,
-                     oi.pickup_to,
-                     oi.green_chosen
-            order by oi.pickup_from asc, oi.created_at asc
+              and oi.postal_code = (select c.postal_code from courier c where c.id = :courierId)
+            order by oi.pickup_from asc, oi.pickup_to asc, oi.created_at asc
             limit :limit
             """;
 
@@ -69,38 +65,18 @@ public class CourierOrderRepository {
                    oi.created_at,
                    oi.user_id,
                    oi.postal_code,
-                   a.city,
-                   a.detailed_address,
+                   oi.city,
+                   oi.detailed_address,
                    oi.type,
                    oi.status,
                    oi.pickup_from,
                    oi.pickup_to,
                    oi.green_chosen,
-                   coalesce(
-                           array_agg(wf.name order by wf.name) filter ( where wf.name is not null ),
-                           '{}'::text[]
-                   ) as fractions
+            """ + ORDER_FRACTION_NAMES_COLUMN + """
             from order_info oi
-                     join user_info ui on ui.id = oi.user_id
-                     join address a on a.id = ui.address_id
-                     left join order_waste_fraction owf
-                               on owf.order_id = oi.id
-                                   and owf.order_created_at = oi.created_at
-                     left join waste_fraction wf on wf.id = owf.fraction_id
             where oi.status = 'ASSIGNED'
               and oi.courier_id = :courierId
-            group by oi.id,
-                     oi.created_at,
-                     oi.user_id,
-                     oi.postal_code,
-                     a.city,
-                     a.detailed_address,
-                     oi.type,
-                     oi.status,
-                     oi.pickup_from,
-                     oi.pickup_to,
-                     oi.green_chosen
-            order by oi.pickup_from asc, oi.created_at asc
+            order by oi.pickup_from asc, oi.pickup_to asc, oi.created_at asc
             limit :limit
             """;
 
@@ -116,74 +92,198 @@ public class CourierOrderRepository {
               and postal_code = :courierPostalCode
             """;
 
-    private static final String FIND_ASSIGNED_ORDER_FOR_COMPLETION_QUERY = """
+    private static final String FIND_FEED_ORDER_QUERY = """
             select oi.id,
                    oi.created_at,
                    oi.user_id,
                    oi.postal_code,
-                   a.city,
-                   a.detailed_address,
+                   oi.city,
+                   oi.detailed_address,
                    oi.type,
                    oi.status,
                    oi.pickup_from,
                    oi.pickup_to,
                    oi.green_chosen,
-                   coalesce(
-                           array_agg(wf.name order by wf.name) filter ( where wf.name is not null ),
-                           '{}'::text[]
-                   ) as fractions
+            """ + ORDER_FRACTION_NAMES_COLUMN + """
             from order_info oi
-                     join user_info ui on ui.id = oi.user_id
-                     join address a on a.id = ui.address_id
-                     left join order_waste_fraction owf
-                               on owf.order_id = oi.id
-                                   and owf.order_created_at = oi.created_at
-                     left join waste_fraction wf on wf.id = owf.fraction_id
             where oi.id = :orderId
               and oi.created_at = :orderCreatedAt
-              and oi.courier_id = :courierId
-              and oi.status = 'ASSIGNED'
-            group by oi.id,
-                     oi.created_at,
-                     oi.user_id,
-                     oi.postal_code,
-                     a.city,
-                     a.detailed_address,
-                     oi.type,
-                     oi.status,
-                     oi.pickup_from,
-                     oi.pickup_to,
-                     oi.green_chosen
             """;
 
-    private static final String TAKE_ORDER_GROUP_QUERY = """
-            update order_info
-            set courier_id = :courierId,
-                assigned_at = :assignedAt,
-                status = 'ASSIGNED'
-            where status = 'NEW'
-              and courier_id is null
-              and postal_code = :postalCode
-              and pickup_from = :pickupFrom
-              and pickup_to = :pickupTo
+    /**
+     * Резервирование заказов по точным ключам. Свободные строки, подходящие под условие {@code %1$s},
+     * блокируются в порядке ключа, а строки, которые держит другая транзакция, пропускаются без ожидания.
+     * Для каждого запрошенного ключа возвращается, что с ним стало.
+     */
+    private static final String RESERVE_ORDERS_QUERY = """
+            with requested as (
+                select distinct k.id, k.created_at
+                from unnest(cast(:orderIds as bigint[]), cast(:orderCreatedAts as timestamptz[])) as k(id, created_at)
+            ),
+                 still_open as (
+                     select oi.id, oi.created_at
+                     from order_info oi
+                              join requested r on r.id = oi.id and r.created_at = oi.created_at
+                     where oi.status = 'NEW'
+                       and oi.courier_id is null
+                       %1$s
+                 ),
+                 locked as (
+                     select oi.id, oi.created_at
+                     from order_info oi
+                              join requested r on r.id = oi.id and r.created_at = oi.created_at
+                     where oi.status = 'NEW'
+                       and oi.courier_id is null
+                       %1$s
+                     order by oi.id, oi.created_at
+                     for update of oi skip locked
+                 ),
+                 taken as (
+                     update order_info oi
+                     set courier_id = :courierId,
+                         assigned_at = :assignedAt,
+                         status = 'ASSIGNED'
+                     from locked l
+                     where oi.id = l.id
+                       and oi.created_at = l.created_at
+                       and (:acceptPartial or (select count(*) from locked) = :requestedCount)
+                     returning oi.id, oi.created_at, oi.postal_code
+                 )
+            select r.id,
+                   r.created_at,
+                   t.postal_code,
+                   case
+                       when t.id is not null then 'ASSIGNED'
+                       when l.id is not null then 'RESERVED'
+                       when o.id is not null then 'CONTENDED'
+                       else 'UNAVAILABLE'
+                       end as reservation_status
+            from requested r
+                     left join still_open o on o.id = r.id and o.created_at = r.created_at
+                     left join locked l on l.id = r.id and l.created_at = r.created_at
+                     left join taken t on t.id = r.id and t.created_at = r.created_at
+            order by r.id, r.created_at
             """;
 
-    private static final String MARK_DONE_QUERY = """
-            update order_info
-            set status = 'DONE',
-                completed_at = :completedAt
-            where id = :orderId
-              and created_at = :orderCreatedAt
-              and courier_id = :courierId
-              and status = 'ASSIGNED'
+    private static final String ORDER_GROUP_CONDITION = """
+            and oi.postal_code = :postalCode
+            and oi.pickup_from = :pickupFrom
+            and oi.pickup_to = :pickupTo""";
+
+    private static final String ORDER_RUN_CONDITION = """
+            and oi.postal_code = any (cast(:postalCodes as text[]))
+            and oi.pickup_to > :assignedAt""";
+
+    private static final String TAKE_ORDER_GROUP_QUERY = RESERVE_ORDERS_QUERY.formatted(ORDER_GROUP_CONDITION);
+
+    private static final String TAKE_RUN_ORDERS_QUERY = RESERVE_ORDERS_QUERY.formatted(ORDER_RUN_CONDITION);
+
+    private static final String FIND_RUN_CANDIDATE_ORDERS_QUERY = """
+            select oi.id,
+                   oi.created_at,
+                   oi.user_id,
+                   oi.postal_code,
+                   oi.city,
+                   oi.detailed_address,
+                   oi.type,
+                   oi.status,
+                   oi.pickup_from,
+                   oi.pickup_to,
+                   oi.green_chosen,
+            """ + ORDER_FRACTION_NAMES_COLUMN + """
+            from unnest(cast(:postalCodes as text[])) as pc(postal_code)
+                     cross join lateral (
+                select o.id,
+                       o.created_at,
+                       o.user_id,
+                       o.postal_code,
+                       o.city,
+                       o.detailed_address,
+                       o.type,
+                       o.status,
+                       o.pickup_from,
+                       o.pickup_to,
+                       o.green_chosen,
+                       o.fraction_mask
+                from order_info o
+                where o.status = 'NEW'
+                  and o.courier_id is null
+                  and o.postal_code = pc.postal_code
+                  and o.pickup_to > :now
+                order by o.pickup_from asc, o.pickup_to asc, o.created_at asc
+                limit :limit
+                ) oi
+            order by oi.pickup_from asc, oi.pickup_to asc, oi.created_at asc
+            limit :limit
             """;
 
-    private static final String FIND_FRACTION_IDS_QUERY = """
-            select fraction_id
-            from order_waste_fraction
-            where order_id = :orderId
-              and order_created_at = :orderCreatedAt
-            order by fraction_id asc
+    private static final String COMPLETE_ORDERS_QUERY = """
+            with requested as (
+                select distinct k.id, k.created_at
+                from unnest(cast(:orderIds as bigint[]), cast(:orderCreatedAts as timestamptz[])) as k(id, created_at)
+            ),
+                 done as (
+                     update order_info oi
+                     set status = 'DONE',
+                         completed_at = :completedAt
+                     from requested r
+                     where oi.id = r.id
+                       and oi.created_at = r.created_at
+                       and oi.created_at between :minOrderCreatedAt and :maxOrderCreatedAt
+                       and oi.courier_id = :courierId
+                       and oi.status = 'ASSIGNED'
+                     returning oi.id,
+                         oi.created_at,
+                         oi.user_id,
+                         oi.postal_code,
+                         oi.type,
+                         oi.green_chosen,
+                         oi.pickup_from,
+                         oi.pickup_to
+                 ),
+                 history as (
+                     insert into user_action_history(
+                                                   user_id,
+                                                   event_type,
+                                                   content,
+                                                   points_difference,
+                                                   balance_after
+                                                   )
+                     select d.user_id,
+                            'ORDER_DONE',
+                            jsonb_build_object(
+                                    'orderId', d.id,
+                                    'type', d.type,
+                                    'greenChosen', d.green_chosen,
+                                    'pickupFrom', d.pickup_from,
+                                    'pickupTo', d.pickup_to,
+                                    'fractionIds', coalesce((select jsonb_agg(owf.fraction_id order by owf.fraction_id)
+                                                             from order_waste_fraction owf
+                                                             where owf.order_id = d.id
+                                                               and owf.order_created_at = d.created_at), '[]'::jsonb),
+                                    'courierId', :courierId,
+                                    'status', 'DONE',
+                                    'completedAt', :completedAtText
+                            ),
+                            0,
+                            (select ui.current_points from user_info ui where ui.id = d.user_id)
+                     from done d
+                     order by d.id, d.created_at
+                 ),
+                 credited as (
+                     update courier
+                     set total_points = total_points + :rewardPerOrder * (select count(*) from done)
+                     where id = :courierId
+                       and exists (select 1 from done)
+                 )
+            select d.id,
+                   d.created_at,
+                   d.user_id,
+                   d.postal_code,
+                   d.pickup_from,
+                   d.pickup_to
+            from done d
+            order by d.id, d.created_at
             """;
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
@@ -221,26 +321,29 @@ public class CourierOrderRepository {
         return updatedRows == 1;
     }
 
-    public Optional<CourierOrderInfo> findAssignedOrderForCompletion(
-            long courierId,
-            long orderId,
-            OffsetDateTime orderCreatedAt
-    ) {
+    public Optional<CourierOrderInfo> findFeedOrder(OrderKey orderKey) {
         return namedParameterJdbcTemplate.query(
-                FIND_ASSIGNED_ORDER_FOR_COMPLETION_QUERY,
+                FIND_FEED_ORDER_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.COURIER_ID, courierId)
-                        .addValue(ParameterNames.ORDER_ID, orderId)
-                        .addValue(ParameterNames.ORDER_CREATED_AT, orderCreatedAt),
+                        .addValue(ParameterNames.ORDER_ID, orderKey.id())
+                        .addValue(ParameterNames.ORDER_CREATED_AT, orderKey.createdAt()),
                 (rs, rowNum) -> mapCourierOrderInfo(rs)
         ).stream().findFirst();
     }
 
-    public int takeOrderGroup(TakeOrderGroupParams params) {
-        return namedParameterJdbcTemplate.update(
+    /**
+     * Резервирует запрошенные заказы группы: свободные строки блокируются в порядке ключа, а строки,
+     * которые держит другой курьер, пропускаются без ожидания. Заказы назначаются, только если удалось
+     * заблокировать все запрошенные, либо разрешено частичное взятие. Для каждого запрошенного ключа
+     * возвращается, что с ним стало.
+     */
+    public List<CourierOrderReservation> takeOrderGroup(TakeOrderGroupParams params) {
+        return reserveOrders(
                 TAKE_ORDER_GROUP_QUERY,
+                params.orderKeys(),
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.COURIER_ID, params.courierId())
+                        .addValue(ParameterNames.ACCEPT_PARTIAL, params.acceptPartial())
                         .addValue(ParameterNames.POSTAL_CODE, params.clusterKey())
                         .addValue(ParameterNames.PICKUP_FROM, params.pickupFrom())
                         .addValue(ParameterNames.PICKUP_TO, params.pickupTo())
@@ -248,25 +351,103 @@ public class CourierOrderRepository {
         );
     }
 
-    public boolean markDone(MarkDoneParams params) {
-        int updatedRows = namedParameterJdbcTemplate.update(
-                MARK_DONE_QUERY,
+    /**
+     * Открытые заказы перечисленных почтовых индексов, интервал которых еще не закончился,
+     * в порядке начала интервала. Каждый индекс читается своим index-only сканом.
+     */
+    public List<CourierOrderInfo> findRunCandidateOrders(List<String> postalCodes, OffsetDateTime now, int limit) {
+        return namedParameterJdbcTemplate.query(
+                FIND_RUN_CANDIDATE_ORDERS_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.POSTAL_CODES, postalCodes.toArray(String[]::new))
+                        .addValue(ParameterNames.NOW, now)
+                        .addValue(ParameterNames.LIMIT, limit),
+                (rs, rowNum) -> mapCourierOrderInfo(rs)
+        );
+    }
+
+    /**
+     * Резервирует заказы рейса так же, как {@link #takeOrderGroup}: подходят свободные заказы перечисленных
+     * почтовых индексов, интервал которых еще не закончился.
+     */
+    public List<CourierOrderReservation> takeOrders(TakeOrdersParams params) {
+        return reserveOrders(
+                TAKE_RUN_ORDERS_QUERY,
+                params.orderKeys(),
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.COURIER_ID, params.courierId())
-                        .addValue(ParameterNames.ORDER_ID, params.orderId())
-                        .addValue(ParameterNames.ORDER_CREATED_AT, params.orderCreatedAt())
-                        .addValue(ParameterNames.COMPLETED_AT, params.completedAt())
+                        .addValue(ParameterNames.ACCEPT_PARTIAL, params.acceptPartial())
+                        .addValue(ParameterNames.POSTAL_CODES, params.postalCodes().toArray(String[]::new))
+                        .addValue(ParameterNames.ASSIGNED_AT, params.assignedAt())
         );
-        return updatedRows == 1;
     }
 
-    public List<Long> findFractionIds(long orderId, OffsetDateTime orderCreatedAt) {
+    /**
+     * Завершает назначенные курьеру заказы одним запросом: переводит их в DONE, пишет событие
+     * ORDER_DONE в историю каждого пользователя и начисляет курьеру награду за каждый заказ.
+     * Возвращает завершенные заказы; заказы, которые уже не назначены курьеру, пропускаются.
+     * Границы по created_at отсекают партиции order_info еще при планировании запроса.
+     */
+    public List<CourierCompletedOrder> completeOrders(CompleteOrdersParams params) {
+        OffsetDateTime minOrderCreatedAt = params.orderKeys().stream()
+                .map(OrderKey::createdAt)
+                .min(OffsetDateTime::compareTo)
+                .orElseThrow();
+        OffsetDateTime maxOrderCreatedAt = params.orderKeys().stream()
+                .map(OrderKey::createdAt)
+                .max(OffsetDateTime::compareTo)
+                .orElseThrow();
         return namedParameterJdbcTemplate.query(
-                FIND_FRACTION_IDS_QUERY,
+                COMPLETE_ORDERS_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.ORDER_ID, orderId)
-                        .addValue(ParameterNames.ORDER_CREATED_AT, orderCreatedAt),
-                (rs, rowNum) -> rs.getLong(ColumnNames.FRACTION_ID)
+                        .addValue(ParameterNames.COURIER_ID, params.courierId())
+                        .addValue(ParameterNames.ORDER_IDS, params.orderKeys().stream()
+                                .mapToLong(OrderKey::id)
+                                .toArray())
+                        .addValue(ParameterNames.ORDER_CREATED_ATS, params.orderKeys().stream()
+                                .map(orderKey -> orderKey.createdAt().toString())
+                                .toArray(String[]::new))
+                        .addValue(ParameterNames.MIN_ORDER_CREATED_AT, minOrderCreatedAt)
+                        .addValue(ParameterNames.MAX_ORDER_CREATED_AT, maxOrderCreatedAt)
+                        .addValue(ParameterNames.REWARD_PER_ORDER, params.rewardPerOrder())
+                        .addValue(ParameterNames.COMPLETED_AT, params.completedAt())
+                        .addValue(ParameterNames.COMPLETED_AT_TEXT, params.completedAt().toString()),
+                (rs, rowNum) -> new CourierCompletedOrder(
+                        new OrderKey(
+                                rs.getLong(ColumnNames.ID),
+                                rs.getObject(ColumnNames.CREATED_AT, OffsetDateTime.class)
+                        ),
+                        rs.getLong(ColumnNames.USER_ID),
+                        rs.getString(ColumnNames.POSTAL_CODE),
+                        rs.getObject(ColumnNames.PICKUP_FROM, OffsetDateTime.class),
+                        rs.getObject(ColumnNames.PICKUP_TO, OffsetDateTime.class)
+                )
+        );
+    }
+
+    private List<CourierOrderReservation> reserveOrders(
+            String query,
+            List<OrderKey> orderKeys,
+            MapSqlParameterSource parameters
+    ) {
+        return namedParameterJdbcTemplate.query(
+                query,
+                parameters
+                        .addValue(ParameterNames.ORDER_IDS, orderKeys.stream()
+                                .mapToLong(OrderKey::id)
+                                .toArray())
+                        .addValue(ParameterNames.ORDER_CREATED_ATS, orderKeys.stream()
+                                .map(orderKey -> orderKey.createdAt().toString())
+                                .toArray(String[]::new))
+                        .addValue(ParameterNames.REQUESTED_COUNT, orderKeys.size()),
+                (rs, rowNum) -> new CourierOrderReservation(
+                        new OrderKey(
+                                rs.getLong(ColumnNames.ID),
+                                rs.getObject(ColumnNames.CREATED_AT, OffsetDateTime.class)
+                        ),
+                        CourierOrderReservationStatus.valueOf(rs.getString(ColumnNames.RESERVATION_STATUS)),
+                        rs.getString(ColumnNames.POSTAL_CODE)
+                )
         );
     }
 
@@ -57,12 +57,6 @@ public class CourierRepository {
             where id = :courierId
             """;
 
-    private static final String ADD_POINTS_QUERY = """
-            update courier
-            set total_points = total_points + :delta
-            where id = :courierId
-            """;
-
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     public long add(long personId, String postalCode, String timezone) {
@@ -116,15 +110,6 @@ public class CourierRepository {
         ).stream().findFirst();
     }
 
-    public boolean addPoints(long courierId, long delta) {
-        return namedParameterJdbcTemplate.update(
-                ADD_POINTS_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.COURIER_ID, courierId)
-                        .addValue(ParameterNames.DELTA, delta)
-        ) == 1;
-    }
-
     private String buildFullName(String surname, String name, String patronymic) {
         return Stream.of(surname, name, patronymic)
                 .filter(value -> value != null && !value.isBlank())
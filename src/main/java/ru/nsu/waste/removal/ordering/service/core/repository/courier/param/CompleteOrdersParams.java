@@ -0,0 +1,14 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.courier.param;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record CompleteOrdersParams(
+        long courierId,
+        List<OrderKey> orderKeys,
+        long rewardPerOrder,
+        OffsetDateTime completedAt
+) {
+}
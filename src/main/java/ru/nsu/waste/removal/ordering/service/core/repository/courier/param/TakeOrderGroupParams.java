@@ -1,12 +1,17 @@
 package ru.nsu.waste.removal.ordering.service.core.repository.courier.param;
 
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
 import java.time.OffsetDateTime;
+import java.util.List;
 
 public record TakeOrderGroupParams(
         long courierId,
         String clusterKey,
         OffsetDateTime pickupFrom,
         OffsetDateTime pickupTo,
+        List<OrderKey> orderKeys,
+        boolean acceptPartial,
         OffsetDateTime assignedAt
 ) {
 }
@@ -0,0 +1,15 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.courier.param;
+
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public record TakeOrdersParams(
+        long courierId,
+        List<OrderKey> orderKeys,
+        List<String> postalCodes,
+        boolean acceptPartial,
+        OffsetDateTime assignedAt
+) {
+}
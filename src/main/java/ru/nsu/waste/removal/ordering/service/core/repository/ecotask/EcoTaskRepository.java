@@ -6,6 +6,8 @@ import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskPeriod;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTask;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleDefinition;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 
@@ -29,19 +31,21 @@ public class EcoTaskRepository {
             limit :limit
             """;
 
-    private static final String FIND_ALL_ACTIVE_BY_USER_TYPE_QUERY = """
+    private static final String FIND_ALL_RULE_DEFINITIONS_QUERY = """
             select id,
                    code,
-                   title,
-                   description,
                    points,
-                   period
+                   trigger_event,
+                   rule
             from eco_task
-            where user_type_id = :userTypeId
-              and is_active = true
             order by id asc
             """;
 
+    private static final String FIND_CATALOG_FINGERPRINT_QUERY = """
+            select coalesce(md5(string_agg(concat_ws('|', id, code, points, trigger_event, rule), ',' order by id)), '')
+            from eco_task
+            """;
+
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     public List<EcoTask> findActiveByUserType(int userTypeId, int limit) {
@@ -63,18 +67,30 @@ public class EcoTaskRepository {
         );
     }
 
-    public List<EcoTask> findActiveByUserType(int userTypeId) {
+    /**
+     * Все задания каталога, включая неактивные: у неактивного задания могут оставаться активные назначения.
+     */
+    public List<EcoTaskRuleDefinition> findAllRuleDefinitions() {
         return namedParameterJdbcTemplate.query(
-                FIND_ALL_ACTIVE_BY_USER_TYPE_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_TYPE_ID, userTypeId),
-                (rs, rowNum) -> new EcoTask(
+                FIND_ALL_RULE_DEFINITIONS_QUERY,
+                (rs, rowNum) -> new EcoTaskRuleDefinition(
                         rs.getInt(ColumnNames.ID),
                         rs.getString(ColumnNames.CODE),
-                        rs.getString(ColumnNames.TITLE),
-                        rs.getString(ColumnNames.DESCRIPTION),
                         rs.getLong(ColumnNames.POINTS),
-                        EcoTaskPeriod.valueOf(rs.getString(ColumnNames.PERIOD))
+                        UserActionEventType.fromDbName(rs.getString(ColumnNames.TRIGGER_EVENT)),
+                        rs.getString(ColumnNames.RULE)
                 )
         );
     }
+
+    /**
+     * Отпечаток каталога заданий: меняется при любом изменении полей, из которых собираются правила.
+     */
+    public String findCatalogFingerprint() {
+        return namedParameterJdbcTemplate.queryForObject(
+                FIND_CATALOG_FINGERPRINT_QUERY,
+                new MapSqlParameterSource(),
+                String.class
+        );
+    }
 }
@@ -7,17 +7,16 @@ import org.springframework.stereotype.Repository;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.ActiveEcoTaskAssignment;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.AssignedEcoTask;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskAssignmentStatus;
-import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.UserEcoTaskAssignmentItem;
-import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.param.AddAssignedParams;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -25,7 +24,6 @@ public class UserEcoTaskRepository {
 
     private static final String STATUS_ASSIGNED = "ASSIGNED";
     private static final String STATUS_DONE = "DONE";
-    private static final String STATUS_EXPIRED = "EXPIRED";
 
     private static final String EXISTS_ACTIVE_ASSIGNMENT_QUERY = """
             select exists(
@@ -69,26 +67,31 @@ public class UserEcoTaskRepository {
             order by uet.id asc
             """;
 
-    private static final String FIND_ACTIVE_ASSIGNMENTS_BY_TRIGGER_EVENT_QUERY = """
-            select uet.id as user_eco_task_id,
-                   et.id as eco_task_id,
-                   et.code as code,
-                   et.points as points,
-                   (et.rule ->> 'type') as rule_type,
-                   cast(et.rule ->> 'target' as bigint) as target,
-                   (et.rule -> 'filters' ->> 'type') as order_type_filter,
-                   (et.rule -> 'filters' ->> 'status') as order_status_filter,
-                   cast(et.rule -> 'filters' ->> 'green_chosen' as boolean) as green_chosen_filter,
-                   (et.rule -> 'filters' ->> 'event_type') as action_event_type_filter,
-                   uet.assigned_at as assigned_at,
-                   uet.expired_at as expired_at
+    private static final String FIND_ACTIVE_ASSIGNMENTS_BY_USER_IDS_QUERY = """
+            select uet.id,
+                   uet.user_id,
+                   uet.eco_task_id,
+                   uet.assigned_at,
+                   uet.expired_at,
+                   p.backfilled_until,
+                   coalesce(p.progress, 0) as progress,
+                   coalesce(p.fraction_mask, 0) as fraction_mask
             from user_eco_task uet
-                     join eco_task et on et.id = uet.eco_task_id
-            where uet.user_id = :userId
+                     left join user_eco_task_progress p on p.user_eco_task_id = uet.id
+            where uet.user_id in (:userIds)
               and uet.status = :status
-              and et.trigger_event = :triggerEvent
               and uet.expired_at >= :now
-            order by uet.id asc
+            order by uet.user_id asc,
+                     uet.id asc
+            """;
+
+    private static final String SAVE_PROGRESS_QUERY = """
+            insert into user_eco_task_progress(user_eco_task_id, progress, fraction_mask)
+            values :progress
+            on conflict (user_eco_task_id) do update
+                set progress = excluded.progress,
+                    fraction_mask = excluded.fraction_mask,
+                    updated_at = now()
             """;
 
     private static final String MARK_DONE_QUERY = """
@@ -99,39 +102,22 @@ public class UserEcoTaskRepository {
               and status = :assignedStatus
             """;
 
-    private static final String EXPIRE_OVERDUE_ASSIGNMENTS_BY_USER_ID_QUERY = """
+    private static final String EXPIRE_OVERDUE_BATCH_QUERY = """
             update user_eco_task
-            set status = :status
-            where user_id = :userId
-              and status = :assignedStatus
-              and expired_at < :now
-            """;
-
-    private static final String COUNT_ACTIVE_ASSIGNMENTS_BY_USER_ID_QUERY = """
-            select count(*)
-            from user_eco_task
-            where user_id = :userId
-              and status = 'ASSIGNED'
-            """;
-
-    private static final String FIND_ACTIVE_ECO_TASK_IDS_BY_USER_ID_QUERY = """
-            select eco_task_id
-            from user_eco_task
-            where user_id = :userId
-              and status = 'ASSIGNED'
-            """;
-
-    private static final String FIND_ALL_ECO_TASK_IDS_BY_USER_ID_QUERY = """
-            select distinct eco_task_id
-            from user_eco_task
-            where user_id = :userId
+            set status = 'EXPIRED'
+            where id in (
+                select id
+                from user_eco_task
+                where status = 'ASSIGNED'
+                  and expired_at < :now
+                order by expired_at
+                limit :limit
+                for update skip locked
+            )
             """;
 
-    private static final String FIND_DONE_ECO_TASK_IDS_BY_USER_ID_QUERY = """
-            select distinct eco_task_id
-            from user_eco_task
-            where user_id = :userId
-              and status = 'DONE'
+    private static final String SYNC_LIFECYCLE_QUERY = """
+            select sync_eco_task_lifecycle(cast(:userIds as bigint[]), :now, :limit)
             """;
 
     private static final String FIND_ALL_ASSIGNMENTS_BY_USER_ID_QUERY = """
@@ -195,39 +181,43 @@ public class UserEcoTaskRepository {
         );
     }
 
-    public List<ActiveEcoTaskAssignment> findActiveAssignmentsByUserIdAndTriggerEvent(
-            long userId,
-            UserActionEventType triggerEvent,
-            OffsetDateTime now
-    ) {
+    public List<ActiveEcoTaskAssignment> findActiveAssignmentsByUserIds(Collection<Long> userIds, OffsetDateTime now) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
         return namedParameterJdbcTemplate.query(
-                FIND_ACTIVE_ASSIGNMENTS_BY_TRIGGER_EVENT_QUERY,
+                FIND_ACTIVE_ASSIGNMENTS_BY_USER_IDS_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, userId)
+                        .addValue(ParameterNames.USER_IDS, userIds)
                         .addValue(ParameterNames.STATUS, STATUS_ASSIGNED)
-                        .addValue(ParameterNames.TRIGGER_EVENT, triggerEvent.dbName())
                         .addValue(ParameterNames.NOW, now),
-                (rs, rowNum) -> {
-                    String actionEventTypeFilterValue = rs.getString(ColumnNames.ACTION_EVENT_TYPE_FILTER);
-                    UserActionEventType actionEventTypeFilter = actionEventTypeFilterValue == null
-                            ? null
-                            : UserActionEventType.fromDbName(actionEventTypeFilterValue);
+                (rs, rowNum) -> new ActiveEcoTaskAssignment(
+                        rs.getLong(ColumnNames.ID),
+                        rs.getLong(ColumnNames.USER_ID),
+                        rs.getInt(ColumnNames.ECO_TASK_ID),
+                        rs.getObject(ColumnNames.ASSIGNED_AT, OffsetDateTime.class),
+                        rs.getObject(ColumnNames.EXPIRED_AT, OffsetDateTime.class),
+                        rs.getObject(ColumnNames.BACKFILLED_UNTIL, OffsetDateTime.class),
+                        new EcoTaskProgress(rs.getLong(ColumnNames.PROGRESS), rs.getLong(ColumnNames.FRACTION_MASK))
+                )
+        );
+    }
 
-                    return new ActiveEcoTaskAssignment(
-                            rs.getLong(ColumnNames.USER_ECO_TASK_ID),
-                            rs.getInt(ColumnNames.ECO_TASK_ID),
-                            rs.getString(ColumnNames.CODE),
-                            rs.getLong(ColumnNames.POINTS),
-                            EcoTaskRuleType.valueOf(rs.getString(ColumnNames.RULE_TYPE)),
-                            rs.getLong(ColumnNames.TARGET),
-                            rs.getString(ColumnNames.ORDER_TYPE_FILTER),
-                            rs.getString(ColumnNames.ORDER_STATUS_FILTER),
-                            (Boolean) rs.getObject(ColumnNames.GREEN_CHOSEN_FILTER),
-                            actionEventTypeFilter,
-                            rs.getObject(ColumnNames.ASSIGNED_AT, OffsetDateTime.class),
-                            rs.getObject(ColumnNames.EXPIRED_AT, OffsetDateTime.class)
-                    );
-                }
+    /**
+     * Сохраняет прогресс назначений одним запросом.
+     *
+     * @param progressByUserEcoTaskId прогресс по id назначения
+     */
+    public void saveProgress(Map<Long, EcoTaskProgress> progressByUserEcoTaskId) {
+        if (progressByUserEcoTaskId.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = progressByUserEcoTaskId.entrySet().stream()
+                .map(entry -> new Object[]{entry.getKey(), entry.getValue().value(), entry.getValue().fractionMask()})
+                .toList();
+        namedParameterJdbcTemplate.update(
+                SAVE_PROGRESS_QUERY,
+                new MapSqlParameterSource(ParameterNames.PROGRESS, rows)
         );
     }
 
@@ -242,48 +232,40 @@ public class UserEcoTaskRepository {
         return updatedRows > 0;
     }
 
-    public int expireOverdueAssignmentsByUserId(long userId, OffsetDateTime now) {
+    /**
+     * Помечает просроченными до {@code limit} самых старых просроченных назначений. Строки,
+     * заблокированные другими транзакциями, пропускаются и достаются следующему батчу.
+     *
+     * @return число просроченных назначений
+     */
+    public int expireOverdueBatch(OffsetDateTime now, int limit) {
         return namedParameterJdbcTemplate.update(
-                EXPIRE_OVERDUE_ASSIGNMENTS_BY_USER_ID_QUERY,
+                EXPIRE_OVERDUE_BATCH_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.STATUS, STATUS_EXPIRED)
-                        .addValue(ParameterNames.ASSIGNED_STATUS, STATUS_ASSIGNED)
                         .addValue(ParameterNames.NOW, now)
+                        .addValue(ParameterNames.LIMIT, limit)
         );
     }
 
-    public int countActiveAssignmentsByUserId(long userId) {
-        Long count = namedParameterJdbcTemplate.queryForObject(
-                COUNT_ACTIVE_ASSIGNMENTS_BY_USER_ID_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
-                Long.class
+    /**
+     * Помечает просроченные назначения пользователей и добивает активные до {@code activeLimit}
+     * одним вызовом функции sync_eco_task_lifecycle (см. V17__eco_task_lifecycle_sync.sql).
+     *
+     * @return число новых назначений
+     */
+    public int syncLifecycle(Collection<Long> userIds, OffsetDateTime now, int activeLimit) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        Integer assigned = namedParameterJdbcTemplate.queryForObject(
+                SYNC_LIFECYCLE_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.USER_IDS, userIds.stream().mapToLong(Long::longValue).toArray())
+                        .addValue(ParameterNames.NOW, now)
+                        .addValue(ParameterNames.LIMIT, activeLimit),
+                Integer.class
         );
-        return count == null ? 0 : count.intValue();
-    }
-
-    public Set<Integer> findActiveEcoTaskIdsByUserId(long userId) {
-        return namedParameterJdbcTemplate.query(
-                FIND_ACTIVE_ECO_TASK_IDS_BY_USER_ID_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
-                (rs, rowNum) -> rs.getInt(ColumnNames.ECO_TASK_ID)
-        ).stream().collect(Collectors.toSet());
-    }
-
-    public Set<Integer> findAllEcoTaskIdsByUserId(long userId) {
-        return namedParameterJdbcTemplate.query(
-                FIND_ALL_ECO_TASK_IDS_BY_USER_ID_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
-                (rs, rowNum) -> rs.getInt(ColumnNames.ECO_TASK_ID)
-        ).stream().collect(Collectors.toSet());
-    }
-
-    public Set<Integer> findDoneEcoTaskIdsByUserId(long userId) {
-        return namedParameterJdbcTemplate.query(
-                FIND_DONE_ECO_TASK_IDS_BY_USER_ID_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
-                (rs, rowNum) -> rs.getInt(ColumnNames.ECO_TASK_ID)
-        ).stream().collect(Collectors.toSet());
+        return assigned == null ? 0 : assigned;
     }
 
     public List<UserEcoTaskAssignmentItem> findAllAssignmentsByUserId(long userId) {
@@ -4,64 +4,137 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Repository
 @RequiredArgsConstructor
 public class EventProcessorStateRepository {
 
-    private static final String FIND_LAST_EVENT_ID_FOR_UPDATE_QUERY = """
-            select last_event_id
+    private static final String FIND_CURSOR_FOR_UPDATE_QUERY = """
+            select cast(last_tx_id as text) as last_tx_id,
+                   last_event_id
             from event_processor_state
             where processor_name = :name
             for update
             """;
 
+    private static final String FIND_ALL_CURSORS_FOR_UPDATE_QUERY = """
+            select processor_name,
+                   cast(last_tx_id as text) as last_tx_id,
+                   last_event_id
+            from event_processor_state
+            order by processor_name
+            for update
+            """;
+
+    private static final String FIND_ALL_CURSORS_QUERY = """
+            select processor_name,
+                   cast(last_tx_id as text) as last_tx_id,
+                   last_event_id
+            from event_processor_state
+            """;
+
     private static final String INIT_PROCESSOR_STATE_QUERY = """
             insert into event_processor_state(
                                               processor_name,
+                                              last_tx_id,
                                               last_event_id,
                                               updated_at
                                               )
-            values (
-                    :name,
-                    0,
-                    now()
-                    )
+            select :name,
+                   coalesce(
+                           (
+                               select seed.last_tx_id
+                               from event_processor_state seed
+                               where seed.processor_name = :seedName
+                           ),
+                           '0'
+                   ),
+                   coalesce(
+                           (
+                               select seed.last_event_id
+                               from event_processor_state seed
+                               where seed.processor_name = :seedName
+                           ),
+                           0
+                   ),
+                   now()
             on conflict (processor_name) do nothing
             """;
 
-    private static final String UPDATE_LAST_EVENT_ID_QUERY = """
+    private static final String UPDATE_CURSOR_QUERY = """
             update event_processor_state
-            set last_event_id = :id,
+            set last_tx_id = cast(:txId as xid8),
+                last_event_id = :id,
                 updated_at = now()
             where processor_name = :name
             """;
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-    public long findLastEventIdForUpdate(String processorName) {
-        Long value = namedParameterJdbcTemplate.queryForObject(
-                FIND_LAST_EVENT_ID_FOR_UPDATE_QUERY,
+    public UserActionEventCursor findCursorForUpdate(String processorName) {
+        List<UserActionEventCursor> cursors = namedParameterJdbcTemplate.query(
+                FIND_CURSOR_FOR_UPDATE_QUERY,
                 new MapSqlParameterSource(ParameterNames.NAME, processorName),
-                Long.class
+                (rs, rowNum) -> new UserActionEventCursor(
+                        Long.parseLong(rs.getString(ColumnNames.LAST_TX_ID)),
+                        rs.getLong(ColumnNames.LAST_EVENT_ID)
+                )
         );
-        return value == null ? 0L : value;
+        return cursors.isEmpty() ? UserActionEventCursor.initial() : cursors.getFirst();
     }
 
-    public void initProcessorStateIfAbsent(String processorName) {
+    /**
+     * Блокирует курсоры всех обработчиков: пока транзакция открыта, ни одна партиция не продвинется.
+     */
+    public Map<String, UserActionEventCursor> findAllCursorsForUpdate() {
+        return findAllCursors(FIND_ALL_CURSORS_FOR_UPDATE_QUERY);
+    }
+
+    public Map<String, UserActionEventCursor> findAllCursors() {
+        return findAllCursors(FIND_ALL_CURSORS_QUERY);
+    }
+
+    private Map<String, UserActionEventCursor> findAllCursors(String query) {
+        Map<String, UserActionEventCursor> cursors = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                query,
+                new MapSqlParameterSource(),
+                rs -> {
+                    cursors.put(
+                            rs.getString(ColumnNames.PROCESSOR_NAME),
+                            new UserActionEventCursor(
+                                    Long.parseLong(rs.getString(ColumnNames.LAST_TX_ID)),
+                                    rs.getLong(ColumnNames.LAST_EVENT_ID)
+                            )
+                    );
+                }
+        );
+        return cursors;
+    }
+
+    public void initProcessorStateIfAbsent(String processorName, String seedProcessorName) {
         namedParameterJdbcTemplate.update(
                 INIT_PROCESSOR_STATE_QUERY,
-                new MapSqlParameterSource(ParameterNames.NAME, processorName)
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.NAME, processorName)
+                        .addValue(ParameterNames.SEED_NAME, seedProcessorName)
         );
     }
 
-    public void updateLastEventId(String processorName, long lastEventId) {
+    public void updateCursor(String processorName, UserActionEventCursor cursor) {
         namedParameterJdbcTemplate.update(
-                UPDATE_LAST_EVENT_ID_QUERY,
+                UPDATE_CURSOR_QUERY,
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.NAME, processorName)
-                        .addValue(ParameterNames.ID, lastEventId)
+                        .addValue(ParameterNames.TX_ID, Long.toString(cursor.txId()))
+                        .addValue(ParameterNames.ID, cursor.eventId())
         );
     }
 }
@@ -0,0 +1,50 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.history;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddDeadLetterParams;
+
+@Repository
+@RequiredArgsConstructor
+public class UserActionEventDeadLetterRepository {
+
+    private static final String ADD_DEAD_LETTER_QUERY = """
+            insert into user_action_event_dead_letter(
+                                                      processor_name,
+                                                      event_id,
+                                                      event_created_at,
+                                                      user_id,
+                                                      event_type,
+                                                      handler_name,
+                                                      error_message
+                                                      )
+            values (
+                    :name,
+                    :eventId,
+                    :eventCreatedAt,
+                    :userId,
+                    :eventType,
+                    :handlerName,
+                    :errorMessage
+                    )
+            """;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void addDeadLetter(AddDeadLetterParams params) {
+        namedParameterJdbcTemplate.update(
+                ADD_DEAD_LETTER_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.NAME, params.processorName())
+                        .addValue(ParameterNames.EVENT_ID, params.eventId())
+                        .addValue(ParameterNames.EVENT_CREATED_AT, params.eventCreatedAt())
+                        .addValue(ParameterNames.USER_ID, params.userId())
+                        .addValue(ParameterNames.EVENT_TYPE, params.eventType())
+                        .addValue(ParameterNames.HANDLER_NAME, params.handlerName())
+                        .addValue(ParameterNames.ERROR_MESSAGE, params.errorMessage())
+        );
+    }
+}
@@ -4,15 +4,26 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPartition;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPayload;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryRecord;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddEventParams;
-import ru.nsu.waste.removal.ordering.service.core.repository.history.param.CountByUserIdAndEventTypeInPeriodParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventBalanceParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventRewardParams;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -23,29 +34,49 @@ public class UserActionHistoryRepository {
                                           user_id,
                                           event_type,
                                           content,
-                                          points_difference
+                                          points_difference,
+                                          balance_after
                                           )
             values (
                     :userId,
                     :eventType,
                     cast(:content as jsonb),
-                    :pointsDifference
+                    :pointsDifference,
+                    (select current_points from user_info where id = :userId)
                     )
             """;
 
-    private static final String FIND_EVENTS_AFTER_ID_QUERY = """
+    private static final String FIND_EVENTS_AFTER_CURSOR_QUERY = """
             select id,
+                   cast(tx_id as text) as tx_id,
                    created_at,
                    user_id,
                    event_type,
                    points_difference,
-                   content
+                   content,
+                   success,
+                   order_type,
+                   green_chosen
             from user_action_history
-            where id > :id
-            order by id asc
+            where (tx_id, id) > (cast(:txId as xid8), :id)
+              and tx_id < pg_snapshot_xmin(pg_current_snapshot())
+              and mod(user_id, :partitionCount) = :partitionIndex
+            order by tx_id asc,
+                     id asc
             limit :limit
             """;
 
+    /**
+     * Видимые (закоммиченные) строки с tx_id не ниже xmin текущего снимка: их транзакция уже завершилась,
+     * но обработчик их еще не берет, пока открыта какая-нибудь более старая транзакция. Обработанными
+     * такие строки быть не могут - xmin со временем только растет.
+     */
+    private static final String EXISTS_EVENTS_AWAITING_OLDER_TRANSACTIONS_QUERY = """
+            select exists(select 1
+                          from user_action_history
+                          where tx_id >= pg_snapshot_xmin(pg_current_snapshot()))
+            """;
+
     private static final String COUNT_EVENTS_BY_USER_ID_AND_TYPE_QUERY = """
             select count(*)
             from user_action_history
@@ -53,55 +84,85 @@ public class UserActionHistoryRepository {
               and event_type = :eventType
             """;
 
-    private static final String COUNT_EVENTS_BY_USER_ID_AND_TYPE_IN_PERIOD_QUERY = """
-            select count(*)
+    private static final String FIND_POINTS_DIFFERENCES_BY_EVENT_IDS_QUERY = """
+            select id,
+                   points_difference
             from user_action_history
-            where user_id = :userId
-              and event_type = :eventType
-              and created_at >= :from
-              and created_at <= :to
+            where id in (:eventIds)
+              and created_at >= :since
             """;
 
-    private static final String FIND_POINTS_DIFFERENCE_BY_EVENT_ID_QUERY = """
-            select points_difference
-            from user_action_history
-            where id = :id
+    private static final String UPDATE_EVENT_REWARDS_QUERY = """
+            update user_action_history uah
+            set content = cast(r.content as jsonb),
+                points_difference = r.points_difference,
+                balance_after = r.balance_after
+            from (values :eventRewards) as r(id, created_at, content, points_difference, balance_after)
+            where uah.id = r.id
+              and uah.created_at = r.created_at
             """;
 
-    private static final String UPDATE_EVENT_REWARD_BY_ID_QUERY = """
-            update user_action_history
-            set content = cast(:content as jsonb),
-                points_difference = :pointsDifference
-            where id = :id
+    private static final String UPDATE_EVENT_BALANCES_QUERY = """
+            update user_action_history uah
+            set balance_after = b.balance_after
+            from (values :eventBalances) as b(id, created_at, balance_after)
+            where uah.id = b.id
+              and uah.created_at = b.created_at
             """;
 
-    private static final String FIND_LATEST_EVENTS_BY_USER_ID_QUERY = """
-            select id,
-                   user_id,
-                   created_at,
-                   event_type,
-                   points_difference,
-                   content
-            from user_action_history
-            where user_id = :userId
-              and event_type in (:eventTypes)
-            order by created_at desc,
-                     id desc
-            limit :limit
+    /**
+     * Баланс для строк без снимка восстанавливается так же, как его раньше считала лента:
+     * текущий баланс пользователя минус очки всех его более поздних событий.
+     */
+    private static final String BACKFILL_BALANCES_QUERY = """
+            update user_action_history uah
+            set balance_after = b.balance_after
+            from (select h.id,
+                         h.created_at,
+                         ui.current_points - coalesce(sum(h.points_difference) over (
+                             partition by h.user_id
+                             order by h.created_at desc, h.id desc
+                             rows between unbounded preceding and 1 preceding), 0) as balance_after
+                  from user_action_history h
+                           join user_info ui on ui.id = h.user_id
+                  where h.user_id in (:userIds)) b
+            where uah.id = b.id
+              and uah.created_at = b.created_at
+              and uah.balance_after is null
             """;
 
-    private static final String FIND_LATEST_NEGATIVE_EVENTS_BY_USER_ID_QUERY = """
-            select id,
-                   user_id,
-                   created_at,
-                   event_type,
-                   points_difference,
-                   content
-            from user_action_history
-            where user_id = :userId
-              and points_difference < 0
-            order by created_at desc,
-                     id desc
+    /**
+     * Страница ленты истории по убыванию (created_at, id). Ключ и фильтр проверяются по покрывающему
+     * индексу ix_uah_user_history, к строкам таблицы запрос обращается только за содержимым событий страницы.
+     * Баланс берется из строки; для строк без снимка (записанных в обход приложения) - ближайший более
+     * ранний снимок пользователя, а если его нет, 0.
+     */
+    private static final String FIND_HISTORY_PAGE_QUERY = """
+            select uah.id,
+                   uah.user_id,
+                   uah.created_at,
+                   uah.event_type,
+                   uah.points_difference,
+                   uah.content,
+                   uah.success,
+                   uah.order_type,
+                   uah.green_chosen,
+                   coalesce(uah.balance_after, (select prev.balance_after
+                                                from user_action_history prev
+                                                where prev.user_id = uah.user_id
+                                                  and prev.balance_after is not null
+                                                  and (prev.created_at, prev.id) < (uah.created_at, uah.id)
+                                                order by prev.created_at desc,
+                                                         prev.id desc
+                                                limit 1), 0) as balance_after
+            from user_action_history uah
+            where uah.user_id = :userId
+              and (uah.event_type in (:eventTypes) or uah.points_difference < 0)
+              and uah.created_at >= :since
+              and uah.created_at <= :cursorCreatedAt
+              and (uah.created_at, uah.id) < (:cursorCreatedAt, :cursorId)
+            order by uah.created_at desc,
+                     uah.id desc
             limit :limit
             """;
 
@@ -118,23 +179,60 @@ public class UserActionHistoryRepository {
         );
     }
 
-    public List<UserActionHistoryEvent> findEventsAfterId(long id, int limit) {
+    /**
+     * Возвращает события после курсора в порядке (tx_id, id).
+     * Берутся только события транзакций, завершившихся до xmin текущего снимка:
+     * такие строки уже не могут появиться позже, поэтому сдвиг курсора не пропускает события,
+     * даже если транзакции коммитятся не в порядке выдачи id.
+     */
+    public List<UserActionHistoryEvent> findEventsAfterCursor(
+            UserActionEventCursor cursor,
+            UserActionEventPartition partition,
+            int limit
+    ) {
         return namedParameterJdbcTemplate.query(
-                FIND_EVENTS_AFTER_ID_QUERY,
+                FIND_EVENTS_AFTER_CURSOR_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.ID, id)
+                        .addValue(ParameterNames.TX_ID, Long.toString(cursor.txId()))
+                        .addValue(ParameterNames.ID, cursor.eventId())
+                        .addValue(ParameterNames.PARTITION_COUNT, partition.count())
+                        .addValue(ParameterNames.PARTITION_INDEX, partition.index())
                         .addValue(ParameterNames.LIMIT, limit),
                 (rs, rowNum) -> new UserActionHistoryEvent(
                         rs.getLong(ColumnNames.ID),
+                        Long.parseLong(rs.getString(ColumnNames.TX_ID)),
                         rs.getObject(ColumnNames.CREATED_AT, java.time.OffsetDateTime.class),
                         rs.getLong(ColumnNames.USER_ID),
                         UserActionEventType.fromDbName(rs.getString(ColumnNames.EVENT_TYPE)),
                         rs.getLong(ColumnNames.POINTS_DIFFERENCE),
-                        rs.getString(ColumnNames.CONTENT)
+                        mapPayload(rs)
                 )
         );
     }
 
+    /**
+     * Заполняет balance_after у строк без снимка для группы пользователей.
+     *
+     * @return число заполненных строк
+     */
+    public int backfillBalances(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return namedParameterJdbcTemplate.update(
+                BACKFILL_BALANCES_QUERY,
+                new MapSqlParameterSource(ParameterNames.USER_IDS, userIds)
+        );
+    }
+
+    public boolean existsEventsAwaitingOlderTransactions() {
+        return Boolean.TRUE.equals(namedParameterJdbcTemplate.queryForObject(
+                EXISTS_EVENTS_AWAITING_OLDER_TRANSACTIONS_QUERY,
+                new MapSqlParameterSource(),
+                Boolean.class
+        ));
+    }
+
     public long countByUserIdAndEventType(long userId, String eventType) {
         Long count = namedParameterJdbcTemplate.queryForObject(
                 COUNT_EVENTS_BY_USER_ID_AND_TYPE_QUERY,
@@ -146,47 +244,109 @@ public class UserActionHistoryRepository {
         return count == null ? 0L : count;
     }
 
-    public long countByUserIdAndEventTypeInPeriod(CountByUserIdAndEventTypeInPeriodParams params) {
-        Long count = namedParameterJdbcTemplate.queryForObject(
-                COUNT_EVENTS_BY_USER_ID_AND_TYPE_IN_PERIOD_QUERY,
+    /**
+     * Возвращает текущие очки событий по id. Нижняя граница по самому раннему created_at событий
+     * отсекает старые партиции, в которых иначе пришлось бы проверять индекс по id.
+     */
+    public Map<Long, Long> findPointsDifferencesByEvents(Collection<UserActionHistoryEvent> events) {
+        if (events.isEmpty()) {
+            return Map.of();
+        }
+
+        List<Long> eventIds = events.stream()
+                .map(UserActionHistoryEvent::id)
+                .toList();
+        OffsetDateTime since = events.stream()
+                .map(UserActionHistoryEvent::createdAt)
+                .min(OffsetDateTime::compareTo)
+                .orElseThrow();
+
+        List<Map.Entry<Long, Long>> rows = namedParameterJdbcTemplate.query(
+                FIND_POINTS_DIFFERENCES_BY_EVENT_IDS_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, params.userId())
-                        .addValue(ParameterNames.EVENT_TYPE, params.eventType())
-                        .addValue(ParameterNames.FROM, params.from())
-                        .addValue(ParameterNames.TO, params.to()),
-                Long.class
+                        .addValue(ParameterNames.EVENT_IDS, eventIds)
+                        .addValue(ParameterNames.SINCE, since),
+                (rs, rowNum) -> Map.entry(rs.getLong(ColumnNames.ID), rs.getLong(ColumnNames.POINTS_DIFFERENCE))
         );
-        return count == null ? 0L : count;
+
+        Map<Long, Long> pointsDifferencesByEventId = new HashMap<>();
+        for (Map.Entry<Long, Long> row : rows) {
+            pointsDifferencesByEventId.put(row.getKey(), row.getValue());
+        }
+        return pointsDifferencesByEventId;
     }
 
-    public long findPointsDifferenceByEventId(long eventId) {
-        Long pointsDifference = namedParameterJdbcTemplate.queryForObject(
-                FIND_POINTS_DIFFERENCE_BY_EVENT_ID_QUERY,
-                new MapSqlParameterSource(ParameterNames.ID, eventId),
-                Long.class
+    /**
+     * Записывает рассчитанные награды одним update по списку значений. Условие по created_at
+     * позволяет планировщику сразу выбрать нужную партицию вместо проверки индекса в каждой.
+     */
+    public void updateEventRewards(List<UpdateEventRewardParams> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> eventRewards = params.stream()
+                .map(param -> new Object[]{
+                        param.eventId(),
+                        param.eventCreatedAt(),
+                        param.contentJson(),
+                        param.pointsDifference(),
+                        param.balanceAfter()
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.update(
+                UPDATE_EVENT_REWARDS_QUERY,
+                new MapSqlParameterSource(ParameterNames.EVENT_REWARDS, eventRewards)
         );
-        return pointsDifference == null ? 0L : pointsDifference;
     }
 
-    public void updateEventRewardById(long eventId, String contentJson, long pointsDifference) {
+    /**
+     * Пишет в события баланс пользователя после применения их очков, одним update по списку значений.
+     * Балансы должны быть посчитаны за один проход по событиям пользователя в порядке истории,
+     * иначе цепочка balance_after разойдется с итоговым балансом.
+     */
+    public void updateEventBalances(List<UpdateEventBalanceParams> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> eventBalances = params.stream()
+                .map(param -> new Object[]{
+                        param.eventId(),
+                        param.eventCreatedAt(),
+                        param.balanceAfter()
+                })
+                .toList();
+
         namedParameterJdbcTemplate.update(
-                UPDATE_EVENT_REWARD_BY_ID_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.ID, eventId)
-                        .addValue(ParameterNames.CONTENT, contentJson)
-                        .addValue(ParameterNames.POINTS_DIFFERENCE, pointsDifference)
+                UPDATE_EVENT_BALANCES_QUERY,
+                new MapSqlParameterSource(ParameterNames.EVENT_BALANCES, eventBalances)
         );
     }
 
-    public List<UserActionHistoryRecord> findLatestEventsByUserId(long userId, List<String> eventTypes, int limit) {
+    /**
+     * Возвращает страницу ленты истории пользователя строго после курсора: события указанных типов и все
+     * списания не раньше {@code since}. Граница по created_at позволяет не читать партиции вне диапазона.
+     */
+    public List<UserActionHistoryRecord> findHistoryPage(
+            long userId,
+            List<String> eventTypes,
+            OffsetDateTime since,
+            UserHistoryCursor cursor,
+            int limit
+    ) {
         if (eventTypes == null || eventTypes.isEmpty() || limit <= 0) {
             return List.of();
         }
         return namedParameterJdbcTemplate.query(
-                FIND_LATEST_EVENTS_BY_USER_ID_QUERY,
+                FIND_HISTORY_PAGE_QUERY,
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.USER_ID, userId)
                         .addValue(ParameterNames.EVENT_TYPES, eventTypes)
+                        .addValue(ParameterNames.SINCE, since)
+                        .addValue(ParameterNames.CURSOR_CREATED_AT, cursor.createdAt())
+                        .addValue(ParameterNames.CURSOR_ID, cursor.id())
                         .addValue(ParameterNames.LIMIT, limit),
                 (rs, rowNum) -> new UserActionHistoryRecord(
                         rs.getLong(ColumnNames.ID),
@@ -194,28 +354,18 @@ public class UserActionHistoryRepository {
                         rs.getObject(ColumnNames.CREATED_AT, java.time.OffsetDateTime.class),
                         rs.getString(ColumnNames.EVENT_TYPE),
                         rs.getLong(ColumnNames.POINTS_DIFFERENCE),
-                        rs.getString(ColumnNames.CONTENT)
+                        rs.getLong(ColumnNames.BALANCE_AFTER),
+                        mapPayload(rs)
                 )
         );
     }
 
-    public List<UserActionHistoryRecord> findLatestNegativeEventsByUserId(long userId, int limit) {
-        if (limit <= 0) {
-            return List.of();
-        }
-        return namedParameterJdbcTemplate.query(
-                FIND_LATEST_NEGATIVE_EVENTS_BY_USER_ID_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.LIMIT, limit),
-                (rs, rowNum) -> new UserActionHistoryRecord(
-                        rs.getLong(ColumnNames.ID),
-                        rs.getLong(ColumnNames.USER_ID),
-                        rs.getObject(ColumnNames.CREATED_AT, java.time.OffsetDateTime.class),
-                        rs.getString(ColumnNames.EVENT_TYPE),
-                        rs.getLong(ColumnNames.POINTS_DIFFERENCE),
-                        rs.getString(ColumnNames.CONTENT)
-                )
+    private static UserActionEventPayload mapPayload(ResultSet rs) throws SQLException {
+        return new UserActionEventPayload(
+                rs.getString(ColumnNames.CONTENT),
+                rs.getObject(ColumnNames.SUCCESS, Boolean.class),
+                rs.getString(ColumnNames.ORDER_TYPE),
+                rs.getObject(ColumnNames.GREEN_CHOSEN, Boolean.class)
         );
     }
 }
@@ -0,0 +1,14 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.history.param;
+
+import java.time.OffsetDateTime;
+
+public record AddDeadLetterParams(
+        String processorName,
+        long eventId,
+        OffsetDateTime eventCreatedAt,
+        long userId,
+        String eventType,
+        String handlerName,
+        String errorMessage
+) {
+}
@@ -0,0 +1,10 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.history.param;
+
+import java.time.OffsetDateTime;
+
+public record UpdateEventBalanceParams(
+        long eventId,
+        OffsetDateTime eventCreatedAt,
+        long balanceAfter
+) {
+}
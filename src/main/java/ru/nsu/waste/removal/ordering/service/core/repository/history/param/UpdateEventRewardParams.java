@@ -0,0 +1,12 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.history.param;
+
+import java.time.OffsetDateTime;
+
+public record UpdateEventRewardParams(
+        long eventId,
+        OffsetDateTime eventCreatedAt,
+        String contentJson,
+        long pointsDifference,
+        long balanceAfter
+) {
+}
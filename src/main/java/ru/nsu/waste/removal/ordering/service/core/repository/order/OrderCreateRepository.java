@@ -28,25 +28,32 @@ public class OrderCreateRepository {
                                    postal_code,
                                    cost_points,
                                    payment_status,
-                                   paid_at
+                                   paid_at,
+                                   city,
+                                   detailed_address,
+                                   fraction_mask
                                    )
-            values (
-                    :userId,
-                    null,
-                    :type,
-                    'NEW',
-                    :pickupFrom,
-                    :pickupTo,
-                    :greenChosen,
-                    :postalCode,
-                    :costPoints,
-                    :paymentStatus,
-                    case
-                        when cast(:paymentStatus as varchar) = 'PAID_WITH_POINTS'
-                            then now()
-                        else null
-                    end
-                    )
+            select ui.id,
+                   null,
+                   :type,
+                   'NEW',
+                   :pickupFrom,
+                   :pickupTo,
+                   :greenChosen,
+                   :postalCode,
+                   :costPoints,
+                   :paymentStatus,
+                   case
+                       when cast(:paymentStatus as varchar) = 'PAID_WITH_POINTS'
+                           then now()
+                       else null
+                   end,
+                   a.city,
+                   a.detailed_address,
+                   :fractionMask
+            from user_info ui
+                     join address a on a.id = ui.address_id
+            where ui.id = :userId
             returning id, created_at
             """;
 
@@ -76,7 +83,8 @@ public class OrderCreateRepository {
                         .addValue(ParameterNames.GREEN_CHOSEN, params.greenChosen())
                         .addValue(ParameterNames.POSTAL_CODE, params.clusterKey())
                         .addValue(ParameterNames.COST_POINTS, params.costPoints())
-                        .addValue(ParameterNames.PAYMENT_STATUS, params.paymentStatus().dbName()),
+                        .addValue(ParameterNames.PAYMENT_STATUS, params.paymentStatus().dbName())
+                        .addValue(ParameterNames.FRACTION_MASK, params.fractionMask()),
                 (rs, rowNum) -> new OrderKey(
                         rs.getLong(ColumnNames.ID),
                         rs.getObject(ColumnNames.CREATED_AT, OffsetDateTime.class)
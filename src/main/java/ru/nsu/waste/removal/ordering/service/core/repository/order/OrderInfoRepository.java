@@ -41,16 +41,6 @@ public class OrderInfoRepository {
               and oi.green_chosen = true
             """;
 
-    private static final String COUNT_DONE_SEPARATE_ORDERS_COMPLETED_IN_PERIOD_QUERY = """
-            select count(*)
-            from order_info oi
-            where oi.user_id = :userId
-              and oi.status = 'DONE'
-              and oi.type = 'SEPARATE'
-              and coalesce(oi.completed_at, oi.created_at) >= :from
-              and coalesce(oi.completed_at, oi.created_at) < :to
-            """;
-
     private static final String COUNT_DISTINCT_FRACTIONS_IN_DONE_SEPARATE_ORDERS_QUERY = """
             select count(distinct owf.fraction_id)
             from order_info oi
@@ -110,33 +100,6 @@ public class OrderInfoRepository {
               and (cast(:greenChosen as boolean) is null or oi.green_chosen = cast(:greenChosen as boolean))
             """;
 
-    private static final String COUNT_DISTINCT_FRACTIONS_BY_FILTERS_IN_PERIOD_QUERY = """
-            select count(distinct owf.fraction_id)
-            from order_info oi
-                     join order_waste_fraction owf
-                          on owf.order_id = oi.id
-                              and owf.order_created_at = oi.created_at
-            where oi.user_id = :userId
-              and (
-                    (
-                        cast(:status as varchar) = 'DONE'
-                        and coalesce(oi.completed_at, oi.created_at) >= :from
-                        and coalesce(oi.completed_at, oi.created_at) <= :to
-                    )
-                    or (
-                        (
-                            cast(:status as varchar) is null
-                            or cast(:status as varchar) <> 'DONE'
-                        )
-                        and oi.created_at >= :from
-                        and oi.created_at <= :to
-                    )
-                  )
-              and (cast(:status as varchar) is null or oi.status = cast(:status as varchar))
-              and (cast(:type as varchar) is null or oi.type = cast(:type as varchar))
-              and (cast(:greenChosen as boolean) is null or oi.green_chosen = cast(:greenChosen as boolean))
-            """;
-
     private static final String FIND_DISTINCT_FRACTION_NAMES_BY_FILTERS_IN_PERIOD_QUERY = """
             select distinct wf.name
             from order_info oi
@@ -196,18 +159,6 @@ public class OrderInfoRepository {
         return count == null ? 0L : count;
     }
 
-    public long countDoneSeparateOrdersCompletedInPeriod(long userId, java.time.OffsetDateTime from, java.time.OffsetDateTime to) {
-        Long count = namedParameterJdbcTemplate.queryForObject(
-                COUNT_DONE_SEPARATE_ORDERS_COMPLETED_IN_PERIOD_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.FROM, from)
-                        .addValue(ParameterNames.TO, to),
-                Long.class
-        );
-        return count == null ? 0L : count;
-    }
-
     public long countDistinctFractionsInDoneSeparateOrders(long userId) {
         Long count = namedParameterJdbcTemplate.queryForObject(
                 COUNT_DISTINCT_FRACTIONS_IN_DONE_SEPARATE_ORDERS_QUERY,
@@ -269,15 +220,6 @@ public class OrderInfoRepository {
         return count == null ? 0L : count;
     }
 
-    public long countDistinctFractionsByFiltersInPeriod(OrderFiltersInPeriod filters) {
-        Long count = namedParameterJdbcTemplate.queryForObject(
-                COUNT_DISTINCT_FRACTIONS_BY_FILTERS_IN_PERIOD_QUERY,
-                toPeriodFiltersParams(filters),
-                Long.class
-        );
-        return count == null ? 0L : count;
-    }
-
     public List<String> findDistinctFractionNamesByFiltersInPeriod(OrderFiltersInPeriod filters) {
         return namedParameterJdbcTemplate.query(
                 FIND_DISTINCT_FRACTION_NAMES_BY_FILTERS_IN_PERIOD_QUERY,
@@ -0,0 +1,136 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.partition;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.PartitionedTable;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.TablePartition;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * DDL партиций. Имена таблиц и партиций подставляются в текст запроса, поэтому берутся
+ * только из {@link PartitionedTable} и из имен, сформированных по нему.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ssxxx");
+
+    private static final String FIND_PARTITIONS_QUERY = """
+            select c.relname                     as partition_name,
+                   i.inhdetachpending            as detach_pending,
+                   pg_total_relation_size(c.oid) as size_bytes,
+                   cast(substring(pg_get_expr(c.relpartbound, c.oid) from 'FROM \\(''([^'']+)''\\)')
+                       as timestamptz)            as lower_bound,
+                   cast(substring(pg_get_expr(c.relpartbound, c.oid) from 'TO \\(''([^'']+)''\\)')
+                       as timestamptz)            as upper_bound
+            from pg_inherits i
+                     join pg_class c on c.oid = i.inhrelid
+                     join pg_class p on p.oid = i.inhparent
+                     join pg_namespace n on n.oid = p.relnamespace
+            where p.relname = :tableName
+              and n.nspname = current_schema()
+            order by c.relname
+            """;
+
+    private static final String CREATE_PARTITION_QUERY = """
+            create table if not exists %s partition of %s
+                for values from ('%s') to ('%s')
+            """;
+
+    private static final String DETACH_PARTITION_CONCURRENTLY_QUERY = """
+            alter table %s detach partition %s concurrently
+            """;
+
+    private static final String FINALIZE_DETACH_PARTITION_QUERY = """
+            alter table %s detach partition %s finalize
+            """;
+
+    private static final String MOVE_TO_ARCHIVE_QUERY = """
+            alter table %s set schema archive
+            """;
+
+    private static final String HAS_UNPROCESSED_EVENTS_QUERY = """
+            select exists(
+                select 1
+                from %s
+                where tx_id >= coalesce(
+                        (
+                            select min(last_tx_id)
+                            from event_processor_state
+                        ),
+                        '0'
+                    )
+            )
+            """;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public List<TablePartition> findPartitions(PartitionedTable table) {
+        return namedParameterJdbcTemplate.query(
+                FIND_PARTITIONS_QUERY,
+                new MapSqlParameterSource(ParameterNames.TABLE_NAME, table.tableName()),
+                (rs, rowNum) -> new TablePartition(
+                        rs.getString(ColumnNames.PARTITION_NAME),
+                        rs.getBoolean(ColumnNames.DETACH_PENDING),
+                        rs.getLong(ColumnNames.SIZE_BYTES),
+                        rs.getObject(ColumnNames.LOWER_BOUND, OffsetDateTime.class),
+                        rs.getObject(ColumnNames.UPPER_BOUND, OffsetDateTime.class)
+                )
+        );
+    }
+
+    /**
+     * Создает партицию месяца с заданными границами. Границы пишутся со смещением,
+     * поэтому не зависят от часового пояса сессии.
+     */
+    public void createPartition(PartitionedTable table, YearMonth month, OffsetDateTime from, OffsetDateTime to) {
+        execute(CREATE_PARTITION_QUERY.formatted(
+                table.partitionName(month),
+                table.tableName(),
+                BOUND_FORMATTER.format(from),
+                BOUND_FORMATTER.format(to)
+        ));
+    }
+
+    /**
+     * Отсоединяет партицию без блокировки вставок в родительскую таблицу. Выполняется вне транзакции;
+     * если отсоединение прервано, партиция остается в состоянии detach pending
+     * и дожимается через {@link #finalizeDetachPartition}.
+     */
+    public void detachPartitionConcurrently(PartitionedTable table, String partitionName) {
+        execute(DETACH_PARTITION_CONCURRENTLY_QUERY.formatted(table.tableName(), partitionName));
+    }
+
+    public void finalizeDetachPartition(PartitionedTable table, String partitionName) {
+        execute(FINALIZE_DETACH_PARTITION_QUERY.formatted(table.tableName(), partitionName));
+    }
+
+    public void moveToArchive(String partitionName) {
+        execute(MOVE_TO_ARCHIVE_QUERY.formatted(partitionName));
+    }
+
+    /**
+     * Проверяет, есть ли в партиции истории события, которые еще может не увидеть самый отстающий
+     * обработчик событий. Без состояния обработчиков считается, что не обработано ничего.
+     */
+    public boolean hasUnprocessedEvents(String historyPartitionName) {
+        Boolean exists = namedParameterJdbcTemplate.getJdbcTemplate().queryForObject(
+                HAS_UNPROCESSED_EVENTS_QUERY.formatted(historyPartitionName),
+                Boolean.class
+        );
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private void execute(String statement) {
+        namedParameterJdbcTemplate.getJdbcTemplate().execute(statement);
+    }
+}
@@ -0,0 +1,64 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.reward;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.reward.LiederRewardParameters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class LiederRewardParametersRepository {
+
+    private static final String FIND_LATEST_QUERY = """
+            select distinct on (user_type_id, coalesce(event_type, ''))
+                   user_type_id,
+                   event_type,
+                   version,
+                   alpha,
+                   theta,
+                   max_points
+            from lieder_reward_parameters
+            order by user_type_id, coalesce(event_type, ''), version desc
+            """;
+
+    private static final String FIND_STAMP_QUERY = """
+            select concat_ws('|', count(*), max(id))
+            from lieder_reward_parameters
+            """;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Последние версии параметров для каждой пары (тип пользователя, тип события).
+     */
+    public List<LiederRewardParameters> findLatest() {
+        return namedParameterJdbcTemplate.query(
+                FIND_LATEST_QUERY,
+                (rs, rowNum) -> {
+                    String eventType = rs.getString(ColumnNames.EVENT_TYPE);
+                    return new LiederRewardParameters(
+                            UserType.fromId(rs.getInt(ColumnNames.USER_TYPE_ID)),
+                            eventType == null ? null : UserActionEventType.fromDbName(eventType),
+                            rs.getInt(ColumnNames.VERSION),
+                            rs.getDouble(ColumnNames.ALPHA),
+                            rs.getDouble(ColumnNames.THETA),
+                            rs.getInt(ColumnNames.MAX_POINTS)
+                    );
+                }
+        );
+    }
+
+    /**
+     * Отметка содержимого таблицы: строки только добавляются, поэтому число строк и последний id
+     * меняются при любой новой версии параметров.
+     */
+    public String findStamp() {
+        return namedParameterJdbcTemplate.queryForObject(FIND_STAMP_QUERY, new MapSqlParameterSource(), String.class);
+    }
+}
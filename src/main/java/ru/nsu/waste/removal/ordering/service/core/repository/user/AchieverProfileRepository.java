@@ -8,20 +8,25 @@ import ru.nsu.waste.removal.ordering.service.core.model.level.AchieverLevelTarge
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 @RequiredArgsConstructor
 public class AchieverProfileRepository {
 
-    private static final String FIND_LEVEL_TARGET_FOR_UPDATE_QUERY = """
+    private static final String FIND_LEVEL_TARGETS_FOR_UPDATE_QUERY = """
             select ap.user_id,
                    ap.level_id,
                    l.required_total_points
             from achiever_profile ap
                      join level l on l.id = ap.level_id
-            where ap.user_id = :userId
-            for update
+            where ap.user_id in (:userIds)
+            order by ap.user_id
+            for update of ap
             """;
 
     private static final String UPDATE_LEVEL_QUERY = """
@@ -39,16 +44,30 @@ public class AchieverProfileRepository {
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-    public Optional<AchieverLevelTarget> findLevelTargetForUpdate(long userId) {
-        return namedParameterJdbcTemplate.query(
-                FIND_LEVEL_TARGET_FOR_UPDATE_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
+    /**
+     * Блокирует профили достигателей одним запросом. Строки блокируются по возрастанию user_id,
+     * поэтому параллельные пачки не взаимоблокируются.
+     */
+    public Map<Long, AchieverLevelTarget> findLevelTargetsForUpdate(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<AchieverLevelTarget> targets = namedParameterJdbcTemplate.query(
+                FIND_LEVEL_TARGETS_FOR_UPDATE_QUERY,
+                new MapSqlParameterSource(ParameterNames.USER_IDS, userIds),
                 (rs, rowNum) -> new AchieverLevelTarget(
                         rs.getLong(ColumnNames.USER_ID),
                         rs.getInt(ColumnNames.LEVEL_ID),
                         rs.getInt(ColumnNames.REQUIRED_TOTAL_POINTS)
                 )
-        ).stream().findFirst();
+        );
+
+        Map<Long, AchieverLevelTarget> targetsByUserId = new HashMap<>();
+        for (AchieverLevelTarget target : targets) {
+            targetsByUserId.put(target.userId(), target);
+        }
+        return targetsByUserId;
     }
 
     public void updateLevel(long userId, int levelId) {
@@ -4,9 +4,13 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 
 import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
 
 @Repository
 @RequiredArgsConstructor
@@ -28,6 +32,69 @@ public class SortingRegularityWindowRepository {
             on conflict do nothing
             """;
 
+    /**
+     * Закрывает окно для следующей страницы пользователей часового пояса: статус считается по наличию
+     * выполненного раздельного заказа в окне, события пишутся только для впервые добавленных окон.
+     * Условие по created_at заказа отсекает партиции, созданные после конца окна.
+     */
+    private static final String CLOSE_WINDOW_FOR_TIMEZONE_PAGE_QUERY = """
+            with page as (select ui.id as user_id,
+                                 ui.current_points
+                          from user_info ui
+                                   join address a on a.id = ui.address_id
+                          where a.timezone = :timezone
+                            and ui.id > :afterUserId
+                          order by ui.id
+                          limit :limit),
+                 added as (
+                     insert into sorting_regularity_window (user_id, window_start, window_end, status)
+                         select p.user_id,
+                                :windowStart,
+                                :windowEnd,
+                                case
+                                    when exists (select 1
+                                                 from order_info oi
+                                                 where oi.user_id = p.user_id
+                                                   and oi.status = 'DONE'
+                                                   and oi.type = 'SEPARATE'
+                                                   and oi.created_at < :windowEnd
+                                                   and coalesce(oi.completed_at, oi.created_at) >= :windowStart
+                                                   and coalesce(oi.completed_at, oi.created_at) < :windowEnd)
+                                        then 'CONFIRMED'
+                                    else 'MISSED'
+                                    end
+                         from page p
+                         on conflict do nothing
+                         returning user_id, status),
+                 emitted as (
+                     insert into user_action_history (user_id, event_type, content, points_difference, balance_after)
+                         select ad.user_id,
+                                'SORTING_REGULARITY_' || ad.status,
+                                cast(:content as jsonb)
+                                    || jsonb_build_object('status', ad.status, 'success', ad.status = 'CONFIRMED'),
+                                0,
+                                p.current_points
+                         from added ad
+                                  join page p on p.user_id = ad.user_id
+                         order by ad.user_id)
+            select max(user_id) as last_user_id
+            from page
+            """;
+
+    private static final String FIND_SWEPT_WINDOW_STARTS_QUERY = """
+            select timezone,
+                   window_start
+            from sorting_regularity_sweep
+            """;
+
+    private static final String MARK_TIMEZONE_SWEPT_QUERY = """
+            insert into sorting_regularity_sweep (timezone, window_start)
+            values (:timezone, :windowStart)
+            on conflict (timezone) do update
+                set window_start = greatest(sorting_regularity_sweep.window_start, excluded.window_start),
+                    updated_at   = now()
+            """;
+
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     public boolean addWindowIfAbsent(
@@ -46,4 +113,58 @@ public class SortingRegularityWindowRepository {
         );
         return updatedRows > 0;
     }
+
+    /**
+     * Закрывает окно для страницы пользователей с id больше afterUserId одним запросом.
+     *
+     * @param contentJson общая часть содержимого событий; статус и признак успеха добавляются к ней в запросе
+     * @return id последнего пользователя страницы или пусто, если пользователей больше нет
+     */
+    public OptionalLong closeWindowForTimezonePage(
+            String timezone,
+            OffsetDateTime windowStart,
+            OffsetDateTime windowEnd,
+            String contentJson,
+            long afterUserId,
+            int limit
+    ) {
+        Long lastUserId = namedParameterJdbcTemplate.queryForObject(
+                CLOSE_WINDOW_FOR_TIMEZONE_PAGE_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.TIMEZONE, timezone)
+                        .addValue(ParameterNames.WINDOW_START, windowStart)
+                        .addValue(ParameterNames.WINDOW_END, windowEnd)
+                        .addValue(ParameterNames.CONTENT, contentJson)
+                        .addValue(ParameterNames.AFTER_USER_ID, afterUserId)
+                        .addValue(ParameterNames.LIMIT, limit),
+                (rs, rowNum) -> rs.getObject(ColumnNames.LAST_USER_ID, Long.class)
+        );
+        return lastUserId == null ? OptionalLong.empty() : OptionalLong.of(lastUserId);
+    }
+
+    /**
+     * Начало последнего закрытого окна по каждому часовому поясу.
+     */
+    public Map<String, OffsetDateTime> findSweptWindowStarts() {
+        Map<String, OffsetDateTime> windowStarts = new HashMap<>();
+        namedParameterJdbcTemplate.query(
+                FIND_SWEPT_WINDOW_STARTS_QUERY,
+                rs -> {
+                    windowStarts.put(
+                            rs.getString(ColumnNames.TIMEZONE),
+                            rs.getObject(ColumnNames.WINDOW_START, OffsetDateTime.class)
+                    );
+                }
+        );
+        return windowStarts;
+    }
+
+    public void markTimezoneSwept(String timezone, OffsetDateTime windowStart) {
+        namedParameterJdbcTemplate.update(
+                MARK_TIMEZONE_SWEPT_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.TIMEZONE, timezone)
+                        .addValue(ParameterNames.WINDOW_START, windowStart)
+        );
+    }
 }
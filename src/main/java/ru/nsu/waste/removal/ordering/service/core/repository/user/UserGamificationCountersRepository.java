@@ -0,0 +1,305 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCounters;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.AddEventCountersParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UserHistoryPositionParams;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class UserGamificationCountersRepository {
+
+    private static final String COUNTERS_COLUMNS = """
+            user_id,
+            done_orders,
+            done_separate_orders,
+            done_green_orders,
+            separate_fraction_mask,
+            level_ups,
+            leaderboard_opens,
+            eco_profile_opens,
+            info_card_views
+            """;
+
+    /**
+     * Заказы, которые счетчики уже учли: выполненные, кроме тех, чье событие ORDER_DONE с полным
+     * содержимым лежит не раньше позиции - их очки прибавит обработка самого события.
+     */
+    private static final String COUNTED_DONE_ORDER_CONDITION = """
+                  and oi.status = 'DONE'
+                  and not exists (
+                    select 1
+                    from user_action_history uah
+                    where uah.user_id = p.user_id
+                      and uah.event_type = 'ORDER_DONE'
+                      and uah.order_type is not null
+                      and uah.content -> 'fractionIds' is not null
+                      and (uah.tx_id, uah.id) >= (cast(p.tx_id as xid8), p.event_id)
+                      and cast(uah.content ->> 'orderId' as bigint) = oi.id
+                  )
+            """;
+
+    private static final String DONE_ORDER_COUNTERS_LATERALS = """
+                     cross join lateral (
+                select count(*)                                         as done_orders,
+                       count(*) filter (where oi.type = 'SEPARATE')     as done_separate_orders,
+                       count(*) filter (where oi.green_chosen = true)   as done_green_orders
+                from order_info oi
+                where oi.user_id = p.user_id
+            """ + COUNTED_DONE_ORDER_CONDITION + """
+            ) o
+                     cross join lateral (
+                select bit_or(cast(1 as bigint) << cast(owf.fraction_id - 1 as integer)) as separate_fraction_mask
+                from order_info oi
+                         join order_waste_fraction owf
+                              on owf.order_id = oi.id
+                                  and owf.order_created_at = oi.created_at
+                where oi.user_id = p.user_id
+                  and oi.type = 'SEPARATE'
+            """ + COUNTED_DONE_ORDER_CONDITION + """
+            ) f
+            """;
+
+    private static final String COMPUTE_COUNTERS_QUERY = """
+            select p.user_id,
+                   o.done_orders,
+                   o.done_separate_orders,
+                   o.done_green_orders,
+                   coalesce(f.separate_fraction_mask, 0) as separate_fraction_mask,
+                   e.level_ups,
+                   e.leaderboard_opens,
+                   e.eco_profile_opens,
+                   e.info_card_views
+            from (values :positions) as p(user_id, tx_id, event_id)
+            """ + DONE_ORDER_COUNTERS_LATERALS + """
+                     cross join lateral (
+                select count(*) filter (where uah.event_type = 'LEVEL_UP')           as level_ups,
+                       count(*) filter (where uah.event_type = 'LEADERBOARD_OPENED') as leaderboard_opens,
+                       count(*) filter (where uah.event_type = 'ECO_PROFILE_OPENED') as eco_profile_opens,
+                       count(*) filter (where uah.event_type = 'INFO_CARD_VIEWED')   as info_card_views
+                from user_action_history uah
+                where uah.user_id = p.user_id
+                  and uah.event_type in ('LEVEL_UP', 'LEADERBOARD_OPENED', 'ECO_PROFILE_OPENED', 'INFO_CARD_VIEWED')
+                  and (uah.tx_id, uah.id) < (cast(p.tx_id as xid8), p.event_id)
+            ) e
+            """;
+
+    private static final String INIT_COUNTERS_QUERY = "insert into user_gamification_counters("
+            + COUNTERS_COLUMNS + ")\n"
+            + COMPUTE_COUNTERS_QUERY + """
+            on conflict (user_id) do nothing
+            """;
+
+    private static final String REBUILD_COUNTERS_QUERY = "insert into user_gamification_counters("
+            + COUNTERS_COLUMNS + ")\n"
+            + COMPUTE_COUNTERS_QUERY + """
+            on conflict (user_id) do update
+                set done_orders = excluded.done_orders,
+                    done_separate_orders = excluded.done_separate_orders,
+                    done_green_orders = excluded.done_green_orders,
+                    separate_fraction_mask = excluded.separate_fraction_mask,
+                    level_ups = excluded.level_ups,
+                    leaderboard_opens = excluded.leaderboard_opens,
+                    eco_profile_opens = excluded.eco_profile_opens,
+                    info_card_views = excluded.info_card_views,
+                    updated_at = now()
+            """;
+
+    private static final String REFRESH_ORDER_COUNTERS_QUERY = """
+            update user_gamification_counters ugc
+            set done_orders = c.done_orders,
+                done_separate_orders = c.done_separate_orders,
+                done_green_orders = c.done_green_orders,
+                separate_fraction_mask = c.separate_fraction_mask,
+                updated_at = now()
+            from (
+                select p.user_id,
+                       o.done_orders,
+                       o.done_separate_orders,
+                       o.done_green_orders,
+                       coalesce(f.separate_fraction_mask, 0) as separate_fraction_mask
+                from (values :positions) as p(user_id, tx_id, event_id)
+            """ + DONE_ORDER_COUNTERS_LATERALS + """
+            ) c
+            where ugc.user_id = c.user_id
+            """;
+
+    private static final String ADD_EVENT_COUNTERS_QUERY = """
+            update user_gamification_counters ugc
+            set done_orders = ugc.done_orders + d.done_orders,
+                done_separate_orders = ugc.done_separate_orders + d.done_separate_orders,
+                done_green_orders = ugc.done_green_orders + d.done_green_orders,
+                separate_fraction_mask = ugc.separate_fraction_mask | d.separate_fraction_mask,
+                level_ups = ugc.level_ups + d.level_ups,
+                leaderboard_opens = ugc.leaderboard_opens + d.leaderboard_opens,
+                eco_profile_opens = ugc.eco_profile_opens + d.eco_profile_opens,
+                info_card_views = ugc.info_card_views + d.info_card_views,
+                updated_at = now()
+            from (values :eventCounters) as d(user_id, done_orders, done_separate_orders, done_green_orders,
+                                              separate_fraction_mask, level_ups, leaderboard_opens,
+                                              eco_profile_opens, info_card_views)
+            where ugc.user_id = d.user_id
+            """;
+
+    private static final String LOCK_EXISTING_USER_IDS_QUERY = """
+            select user_id
+            from user_gamification_counters
+            where user_id in (:userIds)
+            order by user_id
+            for update
+            """;
+
+    private static final String FIND_BY_USER_IDS_QUERY = "select " + COUNTERS_COLUMNS + """
+            from user_gamification_counters
+            where user_id in (:userIds)
+            """;
+
+    private static final String FIND_PAGE_AFTER_USER_ID_QUERY = "select " + COUNTERS_COLUMNS + """
+            from user_gamification_counters
+            where user_id > :afterUserId
+            order by user_id
+            limit :limit
+            """;
+
+    private static final RowMapper<UserGamificationCounters> COUNTERS_ROW_MAPPER = (rs, rowNum) ->
+            new UserGamificationCounters(
+                    rs.getLong(ColumnNames.USER_ID),
+                    rs.getLong(ColumnNames.DONE_ORDERS),
+                    rs.getLong(ColumnNames.DONE_SEPARATE_ORDERS),
+                    rs.getLong(ColumnNames.DONE_GREEN_ORDERS),
+                    rs.getLong(ColumnNames.SEPARATE_FRACTION_MASK),
+                    rs.getLong(ColumnNames.LEVEL_UPS),
+                    rs.getLong(ColumnNames.LEADERBOARD_OPENS),
+                    rs.getLong(ColumnNames.ECO_PROFILE_OPENS),
+                    rs.getLong(ColumnNames.INFO_CARD_VIEWS)
+            );
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Set<Long> lockExistingUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                LOCK_EXISTING_USER_IDS_QUERY,
+                new MapSqlParameterSource(ParameterNames.USER_IDS, userIds),
+                Long.class
+        ));
+    }
+
+    public List<UserGamificationCounters> findByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(
+                FIND_BY_USER_IDS_QUERY,
+                new MapSqlParameterSource(ParameterNames.USER_IDS, userIds),
+                COUNTERS_ROW_MAPPER
+        );
+    }
+
+    public List<UserGamificationCounters> findPageAfterUserId(long afterUserId, int limit) {
+        return namedParameterJdbcTemplate.query(
+                FIND_PAGE_AFTER_USER_ID_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.AFTER_USER_ID, afterUserId)
+                        .addValue(ParameterNames.LIMIT, limit),
+                COUNTERS_ROW_MAPPER
+        );
+    }
+
+    /**
+     * Считает счетчики по сырым таблицам: заказы - по текущему состоянию order_info без заказов, чьи
+     * события ORDER_DONE с полным содержимым еще не дошли до позиции, события - строго до позиции в истории.
+     */
+    public List<UserGamificationCounters> computeFromRawTables(List<UserHistoryPositionParams> positions) {
+        if (positions.isEmpty()) {
+            return List.of();
+        }
+        return namedParameterJdbcTemplate.query(
+                COMPUTE_COUNTERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.POSITIONS, toPositionRows(positions)),
+                COUNTERS_ROW_MAPPER
+        );
+    }
+
+    public void initFromRawTables(List<UserHistoryPositionParams> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update(
+                INIT_COUNTERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.POSITIONS, toPositionRows(positions))
+        );
+    }
+
+    public void rebuildFromRawTables(List<UserHistoryPositionParams> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update(
+                REBUILD_COUNTERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.POSITIONS, toPositionRows(positions))
+        );
+    }
+
+    /**
+     * Пересчитывает счетчики заказов по order_info на позицию. Нужен только для событий ORDER_DONE
+     * без полного содержимого, по которым счетчики нельзя увеличить.
+     */
+    public void refreshOrderCounters(List<UserHistoryPositionParams> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update(
+                REFRESH_ORDER_COUNTERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.POSITIONS, toPositionRows(positions))
+        );
+    }
+
+    public void addEventCounters(List<AddEventCountersParams> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> eventCounters = params.stream()
+                .map(param -> new Object[]{
+                        param.userId(),
+                        param.doneOrders(),
+                        param.doneSeparateOrders(),
+                        param.doneGreenOrders(),
+                        param.separateFractionMask(),
+                        param.levelUps(),
+                        param.leaderboardOpens(),
+                        param.ecoProfileOpens(),
+                        param.infoCardViews()
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.update(
+                ADD_EVENT_COUNTERS_QUERY,
+                new MapSqlParameterSource(ParameterNames.EVENT_COUNTERS, eventCounters)
+        );
+    }
+
+    private static List<Object[]> toPositionRows(List<UserHistoryPositionParams> positions) {
+        return positions.stream()
+                .map(position -> new Object[]{
+                        position.userId(),
+                        Long.toString(position.before().txId()),
+                        position.before().eventId()
+                })
+                .toList();
+    }
+}
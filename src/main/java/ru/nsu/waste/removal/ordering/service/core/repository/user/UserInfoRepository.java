@@ -1,6 +1,7 @@
 package ru.nsu.waste.removal.ordering.service.core.repository.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -8,11 +9,13 @@ import ru.nsu.waste.removal.ordering.service.core.model.user.UserGreenSlotContex
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRewardState;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.CacheNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.param.AddUserInfoParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UpdateRewardStateParams;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,13 +67,15 @@ public class UserInfoRepository {
             where ui.id = :userId
             """;
 
-    private static final String FIND_REWARD_STATE_FOR_UPDATE_QUERY = """
+    private static final String FIND_REWARD_STATES_FOR_UPDATE_QUERY = """
             select ui.id,
+                   ui.type_id,
                    ui.total_points,
                    ui.current_points,
                    ui.habit_strength
             from user_info ui
-            where ui.id = :userId
+            where ui.id in (:userIds)
+            order by ui.id
             for update
             """;
 
@@ -81,6 +86,14 @@ public class UserInfoRepository {
             where id in (:userIds)
             """;
 
+    private static final String FIND_USER_IDS_AFTER_QUERY = """
+            select id
+            from user_info
+            where id > :afterUserId
+            order by id
+            limit :limit
+            """;
+
     private static final String FIND_TOTAL_POINTS_BY_USER_ID_QUERY = """
             select total_points
             from user_info
@@ -102,13 +115,10 @@ public class UserInfoRepository {
             where ui.id = :userId
             """;
 
-    private static final String FIND_ALL_GREEN_SLOT_CONTEXTS_QUERY = """
-            select ui.id,
-                   a.postal_code,
-                   a.timezone
+    private static final String FIND_USER_TIMEZONES_QUERY = """
+            select distinct a.timezone
             from user_info ui
                      join address a on a.id = ui.address_id
-            order by ui.id asc
             """;
 
     private static final String FIND_USER_ID_BY_PHONE_QUERY = """
@@ -118,13 +128,14 @@ public class UserInfoRepository {
             where p.phone = :phone
             """;
 
-    private static final String UPDATE_REWARD_STATE_QUERY = """
-            update user_info
-            set total_points = :totalPoints,
-                current_points = :currentPoints,
-                habit_strength = :habitStrength,
+    private static final String UPDATE_REWARD_STATES_QUERY = """
+            update user_info ui
+            set total_points = s.total_points,
+                current_points = s.current_points,
+                habit_strength = s.habit_strength,
                 updated_at = now()
-            where id = :userId
+            from (values :rewardStates) as s(id, total_points, current_points, habit_strength)
+            where ui.id = s.id
             """;
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
@@ -174,29 +185,65 @@ public class UserInfoRepository {
      * Используется для атомарного начисления/списания очков.
      */
     public Optional<UserRewardState> findRewardStateForUpdate(long userId) {
-        return namedParameterJdbcTemplate.query(
-                FIND_REWARD_STATE_FOR_UPDATE_QUERY,
-                new MapSqlParameterSource(ParameterNames.USER_ID, userId),
+        return Optional.ofNullable(findRewardStatesForUpdate(List.of(userId)).get(userId));
+    }
+
+    /**
+     * Блокирует и загружает состояние наград пользователей одним запросом. Строки блокируются
+     * по возрастанию id, как и профили в AchieverProfileRepository.findLevelTargetsForUpdate,
+     * поэтому параллельные пачки не взаимоблокируются. Пользователей без строки в результате нет.
+     */
+    public Map<Long, UserRewardState> findRewardStatesForUpdate(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+
+        List<UserRewardState> states = namedParameterJdbcTemplate.query(
+                FIND_REWARD_STATES_FOR_UPDATE_QUERY,
+                new MapSqlParameterSource(ParameterNames.USER_IDS, userIds),
                 (rs, rowNum) -> new UserRewardState(
                         rs.getLong(ColumnNames.ID),
+                        UserType.fromId(rs.getInt(ColumnNames.TYPE_ID)),
                         rs.getLong(ColumnNames.TOTAL_POINTS),
                         rs.getLong(ColumnNames.CURRENT_POINTS),
                         rs.getLong(ColumnNames.HABIT_STRENGTH)
                 )
-        ).stream().findFirst();
+        );
+
+        Map<Long, UserRewardState> statesByUserId = new HashMap<>();
+        for (UserRewardState state : states) {
+            statesByUserId.put(state.userId(), state);
+        }
+        return statesByUserId;
     }
 
-    public void updateRewardState(UpdateRewardStateParams params) {
+    /**
+     * Записывает состояние наград нескольких пользователей одним update по списку значений.
+     */
+    public void updateRewardStates(List<UpdateRewardStateParams> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rewardStates = params.stream()
+                .map(param -> new Object[]{
+                        param.userId(),
+                        param.totalPoints(),
+                        param.currentPoints(),
+                        param.habitStrength()
+                })
+                .toList();
+
         namedParameterJdbcTemplate.update(
-                UPDATE_REWARD_STATE_QUERY,
-                new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, params.userId())
-                        .addValue(ParameterNames.TOTAL_POINTS, params.totalPoints())
-                        .addValue(ParameterNames.CURRENT_POINTS, params.currentPoints())
-                        .addValue(ParameterNames.HABIT_STRENGTH, params.habitStrength())
+                UPDATE_REWARD_STATES_QUERY,
+                new MapSqlParameterSource(ParameterNames.REWARD_STATES, rewardStates)
         );
     }
 
+    public void updateRewardState(UpdateRewardStateParams params) {
+        updateRewardStates(List.of(params));
+    }
+
     public Map<Long, Long> findTotalPointsByUserIds(List<Long> userIds) {
         if (userIds.isEmpty()) {
             return Map.of();
@@ -215,6 +262,16 @@ public class UserInfoRepository {
         return totalsByUserId;
     }
 
+    public List<Long> findUserIdsAfter(long afterUserId, int limit) {
+        return namedParameterJdbcTemplate.queryForList(
+                FIND_USER_IDS_AFTER_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.AFTER_USER_ID, afterUserId)
+                        .addValue(ParameterNames.LIMIT, limit),
+                Long.class
+        );
+    }
+
     public Optional<Long> findTotalPointsByUserId(long userId) {
         return namedParameterJdbcTemplate.query(
                 FIND_TOTAL_POINTS_BY_USER_ID_QUERY,
@@ -223,6 +280,7 @@ public class UserInfoRepository {
         ).stream().findFirst();
     }
 
+    @Cacheable(cacheNames = CacheNames.USER_TYPE, unless = "#result == null")
     public Optional<UserType> findUserTypeByUserId(long userId) {
         return namedParameterJdbcTemplate.query(
                 FIND_USER_TYPE_BY_USER_ID_QUERY,
@@ -231,6 +289,7 @@ public class UserInfoRepository {
         ).stream().findFirst();
     }
 
+    @Cacheable(cacheNames = CacheNames.USER_GREEN_SLOT_CONTEXT, unless = "#result == null")
     public Optional<UserGreenSlotContext> findGreenSlotContextByUserId(long userId) {
         return namedParameterJdbcTemplate.query(
                 FIND_GREEN_SLOT_CONTEXT_BY_USER_ID_QUERY,
@@ -243,14 +302,13 @@ public class UserInfoRepository {
         ).stream().findFirst();
     }
 
-    public List<UserGreenSlotContext> findAllGreenSlotContexts() {
+    /**
+     * Различные часовые пояса адресов пользователей в том виде, в каком они сохранены.
+     */
+    public List<String> findUserTimezones() {
         return namedParameterJdbcTemplate.query(
-                FIND_ALL_GREEN_SLOT_CONTEXTS_QUERY,
-                (rs, rowNum) -> new UserGreenSlotContext(
-                        rs.getLong(ColumnNames.ID),
-                        rs.getString(ColumnNames.POSTAL_CODE),
-                        rs.getString(ColumnNames.TIMEZONE)
-                )
+                FIND_USER_TIMEZONES_QUERY,
+                (rs, rowNum) -> rs.getString(ColumnNames.TIMEZONE)
         );
     }
 
@@ -1,124 +1,395 @@
 package ru.nsu.waste.removal.ordering.service.core.repository.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntry;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ColumnNames;
 import ru.nsu.waste.removal.ordering.service.core.repository.constant.ParameterNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.AddLeaderboardScoreParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UserHistoryPositionParams;
 
-import java.time.OffsetDateTime;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Материализованный рейтинг района: дневные бакеты начислений и суммы за окна периодов.
+ * Топ и место пользователя читаются из сумм окна по индексу (period, postal_code, score desc).
+ */
 @Repository
 @RequiredArgsConstructor
 public class UserLeaderboardRepository {
 
-    private static final String LEADERBOARD_RANKING_CTE = """
+    private static final String LOCK_NOT_AVAILABLE_SQL_STATE = "55P03";
+
+    private static final String ADD_SCORES_QUERY = """
+            with scores as (
+                select a.postal_code,
+                       s.user_id,
+                       cast(s.day as date) as day,
+                       sum(s.score)        as score
+                from (values :scores) as s(user_id, day, score)
+                         join user_info ui on ui.id = s.user_id
+                         join address a on a.id = ui.address_id
+                group by a.postal_code, s.user_id, cast(s.day as date)
+            ),
+                 windows as (
+                     select period, window_start
+                     from leaderboard_window_state
+                     for share
+                 ),
+                 daily as (
+                     insert into leaderboard_daily_score as lds (postal_code, user_id, day, score)
+                         select postal_code, user_id, day, score
+                         from scores
+                         on conflict (postal_code, day, user_id) do update
+                             set score = lds.score + excluded.score
+                 )
+            insert into leaderboard_window_score as lws (period, postal_code, user_id, score)
+            select w.period, s.postal_code, s.user_id, sum(s.score)
+            from scores s
+                     join windows w on s.day >= w.window_start
+            group by w.period, s.postal_code, s.user_id
+            on conflict (period, postal_code, user_id) do update
+                set score = lws.score + excluded.score
+            """;
+
+    private static final String LOCK_WINDOW_STATES_QUERY = """
+            lock table leaderboard_window_state in exclusive mode
+            """;
+
+    private static final String LOCK_WINDOW_STATES_NOWAIT_QUERY = """
+            lock table leaderboard_window_state in exclusive mode nowait
+            """;
+
+    private static final String FIND_WINDOW_STATES_QUERY = """
+            select period, window_start
+            from leaderboard_window_state
+            """;
+
+    private static final String INIT_WINDOW_QUERY = """
+            with state as (
+                insert into leaderboard_window_state(period, window_start)
+                    values (:period, :windowStart)
+                    returning period, window_start
+            )
+            insert into leaderboard_window_score(period, postal_code, user_id, score)
+            select st.period, lds.postal_code, lds.user_id, sum(lds.score)
+            from leaderboard_daily_score lds
+                     join state st on lds.day >= st.window_start
+            group by st.period, lds.postal_code, lds.user_id
+            """;
+
+    private static final String SHIFT_WINDOW_QUERY = """
+            with expired as (
+                select lds.postal_code, lds.user_id, sum(lds.score) as score
+                from leaderboard_daily_score lds
+                where lds.day >= :since
+                  and lds.day < :windowStart
+                group by lds.postal_code, lds.user_id
+            ),
+                 state as (
+                     update leaderboard_window_state
+                         set window_start = :windowStart
+                         where period = :period
+                 )
+            update leaderboard_window_score lws
+            set score = lws.score - e.score
+            from expired e
+            where lws.period = :period
+              and lws.postal_code = e.postal_code
+              and lws.user_id = e.user_id
+            """;
+
+    private static final String DELETE_EMPTY_WINDOW_SCORES_QUERY = """
+            delete from leaderboard_window_score
+            where period = :period
+              and score <= 0
+            """;
+
+    private static final String DELETE_DAILY_SCORES_BEFORE_QUERY = """
+            delete from leaderboard_daily_score
+            where day < :minDay
+            """;
+
+    private static final String DELETE_ALL_QUERY = """
+            truncate table leaderboard_window_score, leaderboard_window_state, leaderboard_daily_score
+            """;
+
+    private static final String ADD_DAILY_SCORES_FROM_HISTORY_QUERY = """
+            insert into leaderboard_daily_score(postal_code, user_id, day, score)
+            select a.postal_code,
+                   p.user_id,
+                   cast(uah.created_at at time zone 'UTC' as date),
+                   sum(uah.points_difference)
+            from (values :positions) as p(user_id, tx_id, event_id)
+                     join user_info ui on ui.id = p.user_id
+                     join address a on a.id = ui.address_id
+                     join user_action_history uah
+                          on uah.user_id = p.user_id
+                              and uah.created_at >= cast(cast(:minDay as date) as timestamp) at time zone 'UTC'
+                              and uah.points_difference > 0
+                              and (uah.tx_id, uah.id) < (cast(p.tx_id as xid8), p.event_id)
+            group by a.postal_code, p.user_id, cast(uah.created_at at time zone 'UTC' as date)
+            """;
+
+    private static final String FIND_TOP_ENTRIES_QUERY = """
             with target_user as (
                 select a.postal_code
                 from user_info ui
                          join address a on a.id = ui.address_id
                 where ui.id = :userId
             ),
-                 totals as (
-                     select ui.id as user_id,
-                            trim(concat_ws(' ', p.name, p.surname)) as full_name,
-                            coalesce(sum(
-                                case
-                                    when uah.points_difference > 0 then uah.points_difference
-                                    else 0
-                                end
-                            ), 0) as score
-                     from user_info ui
-                              join address a on a.id = ui.address_id
-                              join person_info p on p.id = ui.person_id
-                              join target_user tu on tu.postal_code = a.postal_code
-                              left join user_action_history uah
-                                        on uah.user_id = ui.id
-                                            and uah.created_at >= :since
-                     group by ui.id, p.name, p.surname
+                 scored as (
+                     select lws.user_id, lws.score
+                     from leaderboard_window_score lws
+                     where lws.period = :period
+                       and lws.postal_code = (select postal_code from target_user)
+                       and lws.score > 0
+                     order by lws.score desc, lws.user_id
+                     limit :limit
                  ),
-                 ranked as (
-                     select user_id,
-                            full_name,
-                            score,
-                            dense_rank() over (order by score desc) as rank_position
-                     from totals
+                 idle as (
+                     select ui.id as user_id, cast(0 as bigint) as score
+                     from address a
+                              join user_info ui on ui.address_id = a.id
+                     where a.postal_code = (select postal_code from target_user)
+                       and not exists (
+                         select 1
+                         from leaderboard_window_score lws
+                         where lws.period = :period
+                           and lws.postal_code = a.postal_code
+                           and lws.user_id = ui.id
+                           and lws.score > 0
+                     )
+                     order by ui.id
+                     limit greatest(:limit - (select count(*) from scored), 0)
                  )
+            select e.user_id,
+                   (
+                       select trim(concat_ws(' ', p.name, p.surname))
+                       from user_info ui
+                                join person_info p on p.id = ui.person_id
+                       where ui.id = e.user_id
+                   ) as full_name,
+                   e.score
+            from (
+                     select user_id, score from scored
+                     union all
+                     select user_id, score from idle
+                 ) e
+            order by e.score desc, e.user_id
             """;
 
-    private static final String FIND_RANK_ENTRY_QUERY = LEADERBOARD_RANKING_CTE + """
-            select user_id,
-                   full_name,
-                   score,
-                   rank_position
-            from ranked
-            where user_id = :userId
-            """;
-
-    private static final String FIND_TOP_ENTRIES_QUERY = LEADERBOARD_RANKING_CTE + """
-            select user_id,
-                   full_name,
-                   score,
-                   rank_position
-            from ranked
-            order by rank_position asc, user_id asc
-            limit :limit
+    private static final String FIND_RANK_ENTRY_QUERY = """
+            with target_user as (
+                select ui.id                                   as user_id,
+                       a.postal_code,
+                       trim(concat_ws(' ', p.name, p.surname)) as full_name,
+                       coalesce(lws.score, 0)                  as score
+                from user_info ui
+                         join address a on a.id = ui.address_id
+                         join person_info p on p.id = ui.person_id
+                         left join leaderboard_window_score lws
+                                   on lws.period = :period
+                                       and lws.postal_code = a.postal_code
+                                       and lws.user_id = ui.id
+                where ui.id = :userId
+            )
+            select tu.user_id,
+                   tu.full_name,
+                   tu.score,
+                   1 + (
+                       select count(distinct lws.score)
+                       from leaderboard_window_score lws
+                       where lws.period = :period
+                         and lws.postal_code = tu.postal_code
+                         and lws.score > tu.score
+                   ) as rank_position
+            from target_user tu
             """;
 
-    private static final String FIND_WEEKLY_RANK_POSITION_QUERY = LEADERBOARD_RANKING_CTE + """
-            select rank_position
-            from ranked
-            where user_id = :userId
-            """;
+    private static final RowMapper<UserLeaderboardEntry> RANK_ENTRY_ROW_MAPPER = (rs, rowNum) ->
+            new UserLeaderboardEntry(
+                    rs.getLong(ColumnNames.USER_ID),
+                    rs.getString(ColumnNames.FULL_NAME),
+                    rs.getInt(ColumnNames.RANK_POSITION),
+                    rs.getLong(ColumnNames.SCORE)
+            );
 
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-    public Optional<Integer> findWeeklyRankPosition(long userId, OffsetDateTime since) {
-        return namedParameterJdbcTemplate.query(
-                FIND_WEEKLY_RANK_POSITION_QUERY,
+    /**
+     * Добавляет начисления в дневные бакеты и в суммы окон, которые начинаются не позже дня начисления.
+     * Строки состояния окон читаются под разделяемой блокировкой, поэтому сдвиг окна дожидается
+     * транзакций, успевших добавить начисления по старой границе.
+     */
+    public void addScores(List<AddLeaderboardScoreParams> params) {
+        if (params.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> scores = params.stream()
+                .map(param -> new Object[]{
+                        param.userId(),
+                        param.day(),
+                        param.score()
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.update(
+                ADD_SCORES_QUERY,
+                new MapSqlParameterSource(ParameterNames.SCORES, scores)
+        );
+    }
+
+    /**
+     * Блокирует состояние окон до конца транзакции: добавление начислений ждет, а последующие
+     * запросы транзакции видят все бакеты, закоммиченные до блокировки.
+     */
+    public Map<LeaderboardPeriod, LocalDate> lockWindowStates() {
+        namedParameterJdbcTemplate.update(LOCK_WINDOW_STATES_QUERY, new MapSqlParameterSource());
+        return findWindowStates();
+    }
+
+    /**
+     * Как {@link #lockWindowStates()}, но не ждет: если состояние окон держат транзакции конвейера,
+     * возвращает пустой результат. Транзакция после отказа прервана, и ее нужно откатить.
+     */
+    public Optional<Map<LeaderboardPeriod, LocalDate>> tryLockWindowStates() {
+        try {
+            namedParameterJdbcTemplate.update(LOCK_WINDOW_STATES_NOWAIT_QUERY, new MapSqlParameterSource());
+        } catch (DataAccessException exception) {
+            if (exception.getMostSpecificCause() instanceof SQLException sqlException
+                    && LOCK_NOT_AVAILABLE_SQL_STATE.equals(sqlException.getSQLState())) {
+                return Optional.empty();
+            }
+            throw exception;
+        }
+        return Optional.of(findWindowStates());
+    }
+
+    private Map<LeaderboardPeriod, LocalDate> findWindowStates() {
+        Map<LeaderboardPeriod, LocalDate> windowStarts = new EnumMap<>(LeaderboardPeriod.class);
+        namedParameterJdbcTemplate.query(
+                FIND_WINDOW_STATES_QUERY,
+                new MapSqlParameterSource(),
+                rs -> {
+                    windowStarts.put(
+                            LeaderboardPeriod.valueOf(rs.getString(ColumnNames.PERIOD)),
+                            rs.getObject(ColumnNames.WINDOW_START, LocalDate.class)
+                    );
+                }
+        );
+        return windowStarts;
+    }
+
+    public void initWindow(LeaderboardPeriod period, LocalDate windowStart) {
+        namedParameterJdbcTemplate.update(
+                INIT_WINDOW_QUERY,
                 new MapSqlParameterSource()
-                        .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.SINCE, since),
-                (rs, rowNum) -> rs.getInt(ColumnNames.RANK_POSITION)
-        ).stream().findFirst();
+                        .addValue(ParameterNames.PERIOD, period.name())
+                        .addValue(ParameterNames.WINDOW_START, windowStart)
+        );
+    }
+
+    /**
+     * Сдвигает начало окна: вычитает бакеты дней [since, windowStart) и удаляет обнулившиеся суммы.
+     */
+    public void shiftWindow(LeaderboardPeriod period, LocalDate since, LocalDate windowStart) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue(ParameterNames.PERIOD, period.name())
+                .addValue(ParameterNames.SINCE, since)
+                .addValue(ParameterNames.WINDOW_START, windowStart);
+        namedParameterJdbcTemplate.update(SHIFT_WINDOW_QUERY, params);
+        namedParameterJdbcTemplate.update(DELETE_EMPTY_WINDOW_SCORES_QUERY, params);
+    }
+
+    public void deleteDailyScoresBefore(LocalDate minDay) {
+        namedParameterJdbcTemplate.update(
+                DELETE_DAILY_SCORES_BEFORE_QUERY,
+                new MapSqlParameterSource(ParameterNames.MIN_DAY, minDay)
+        );
+    }
+
+    public void deleteAll() {
+        namedParameterJdbcTemplate.update(DELETE_ALL_QUERY, new MapSqlParameterSource());
     }
 
-    public Optional<UserLeaderboardEntry> findRankEntry(long userId, OffsetDateTime since) {
+    /**
+     * Заполняет дневные бакеты по истории: положительные начисления начиная с minDay
+     * и строго до переданной позиции пользователя.
+     */
+    public void addDailyScoresFromHistory(List<UserHistoryPositionParams> positions, LocalDate minDay) {
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> positionRows = positions.stream()
+                .map(position -> new Object[]{
+                        position.userId(),
+                        Long.toString(position.before().txId()),
+                        position.before().eventId()
+                })
+                .toList();
+
+        namedParameterJdbcTemplate.update(
+                ADD_DAILY_SCORES_FROM_HISTORY_QUERY,
+                new MapSqlParameterSource()
+                        .addValue(ParameterNames.POSITIONS, positionRows)
+                        .addValue(ParameterNames.MIN_DAY, minDay)
+        );
+    }
+
+    public Optional<UserLeaderboardEntry> findRankEntry(long userId, LeaderboardPeriod period) {
         return namedParameterJdbcTemplate.query(
                 FIND_RANK_ENTRY_QUERY,
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.SINCE, since),
-                (rs, rowNum) -> new UserLeaderboardEntry(
-                        rs.getLong(ColumnNames.USER_ID),
-                        rs.getString(ColumnNames.FULL_NAME),
-                        rs.getInt(ColumnNames.RANK_POSITION),
-                        rs.getLong(ColumnNames.SCORE)
-                )
+                        .addValue(ParameterNames.PERIOD, period.name()),
+                RANK_ENTRY_ROW_MAPPER
         ).stream().findFirst();
     }
 
-    public List<UserLeaderboardEntry> findTopEntriesByUserDistrict(long userId, OffsetDateTime since, int limit) {
+    /**
+     * Топ района. Строки приходят упорядоченными по убыванию очков, поэтому плотный ранг
+     * считается по ним без оконной функции по всему району.
+     */
+    public List<UserLeaderboardEntry> findTopEntriesByUserDistrict(long userId, LeaderboardPeriod period, int limit) {
         if (limit <= 0) {
             return List.of();
         }
 
-        return namedParameterJdbcTemplate.query(
+        List<UserLeaderboardEntry> entries = new ArrayList<>(limit);
+        namedParameterJdbcTemplate.query(
                 FIND_TOP_ENTRIES_QUERY,
                 new MapSqlParameterSource()
                         .addValue(ParameterNames.USER_ID, userId)
-                        .addValue(ParameterNames.SINCE, since)
+                        .addValue(ParameterNames.PERIOD, period.name())
                         .addValue(ParameterNames.LIMIT, limit),
-                (rs, rowNum) -> new UserLeaderboardEntry(
-                        rs.getLong(ColumnNames.USER_ID),
-                        rs.getString(ColumnNames.FULL_NAME),
-                        rs.getInt(ColumnNames.RANK_POSITION),
-                        rs.getLong(ColumnNames.SCORE)
-                )
+                rs -> {
+                    long score = rs.getLong(ColumnNames.SCORE);
+                    int rankPosition = entries.isEmpty() ? 1 : entries.getLast().rankPosition();
+                    if (!entries.isEmpty() && entries.getLast().score() != score) {
+                        rankPosition++;
+                    }
+                    entries.add(new UserLeaderboardEntry(
+                            rs.getLong(ColumnNames.USER_ID),
+                            rs.getString(ColumnNames.FULL_NAME),
+                            rankPosition,
+                            score
+                    ));
+                }
         );
+        return entries;
     }
 }
@@ -0,0 +1,14 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.user.param;
+
+public record AddEventCountersParams(
+        long userId,
+        long doneOrders,
+        long doneSeparateOrders,
+        long doneGreenOrders,
+        long separateFractionMask,
+        long levelUps,
+        long leaderboardOpens,
+        long ecoProfileOpens,
+        long infoCardViews
+) {
+}
@@ -0,0 +1,10 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.user.param;
+
+import java.time.LocalDate;
+
+public record AddLeaderboardScoreParams(
+        long userId,
+        LocalDate day,
+        long score
+) {
+}
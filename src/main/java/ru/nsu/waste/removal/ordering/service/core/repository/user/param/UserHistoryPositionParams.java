@@ -0,0 +1,12 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.user.param;
+
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+
+/**
+ * Пользователь и позиция в истории событий: проекции считаются по его событиям строго до позиции.
+ */
+public record UserHistoryPositionParams(
+        long userId,
+        UserActionEventCursor before
+) {
+}
@@ -5,15 +5,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.model.achievement.Achievement;
 import ru.nsu.waste.removal.ordering.service.core.model.achievement.AchievementCode;
 import ru.nsu.waste.removal.ordering.service.core.model.achievement.AchievementRule;
 import ru.nsu.waste.removal.ordering.service.core.model.event.AchievementUnlockedEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCounters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntry;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
 import ru.nsu.waste.removal.ordering.service.core.repository.achievement.AchievementRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.achievement.AchievementUserRepository;
@@ -21,11 +23,11 @@ import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionH
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
-import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 
-import java.time.Clock;
-import java.time.OffsetDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -47,9 +49,8 @@ public class AchievementService implements UserActionEventHandler {
     private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
     private final UserInfoRepository userInfoRepository;
     private final UserLeaderboardRepository userLeaderboardRepository;
-    private final OrderInfoService orderInfoService;
+    private final UserGamificationCountersService userGamificationCountersService;
     private final ObjectMapper objectMapper;
-    private final Clock clock;
 
     public List<Achievement> findByUserType(UserType userType) {
         return achievementRepository.findByUserType(userType);
@@ -65,64 +66,87 @@ public class AchievementService implements UserActionEventHandler {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void handle(UserActionHistoryEvent event) {
-        long userId = event.userId();
-        UserActionEventType eventType = event.eventType();
-
-        if (eventType == UserActionEventType.ACHIEVEMENT_UNLOCKED) {
-            return;
-        }
-
-        UserType userType = userInfoRepository.findUserTypeByUserId(userId)
-                .orElseThrow(() -> new IllegalStateException(
-                        "User with id = %s is not found".formatted(userId)
-                ));
+        handleBatch(UserActionEventBatch.of(event));
+    }
 
-        List<AchievementRule> candidates =
-                achievementRepository.findTriggeredByUserTypeAndEvent(userType, eventType.dbName());
-        for (AchievementRule candidate : candidates) {
-            if (!isConditionMet(userId, candidate.code())) {
-                continue;
+    /**
+     * Условия достижений зависят только от текущего состояния пользователя, а не от конкретного
+     * события, поэтому каждое кандидатное достижение проверяется не более одного раза на пользователя,
+     * а уже открытые достижения не проверяются вовсе. Счетчики для проверки читаются из проекции
+     * {@link UserGamificationCountersService}, которая обновляется раньше в той же пачке.
+     */
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        Map<UserType, Map<UserActionEventType, List<AchievementRule>>> candidatesCache = new EnumMap<>(UserType.class);
+        Map<Long, List<UserActionHistoryEvent>> eventsByUserId = batch.eventsByUserId();
+        Map<Long, UserGamificationCounters> countersByUserId =
+                userGamificationCountersService.findByUserIds(eventsByUserId.keySet());
+        eventsByUserId.forEach((userId, events) -> {
+            UserType userType = userInfoRepository.findUserTypeByUserId(userId)
+                    .orElseThrow(() -> new IllegalStateException(
+                            "User with id = %s is not found".formatted(userId)
+                    ));
+            Map<UserActionEventType, List<AchievementRule>> candidatesByEventType =
+                    candidatesCache.computeIfAbsent(userType, ignored -> new EnumMap<>(UserActionEventType.class));
+
+            Map<Integer, AchievementRule> candidates = new LinkedHashMap<>();
+            for (UserActionHistoryEvent event : events) {
+                if (event.eventType() == UserActionEventType.ACHIEVEMENT_UNLOCKED) {
+                    continue;
+                }
+                List<AchievementRule> triggered = candidatesByEventType.computeIfAbsent(
+                        event.eventType(),
+                        eventType -> achievementRepository.findTriggeredByUserTypeAndEvent(userType, eventType.dbName())
+                );
+                for (AchievementRule candidate : triggered) {
+                    candidates.putIfAbsent(candidate.id(), candidate);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return;
             }
 
-            if (achievementUserRepository.unlockForUser(userId, candidate.id())) {
-                userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
-                        userId,
-                        UserActionEventType.ACHIEVEMENT_UNLOCKED.dbName(),
-                        buildUnlockedContentJson(candidate),
-                        0
-                ));
+            Set<Integer> unlockedIds = achievementUserRepository.findUnlockedAchievementIdsByUserId(userId);
+            for (AchievementRule candidate : candidates.values()) {
+                if (unlockedIds.contains(candidate.id())
+                        || !isConditionMet(countersByUserId.get(userId), candidate.code())) {
+                    continue;
+                }
+
+                if (achievementUserRepository.unlockForUser(userId, candidate.id())) {
+                    userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
+                            userId,
+                            UserActionEventType.ACHIEVEMENT_UNLOCKED.dbName(),
+                            buildUnlockedContentJson(candidate),
+                            0
+                    ));
+                }
             }
-        }
+        });
     }
 
-    private boolean isConditionMet(long userId, AchievementCode achievementCode) {
+    private boolean isConditionMet(UserGamificationCounters counters, AchievementCode achievementCode) {
         return switch (achievementCode) {
-            case ACH_FIRST_ORDER -> orderInfoService.countDoneOrders(userId) >= 1;
-            case ACH_FIRST_SEPARATE -> orderInfoService.countDoneSeparateOrders(userId) >= 1;
-            case ACH_SEPARATE_5 -> orderInfoService.countDoneSeparateOrders(userId) >= SEPARATE_ORDERS_5_THRESHOLD;
-            case ACH_LEVEL_UP ->
-                    userActionHistoryRepository.countByUserIdAndEventType(userId, UserActionEventType.LEVEL_UP.dbName()) >= 1;
-            case SOC_OPEN_LEADERBOARD ->
-                    userActionHistoryRepository.countByUserIdAndEventType(userId, UserActionEventType.LEADERBOARD_OPENED.dbName()) >= 1;
-            case SOC_TOP10_WEEK -> weeklyRankAtMost(userId, TOP_10_THRESHOLD);
-            case SOC_TOP3_WEEK -> weeklyRankAtMost(userId, TOP_3_THRESHOLD);
-            case SOC_GREEN_HELPER_5 -> orderInfoService.countDoneGreenOrders(userId) >= GREEN_ORDERS_5_THRESHOLD;
-            case EXP_OPEN_PROFILE ->
-                    userActionHistoryRepository.countByUserIdAndEventType(userId, UserActionEventType.ECO_PROFILE_OPENED.dbName()) >= 1;
-            case EXP_CARDS_5 ->
-                    userActionHistoryRepository.countByUserIdAndEventType(userId, UserActionEventType.INFO_CARD_VIEWED.dbName()) >= INFO_CARD_VIEWS_5_THRESHOLD;
-            case EXP_NEW_FRACTIONS_3 ->
-                    orderInfoService.countDistinctFractionsInDoneSeparateOrders(userId) >= EXPLORED_FRACTIONS_3_THRESHOLD;
-            case EXP_NEW_FRACTIONS_ALL_5 ->
-                    orderInfoService.countDistinctFractionsInDoneSeparateOrders(userId) >= EXPLORED_FRACTIONS_ALL_THRESHOLD;
+            case ACH_FIRST_ORDER -> counters.doneOrders() >= 1;
+            case ACH_FIRST_SEPARATE -> counters.doneSeparateOrders() >= 1;
+            case ACH_SEPARATE_5 -> counters.doneSeparateOrders() >= SEPARATE_ORDERS_5_THRESHOLD;
+            case ACH_LEVEL_UP -> counters.levelUps() >= 1;
+            case SOC_OPEN_LEADERBOARD -> counters.leaderboardOpens() >= 1;
+            case SOC_TOP10_WEEK -> weeklyRankAtMost(counters.userId(), TOP_10_THRESHOLD);
+            case SOC_TOP3_WEEK -> weeklyRankAtMost(counters.userId(), TOP_3_THRESHOLD);
+            case SOC_GREEN_HELPER_5 -> counters.doneGreenOrders() >= GREEN_ORDERS_5_THRESHOLD;
+            case EXP_OPEN_PROFILE -> counters.ecoProfileOpens() >= 1;
+            case EXP_CARDS_5 -> counters.infoCardViews() >= INFO_CARD_VIEWS_5_THRESHOLD;
+            case EXP_NEW_FRACTIONS_3 -> counters.distinctSeparateFractions() >= EXPLORED_FRACTIONS_3_THRESHOLD;
+            case EXP_NEW_FRACTIONS_ALL_5 -> counters.distinctSeparateFractions() >= EXPLORED_FRACTIONS_ALL_THRESHOLD;
         };
     }
 
     private boolean weeklyRankAtMost(long userId, int threshold) {
-        OffsetDateTime since = OffsetDateTime.now(clock).minusDays(7);
-        return userLeaderboardRepository.findWeeklyRankPosition(userId, since)
+        // Окно здесь не сдвигается: обработчик работает в транзакции конвейера, а сдвиг ждет ее завершения.
+        return userLeaderboardRepository.findRankEntry(userId, LeaderboardPeriod.WEEK)
+                .map(UserLeaderboardEntry::rankPosition)
                 .map(rank -> rank <= threshold)
                 .orElse(false);
     }
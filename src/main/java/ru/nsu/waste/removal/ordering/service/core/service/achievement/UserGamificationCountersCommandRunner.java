@@ -0,0 +1,63 @@
+package ru.nsu.waste.removal.ordering.service.core.service.achievement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCountersMismatch;
+
+import java.util.List;
+
+/**
+ * Обслуживание проекции счетчиков при старте приложения:
+ * {@code app.gamification-counters.command=rebuild} пересобирает ее по сырым таблицам,
+ * {@code app.gamification-counters.command=check} сверяет и пишет расхождения в лог.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("app.gamification-counters.command")
+public class UserGamificationCountersCommandRunner implements ApplicationRunner {
+
+    private static final String REBUILD_COMMAND = "rebuild";
+    private static final String CHECK_COMMAND = "check";
+    private static final int MAX_LOGGED_MISMATCHES = 100;
+
+    private final UserGamificationCountersService userGamificationCountersService;
+    private final String command;
+
+    public UserGamificationCountersCommandRunner(
+            UserGamificationCountersService userGamificationCountersService,
+            @Value("${app.gamification-counters.command}") String command
+    ) {
+        this.userGamificationCountersService = userGamificationCountersService;
+        this.command = command;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        switch (command) {
+            case REBUILD_COMMAND -> {
+                long rebuilt = userGamificationCountersService.rebuildAll();
+                log.info("Gamification counters rebuilt for {} users", rebuilt);
+            }
+            case CHECK_COMMAND -> logMismatches(userGamificationCountersService.findMismatches());
+            default -> throw new IllegalStateException(
+                    "Unknown gamification counters command = %s".formatted(command)
+            );
+        }
+    }
+
+    private void logMismatches(List<UserGamificationCountersMismatch> mismatches) {
+        if (mismatches.isEmpty()) {
+            log.info("Gamification counters are consistent with raw tables");
+            return;
+        }
+        log.warn("Gamification counters differ from raw tables for {} users", mismatches.size());
+        mismatches.stream()
+                .limit(MAX_LOGGED_MISMATCHES)
+                .forEach(mismatch -> log.warn("userId={}: stored={}, expected={}",
+                        mismatch.userId(), mismatch.actual(), mismatch.expected()));
+    }
+}
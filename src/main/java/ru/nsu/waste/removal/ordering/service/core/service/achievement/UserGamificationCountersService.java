@@ -0,0 +1,257 @@
+package ru.nsu.waste.removal.ordering.service.core.service.achievement;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.order.FractionMask;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCounters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCountersMismatch;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.EventProcessorStateRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserGamificationCountersRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.AddEventCountersParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UserHistoryPositionParams;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventContentReader;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventPartitionProcessor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Ведет проекцию user_gamification_counters, по которой проверяются достижения.
+ * <p>
+ * Счетчики соответствуют истории до курсора обработчика и увеличиваются в той же транзакции,
+ * что и курсор. Счетчики заказов увеличиваются по содержимому ORDER_DONE (тип, зеленый слот, фракции);
+ * только старое содержимое без этих полей пересчитывается по order_info.
+ * Строка пользователя создается лениво по истории до первого события пачки.
+ */
+@Service
+@Order(25)
+public class UserGamificationCountersService implements UserActionEventHandler {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String ORDER_TYPE_SEPARATE = "SEPARATE";
+    private static final UserActionEventCursor LATEST =
+            new UserActionEventCursor(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final UserGamificationCountersRepository userGamificationCountersRepository;
+    private final EventProcessorStateRepository eventProcessorStateRepository;
+    private final UserInfoRepository userInfoRepository;
+    private final UserActionEventContentReader userActionEventContentReader;
+    private final int partitions;
+
+    public UserGamificationCountersService(
+            UserGamificationCountersRepository userGamificationCountersRepository,
+            EventProcessorStateRepository eventProcessorStateRepository,
+            UserInfoRepository userInfoRepository,
+            UserActionEventContentReader userActionEventContentReader,
+            @Value("${app.jobs.user-action-event-processor.partitions:1}") int partitions
+    ) {
+        this.userGamificationCountersRepository = userGamificationCountersRepository;
+        this.eventProcessorStateRepository = eventProcessorStateRepository;
+        this.userInfoRepository = userInfoRepository;
+        this.userActionEventContentReader = userActionEventContentReader;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public boolean supports(UserActionHistoryEvent event) {
+        return event.eventType() != UserActionEventType.ACHIEVEMENT_UNLOCKED;
+    }
+
+    @Override
+    public void handle(UserActionHistoryEvent event) {
+        handleBatch(UserActionEventBatch.of(event));
+    }
+
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        Map<Long, List<UserActionHistoryEvent>> eventsByUserId = batch.eventsByUserId();
+        Set<Long> existingUserIds = userGamificationCountersRepository.lockExistingUserIds(eventsByUserId.keySet());
+
+        List<UserHistoryPositionParams> missingCounters = new ArrayList<>();
+        List<AddEventCountersParams> eventCounters = new ArrayList<>();
+        List<UserHistoryPositionParams> orderRecounts = new ArrayList<>();
+        eventsByUserId.forEach((userId, events) -> {
+            if (!existingUserIds.contains(userId)) {
+                missingCounters.add(new UserHistoryPositionParams(userId, events.getFirst().cursor()));
+            }
+
+            long doneOrders = 0;
+            long doneSeparateOrders = 0;
+            long doneGreenOrders = 0;
+            long separateFractionMask = 0;
+            long levelUps = 0;
+            long leaderboardOpens = 0;
+            long ecoProfileOpens = 0;
+            long infoCardViews = 0;
+            boolean orderRecount = false;
+            for (UserActionHistoryEvent event : events) {
+                switch (event.eventType()) {
+                    case LEVEL_UP -> levelUps++;
+                    case LEADERBOARD_OPENED -> leaderboardOpens++;
+                    case ECO_PROFILE_OPENED -> ecoProfileOpens++;
+                    case INFO_CARD_VIEWED -> infoCardViews++;
+                    case ORDER_DONE -> {
+                        OrderDoneEventContent order = readCompleteOrderDone(event);
+                        if (order == null) {
+                            orderRecount = true;
+                        } else {
+                            doneOrders++;
+                            if (ORDER_TYPE_SEPARATE.equals(order.type())) {
+                                doneSeparateOrders++;
+                                separateFractionMask |= FractionMask.ofFitting(order.fractionIds());
+                            }
+                            if (order.greenChosen()) {
+                                doneGreenOrders++;
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+
+            // Пересчет по order_info на позицию после последнего события пачки уже учитывает
+            // заказы всех событий ORDER_DONE пачки, поэтому их прибавлять не нужно.
+            if (orderRecount) {
+                orderRecounts.add(new UserHistoryPositionParams(userId, events.getLast().cursor().next()));
+                doneOrders = 0;
+                doneSeparateOrders = 0;
+                doneGreenOrders = 0;
+                separateFractionMask = 0;
+            }
+            if (doneOrders + levelUps + leaderboardOpens + ecoProfileOpens + infoCardViews > 0) {
+                eventCounters.add(new AddEventCountersParams(
+                        userId,
+                        doneOrders,
+                        doneSeparateOrders,
+                        doneGreenOrders,
+                        separateFractionMask,
+                        levelUps,
+                        leaderboardOpens,
+                        ecoProfileOpens,
+                        infoCardViews
+                ));
+            }
+        });
+
+        userGamificationCountersRepository.initFromRawTables(missingCounters);
+        userGamificationCountersRepository.addEventCounters(eventCounters);
+        userGamificationCountersRepository.refreshOrderCounters(orderRecounts);
+    }
+
+    /**
+     * Содержимое ORDER_DONE, по которому счетчики можно увеличить без чтения заказа: с типом и фракциями.
+     * Условие совпадает с тем, по которому подсчет по сырым таблицам откладывает заказ до его события.
+     */
+    private OrderDoneEventContent readCompleteOrderDone(UserActionHistoryEvent event) {
+        return userActionEventContentReader.read(event, OrderDoneEventContent.class)
+                .filter(order -> order.type() != null && order.fractionIds() != null)
+                .orElse(null);
+    }
+
+    /**
+     * Счетчики пользователей. Если проекции для пользователя нет (например, его события ушли
+     * в dead letters), счетчики считаются по сырым таблицам на текущий момент.
+     */
+    public Map<Long, UserGamificationCounters> findByUserIds(Collection<Long> userIds) {
+        Map<Long, UserGamificationCounters> countersByUserId = new HashMap<>();
+        for (UserGamificationCounters counters : userGamificationCountersRepository.findByUserIds(userIds)) {
+            countersByUserId.put(counters.userId(), counters);
+        }
+
+        List<UserHistoryPositionParams> missingCounters = userIds.stream()
+                .filter(userId -> !countersByUserId.containsKey(userId))
+                .map(userId -> new UserHistoryPositionParams(userId, LATEST))
+                .toList();
+        for (UserGamificationCounters counters : userGamificationCountersRepository.computeFromRawTables(missingCounters)) {
+            countersByUserId.put(counters.userId(), counters);
+        }
+        return countersByUserId;
+    }
+
+    /**
+     * Пересобирает проекцию для всех пользователей. Курсоры обработчиков блокируются на время
+     * пересборки, поэтому счетчики событий точно соответствуют уже обработанной истории.
+     *
+     * @return число пересчитанных пользователей
+     */
+    @Transactional
+    public long rebuildAll() {
+        Map<String, UserActionEventCursor> cursors = eventProcessorStateRepository.findAllCursorsForUpdate();
+
+        long rebuilt = 0;
+        long afterUserId = 0;
+        List<Long> userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        while (!userIds.isEmpty()) {
+            List<UserHistoryPositionParams> positions = userIds.stream()
+                    .map(userId -> new UserHistoryPositionParams(
+                            userId,
+                            UserActionEventPartitionProcessor.nextUnprocessedPosition(cursors, userId, partitions)
+                    ))
+                    .toList();
+            userGamificationCountersRepository.rebuildFromRawTables(positions);
+
+            rebuilt += userIds.size();
+            afterUserId = userIds.getLast();
+            userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Сверяет проекцию с сырыми таблицами. Снимок repeatable read видит курсоры и счетчики,
+     * закоммиченные вместе, поэтому проверка не требует блокировок. Счетчики заказов сверяются
+     * с текущим состоянием order_info без заказов с еще не обработанным полным событием ORDER_DONE;
+     * для заказа со старым содержимым события расхождение до его обработки временное.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<UserGamificationCountersMismatch> findMismatches() {
+        Map<String, UserActionEventCursor> cursors = eventProcessorStateRepository.findAllCursors();
+
+        List<UserGamificationCountersMismatch> mismatches = new ArrayList<>();
+        long afterUserId = 0;
+        List<UserGamificationCounters> stored = userGamificationCountersRepository.findPageAfterUserId(afterUserId, CHUNK_SIZE);
+        while (!stored.isEmpty()) {
+            List<UserHistoryPositionParams> positions = stored.stream()
+                    .map(counters -> new UserHistoryPositionParams(
+                            counters.userId(),
+                            UserActionEventPartitionProcessor.nextUnprocessedPosition(
+                                    cursors,
+                                    counters.userId(),
+                                    partitions
+                            )
+                    ))
+                    .toList();
+            Map<Long, UserGamificationCounters> expectedByUserId = new HashMap<>();
+            for (UserGamificationCounters expected : userGamificationCountersRepository.computeFromRawTables(positions)) {
+                expectedByUserId.put(expected.userId(), expected);
+            }
+
+            for (UserGamificationCounters actual : stored) {
+                UserGamificationCounters expected = expectedByUserId.get(actual.userId());
+                if (!Objects.equals(actual, expected)) {
+                    mismatches.add(new UserGamificationCountersMismatch(actual.userId(), actual, expected));
+                }
+            }
+
+            afterUserId = stored.getLast().userId();
+            stored = userGamificationCountersRepository.findPageAfterUserId(afterUserId, CHUNK_SIZE);
+        }
+        return mismatches;
+    }
+}
@@ -4,12 +4,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterContext;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterKey;
-import ru.nsu.waste.removal.ordering.service.core.model.order.GreenSlot;
 import ru.nsu.waste.removal.ordering.service.core.repository.cluster.GeoClusterRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.cluster.param.FindPlannedSlotsInClusterParams;
 
 import java.time.OffsetDateTime;
-import java.util.List;
 import java.util.Objects;
 
 @Service
@@ -39,12 +36,6 @@ public class GeoClusterService {
         return getClusterKeyByUserId(userId);
     }
 
-    public List<GreenSlot> findPlannedSlotsInCluster(
-            FindPlannedSlotsInClusterParams params
-    ) {
-        return geoClusterRepository.findPlannedSlotsInCluster(params);
-    }
-
     public long countActiveOrdersInCluster(
             GeoClusterKey clusterKey,
             OffsetDateTime from,
@@ -0,0 +1,274 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Рассылает курьерам изменения ленты заказов их почтового индекса через Server-Sent Events.
+ * <p>
+ * События публикуются после коммита транзакций, меняющих состояние заказов, и получают номер версии ленты
+ * почтового индекса. Панель запоминает версию, с которой она отрисована, а при подписке первым получает
+ * событие {@code hello} с текущей версией, так что пропущенные изменения видны по разрыву в номерах.
+ * <p>
+ * У каждого подписчика своя очередь ограниченной длины и свой виртуальный поток, который пишет из нее
+ * в соединение и шлет heartbeat. Публикация не блокируется медленными клиентами: при переполнении очереди
+ * подписчик получает {@code resync}, соединение закрывается, и панель перечитывает состояние целиком.
+ * Рассылка работает в пределах одного экземпляра сервиса, как и {@code GreenSlotOccupancyIndex}.
+ */
+@Slf4j
+@Component
+public class CourierFeedBroadcaster {
+
+    private static final String HELLO_EVENT = "hello";
+    private static final String RESYNC_EVENT = "resync";
+    private static final String HEARTBEAT_COMMENT = "heartbeat";
+
+    private final ObjectMapper objectMapper;
+    private final int queueCapacity;
+    private final long heartbeatMs;
+    private final long emitterTimeoutMs;
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+    public CourierFeedBroadcaster(
+            ObjectMapper objectMapper,
+            @Value("${app.courier-feed.queue-capacity:256}") int queueCapacity,
+            @Value("${app.courier-feed.heartbeat-ms:15000}") long heartbeatMs,
+            @Value("${app.courier-feed.emitter-timeout-ms:1800000}") long emitterTimeoutMs
+    ) {
+        if (queueCapacity <= 0) {
+            throw new IllegalStateException("Courier feed queue capacity must be positive");
+        }
+        this.objectMapper = objectMapper;
+        this.queueCapacity = queueCapacity;
+        this.heartbeatMs = heartbeatMs;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    /**
+     * Текущая версия ленты почтового индекса: номер последнего опубликованного для него события.
+     */
+    public long currentVersion(String postalCode) {
+        Topic topic = topics.get(postalCode);
+        if (topic == null) {
+            return 0L;
+        }
+        synchronized (topic) {
+            return topic.version;
+        }
+    }
+
+    /**
+     * Подписывает клиента на ленту почтового индекса.
+     *
+     * @param payloadMapper превращает событие в тело SSE-сообщения конкретного подписчика
+     */
+    public SseEmitter subscribe(String postalCode, Function<CourierFeedEvent, Object> payloadMapper) {
+        SseEmitter emitter = newEmitter(emitterTimeoutMs);
+        Topic topic = topics.computeIfAbsent(postalCode, ignored -> new Topic());
+        Subscriber subscriber = new Subscriber(topic, emitter, payloadMapper, new ArrayBlockingQueue<>(queueCapacity));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(ignored -> subscriber.close());
+
+        synchronized (topic) {
+            topic.subscribers.add(subscriber);
+            subscriber.offer(new Delivery(topic.version, null));
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    /**
+     * Публикует событие после коммита текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void publishAfterCommit(CourierFeedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    public void publish(CourierFeedEvent event) {
+        Topic topic = topics.computeIfAbsent(event.postalCode(), ignored -> new Topic());
+        synchronized (topic) {
+            topic.version++;
+            Delivery delivery = new Delivery(topic.version, event);
+            for (Subscriber subscriber : topic.subscribers) {
+                subscriber.offer(delivery);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        int count = 0;
+        for (Topic topic : topics.values()) {
+            synchronized (topic) {
+                count += topic.subscribers.size();
+            }
+        }
+        return count;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Subscriber> subscribers = new ArrayList<>();
+        for (Topic topic : topics.values()) {
+            synchronized (topic) {
+                subscribers.addAll(topic.subscribers);
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+            subscriber.close();
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Failed to serialize courier feed event", exception);
+        }
+    }
+
+    private static final class Topic {
+
+        private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+        private long version;
+    }
+
+    /**
+     * @param event null для приветственного события с текущей версией
+     */
+    private record Delivery(
+            long version,
+            CourierFeedEvent event
+    ) {
+    }
+
+    private final class Subscriber {
+
+        private final Topic topic;
+        private final SseEmitter emitter;
+        private final Function<CourierFeedEvent, Object> payloadMapper;
+        private final BlockingQueue<Delivery> queue;
+
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+        private volatile Thread drainThread;
+
+        private Subscriber(
+                Topic topic,
+                SseEmitter emitter,
+                Function<CourierFeedEvent, Object> payloadMapper,
+                BlockingQueue<Delivery> queue
+        ) {
+            this.topic = topic;
+            this.emitter = emitter;
+            this.payloadMapper = payloadMapper;
+            this.queue = queue;
+        }
+
+        private void start() {
+            drainThread = Thread.ofVirtual()
+                    .name("courier-feed-subscriber")
+                    .start(this::drain);
+        }
+
+        /**
+         * Вызывается под блокировкой ленты, поэтому не ждет: при переполнении очередь сбрасывается,
+         * а подписчик получит resync.
+         */
+        private void offer(Delivery delivery) {
+            if (overflowed || closed) {
+                return;
+            }
+            if (!queue.offer(delivery)) {
+                overflowed = true;
+                queue.clear();
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    if (overflowed) {
+                        emitter.send(SseEmitter.event().name(RESYNC_EVENT).data("{}"));
+                        emitter.complete();
+                        return;
+                    }
+                    Delivery delivery = queue.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                    if (delivery == null) {
+                        emitter.send(SseEmitter.event().comment(HEARTBEAT_COMMENT));
+                    } else if (!overflowed) {
+                        send(delivery);
+                    }
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException exception) {
+                log.debug("Courier feed subscriber disconnected", exception);
+                emitter.completeWithError(exception);
+            } finally {
+                close();
+            }
+        }
+
+        private void send(Delivery delivery) throws IOException {
+            String id = String.valueOf(delivery.version());
+            if (delivery.event() == null) {
+                emitter.send(SseEmitter.event().id(id).name(HELLO_EVENT).data(id));
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                    .id(id)
+                    .name(delivery.event().type().eventName())
+                    .data(toJson(payloadMapper.apply(delivery.event()))));
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (topic) {
+                topic.subscribers.remove(this);
+            }
+            queue.clear();
+            Thread thread = drainThread;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservation;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservationStatus;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Исходы взятия групп заказов и конкуренция курьеров за одни и те же заказы.
+ */
+@Component
+public class CourierOrderTakeMetrics {
+
+    private static final String OUTCOME_TAG = "outcome";
+
+    private final Map<Outcome, Counter> groupTakes = new EnumMap<>(Outcome.class);
+    private final DistributionSummary contendedOrders;
+    private final DistributionSummary vanishedOrders;
+    private final Counter partialRetries;
+
+    public CourierOrderTakeMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            groupTakes.put(outcome, Counter.builder("courier.order.group.takes")
+                    .description("Courier order group takes by outcome")
+                    .tag(OUTCOME_TAG, outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.contendedOrders = DistributionSummary.builder("courier.order.group.take.contended")
+                .description("Requested orders skipped per group take because another courier held their rows")
+                .baseUnit("orders")
+                .register(meterRegistry);
+        this.vanishedOrders = DistributionSummary.builder("courier.order.group.take.vanished")
+                .description("Requested orders per group take that were already taken or left the group")
+                .baseUnit("orders")
+                .register(meterRegistry);
+        this.partialRetries = Counter.builder("courier.order.group.take.retries")
+                .description("Repeated group takes that accepted the remaining orders after a partial offer")
+                .register(meterRegistry);
+    }
+
+    public void recordGroupTake(List<CourierOrderReservation> reservations, boolean acceptPartial) {
+        Map<CourierOrderReservationStatus, Integer> counts = new EnumMap<>(CourierOrderReservationStatus.class);
+        for (CourierOrderReservation reservation : reservations) {
+            counts.merge(reservation.status(), 1, Integer::sum);
+        }
+        int assigned = counts.getOrDefault(CourierOrderReservationStatus.ASSIGNED, 0);
+        int reserved = counts.getOrDefault(CourierOrderReservationStatus.RESERVED, 0);
+
+        Outcome outcome;
+        if (assigned == reservations.size()) {
+            outcome = Outcome.FULL;
+        } else if (assigned > 0) {
+            outcome = Outcome.PARTIAL_TAKEN;
+        } else if (reserved > 0) {
+            outcome = Outcome.PARTIAL_OFFERED;
+        } else {
+            outcome = Outcome.UNAVAILABLE;
+        }
+        groupTakes.get(outcome).increment();
+        contendedOrders.record(counts.getOrDefault(CourierOrderReservationStatus.CONTENDED, 0));
+        vanishedOrders.record(counts.getOrDefault(CourierOrderReservationStatus.UNAVAILABLE, 0));
+        if (acceptPartial) {
+            partialRetries.increment();
+        }
+    }
+
+    private enum Outcome {
+        FULL,
+        PARTIAL_TAKEN,
+        PARTIAL_OFFERED,
+        UNAVAILABLE
+    }
+}
@@ -1,29 +1,30 @@
 package ru.nsu.waste.removal.ordering.service.core.service.courier;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.courier.CourierParamsMapper;
-import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierCompletedOrder;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroup;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupKey;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupTake;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservation;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservationStatus;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierPanel;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierProfileInfo;
-import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
-import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
 import ru.nsu.waste.removal.ordering.service.core.repository.courier.CourierOrderRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.courier.CourierRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.service.order.GreenSlotOccupancyIndex;
 
 import java.time.Clock;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -36,27 +37,26 @@ public class CourierPanelService {
 
     private static final int DEFAULT_ORDERS_LIMIT = 50;
     private static final long COURIER_DONE_ORDER_REWARD = 20L;
-    private static final long ZERO_POINTS_DIFFERENCE = 0L;
 
-    private static final String DONE_STATUS = "DONE";
     private static final String ORDER_TYPE_SEPARATE = "SEPARATE";
     private static final String ORDER_TYPE_MIXED = "MIXED";
 
     private static final String TAKE_ORDER_FAILED_MESSAGE = "Заказ уже взят другим курьером или недоступен";
     private static final String TAKE_GROUP_ACCESS_DENIED_MESSAGE = "Группа недоступна для этого курьера";
-    private static final String TAKE_GROUP_CHANGED_MESSAGE = "Состав группы изменился, обновите страницу";
+    private static final String TAKE_GROUP_INVALID_MESSAGE = "Некорректный состав группы заказов";
+    private static final String TAKE_GROUP_UNAVAILABLE_MESSAGE = "Заказы группы уже взяты другими курьерами";
     private static final String COMPLETE_ORDER_NOT_FOUND_MESSAGE =
             "Заказ не найден или не назначен этому курьеру";
-    private static final String COMPLETE_ORDER_FAILED_MESSAGE = "Не удалось завершить заказ";
-    private static final String COURIER_POINTS_UPDATE_FAILED_MESSAGE = "Не удалось начислить баллы курьеру";
+    private static final String COMPLETE_GROUP_INVALID_MESSAGE = "Некорректный состав группы заказов";
+    private static final String COMPLETE_GROUP_CHANGED_MESSAGE =
+            "Часть заказов группы уже завершена или не назначена вам, обновите страницу";
 
     private final CourierInfoService courierInfoService;
-    private final CourierRepository courierRepository;
     private final CourierOrderRepository courierOrderRepository;
-    private final UserActionHistoryRepository userActionHistoryRepository;
     private final CourierParamsMapper courierParamsMapper;
-    private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
-    private final ObjectMapper objectMapper;
+    private final GreenSlotOccupancyIndex greenSlotOccupancyIndex;
+    private final CourierFeedBroadcaster courierFeedBroadcaster;
+    private final CourierOrderTakeMetrics courierOrderTakeMetrics;
     private final Clock clock;
 
     public CourierPanel getPanel(long courierId) {
@@ -90,12 +90,29 @@ public class CourierPanelService {
         if (!taken) {
             throw new IllegalStateException(TAKE_ORDER_FAILED_MESSAGE);
         }
+        courierFeedBroadcaster.publishAfterCommit(
+                CourierFeedEvent.ordersTaken(courierProfile.postalCode(), courierId, List.of(orderKey))
+        );
     }
 
+    /**
+     * Берет в работу заказы группы, которые курьер видел на панели. Если часть из них уже недоступна
+     * или занята другим курьером, без {@code acceptPartial} ничего не назначается, а оставшиеся
+     * свободными заказы возвращаются как предложение взять их повторным запросом.
+     */
     @Transactional
-    public void takeOrderGroup(long courierId, CourierOrderGroupKey groupKey, int expectedOrderCount) {
-        if (expectedOrderCount < 1) {
-            throw new IllegalStateException(TAKE_GROUP_CHANGED_MESSAGE);
+    public CourierOrderGroupTake takeOrderGroup(
+            long courierId,
+            CourierOrderGroupKey groupKey,
+            List<OrderKey> orderKeys,
+            boolean acceptPartial
+    ) {
+        if (orderKeys == null
+                || orderKeys.isEmpty()
+                || orderKeys.size() > DEFAULT_ORDERS_LIMIT
+                || new HashSet<>(orderKeys).size() != orderKeys.size()
+        ) {
+            throw new IllegalStateException(TAKE_GROUP_INVALID_MESSAGE);
         }
 
         CourierProfileInfo courierProfile = courierInfoService.getProfile(courierId);
@@ -103,61 +120,101 @@ public class CourierPanelService {
             throw new IllegalStateException(TAKE_GROUP_ACCESS_DENIED_MESSAGE);
         }
 
-        int updatedRows = courierOrderRepository.takeOrderGroup(courierParamsMapper.mapToTakeOrderGroupParams(
-                courierId,
-                groupKey.clusterKey(),
-                groupKey.pickupFrom(),
-                groupKey.pickupTo(),
-                OffsetDateTime.now(clock)
-        ));
+        List<CourierOrderReservation> reservations = courierOrderRepository.takeOrderGroup(
+                courierParamsMapper.mapToTakeOrderGroupParams(
+                        courierId,
+                        groupKey.clusterKey(),
+                        groupKey.pickupFrom(),
+                        groupKey.pickupTo(),
+                        orderKeys,
+                        acceptPartial,
+                        OffsetDateTime.now(clock)
+                )
+        );
+        courierOrderTakeMetrics.recordGroupTake(reservations, acceptPartial);
+
+        List<OrderKey> takenOrderKeys = reservations.stream()
+                .filter(reservation -> reservation.status() == CourierOrderReservationStatus.ASSIGNED)
+                .map(CourierOrderReservation::orderKey)
+                .toList();
+        List<OrderKey> availableOrderKeys = reservations.stream()
+                .filter(reservation -> reservation.status() == CourierOrderReservationStatus.ASSIGNED
+                        || reservation.status() == CourierOrderReservationStatus.RESERVED)
+                .map(CourierOrderReservation::orderKey)
+                .toList();
+        if (availableOrderKeys.isEmpty()) {
+            throw new IllegalStateException(TAKE_GROUP_UNAVAILABLE_MESSAGE);
+        }
 
-        if (updatedRows != expectedOrderCount) {
-            throw new IllegalStateException(TAKE_GROUP_CHANGED_MESSAGE);
+        if (!takenOrderKeys.isEmpty()) {
+            courierFeedBroadcaster.publishAfterCommit(
+                    CourierFeedEvent.ordersTaken(groupKey.clusterKey(), courierId, takenOrderKeys)
+            );
         }
+        return new CourierOrderGroupTake(orderKeys.size(), takenOrderKeys, availableOrderKeys);
     }
 
     @Transactional
     public void completeOrder(long courierId, OrderKey orderKey) {
-        CourierOrderInfo assignedOrder = courierOrderRepository.findAssignedOrderForCompletion(
-                courierId,
-                orderKey.id(),
-                orderKey.createdAt()
-        ).orElseThrow(() -> new IllegalStateException(COMPLETE_ORDER_NOT_FOUND_MESSAGE));
-
-        boolean done = courierOrderRepository.markDone(courierParamsMapper.mapToMarkDoneParams(
-                courierId,
-                orderKey.id(),
-                orderKey.createdAt(),
-                OffsetDateTime.now(clock)
-        ));
+        if (completeOrders(courierId, List.of(orderKey)).isEmpty()) {
+            throw new IllegalStateException(COMPLETE_ORDER_NOT_FOUND_MESSAGE);
+        }
+    }
 
-        if (!done) {
-            throw new IllegalStateException(COMPLETE_ORDER_FAILED_MESSAGE);
+    /**
+     * Завершает заказы назначенной группы, которые курьер видит на панели: все или ни одного.
+     */
+    @Transactional
+    public int completeOrderGroup(long courierId, CourierOrderGroupKey groupKey, List<OrderKey> orderKeys) {
+        if (orderKeys == null
+                || orderKeys.isEmpty()
+                || orderKeys.size() > DEFAULT_ORDERS_LIMIT
+                || new HashSet<>(orderKeys).size() != orderKeys.size()
+        ) {
+            throw new IllegalStateException(COMPLETE_GROUP_INVALID_MESSAGE);
         }
 
-        boolean pointsUpdated = courierRepository.addPoints(courierId, COURIER_DONE_ORDER_REWARD);
-        if (!pointsUpdated) {
-            throw new IllegalStateException(COURIER_POINTS_UPDATE_FAILED_MESSAGE);
+        List<CourierCompletedOrder> completedOrders = completeOrders(courierId, orderKeys);
+        boolean wholeGroupCompleted = completedOrders.size() == orderKeys.size()
+                && completedOrders.stream().allMatch(order -> belongsToGroup(order, groupKey));
+        if (!wholeGroupCompleted) {
+            throw new IllegalStateException(COMPLETE_GROUP_CHANGED_MESSAGE);
         }
+        return completedOrders.size();
+    }
 
-        List<Long> fractionIds = courierOrderRepository.findFractionIds(orderKey.id(), orderKey.createdAt());
-        OrderDoneEventContent content = new OrderDoneEventContent(
-                assignedOrder.orderId(),
-                assignedOrder.type(),
-                assignedOrder.greenChosen(),
-                asString(assignedOrder.pickupFrom()),
-                asString(assignedOrder.pickupTo()),
-                fractionIds,
-                courierId,
-                DONE_STATUS
+    private List<CourierCompletedOrder> completeOrders(long courierId, List<OrderKey> orderKeys) {
+        List<CourierCompletedOrder> completedOrders = courierOrderRepository.completeOrders(
+                courierParamsMapper.mapToCompleteOrdersParams(
+                        courierId,
+                        orderKeys,
+                        COURIER_DONE_ORDER_REWARD,
+                        OffsetDateTime.now(clock)
+                )
         );
 
-        userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
-                assignedOrder.userId(),
-                UserActionEventType.ORDER_DONE.dbName(),
-                toJson(content),
-                ZERO_POINTS_DIFFERENCE
+        Map<String, List<OrderKey>> completedByPostalCode = new LinkedHashMap<>();
+        for (CourierCompletedOrder completedOrder : completedOrders) {
+            greenSlotOccupancyIndex.removeOrderAfterCommit(new PlannedSlotOrder(
+                    completedOrder.orderKey().id(),
+                    completedOrder.userId(),
+                    completedOrder.postalCode(),
+                    completedOrder.pickupFrom(),
+                    completedOrder.pickupTo()
+            ));
+            completedByPostalCode.computeIfAbsent(completedOrder.postalCode(), ignored -> new ArrayList<>())
+                    .add(completedOrder.orderKey());
+        }
+        completedByPostalCode.forEach((postalCode, keys) -> courierFeedBroadcaster.publishAfterCommit(
+                CourierFeedEvent.ordersCompleted(postalCode, courierId, keys)
         ));
+        return completedOrders;
+    }
+
+    private boolean belongsToGroup(CourierCompletedOrder order, CourierOrderGroupKey groupKey) {
+        return Objects.equals(order.postalCode(), groupKey.clusterKey())
+                && order.pickupFrom().isEqual(groupKey.pickupFrom())
+                && order.pickupTo().isEqual(groupKey.pickupTo());
     }
 
     private List<CourierOrderGroup> groupOrdersByClusterAndSlot(List<CourierOrderInfo> orders) {
@@ -215,18 +272,6 @@ public class CourierPanelService {
                 .count();
     }
 
-    private String toJson(Object value) {
-        try {
-            return objectMapper.writeValueAsString(value);
-        } catch (JsonProcessingException exception) {
-            throw new IllegalStateException("Failed to serialize event content", exception);
-        }
-    }
-
-    private String asString(OffsetDateTime value) {
-        return value == null ? null : value.toString();
-    }
-
     private record GroupingKey(
             String clusterKey,
             Instant pickupFrom,
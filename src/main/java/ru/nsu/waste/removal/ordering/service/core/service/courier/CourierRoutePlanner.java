@@ -0,0 +1,397 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRunStop;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Строит маршрут одного курьера по открытым заказам его и соседних почтовых индексов.
+ * <p>
+ * Координат адресов в сервисе нет, поэтому время в пути оценивается по почтовым индексам: один адрес -
+ * без переезда, один индекс - {@link #SAME_CLUSTER_TRAVEL_MINUTES}, соседние числовые индексы - дольше
+ * с каждым шагом разницы. Каждый заказ нужно забрать внутри его интервала, на забор уходит
+ * {@code service-minutes}.
+ * <p>
+ * Маршрут строится жадно (следующим берется заказ, который можно начать забирать раньше других), затем
+ * улучшается 2-opt и вставкой оставшихся заказов в самое дешевое допустимое место, пока есть улучшения
+ * и не исчерпан бюджет времени. Цель - больше заказов за рейс, при равном числе - меньше времени в пути.
+ */
+@Component
+public class CourierRoutePlanner {
+
+    static final int SAME_ADDRESS_TRAVEL_MINUTES = 0;
+    static final int SAME_CLUSTER_TRAVEL_MINUTES = 10;
+    static final int ADJACENT_CLUSTER_STEP_MINUTES = 8;
+    static final int DISTANT_CLUSTER_TRAVEL_MINUTES = 90;
+
+    private static final int DEPOT = 0;
+    private static final long SECONDS_IN_MINUTE = 60L;
+
+    private final int maxStops;
+    private final long timeBudgetNanos;
+    private final long serviceSeconds;
+    private final Duration horizon;
+
+    public CourierRoutePlanner(
+            @Value("${app.courier-run.max-stops:12}") int maxStops,
+            @Value("${app.courier-run.time-budget-ms:50}") long timeBudgetMs,
+            @Value("${app.courier-run.service-minutes:5}") int serviceMinutes,
+            @Value("${app.courier-run.horizon-hours:4}") int horizonHours
+    ) {
+        if (maxStops <= 0 || timeBudgetMs <= 0 || serviceMinutes < 0 || horizonHours <= 0) {
+            throw new IllegalStateException("Courier run planner settings must be positive");
+        }
+        this.maxStops = maxStops;
+        this.timeBudgetNanos = Duration.ofMillis(timeBudgetMs).toNanos();
+        this.serviceSeconds = serviceMinutes * SECONDS_IN_MINUTE;
+        this.horizon = Duration.ofHours(horizonHours);
+    }
+
+    public int maxStops() {
+        return maxStops;
+    }
+
+    /**
+     * Планирует рейс, который начинается не раньше {@code notBefore} и не раньше ближайшего интервала
+     * среди кандидатов. В рейс попадают заказы, интервал которых начинается в пределах горизонта планирования.
+     *
+     * @param startPostalCode почтовый индекс, из которого курьер выезжает
+     */
+    public CourierRun plan(String startPostalCode, List<CourierOrderInfo> candidates, OffsetDateTime notBefore) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        OffsetDateTime startsAt = candidates.stream()
+                .filter(order -> order.pickupTo().isAfter(notBefore))
+                .map(CourierOrderInfo::pickupFrom)
+                .min(Comparator.naturalOrder())
+                .filter(pickupFrom -> pickupFrom.isAfter(notBefore))
+                .orElse(notBefore);
+        OffsetDateTime horizonEnd = startsAt.plus(horizon);
+        List<CourierOrderInfo> orders = candidates.stream()
+                .filter(order -> order.pickupTo().isAfter(startsAt))
+                .filter(order -> order.pickupFrom().isBefore(horizonEnd))
+                .toList();
+        if (orders.isEmpty()) {
+            return new CourierRun(startsAt, startsAt, 0, List.of());
+        }
+
+        Problem problem = new Problem(startPostalCode, orders, startsAt, serviceSeconds);
+        Route route = buildNearestNeighbourRoute(problem);
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = improveByTwoOpt(problem, route, deadline);
+            improved |= insertUnvisited(problem, route, deadline);
+        }
+        return toCourierRun(problem, route, startsAt);
+    }
+
+    private Route buildNearestNeighbourRoute(Problem problem) {
+        Route route = new Route(problem.size(), maxStops);
+        int current = DEPOT;
+        long time = 0L;
+        while (route.size < maxStops) {
+            int next = -1;
+            long nextStart = Long.MAX_VALUE;
+            long nextTravel = Long.MAX_VALUE;
+            for (int candidate = 1; candidate <= problem.size(); candidate++) {
+                if (route.visited[candidate]) {
+                    continue;
+                }
+                long travel = problem.travel[current][candidate];
+                long start = Math.max(time + travel, problem.opens[candidate]);
+                if (start > problem.closes[candidate]) {
+                    continue;
+                }
+                if (start < nextStart || start == nextStart && travel < nextTravel) {
+                    next = candidate;
+                    nextStart = start;
+                    nextTravel = travel;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            route.insert(route.size, next);
+            time = nextStart + problem.serviceSeconds;
+            current = next;
+        }
+        return route;
+    }
+
+    /**
+     * Разворачивает отрезки маршрута, пока это сокращает время в пути и не нарушает интервалы заказов.
+     */
+    private boolean improveByTwoOpt(Problem problem, Route route, long deadline) {
+        boolean improvedAny = false;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+            for (int from = 0; from < route.size - 1 && System.nanoTime() < deadline; from++) {
+                for (int to = from + 1; to < route.size; to++) {
+                    long delta = twoOptTravelDelta(problem, route, from, to);
+                    if (delta >= 0) {
+                        continue;
+                    }
+                    route.reverse(from, to);
+                    if (problem.schedule(route) < 0) {
+                        route.reverse(from, to);
+                        continue;
+                    }
+                    improved = true;
+                    improvedAny = true;
+                }
+            }
+        }
+        return improvedAny;
+    }
+
+    /**
+     * Изменение времени в пути при развороте остановок [from, to].
+     */
+    private long twoOptTravelDelta(Problem problem, Route route, int from, int to) {
+        int before = from == 0 ? DEPOT : route.stops[from - 1];
+        long current = problem.travel[before][route.stops[from]];
+        long reversed = problem.travel[before][route.stops[to]];
+        for (int position = from; position < to; position++) {
+            current += problem.travel[route.stops[position]][route.stops[position + 1]];
+            reversed += problem.travel[route.stops[position + 1]][route.stops[position]];
+        }
+        if (to + 1 < route.size) {
+            int after = route.stops[to + 1];
+            current += problem.travel[route.stops[to]][after];
+            reversed += problem.travel[route.stops[from]][after];
+        }
+        return reversed - current;
+    }
+
+    /**
+     * Добавляет заказы вне маршрута (раньше закрывающиеся - первыми) в допустимую позицию
+     * с наименьшим приростом времени в пути.
+     */
+    private boolean insertUnvisited(Problem problem, Route route, long deadline) {
+        boolean inserted = false;
+        for (int candidate : problem.byClosingTime) {
+            if (route.size >= maxStops || System.nanoTime() >= deadline) {
+                break;
+            }
+            if (route.visited[candidate]) {
+                continue;
+            }
+            int bestPosition = -1;
+            long bestDelta = Long.MAX_VALUE;
+            for (int position = 0; position <= route.size; position++) {
+                long delta = insertionTravelDelta(problem, route, position, candidate);
+                if (delta >= bestDelta) {
+                    continue;
+                }
+                route.insert(position, candidate);
+                boolean feasible = problem.schedule(route) >= 0;
+                route.remove(position);
+                if (feasible) {
+                    bestPosition = position;
+                    bestDelta = delta;
+                }
+            }
+            if (bestPosition >= 0) {
+                route.insert(bestPosition, candidate);
+                inserted = true;
+            }
+        }
+        return inserted;
+    }
+
+    private long insertionTravelDelta(Problem problem, Route route, int position, int candidate) {
+        int before = position == 0 ? DEPOT : route.stops[position - 1];
+        long delta = problem.travel[before][candidate];
+        if (position < route.size) {
+            int after = route.stops[position];
+            delta += problem.travel[candidate][after] - problem.travel[before][after];
+        }
+        return delta;
+    }
+
+    private CourierRun toCourierRun(Problem problem, Route route, OffsetDateTime startsAt) {
+        List<CourierRunStop> stops = new ArrayList<>(route.size);
+        int previous = DEPOT;
+        long time = 0L;
+        long travelSeconds = 0L;
+        for (int position = 0; position < route.size; position++) {
+            int stop = route.stops[position];
+            travelSeconds += problem.travel[previous][stop];
+            time = Math.max(time + problem.travel[previous][stop], problem.opens[stop]);
+            stops.add(new CourierRunStop(problem.orders.get(stop - 1), startsAt.plusSeconds(time)));
+            time += problem.serviceSeconds;
+            previous = stop;
+        }
+        return new CourierRun(
+                startsAt,
+                startsAt.plusSeconds(time),
+                Math.toIntExact(travelSeconds / SECONDS_IN_MINUTE),
+                List.copyOf(stops)
+        );
+    }
+
+    /**
+     * Оценка времени в пути в минутах между двумя точками, заданными почтовым индексом и адресом.
+     */
+    static int travelMinutes(String fromPostalCode, String fromAddress, String toPostalCode, String toAddress) {
+        if (Objects.equals(fromPostalCode, toPostalCode)) {
+            return fromAddress != null && fromAddress.equals(toAddress)
+                    ? SAME_ADDRESS_TRAVEL_MINUTES
+                    : SAME_CLUSTER_TRAVEL_MINUTES;
+        }
+        long distance = postalCodeDistance(fromPostalCode, toPostalCode);
+        if (distance < 0 || distance > (DISTANT_CLUSTER_TRAVEL_MINUTES - SAME_CLUSTER_TRAVEL_MINUTES)
+                / ADJACENT_CLUSTER_STEP_MINUTES) {
+            return DISTANT_CLUSTER_TRAVEL_MINUTES;
+        }
+        return SAME_CLUSTER_TRAVEL_MINUTES + Math.toIntExact(distance) * ADJACENT_CLUSTER_STEP_MINUTES;
+    }
+
+    /**
+     * Разница между числовыми почтовыми индексами одинаковой длины или -1, если индексы несравнимы.
+     */
+    static long postalCodeDistance(String first, String second) {
+        if (!isNumeric(first) || !isNumeric(second) || first.length() != second.length()) {
+            return -1L;
+        }
+        return Math.abs(Long.parseLong(first) - Long.parseLong(second));
+    }
+
+    static boolean isNumeric(String postalCode) {
+        if (postalCode == null || postalCode.isEmpty() || postalCode.length() > 18) {
+            return false;
+        }
+        return postalCode.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Заказы задачи нумеруются с 1, индекс 0 - точка выезда курьера. Время - секунды от начала рейса.
+     */
+    private static final class Problem {
+
+        private final List<CourierOrderInfo> orders;
+        private final long[][] travel;
+        private final long[] opens;
+        private final long[] closes;
+        private final int[] byClosingTime;
+        private final long serviceSeconds;
+
+        private Problem(
+                String startPostalCode,
+                List<CourierOrderInfo> orders,
+                OffsetDateTime startsAt,
+                long serviceSeconds
+        ) {
+            int size = orders.size();
+            this.orders = orders;
+            this.serviceSeconds = serviceSeconds;
+            this.opens = new long[size + 1];
+            this.closes = new long[size + 1];
+            String[] postalCodes = new String[size + 1];
+            String[] addresses = new String[size + 1];
+            postalCodes[DEPOT] = startPostalCode;
+            for (int index = 1; index <= size; index++) {
+                CourierOrderInfo order = orders.get(index - 1);
+                postalCodes[index] = order.postalCode();
+                addresses[index] = normalizeAddress(order);
+                opens[index] = Math.max(0L, Duration.between(startsAt, order.pickupFrom()).toSeconds());
+                closes[index] = Duration.between(startsAt, order.pickupTo()).toSeconds();
+            }
+
+            this.travel = new long[size + 1][size + 1];
+            for (int from = 0; from <= size; from++) {
+                for (int to = 1; to <= size; to++) {
+                    if (from != to) {
+                        travel[from][to] = SECONDS_IN_MINUTE * travelMinutes(
+                                postalCodes[from],
+                                addresses[from],
+                                postalCodes[to],
+                                addresses[to]
+                        );
+                    }
+                }
+            }
+
+            List<Integer> closing = new ArrayList<>(size);
+            for (int index = 1; index <= size; index++) {
+                closing.add(index);
+            }
+            closing.sort(Comparator.comparingLong((Integer index) -> closes[index]).thenComparing(index -> index));
+            this.byClosingTime = closing.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int size() {
+            return orders.size();
+        }
+
+        /**
+         * Время окончания последнего забора или -1, если маршрут нарушает интервал какого-либо заказа.
+         */
+        private long schedule(Route route) {
+            int previous = DEPOT;
+            long time = 0L;
+            for (int position = 0; position < route.size; position++) {
+                int stop = route.stops[position];
+                time = Math.max(time + travel[previous][stop], opens[stop]);
+                if (time > closes[stop]) {
+                    return -1L;
+                }
+                time += serviceSeconds;
+                previous = stop;
+            }
+            return time;
+        }
+
+        private static String normalizeAddress(CourierOrderInfo order) {
+            if (order.detailedAddress() == null) {
+                return null;
+            }
+            return (Objects.toString(order.city(), "") + "|" + order.detailedAddress())
+                    .trim()
+                    .toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class Route {
+
+        private final int[] stops;
+        private final boolean[] visited;
+        private int size;
+
+        private Route(int orderCount, int capacity) {
+            this.stops = new int[capacity];
+            this.visited = new boolean[orderCount + 1];
+        }
+
+        private void insert(int position, int stop) {
+            System.arraycopy(stops, position, stops, position + 1, size - position);
+            stops[position] = stop;
+            visited[stop] = true;
+            size++;
+        }
+
+        private void remove(int position) {
+            visited[stops[position]] = false;
+            System.arraycopy(stops, position + 1, stops, position, size - position - 1);
+            size--;
+        }
+
+        private void reverse(int from, int to) {
+            for (int left = from, right = to; left < right; left++, right--) {
+                int stop = stops[left];
+                stops[left] = stops[right];
+                stops[right] = stop;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.nsu.waste.removal.ordering.service.core.mapper.courier.CourierParamsMapper;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservation;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderReservationStatus;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierProfileInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.CourierOrderRepository;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Рейсы курьера: заказы его и соседних почтовых индексов в порядке объезда, которые берутся в работу целиком.
+ */
+@Service
+public class CourierRunService {
+
+    private static final int CANDIDATE_ORDERS_LIMIT = 200;
+
+    private static final String TAKE_RUN_INVALID_MESSAGE = "Некорректный состав маршрута";
+    private static final String TAKE_RUN_CHANGED_MESSAGE =
+            "Часть заказов маршрута уже недоступна, постройте маршрут заново";
+    private static final String TAKE_RUN_CONTENDED_MESSAGE =
+            "Часть заказов маршрута сейчас берет другой курьер, попробуйте еще раз";
+
+    private final CourierInfoService courierInfoService;
+    private final CourierOrderRepository courierOrderRepository;
+    private final CourierRoutePlanner courierRoutePlanner;
+    private final CourierParamsMapper courierParamsMapper;
+    private final CourierFeedBroadcaster courierFeedBroadcaster;
+    private final Clock clock;
+    private final int adjacentPostalCodeRange;
+
+    public CourierRunService(
+            CourierInfoService courierInfoService,
+            CourierOrderRepository courierOrderRepository,
+            CourierRoutePlanner courierRoutePlanner,
+            CourierParamsMapper courierParamsMapper,
+            CourierFeedBroadcaster courierFeedBroadcaster,
+            Clock clock,
+            @Value("${app.courier-run.adjacent-postal-code-range:2}") int adjacentPostalCodeRange
+    ) {
+        if (adjacentPostalCodeRange < 0) {
+            throw new IllegalStateException("Adjacent postal code range must not be negative");
+        }
+        this.courierInfoService = courierInfoService;
+        this.courierOrderRepository = courierOrderRepository;
+        this.courierRoutePlanner = courierRoutePlanner;
+        this.courierParamsMapper = courierParamsMapper;
+        this.courierFeedBroadcaster = courierFeedBroadcaster;
+        this.clock = clock;
+        this.adjacentPostalCodeRange = adjacentPostalCodeRange;
+    }
+
+    public CourierRun planRun(long courierId) {
+        CourierProfileInfo profile = courierInfoService.getProfile(courierId);
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        return courierRoutePlanner.plan(
+                profile.postalCode(),
+                courierOrderRepository.findRunCandidateOrders(
+                        adjacentPostalCodes(profile.postalCode()),
+                        now,
+                        CANDIDATE_ORDERS_LIMIT
+                ),
+                now
+        );
+    }
+
+    /**
+     * Назначает курьеру все заказы рейса или ни одного: заказы резервируются так же, как группы на панели,
+     * без частичного взятия. Если часть заказов держит другой курьер, запрос не ждет его, а сообщает об этом.
+     */
+    @Transactional
+    public void takeRun(long courierId, List<OrderKey> orderKeys) {
+        if (orderKeys == null
+                || orderKeys.isEmpty()
+                || orderKeys.size() > courierRoutePlanner.maxStops()
+                || new HashSet<>(orderKeys).size() != orderKeys.size()
+        ) {
+            throw new IllegalStateException(TAKE_RUN_INVALID_MESSAGE);
+        }
+
+        CourierProfileInfo profile = courierInfoService.getProfile(courierId);
+        List<CourierOrderReservation> reservations = courierOrderRepository.takeOrders(
+                courierParamsMapper.mapToTakeOrdersParams(
+                        courierId,
+                        orderKeys,
+                        adjacentPostalCodes(profile.postalCode()),
+                        false,
+                        OffsetDateTime.now(clock)
+                )
+        );
+        if (hasReservationStatus(reservations, CourierOrderReservationStatus.UNAVAILABLE)) {
+            throw new IllegalStateException(TAKE_RUN_CHANGED_MESSAGE);
+        }
+        if (hasReservationStatus(reservations, CourierOrderReservationStatus.CONTENDED)) {
+            throw new IllegalStateException(TAKE_RUN_CONTENDED_MESSAGE);
+        }
+
+        Map<String, List<OrderKey>> takenByPostalCode = new LinkedHashMap<>();
+        for (CourierOrderReservation reservation : reservations) {
+            takenByPostalCode.computeIfAbsent(reservation.postalCode(), ignored -> new ArrayList<>())
+                    .add(reservation.orderKey());
+        }
+        takenByPostalCode.forEach((postalCode, keys) -> courierFeedBroadcaster.publishAfterCommit(
+                CourierFeedEvent.ordersTaken(postalCode, courierId, keys)
+        ));
+    }
+
+    /**
+     * Почтовый индекс курьера и соседние с ним: числовые индексы той же длины, отличающиеся не больше
+     * чем на {@code app.courier-run.adjacent-postal-code-range}. Для нечисловых индексов - только сам индекс.
+     */
+    List<String> adjacentPostalCodes(String postalCode) {
+        if (!CourierRoutePlanner.isNumeric(postalCode)) {
+            return List.of(postalCode);
+        }
+        long code = Long.parseLong(postalCode);
+        long maxCode = (long) Math.pow(10, postalCode.length()) - 1;
+        List<String> postalCodes = new ArrayList<>();
+        postalCodes.add(postalCode);
+        for (long distance = 1; distance <= adjacentPostalCodeRange; distance++) {
+            if (code - distance >= 0) {
+                postalCodes.add(formatPostalCode(code - distance, postalCode.length()));
+            }
+            if (code + distance <= maxCode) {
+                postalCodes.add(formatPostalCode(code + distance, postalCode.length()));
+            }
+        }
+        return List.copyOf(postalCodes);
+    }
+
+    private static boolean hasReservationStatus(
+            List<CourierOrderReservation> reservations,
+            CourierOrderReservationStatus status
+    ) {
+        return reservations.stream().anyMatch(reservation -> reservation.status() == status);
+    }
+
+    private String formatPostalCode(long code, int length) {
+        return String.format("%0" + length + "d", code);
+    }
+}
@@ -14,8 +14,8 @@ import ru.nsu.waste.removal.ordering.service.core.model.order.OrderFiltersInPeri
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.AchieverProfileRepository;
+import ru.nsu.waste.removal.ordering.service.core.service.level.LevelCatalog;
 import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.param.BuildDoneFiltersParams;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.param.BuildInsightsParams;
@@ -70,7 +70,7 @@ public class EcoDashboardService {
     private final UserInfoService userInfoService;
     private final OrderInfoService orderInfoService;
     private final AchieverProfileRepository achieverProfileRepository;
-    private final LevelRepository levelRepository;
+    private final LevelCatalog levelCatalog;
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final EcoDashboardParamsMapper ecoDashboardParamsMapper;
     private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
@@ -253,7 +253,7 @@ public class EcoDashboardService {
                         "Achiever profile is not found for user id = %s".formatted(userId)
                 ));
 
-        Optional<Level> nextLevel = levelRepository.findNextTargetLevelByTotalPoints(totalPoints);
+        Optional<Level> nextLevel = levelCatalog.findNextTarget(totalPoints);
         if (nextLevel.isEmpty()) {
             return new EcoDashboard.AchieverProgress(
                     levelId,
@@ -0,0 +1,55 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecoprofile;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+
+import java.util.List;
+
+/**
+ * Заполняет balance_after у событий, записанных до появления снимков баланса. Пользователи
+ * обходятся порциями по id, каждая порция - в своей короткой транзакции: блокируются только строки
+ * истории этих пользователей и их состояние наград, чтобы конвейер не поменял баланс посреди пересчета.
+ */
+@Service
+public class UserHistoryBalanceBackfillService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserInfoRepository userInfoRepository;
+    private final UserActionHistoryRepository userActionHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserHistoryBalanceBackfillService(
+            UserInfoRepository userInfoRepository,
+            UserActionHistoryRepository userActionHistoryRepository,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.userInfoRepository = userInfoRepository;
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return число заполненных строк истории
+     */
+    public long backfillBalances() {
+        long backfilled = 0;
+        long afterUserId = 0;
+        List<Long> userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        while (!userIds.isEmpty()) {
+            List<Long> chunk = userIds;
+            Integer updated = transactionTemplate.execute(status -> {
+                userInfoRepository.findRewardStatesForUpdate(chunk);
+                return userActionHistoryRepository.backfillBalances(chunk);
+            });
+            backfilled += updated == null ? 0 : updated;
+
+            afterUserId = userIds.getLast();
+            userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        }
+        return backfilled;
+    }
+}
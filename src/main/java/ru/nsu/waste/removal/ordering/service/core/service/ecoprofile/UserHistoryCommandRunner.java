@@ -0,0 +1,40 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecoprofile;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Обслуживание истории действий при старте приложения:
+ * {@code app.history.command=backfill-balances} заполняет снимки баланса у старых событий.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("app.history.command")
+public class UserHistoryCommandRunner implements ApplicationRunner {
+
+    private static final String BACKFILL_BALANCES_COMMAND = "backfill-balances";
+
+    private final UserHistoryBalanceBackfillService userHistoryBalanceBackfillService;
+    private final String command;
+
+    public UserHistoryCommandRunner(
+            UserHistoryBalanceBackfillService userHistoryBalanceBackfillService,
+            @Value("${app.history.command}") String command
+    ) {
+        this.userHistoryBalanceBackfillService = userHistoryBalanceBackfillService;
+        this.command = command;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!BACKFILL_BALANCES_COMMAND.equals(command)) {
+            throw new IllegalStateException("Unknown history command = %s".formatted(command));
+        }
+        long backfilled = userHistoryBalanceBackfillService.backfillBalances();
+        log.info("Balance snapshots backfilled for {} history events", backfilled);
+    }
+}
@@ -1,37 +1,42 @@
 package ru.nsu.waste.removal.ordering.service.core.service.ecoprofile;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistory;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryCursor;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryItem;
 import ru.nsu.waste.removal.ordering.service.core.model.event.EcoTaskCompletedEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.InfoCardViewedEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.LiederRewardEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.OrderCreatedEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryRecord;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.order.WasteFractionRepository;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventContentReader;
 import ru.nsu.waste.removal.ordering.service.core.service.user.UserInfoService;
 
+import java.time.Clock;
 import java.time.DateTimeException;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
+/**
+ * Лента действий пользователя с keyset-пагинацией по (created_at, id). События ищутся только за последние
+ * {@code app.history.lookback-days} дней: граница по created_at позволяет не читать
+ * партиции истории старше нее.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserHistoryService {
 
     private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 100;
     private static final String EVENT_TYPE_ORDER_CREATED = UserActionEventType.ORDER_CREATED.dbName();
     private static final String EVENT_TYPE_ORDER_PAID_WITH_POINTS = UserActionEventType.ORDER_PAID_WITH_POINTS.dbName();
     private static final String EVENT_TYPE_SEPARATE_CHOSEN = UserActionEventType.SEPARATE_CHOSEN.dbName();
@@ -61,10 +66,6 @@ public class UserHistoryService {
     private static final DateTimeFormatter SLOT_FROM_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
     private static final DateTimeFormatter SLOT_TO_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
-    private static final Comparator<UserActionHistoryRecord> HISTORY_COMPARATOR =
-            Comparator.comparing(UserActionHistoryRecord::createdAt, Comparator.reverseOrder())
-                    .thenComparing(UserActionHistoryRecord::id, Comparator.reverseOrder());
-
     private static final List<String> INCLUDED_EVENT_TYPES = List.of(
             EVENT_TYPE_ORDER_CREATED,
             EVENT_TYPE_ORDER_PAID_WITH_POINTS,
@@ -81,78 +82,77 @@ public class UserHistoryService {
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final UserInfoService userInfoService;
     private final WasteFractionRepository wasteFractionRepository;
-    private final ObjectMapper objectMapper;
+    private final UserActionEventContentReader userActionEventContentReader;
+    private final Clock clock;
+    private final int lookbackDays;
+
+    public UserHistoryService(
+            UserActionHistoryRepository userActionHistoryRepository,
+            UserInfoService userInfoService,
+            WasteFractionRepository wasteFractionRepository,
+            UserActionEventContentReader userActionEventContentReader,
+            Clock clock,
+            @Value("${app.history.lookback-days:365}") int lookbackDays
+    ) {
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.userInfoService = userInfoService;
+        this.wasteFractionRepository = wasteFractionRepository;
+        this.userActionEventContentReader = userActionEventContentReader;
+        this.clock = clock;
+        this.lookbackDays = lookbackDays;
+    }
 
     public UserHistory getUserHistory(long userId) {
-        return getUserHistory(userId, DEFAULT_LIMIT);
+        return getUserHistory(userId, UserHistoryCursor.initial(), DEFAULT_LIMIT);
     }
 
     public UserHistory getUserHistory(long userId, int limit) {
-        int safeLimit = limit <= 0 ? DEFAULT_LIMIT : limit;
-        long currentPoints = userInfoService.getProfileByUserId(userId).currentPoints();
-        ZoneId userZoneId = resolveUserZoneId(userId);
-        List<UserActionHistoryRecord> events = loadLatestEvents(userId, safeLimit);
-        List<UserHistoryItem> items = buildItems(events, currentPoints, userZoneId);
-
-        return new UserHistory(
-                userId,
-                currentPoints,
-                items
-        );
+        return getUserHistory(userId, UserHistoryCursor.initial(), limit);
     }
 
-    private List<UserActionHistoryRecord> loadLatestEvents(long userId, int limit) {
-        List<UserActionHistoryRecord> eventsByType = userActionHistoryRepository.findLatestEventsByUserId(
+    /**
+     * Страница ленты строго до {@code cursor}. Лента читается одним keyset-запросом на limit + 1 строку:
+     * лишняя строка только показывает, что есть следующая страница. Баланс после события хранится
+     * в самой строке истории, поэтому глубина страницы не влияет на стоимость запроса.
+     */
+    public UserHistory getUserHistory(long userId, UserHistoryCursor cursor, int limit) {
+        int safeLimit = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        long currentPoints = userInfoService.getProfileByUserId(userId).currentPoints();
+        ZoneId userZoneId = resolveUserZoneId(userId);
+        OffsetDateTime since = OffsetDateTime.now(clock).minusDays(lookbackDays);
+        List<UserActionHistoryRecord> events = userActionHistoryRepository.findHistoryPage(
                 userId,
                 INCLUDED_EVENT_TYPES,
-                limit
-        );
-        List<UserActionHistoryRecord> negativeEvents = userActionHistoryRepository.findLatestNegativeEventsByUserId(
-                userId,
-                limit
+                since,
+                cursor,
+                safeLimit + 1
         );
 
-        return mergeAndLimit(eventsByType, negativeEvents, limit);
-    }
-
-    private List<UserActionHistoryRecord> mergeAndLimit(
-            List<UserActionHistoryRecord> eventsByType,
-            List<UserActionHistoryRecord> negativeEvents,
-            int limit
-    ) {
-        Map<Long, UserActionHistoryRecord> uniqueEvents = new HashMap<>();
-        for (UserActionHistoryRecord event : eventsByType) {
-            uniqueEvents.putIfAbsent(event.id(), event);
-        }
-        for (UserActionHistoryRecord event : negativeEvents) {
-            uniqueEvents.putIfAbsent(event.id(), event);
+        List<UserActionHistoryRecord> page = events.size() > safeLimit ? events.subList(0, safeLimit) : events;
+        UserHistoryCursor nextCursor = null;
+        if (events.size() > safeLimit) {
+            UserActionHistoryRecord last = page.getLast();
+            nextCursor = new UserHistoryCursor(last.createdAt(), last.id());
         }
 
-        return uniqueEvents.values().stream()
-                .sorted(HISTORY_COMPARATOR)
-                .limit(limit)
-                .toList();
+        return new UserHistory(
+                userId,
+                currentPoints,
+                buildItems(page, userZoneId),
+                nextCursor
+        );
     }
 
-    private List<UserHistoryItem> buildItems(
-            List<UserActionHistoryRecord> events,
-            long currentPoints,
-            ZoneId userZoneId
-    ) {
+    private List<UserHistoryItem> buildItems(List<UserActionHistoryRecord> events, ZoneId userZoneId) {
         List<UserHistoryItem> items = new ArrayList<>(events.size());
-        long running = currentPoints;
-
         for (UserActionHistoryRecord event : events) {
-            long balanceAfter = running;
             items.add(new UserHistoryItem(
                     convertToUserTimezone(event.createdAt(), userZoneId),
                     buildDescription(event, userZoneId),
                     event.pointsDifference(),
-                    balanceAfter
+                    event.balanceAfter()
             ));
-            running = running - event.pointsDifference();
         }
-
         return items;
     }
 
@@ -165,7 +165,7 @@ public class UserHistoryService {
             return buildOrderPaidWithPointsDescription(event.pointsDifference());
         }
         if (EVENT_TYPE_ORDER_CREATED.equals(eventType)) {
-            return buildOrderCreatedDescription(event.content(), userZoneId);
+            return buildOrderCreatedDescription(readContent(event, OrderCreatedEventContent.class), userZoneId);
         }
         if (EVENT_TYPE_SEPARATE_CHOSEN.equals(eventType)) {
             return SEPARATE_CHOSEN_DESCRIPTION;
@@ -174,10 +174,10 @@ public class UserHistoryService {
             return GREEN_SLOT_CHOSEN_DESCRIPTION;
         }
         if (EVENT_TYPE_ECO_TASK_COMPLETED.equals(eventType)) {
-            return buildEcoTaskCompletedDescription(event.content());
+            return buildEcoTaskCompletedDescription(readContent(event, EcoTaskCompletedEventContent.class));
         }
         if (EVENT_TYPE_INFO_CARD_VIEWED.equals(eventType)) {
-            return buildInfoCardViewedDescription(event.content());
+            return buildInfoCardViewedDescription(readContent(event, InfoCardViewedEventContent.class));
         }
         if (EVENT_TYPE_LEADERBOARD_OPENED.equals(eventType)) {
             return LEADERBOARD_OPENED_DESCRIPTION;
@@ -189,7 +189,10 @@ public class UserHistoryService {
             return SORTING_REGULARITY_MISSED_DESCRIPTION;
         }
         if (EVENT_TYPE_ECO_TASK_REWARD_REQUEST.equals(eventType)) {
-            return buildAdaptiveRewardDescription(event.content(), "Адаптивная награда за эко-задание");
+            return buildAdaptiveRewardDescription(
+                    readContent(event, LiederRewardEventContent.class),
+                    "Адаптивная награда за эко-задание"
+            );
         }
         if (event.pointsDifference() < 0L) {
             return POINTS_WITHDRAW_DESCRIPTION;
@@ -204,8 +207,7 @@ public class UserHistoryService {
         return ORDER_PAID_WITH_POINTS_DESCRIPTION;
     }
 
-    private String buildOrderCreatedDescription(String contentJson, ZoneId userZoneId) {
-        OrderCreatedEventContent content = tryRead(contentJson, OrderCreatedEventContent.class);
+    private String buildOrderCreatedDescription(OrderCreatedEventContent content, ZoneId userZoneId) {
         if (content == null) {
             return ORDER_CREATED_FALLBACK;
         }
@@ -222,8 +224,7 @@ public class UserHistoryService {
         return "Оформлен заказ: раздельный вывоз (" + fractions + "), " + slotDescription + greenSlotSuffix;
     }
 
-    private String buildEcoTaskCompletedDescription(String contentJson) {
-        EcoTaskCompletedEventContent content = tryRead(contentJson, EcoTaskCompletedEventContent.class);
+    private String buildEcoTaskCompletedDescription(EcoTaskCompletedEventContent content) {
         if (content == null) {
             return ECO_TASK_COMPLETED_FALLBACK;
         }
@@ -231,8 +232,7 @@ public class UserHistoryService {
         return "Выполнено эко-задание (+" + content.rewardPoints() + ")";
     }
 
-    private String buildInfoCardViewedDescription(String contentJson) {
-        InfoCardViewedEventContent content = tryRead(contentJson, InfoCardViewedEventContent.class);
+    private String buildInfoCardViewedDescription(InfoCardViewedEventContent content) {
         if (content == null || content.title() == null || content.title().isBlank()) {
             return INFO_CARD_VIEWED_FALLBACK;
         }
@@ -240,8 +240,7 @@ public class UserHistoryService {
         return "Просмотрена карточка: " + content.title();
     }
 
-    private String buildAdaptiveRewardDescription(String contentJson, String prefix) {
-        LiederRewardEventContent content = tryRead(contentJson, LiederRewardEventContent.class);
+    private String buildAdaptiveRewardDescription(LiederRewardEventContent content, String prefix) {
         if (content == null) {
             return prefix;
         }
@@ -306,14 +305,13 @@ public class UserHistoryService {
         }
     }
 
-    private <T> T tryRead(String contentJson, Class<T> targetClass) {
-        if (contentJson == null || contentJson.isBlank()) {
-            return null;
-        }
+    private <T extends UserActionEventContent> T readContent(UserActionHistoryRecord event, Class<T> contentType) {
+        UserActionEventType eventType;
         try {
-            return objectMapper.readValue(contentJson, targetClass);
-        } catch (Exception ignored) {
+            eventType = UserActionEventType.fromDbName(event.eventType());
+        } catch (IllegalArgumentException exception) {
             return null;
         }
+        return userActionEventContentReader.read(eventType, event.payload(), contentType).orElse(null);
     }
 }
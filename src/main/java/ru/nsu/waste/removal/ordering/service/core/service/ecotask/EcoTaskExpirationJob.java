@@ -0,0 +1,26 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.eco-task-expiration.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class EcoTaskExpirationJob {
+
+    private final EcoTaskExpirationService ecoTaskExpirationService;
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.eco-task-expiration.fixed-delay-ms:60000}",
+            initialDelayString = "${app.jobs.eco-task-expiration.initial-delay-ms:60000}"
+    )
+    public void expireOverdueAssignments() {
+        ecoTaskExpirationService.expireOverdueAssignments();
+    }
+}
@@ -0,0 +1,79 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.UserEcoTaskRepository;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+
+/**
+ * Фоновая просрочка эко-заданий, в том числе у пользователей, которые давно не заходили.
+ * Назначения просрочиваются батчами по индексу ix_user_eco_task_assigned_expired_at, каждый батч -
+ * отдельная короткая транзакция, между батчами выдерживается пауза, а за один запуск обрабатывается
+ * не больше {@code max-batches-per-run} батчей. Ленивая просрочка в sync_eco_task_lifecycle остается
+ * страховкой на случай отставания и для пользователя обходится одним индексным поиском.
+ */
+@Slf4j
+@Service
+public class EcoTaskExpirationService {
+
+    private final UserEcoTaskRepository userEcoTaskRepository;
+    private final Clock clock;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMs;
+
+    public EcoTaskExpirationService(
+            UserEcoTaskRepository userEcoTaskRepository,
+            Clock clock,
+            @Value("${app.jobs.eco-task-expiration.batch-size:500}") int batchSize,
+            @Value("${app.jobs.eco-task-expiration.max-batches-per-run:100}") int maxBatchesPerRun,
+            @Value("${app.jobs.eco-task-expiration.pause-ms:50}") long pauseMs
+    ) {
+        if (batchSize < 1 || maxBatchesPerRun < 1 || pauseMs < 0) {
+            throw new IllegalStateException(
+                    "Invalid eco task expiration settings: batch-size=%s, max-batches-per-run=%s, pause-ms=%s"
+                            .formatted(batchSize, maxBatchesPerRun, pauseMs)
+            );
+        }
+        this.userEcoTaskRepository = userEcoTaskRepository;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMs = pauseMs;
+    }
+
+    /**
+     * @return число назначений, просроченных за этот запуск
+     */
+    public int expireOverdueAssignments() {
+        OffsetDateTime now = OffsetDateTime.now(clock);
+        int expired = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int batchExpired = userEcoTaskRepository.expireOverdueBatch(now, batchSize);
+            expired += batchExpired;
+            if (batchExpired < batchSize || !pause()) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} overdue eco task assignments", expired);
+        }
+        return expired;
+    }
+
+    private boolean pause() {
+        if (pauseMs == 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.ecotask.EcoTaskParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
@@ -13,32 +12,35 @@ import ru.nsu.waste.removal.ordering.service.core.model.ecotask.ActiveEcoTaskAss
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.AssignedEcoTask;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTask;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskPeriod;
-import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.UserEcoTaskAssignmentItem;
 import ru.nsu.waste.removal.ordering.service.core.model.event.EcoTaskCompletedEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
-import ru.nsu.waste.removal.ordering.service.core.model.order.OrderFiltersInPeriod;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
 import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.EcoTaskRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.UserEcoTaskRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+import ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule.CompiledEcoTask;
+import ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule.EcoTaskRuleCatalog;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventContentReader;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
-import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 
 import java.time.Clock;
-import java.time.DateTimeException;
 import java.time.DayOfWeek;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
-import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @Service
 @Order(20)
@@ -52,9 +54,9 @@ public class EcoTaskService implements UserActionEventHandler {
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final EcoTaskParamsMapper ecoTaskParamsMapper;
     private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
-    private final OrderInfoService orderInfoService;
-    private final UserInfoRepository userInfoRepository;
+    private final EcoTaskRuleCatalog ecoTaskRuleCatalog;
     private final ObjectMapper objectMapper;
+    private final UserActionEventContentReader userActionEventContentReader;
     private final Clock applicationClock;
 
     @Transactional
@@ -88,43 +90,106 @@ public class EcoTaskService implements UserActionEventHandler {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void handle(UserActionHistoryEvent event) {
-        syncLifecycleForUser(event.userId());
+        handleUserEvents(Map.of(event.userId(), List.of(event)));
+    }
 
-        List<ActiveEcoTaskAssignment> assignments =
-                userEcoTaskRepository.findActiveAssignmentsByUserIdAndTriggerEvent(
-                        event.userId(),
-                        event.eventType(),
-                        OffsetDateTime.now(applicationClock)
-                );
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        handleUserEvents(batch.eventsByUserId());
+    }
 
-        for (ActiveEcoTaskAssignment assignment : assignments) {
-            if (!isConditionMet(event.userId(), event.eventType(), assignment)) {
-                continue;
-            }
+    /**
+     * Жизненный цикл заданий синхронизируется одним запросом на всех пользователей до и после событий.
+     * Промежуточная синхронизация не нужна: новое задание назначается с текущего момента,
+     * и уже записанные события не могут засчитаться в его окно.
+     * Прогресс активных назначений продвигается скомпилированными правилами по самим событиям
+     * и сохраняется одним запросом, поэтому проверка выполнения не обращается к заказам и истории.
+     */
+    private void handleUserEvents(Map<Long, List<UserActionHistoryEvent>> eventsByUserId) {
+        syncLifecycle(eventsByUserId.keySet());
+        completeTriggeredAssignments(eventsByUserId);
+        syncLifecycle(eventsByUserId.keySet());
+    }
 
-            boolean markedDone = userEcoTaskRepository.markDone(assignment.userEcoTaskId());
-            if (!markedDone) {
-                continue;
+    private void completeTriggeredAssignments(Map<Long, List<UserActionHistoryEvent>> eventsByUserId) {
+        Map<Long, List<ActiveEcoTaskAssignment>> assignmentsByUserId = new HashMap<>();
+        for (ActiveEcoTaskAssignment assignment : userEcoTaskRepository.findActiveAssignmentsByUserIds(
+                eventsByUserId.keySet(),
+                OffsetDateTime.now(applicationClock)
+        )) {
+            assignmentsByUserId.computeIfAbsent(assignment.userId(), userId -> new ArrayList<>()).add(assignment);
+        }
+
+        Map<Long, EcoTaskProgress> changedProgress = new LinkedHashMap<>();
+        List<CompletedAssignment> completed = new ArrayList<>();
+        assignmentsByUserId.forEach((userId, assignments) -> {
+            List<EcoTaskRuleEvent> events = eventsByUserId.get(userId).stream()
+                    .map(this::toRuleEvent)
+                    .toList();
+            for (ActiveEcoTaskAssignment assignment : assignments) {
+                ecoTaskRuleCatalog.find(assignment.ecoTaskId()).ifPresent(task -> {
+                    EcoTaskProgress progress = assignment.progress();
+                    for (EcoTaskRuleEvent event : events) {
+                        if (task.rule().isReached(progress)) {
+                            break;
+                        }
+                        if (assignment.counts(event.occurredAt())) {
+                            progress = task.rule().apply(progress, event);
+                        }
+                    }
+                    if (!progress.equals(assignment.progress())) {
+                        changedProgress.put(assignment.userEcoTaskId(), progress);
+                    }
+                    if (task.rule().isReached(progress)) {
+                        completed.add(new CompletedAssignment(assignment, task));
+                    }
+                });
             }
+        });
 
-            userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
-                    event.userId(),
-                    UserActionEventType.ECO_TASK_COMPLETED.dbName(),
-                    buildCompletedContentJson(assignment),
-                    assignment.points()
-            ));
+        userEcoTaskRepository.saveProgress(changedProgress);
+        for (CompletedAssignment assignment : completed) {
+            complete(assignment);
+        }
+    }
 
-            userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
-                    event.userId(),
-                    UserActionEventType.ECO_TASK_REWARD_REQUEST.dbName(),
-                    buildRewardRequestContentJson(assignment),
-                    0L
-            ));
+    private void complete(CompletedAssignment completed) {
+        boolean markedDone = userEcoTaskRepository.markDone(completed.assignment().userEcoTaskId());
+        if (!markedDone) {
+            return;
         }
 
-        syncLifecycleForUser(event.userId());
+        long userId = completed.assignment().userId();
+        userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
+                userId,
+                UserActionEventType.ECO_TASK_COMPLETED.dbName(),
+                buildCompletedContentJson(completed),
+                completed.task().points()
+        ));
+
+        userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
+                userId,
+                UserActionEventType.ECO_TASK_REWARD_REQUEST.dbName(),
+                buildRewardRequestContentJson(completed.task()),
+                0L
+        ));
+    }
+
+    /**
+     * ORDER_DONE засчитывается по времени выполнения заказа, как и раньше при подсчете по order_info;
+     * содержимое без него (или нечитаемое) засчитывается по времени записи события.
+     */
+    private EcoTaskRuleEvent toRuleEvent(UserActionHistoryEvent event) {
+        if (event.eventType() != UserActionEventType.ORDER_DONE) {
+            return new EcoTaskRuleEvent(event.eventType(), event.createdAt(), null);
+        }
+        OrderDoneEventContent content = userActionEventContentReader.read(event, OrderDoneEventContent.class)
+                .orElse(null);
+        OffsetDateTime occurredAt = content == null || content.completedAt() == null
+                ? event.createdAt()
+                : OffsetDateTime.parse(content.completedAt());
+        return new EcoTaskRuleEvent(event.eventType(), occurredAt, content);
     }
 
     private OffsetDateTime calculateExpiredAt(EcoTaskPeriod period, ZoneId zoneId) {
@@ -157,52 +222,12 @@ public class EcoTaskService implements UserActionEventHandler {
         return OffsetDateTime.ofInstant(zonedExpiration.toInstant(), zoneId);
     }
 
-    private boolean isConditionMet(long userId, UserActionEventType triggerEvent, ActiveEcoTaskAssignment assignment) {
-        return switch (assignment.ruleType()) {
-            case ORDER_COUNT -> orderInfoService.countOrdersByFiltersInPeriod(
-                    buildOrderFiltersInPeriod(userId, assignment)
-            ) >= assignment.target();
-            case DISTINCT_FRACTIONS -> orderInfoService.countDistinctFractionsByFiltersInPeriod(
-                    buildOrderFiltersInPeriod(userId, assignment)
-            ) >= assignment.target();
-            case ACTION_COUNT -> userActionHistoryRepository.countByUserIdAndEventTypeInPeriod(
-                    userActionHistoryParamsMapper.mapToCountByUserIdAndEventTypeInPeriodParams(
-                            userId,
-                            resolveActionCountEventType(assignment, triggerEvent).dbName(),
-                            assignment.assignedAt(),
-                            assignment.expiredAt()
-                    )
-            ) >= assignment.target();
-        };
-    }
-
-    private UserActionEventType resolveActionCountEventType(
-            ActiveEcoTaskAssignment assignment,
-            UserActionEventType triggerEvent
-    ) {
-        if (assignment.ruleType() != EcoTaskRuleType.ACTION_COUNT) {
-            return triggerEvent;
-        }
-        return assignment.actionEventTypeFilter() == null ? triggerEvent : assignment.actionEventTypeFilter();
-    }
-
-    private OrderFiltersInPeriod buildOrderFiltersInPeriod(long userId, ActiveEcoTaskAssignment assignment) {
-        return new OrderFiltersInPeriod(
-                userId,
-                assignment.assignedAt(),
-                assignment.expiredAt(),
-                assignment.orderStatusFilter(),
-                assignment.orderTypeFilter(),
-                assignment.greenChosenFilter()
-        );
-    }
-
-    private String buildCompletedContentJson(ActiveEcoTaskAssignment assignment) {
+    private String buildCompletedContentJson(CompletedAssignment completed) {
         EcoTaskCompletedEventContent content = new EcoTaskCompletedEventContent(
-                assignment.userEcoTaskId(),
-                assignment.ecoTaskId(),
-                assignment.ecoTaskCode(),
-                assignment.points()
+                completed.assignment().userEcoTaskId(),
+                completed.task().id(),
+                completed.task().code(),
+                completed.task().points()
         );
         try {
             return objectMapper.writeValueAsString(content);
@@ -211,109 +236,35 @@ public class EcoTaskService implements UserActionEventHandler {
         }
     }
 
-    private String buildRewardRequestContentJson(ActiveEcoTaskAssignment assignment) {
+    private String buildRewardRequestContentJson(CompiledEcoTask task) {
         try {
             return objectMapper.writeValueAsString(Map.of(
                     "success", true,
                     "sourceEventType", UserActionEventType.ECO_TASK_COMPLETED.dbName(),
-                    "ecoTaskId", assignment.ecoTaskId(),
-                    "ecoTaskCode", assignment.ecoTaskCode(),
-                    "basePoints", assignment.points()
+                    "ecoTaskId", task.id(),
+                    "ecoTaskCode", task.code(),
+                    "basePoints", task.points()
             ));
         } catch (JsonProcessingException exception) {
             throw new IllegalStateException("Failed to serialize eco task reward request content", exception);
         }
     }
 
-    private void syncLifecycleForUser(long userId) {
-        OffsetDateTime now = OffsetDateTime.now(applicationClock);
-        userEcoTaskRepository.expireOverdueAssignmentsByUserId(userId, now);
-        replenishActiveAssignments(userId, now);
+    /**
+     * Помечает просроченные назначения и добирает активные задания сразу для всех пользователей
+     * за один запрос к БД.
+     */
+    public void syncLifecycle(Collection<Long> userIds) {
+        userEcoTaskRepository.syncLifecycle(userIds, OffsetDateTime.now(applicationClock), STARTER_TASK_LIMIT);
     }
 
-    private void replenishActiveAssignments(long userId, OffsetDateTime now) {
-        UserType userType = userInfoRepository.findUserTypeByUserId(userId)
-                .orElseThrow(() -> new IllegalStateException(
-                        "User with id = %s is not found".formatted(userId)
-                ));
-        List<EcoTask> availableTasks = ecoTaskRepository.findActiveByUserType(userType.getId());
-        if (availableTasks.isEmpty()) {
-            return;
-        }
-
-        int targetActiveCount = Math.min(STARTER_TASK_LIMIT, availableTasks.size());
-        int activeCount = userEcoTaskRepository.countActiveAssignmentsByUserId(userId);
-        int missingCount = targetActiveCount - activeCount;
-        if (missingCount <= 0) {
-            return;
-        }
-
-        Set<Integer> activeTaskIds = userEcoTaskRepository.findActiveEcoTaskIdsByUserId(userId);
-        Set<Integer> allAssignedTaskIds = userEcoTaskRepository.findAllEcoTaskIdsByUserId(userId);
-        Set<Integer> doneTaskIds = userEcoTaskRepository.findDoneEcoTaskIdsByUserId(userId);
-        ZoneId zoneId = resolveUserZoneId(userId);
-
-        List<EcoTask> freshTasks = new ArrayList<>();
-        List<EcoTask> repeatedTasks = new ArrayList<>();
-        for (EcoTask task : availableTasks) {
-            if (activeTaskIds.contains(task.id())) {
-                continue;
-            }
-            if (allAssignedTaskIds.contains(task.id())) {
-                if (doneTaskIds.contains(task.id())) {
-                    continue;
-                }
-                repeatedTasks.add(task);
-            } else {
-                freshTasks.add(task);
-            }
-        }
-
-        missingCount = assignTasks(userId, now, zoneId, freshTasks, activeTaskIds, missingCount);
-        assignTasks(userId, now, zoneId, repeatedTasks, activeTaskIds, missingCount);
+    private void syncLifecycleForUser(long userId) {
+        syncLifecycle(List.of(userId));
     }
 
-    private int assignTasks(
-            long userId,
-            OffsetDateTime now,
-            ZoneId zoneId,
-            List<EcoTask> tasks,
-            Set<Integer> activeTaskIds,
-            int missingCount
+    private record CompletedAssignment(
+            ActiveEcoTaskAssignment assignment,
+            CompiledEcoTask task
     ) {
-        int remaining = missingCount;
-        for (EcoTask task : tasks) {
-            if (remaining <= 0) {
-                break;
-            }
-            if (activeTaskIds.contains(task.id())) {
-                continue;
-            }
-
-            OffsetDateTime assignedAt = OffsetDateTime.ofInstant(now.toInstant(), zoneId);
-            OffsetDateTime expiredAt = calculateExpiredAt(task.period(), zoneId);
-            boolean inserted = userEcoTaskRepository.addAssigned(
-                    ecoTaskParamsMapper.mapToAddAssignedParams(userId, task.id(), assignedAt, expiredAt)
-            );
-            if (!inserted) {
-                continue;
-            }
-
-            activeTaskIds.add(task.id());
-            remaining--;
-        }
-
-        return remaining;
-    }
-
-    private ZoneId resolveUserZoneId(long userId) {
-        String timezone = userInfoRepository.findGreenSlotContextByUserId(userId)
-                .map(context -> context.timezone())
-                .orElse(ZoneOffset.UTC.getId());
-        try {
-            return ZoneId.of(timezone);
-        } catch (DateTimeException exception) {
-            return ZoneOffset.UTC;
-        }
     }
 }
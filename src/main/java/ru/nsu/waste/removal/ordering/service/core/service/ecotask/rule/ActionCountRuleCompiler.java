@@ -0,0 +1,45 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+/**
+ * ACTION_COUNT: число событий типа filters.event_type, а без фильтра - типа trigger_event задания.
+ */
+@Component
+public class ActionCountRuleCompiler implements EcoTaskRuleCompiler {
+
+    @Override
+    public EcoTaskRuleType type() {
+        return EcoTaskRuleType.ACTION_COUNT;
+    }
+
+    @Override
+    public EcoTaskRule compile(JsonNode rule, UserActionEventType triggerEvent) {
+        String eventTypeFilter = rule.path("filters").path("event_type").asText(null);
+        return new ActionCountRule(
+                eventTypeFilter == null ? triggerEvent : UserActionEventType.fromDbName(eventTypeFilter),
+                EcoTaskRuleCompiler.target(rule)
+        );
+    }
+
+    private record ActionCountRule(
+            UserActionEventType eventType,
+            long target
+    ) implements EcoTaskRule {
+
+        @Override
+        public EcoTaskProgress apply(EcoTaskProgress progress, EcoTaskRuleEvent event) {
+            return event.eventType() == eventType ? progress.increment() : progress;
+        }
+
+        @Override
+        public boolean isReached(EcoTaskProgress progress) {
+            return progress.value() >= target;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+public record CompiledEcoTask(
+        int id,
+        String code,
+        long points,
+        EcoTaskRule rule
+) {
+}
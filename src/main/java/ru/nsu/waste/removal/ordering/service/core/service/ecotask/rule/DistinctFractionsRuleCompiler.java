@@ -0,0 +1,46 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+/**
+ * DISTINCT_FRACTIONS: число различных фракций в выполненных заказах, подходящих под фильтры.
+ */
+@Component
+public class DistinctFractionsRuleCompiler implements EcoTaskRuleCompiler {
+
+    @Override
+    public EcoTaskRuleType type() {
+        return EcoTaskRuleType.DISTINCT_FRACTIONS;
+    }
+
+    @Override
+    public EcoTaskRule compile(JsonNode rule, UserActionEventType triggerEvent) {
+        return new DistinctFractionsRule(OrderFilter.compile(rule), EcoTaskRuleCompiler.target(rule));
+    }
+
+    private record DistinctFractionsRule(
+            OrderFilter filter,
+            long target
+    ) implements EcoTaskRule {
+
+        @Override
+        public EcoTaskProgress apply(EcoTaskProgress progress, EcoTaskRuleEvent event) {
+            OrderDoneEventContent order = filter.match(event);
+            if (order == null || order.fractionIds() == null) {
+                return progress;
+            }
+            return progress.withFractions(order.fractionIds());
+        }
+
+        @Override
+        public boolean isReached(EcoTaskProgress progress) {
+            return progress.value() >= target;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+
+/**
+ * Скомпилированное правило эко-задания. Правило неизменяемо и не обращается к БД: прогресс
+ * назначения продвигается по каждому событию, попавшему в окно назначения.
+ */
+public interface EcoTaskRule {
+
+    /**
+     * Возвращает прогресс после события; если событие не подходит под правило, возвращает тот же прогресс.
+     */
+    EcoTaskProgress apply(EcoTaskProgress progress, EcoTaskRuleEvent event);
+
+    boolean isReached(EcoTaskProgress progress);
+}
@@ -0,0 +1,112 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleDefinition;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.EcoTaskRepository;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Каталог эко-заданий со скомпилированными правилами. Правила разбираются один раз при загрузке каталога;
+ * каталог перезагружается, если изменился его отпечаток в БД или встретилось задание, добавленное
+ * после загрузки. Задание с неподдерживаемым правилом пропускается: его назначения не продвигаются.
+ */
+@Slf4j
+@Component
+public class EcoTaskRuleCatalog {
+
+    private final EcoTaskRepository ecoTaskRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<EcoTaskRuleType, EcoTaskRuleCompiler> compilers = new EnumMap<>(EcoTaskRuleType.class);
+    private final Object reloadLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    public EcoTaskRuleCatalog(
+            EcoTaskRepository ecoTaskRepository,
+            ObjectMapper objectMapper,
+            List<EcoTaskRuleCompiler> compilers
+    ) {
+        this.ecoTaskRepository = ecoTaskRepository;
+        this.objectMapper = objectMapper;
+        for (EcoTaskRuleCompiler compiler : compilers) {
+            if (this.compilers.put(compiler.type(), compiler) != null) {
+                throw new IllegalStateException("Duplicate eco task rule compiler for type = %s".formatted(compiler.type()));
+            }
+        }
+    }
+
+    public Optional<CompiledEcoTask> find(int ecoTaskId) {
+        Snapshot current = snapshot;
+        if (current == null || !current.loadedIds().contains(ecoTaskId)) {
+            current = reload(current);
+        }
+        return Optional.ofNullable(current.tasks().get(ecoTaskId));
+    }
+
+    /**
+     * Перезагружает каталог, если он изменился в БД с момента последней загрузки.
+     */
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current != null && current.fingerprint().equals(ecoTaskRepository.findCatalogFingerprint())) {
+            return;
+        }
+        reload(current);
+    }
+
+    private Snapshot reload(Snapshot observed) {
+        synchronized (reloadLock) {
+            if (snapshot != observed) {
+                return snapshot;
+            }
+            String fingerprint = ecoTaskRepository.findCatalogFingerprint();
+            Map<Integer, CompiledEcoTask> tasks = new HashMap<>();
+            Set<Integer> loadedIds = new HashSet<>();
+            for (EcoTaskRuleDefinition definition : ecoTaskRepository.findAllRuleDefinitions()) {
+                loadedIds.add(definition.ecoTaskId());
+                try {
+                    tasks.put(definition.ecoTaskId(), compile(definition));
+                } catch (Exception exception) {
+                    log.warn("Eco task {} has unsupported rule and is skipped", definition.code(), exception);
+                }
+            }
+            Snapshot reloaded = new Snapshot(fingerprint, Map.copyOf(tasks), Set.copyOf(loadedIds));
+            snapshot = reloaded;
+            return reloaded;
+        }
+    }
+
+    private CompiledEcoTask compile(EcoTaskRuleDefinition definition) throws Exception {
+        JsonNode rule = objectMapper.readTree(definition.ruleJson());
+        EcoTaskRuleType type = EcoTaskRuleType.valueOf(rule.path("type").asText());
+        EcoTaskRuleCompiler compiler = Objects.requireNonNull(
+                compilers.get(type),
+                () -> "No eco task rule compiler for type = %s".formatted(type)
+        );
+        return new CompiledEcoTask(
+                definition.ecoTaskId(),
+                definition.code(),
+                definition.points(),
+                compiler.compile(rule, definition.triggerEvent())
+        );
+    }
+
+    private record Snapshot(
+            String fingerprint,
+            Map<Integer, CompiledEcoTask> tasks,
+            Set<Integer> loadedIds
+    ) {
+    }
+}
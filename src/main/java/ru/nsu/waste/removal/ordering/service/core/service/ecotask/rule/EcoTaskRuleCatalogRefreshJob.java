@@ -0,0 +1,29 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подхватывает изменения правил в каталоге эко-заданий.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.eco-task-rules.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class EcoTaskRuleCatalogRefreshJob {
+
+    private final EcoTaskRuleCatalog ecoTaskRuleCatalog;
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.eco-task-rules.fixed-delay-ms:60000}",
+            initialDelayString = "${app.jobs.eco-task-rules.initial-delay-ms:60000}"
+    )
+    public void refresh() {
+        ecoTaskRuleCatalog.refreshIfChanged();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+/**
+ * Компилятор правил одного типа. Новый тип правила подключается отдельным бином с этим интерфейсом.
+ */
+public interface EcoTaskRuleCompiler {
+
+    EcoTaskRuleType type();
+
+    /**
+     * Собирает правило из jsonb eco_task.rule.
+     *
+     * @throws IllegalStateException если правило не поддерживается
+     */
+    EcoTaskRule compile(JsonNode rule, UserActionEventType triggerEvent);
+
+    static long target(JsonNode rule) {
+        JsonNode target = rule.path("target");
+        if (!target.canConvertToLong() || target.asLong() < 1) {
+            throw new IllegalStateException("Eco task rule target must be a positive number: %s".formatted(rule));
+        }
+        return target.asLong();
+    }
+}
@@ -0,0 +1,41 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+
+/**
+ * ORDER_COUNT: число выполненных заказов, подходящих под фильтры.
+ */
+@Component
+public class OrderCountRuleCompiler implements EcoTaskRuleCompiler {
+
+    @Override
+    public EcoTaskRuleType type() {
+        return EcoTaskRuleType.ORDER_COUNT;
+    }
+
+    @Override
+    public EcoTaskRule compile(JsonNode rule, UserActionEventType triggerEvent) {
+        return new OrderCountRule(OrderFilter.compile(rule), EcoTaskRuleCompiler.target(rule));
+    }
+
+    private record OrderCountRule(
+            OrderFilter filter,
+            long target
+    ) implements EcoTaskRule {
+
+        @Override
+        public EcoTaskProgress apply(EcoTaskProgress progress, EcoTaskRuleEvent event) {
+            return filter.match(event) == null ? progress : progress.increment();
+        }
+
+        @Override
+        public boolean isReached(EcoTaskProgress progress) {
+            return progress.value() >= target;
+        }
+    }
+}
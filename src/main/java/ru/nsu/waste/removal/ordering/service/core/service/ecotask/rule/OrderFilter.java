@@ -0,0 +1,40 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+
+/**
+ * Фильтр заказных правил по rule.filters. Заказные правила считают выполненные заказы по событиям ORDER_DONE,
+ * поэтому фильтр status допускает только DONE.
+ */
+record OrderFilter(
+        String type,
+        Boolean greenChosen
+) {
+
+    private static final String STATUS_DONE = "DONE";
+
+    static OrderFilter compile(JsonNode rule) {
+        JsonNode filters = rule.path("filters");
+        String status = filters.path("status").asText(null);
+        if (status != null && !STATUS_DONE.equals(status)) {
+            throw new IllegalStateException("Unsupported order status filter in eco task rule: %s".formatted(rule));
+        }
+        JsonNode greenChosen = filters.path("green_chosen");
+        return new OrderFilter(
+                filters.path("type").asText(null),
+                greenChosen.isBoolean() ? greenChosen.booleanValue() : null
+        );
+    }
+
+    OrderDoneEventContent match(EcoTaskRuleEvent event) {
+        OrderDoneEventContent order = event.orderDone();
+        if (order == null
+                || (type != null && !type.equals(order.type()))
+                || (greenChosen != null && greenChosen != order.greenChosen())) {
+            return null;
+        }
+        return order;
+    }
+}
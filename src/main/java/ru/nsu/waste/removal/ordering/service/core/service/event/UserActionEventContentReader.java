@@ -0,0 +1,56 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPayload;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+
+import java.util.Optional;
+
+/**
+ * Разбирает содержимое события в класс, заданный его типом. Результат кэшируется в
+ * {@link UserActionEventPayload}, поэтому JSON события разбирается не больше одного раза,
+ * сколько бы обработчиков ни читали содержимое.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserActionEventContentReader {
+
+    private final ObjectMapper objectMapper;
+
+    public <T extends UserActionEventContent> Optional<T> read(UserActionHistoryEvent event, Class<T> contentType) {
+        return read(event.eventType(), event.payload(), contentType);
+    }
+
+    /**
+     * Возвращает содержимое, если оно разобралось в класс типа события и этот класс - {@code contentType};
+     * пустой результат для событий без содержимого и для некорректного JSON.
+     */
+    public <T extends UserActionEventContent> Optional<T> read(
+            UserActionEventType eventType,
+            UserActionEventPayload payload,
+            Class<T> contentType
+    ) {
+        return read(eventType, payload)
+                .filter(contentType::isInstance)
+                .map(contentType::cast);
+    }
+
+    public Optional<UserActionEventContent> read(UserActionEventType eventType, UserActionEventPayload payload) {
+        return payload.content(json -> parse(eventType, json));
+    }
+
+    private Optional<UserActionEventContent> parse(UserActionEventType eventType, String json) {
+        if (eventType == null || eventType.contentType() == null || json == null || json.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, eventType.contentType()));
+        } catch (Exception ignored) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ru.nsu.waste.removal.ordering.service.core.service.event;
 
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
 
 public interface UserActionEventHandler {
@@ -7,4 +8,15 @@ public interface UserActionEventHandler {
     boolean supports(UserActionHistoryEvent event);
 
     void handle(UserActionHistoryEvent event);
+
+    /**
+     * Обрабатывает все поддерживаемые обработчиком события пачки в транзакции вызывающего кода.
+     * Реализация обязана давать тот же результат, что и последовательный вызов {@link #handle}
+     * для событий в порядке пачки: при ошибке пачка повторяется по одному событию.
+     */
+    default void handleBatch(UserActionEventBatch batch) {
+        for (UserActionHistoryEvent event : batch.events()) {
+            handle(event);
+        }
+    }
 }
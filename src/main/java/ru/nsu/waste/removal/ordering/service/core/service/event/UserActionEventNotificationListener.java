@@ -0,0 +1,145 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Держит отдельное (не из пула) соединение с LISTEN на канале user_action_event
+ * и будит {@link UserActionEventProcessorJob} сразу после коммита новых событий.
+ * При потере соединения переподключается, а опрос по расписанию остается запасным путем.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(
+        value = {
+                "app.jobs.user-action-event-processor.enabled",
+                "app.jobs.user-action-event-processor.notify.enabled"
+        },
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class UserActionEventNotificationListener implements SmartLifecycle {
+
+    private static final String CHANNEL = "user_action_event";
+    private static final int NOTIFICATION_TIMEOUT_MS = 10_000;
+
+    private final UserActionEventProcessorJob userActionEventProcessorJob;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long reconnectDelayMs;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listenerThread;
+
+    public UserActionEventNotificationListener(
+            UserActionEventProcessorJob userActionEventProcessorJob,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${app.jobs.user-action-event-processor.notify.reconnect-delay-ms:5000}") long reconnectDelayMs
+    ) {
+        this.userActionEventProcessorJob = userActionEventProcessorJob;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listenerThread = Thread.ofPlatform()
+                .daemon()
+                .name("user-action-event-listener")
+                .start(this::listen);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        closeConnection();
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection listenConnection = DriverManager.getConnection(url, username, password)) {
+                connection = listenConnection;
+                PGConnection pgConnection = listenConnection.unwrap(PGConnection.class);
+                try (Statement statement = listenConnection.createStatement()) {
+                    statement.execute("listen " + CHANNEL);
+                }
+                log.info("Listening for user action event notifications on channel {}", CHANNEL);
+                // Первый прогон подбирает события, пришедшие, пока слушателя не было.
+                wakeUpProcessor();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_TIMEOUT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        wakeUpProcessor();
+                    }
+                }
+            } catch (SQLException exception) {
+                if (!running) {
+                    return;
+                }
+                log.warn("User action event listener connection failed, reconnecting in {} ms", reconnectDelayMs,
+                        exception);
+                sleepBeforeReconnect();
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void wakeUpProcessor() {
+        try {
+            userActionEventProcessorJob.processEvents();
+        } catch (RuntimeException exception) {
+            log.error("Failed to process user action events after notification", exception);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void closeConnection() {
+        Connection current = connection;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (SQLException exception) {
+            log.debug("Failed to close user action event listener connection", exception);
+        }
+    }
+}
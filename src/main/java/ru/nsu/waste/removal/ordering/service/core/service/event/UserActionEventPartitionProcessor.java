@@ -0,0 +1,182 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventContext;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPartition;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.EventProcessorStateRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionEventDeadLetterRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddDeadLetterParams;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class UserActionEventPartitionProcessor {
+
+    public static final String PROCESSOR_NAME = "user-action-event-processor";
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 2000;
+
+    private final UserActionHistoryRepository userActionHistoryRepository;
+    private final EventProcessorStateRepository eventProcessorStateRepository;
+    private final UserActionEventDeadLetterRepository userActionEventDeadLetterRepository;
+    private final UserActionEventProcessorMetrics userActionEventProcessorMetrics;
+    private final List<UserActionEventHandler> eventHandlers;
+    private final TransactionTemplate savepointTransactionTemplate;
+
+    public UserActionEventPartitionProcessor(
+            UserActionHistoryRepository userActionHistoryRepository,
+            EventProcessorStateRepository eventProcessorStateRepository,
+            UserActionEventDeadLetterRepository userActionEventDeadLetterRepository,
+            UserActionEventProcessorMetrics userActionEventProcessorMetrics,
+            List<UserActionEventHandler> eventHandlers,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.eventProcessorStateRepository = eventProcessorStateRepository;
+        this.userActionEventDeadLetterRepository = userActionEventDeadLetterRepository;
+        this.userActionEventProcessorMetrics = userActionEventProcessorMetrics;
+        this.eventHandlers = eventHandlers;
+        this.savepointTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.savepointTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @Transactional
+    public int processPartition(UserActionEventPartition partition) {
+        String processorName = partition.processorName(PROCESSOR_NAME);
+        eventProcessorStateRepository.initProcessorStateIfAbsent(processorName, PROCESSOR_NAME);
+        UserActionEventCursor cursor = eventProcessorStateRepository.findCursorForUpdate(processorName);
+        List<UserActionHistoryEvent> events = userActionHistoryRepository.findEventsAfterCursor(
+                cursor,
+                partition,
+                BATCH_SIZE
+        );
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        UserActionEventContext context = UserActionEventContext.tracking();
+        for (UserActionEventHandler handler : eventHandlers) {
+            List<UserActionHistoryEvent> supportedEvents = events.stream()
+                    .filter(handler::supports)
+                    .toList();
+            if (!supportedEvents.isEmpty()) {
+                processHandlerSlice(processorName, handler, new UserActionEventBatch(supportedEvents, context));
+            }
+        }
+
+        // Курсор пишется в той же транзакции, что и чтение пачки, поэтому промежуточные
+        // обновления ничего не добавляют к надежности: достаточно одной записи на пачку.
+        eventProcessorStateRepository.updateCursor(processorName, events.getLast().cursor());
+        userActionEventProcessorMetrics.recordBatch(events.size(), 1);
+
+        return events.size();
+    }
+
+    /**
+     * Обработчики идут по очереди, каждый получает свой срез пачки целиком, поэтому события, результат
+     * которых зависит от их взаимного порядка (все изменения баланса пользователя), обязан сворачивать
+     * один обработчик - {@code UserRewardEventService}. Срез выполняется
+     * под точкой сохранения внутри общей транзакции пачки: ошибка одного обработчика откатывает
+     * только его изменения и не затрагивает остальных.
+     * Если срез упал, он повторяется по одному событию, и в dead letters попадают
+     * только действительно сломанные события. Записи упавшего среза снимаются с контекста пачки,
+     * и следующие обработчики читают результаты повтора из БД.
+     */
+    private void processHandlerSlice(
+            String processorName,
+            UserActionEventHandler handler,
+            UserActionEventBatch batch
+    ) {
+        try {
+            savepointTransactionTemplate.executeWithoutResult(status -> handler.handleBatch(batch));
+            return;
+        } catch (Exception exception) {
+            batch.context().forget(batch);
+            if (batch.size() == 1) {
+                moveToDeadLetters(processorName, batch.events().getFirst(), handler, exception);
+                return;
+            }
+            log.warn("Batch of {} events failed in handler {}, processor={}; retrying one by one",
+                    batch.size(), handlerName(handler), processorName, exception);
+        }
+
+        for (UserActionHistoryEvent event : batch.events()) {
+            try {
+                savepointTransactionTemplate.executeWithoutResult(status -> handler.handle(event));
+            } catch (Exception exception) {
+                moveToDeadLetters(processorName, event, handler, exception);
+            }
+        }
+    }
+
+    /**
+     * Позиция в истории, до которой события пользователя уже обработаны конвейером: курсор его партиции,
+     * а если партиция еще не запускалась - курсор непартиционированного обработчика, с которого она стартует.
+     */
+    public static UserActionEventCursor nextUnprocessedPosition(
+            Map<String, UserActionEventCursor> cursors,
+            long userId,
+            int partitions
+    ) {
+        String processorName = UserActionEventPartition.ofUser(userId, partitions).processorName(PROCESSOR_NAME);
+        UserActionEventCursor cursor = cursors.getOrDefault(
+                processorName,
+                cursors.getOrDefault(PROCESSOR_NAME, UserActionEventCursor.initial())
+        );
+        return cursor.next();
+    }
+
+    private void moveToDeadLetters(
+            String processorName,
+            UserActionHistoryEvent event,
+            UserActionEventHandler handler,
+            Exception exception
+    ) {
+        log.error("Failed to process user action event id={}, userId={}, type={}, handler={}, processor={}; "
+                        + "moving to dead letters",
+                event.id(), event.userId(), event.eventType(), handlerName(handler), processorName,
+                exception);
+        addDeadLetter(processorName, event, handler, exception);
+    }
+
+    private void addDeadLetter(
+            String processorName,
+            UserActionHistoryEvent event,
+            UserActionEventHandler handler,
+            Exception exception
+    ) {
+        userActionEventDeadLetterRepository.addDeadLetter(new AddDeadLetterParams(
+                processorName,
+                event.id(),
+                event.createdAt(),
+                event.userId(),
+                event.eventType().dbName(),
+                handlerName(handler),
+                truncate(String.valueOf(exception))
+        ));
+        userActionEventProcessorMetrics.recordDeadLetter();
+    }
+
+    private static String handlerName(UserActionEventHandler handler) {
+        return ClassUtils.getUserClass(handler).getSimpleName();
+    }
+
+    private static String truncate(String value) {
+        if (value.length() <= MAX_ERROR_MESSAGE_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_ERROR_MESSAGE_LENGTH);
+    }
+}
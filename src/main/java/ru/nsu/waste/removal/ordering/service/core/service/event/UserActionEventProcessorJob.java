@@ -1,12 +1,23 @@
 package ru.nsu.waste.removal.ordering.service.core.service.event;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Запускается по NOTIFY от {@link UserActionEventNotificationListener} и по расписанию как страховка.
+ * Одновременно работает только один прогон: повторные пробуждения во время прогона
+ * схлопываются в один дополнительный проход по очереди.
+ * Если после прогона остались закоммиченные события, скрытые более старой открытой транзакцией,
+ * прогон повторяется с короткой задержкой, пока они не станут видны: коммит той транзакции
+ * сам по себе NOTIFY не присылает.
+ */
 @Component
-@RequiredArgsConstructor
 @ConditionalOnProperty(
         value = "app.jobs.user-action-event-processor.enabled",
         havingValue = "true",
@@ -15,9 +26,56 @@ import org.springframework.stereotype.Component;
 public class UserActionEventProcessorJob {
 
     private final UserActionEventProcessorService userActionEventProcessorService;
+    private final TaskScheduler taskScheduler;
+    private final long visibilityRetryDelayMs;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean wakeUpRequested = new AtomicBoolean();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+
+    public UserActionEventProcessorJob(
+            UserActionEventProcessorService userActionEventProcessorService,
+            TaskScheduler taskScheduler,
+            @Value("${app.jobs.user-action-event-processor.visibility-retry-ms:100}") long visibilityRetryDelayMs
+    ) {
+        this.userActionEventProcessorService = userActionEventProcessorService;
+        this.taskScheduler = taskScheduler;
+        this.visibilityRetryDelayMs = visibilityRetryDelayMs;
+    }
 
     @Scheduled(fixedDelayString = "${app.jobs.user-action-event-processor.fixed-delay-ms:1000}")
     public void processEvents() {
-        userActionEventProcessorService.processPendingEvents();
+        wakeUpRequested.set(true);
+        while (wakeUpRequested.get() && running.compareAndSet(false, true)) {
+            try {
+                while (wakeUpRequested.getAndSet(false)) {
+                    drainPendingEvents();
+                }
+                scheduleRetryIfEventsAwaitOlderTransactions();
+            } finally {
+                running.set(false);
+            }
+        }
+    }
+
+    private void drainPendingEvents() {
+        int processed;
+        do {
+            processed = userActionEventProcessorService.processPendingEvents();
+        } while (processed > 0);
+    }
+
+    private void scheduleRetryIfEventsAwaitOlderTransactions() {
+        if (!userActionEventProcessorService.hasEventsAwaitingOlderTransactions()
+                || !retryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        taskScheduler.schedule(
+                () -> {
+                    retryScheduled.set(false);
+                    processEvents();
+                },
+                Instant.now().plusMillis(visibilityRetryDelayMs)
+        );
     }
 }
@@ -0,0 +1,31 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserActionEventProcessorMetrics {
+
+    private final DistributionSummary cursorWritesSavedPerBatch;
+    private final Counter deadLetteredEvents;
+
+    public UserActionEventProcessorMetrics(MeterRegistry meterRegistry) {
+        this.cursorWritesSavedPerBatch = DistributionSummary.builder("user.action.event.processor.cursor.writes.saved")
+                .description("Cursor updates avoided per batch by committing the cursor once per batch")
+                .baseUnit("writes")
+                .register(meterRegistry);
+        this.deadLetteredEvents = Counter.builder("user.action.event.processor.dead.letters")
+                .description("User action events moved to the dead-letter table")
+                .register(meterRegistry);
+    }
+
+    public void recordBatch(int processedEvents, int cursorWrites) {
+        cursorWritesSavedPerBatch.record(Math.max(0, processedEvents - cursorWrites));
+    }
+
+    public void recordDeadLetter() {
+        deadLetteredEvents.increment();
+    }
+}
@@ -1,52 +1,93 @@
 package ru.nsu.waste.removal.ordering.service.core.service.event;
 
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
-import ru.nsu.waste.removal.ordering.service.core.repository.history.EventProcessorStateRepository;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPartition;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-@Slf4j
+/**
+ * Обрабатывает события пользователей, разбитые на партиции по user_id.
+ * Все события одного пользователя попадают в одну партицию и обрабатываются строго по порядку,
+ * а разные партиции обрабатываются параллельно, каждая со своим курсором в event_processor_state.
+ * Количество партиций стоит менять только на полностью обработанной очереди:
+ * новые курсоры стартуют с позиции общего (непартиционированного) курсора.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserActionEventProcessorService {
 
-    private static final String PROCESSOR_NAME = "user-action-event-processor";
-    private static final int BATCH_SIZE = 500;
-
+    private final UserActionEventPartitionProcessor partitionProcessor;
     private final UserActionHistoryRepository userActionHistoryRepository;
-    private final EventProcessorStateRepository eventProcessorStateRepository;
-    private final List<UserActionEventHandler> eventHandlers;
+    private final ExecutorService partitionExecutor;
+    private final int partitionCount;
+
+    public UserActionEventProcessorService(
+            UserActionEventPartitionProcessor partitionProcessor,
+            UserActionHistoryRepository userActionHistoryRepository,
+            @Qualifier("userActionEventPartitionExecutor") ExecutorService partitionExecutor,
+            @Value("${app.jobs.user-action-event-processor.partitions:1}") int partitionCount
+    ) {
+        if (partitionCount <= 0) {
+            throw new IllegalStateException("User action event partition count must be positive");
+        }
+        this.partitionProcessor = partitionProcessor;
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.partitionExecutor = partitionExecutor;
+        this.partitionCount = partitionCount;
+    }
 
-    @Transactional
     public int processPendingEvents() {
-        eventProcessorStateRepository.initProcessorStateIfAbsent(PROCESSOR_NAME);
-        long lastProcessedEventId = eventProcessorStateRepository.findLastEventIdForUpdate(PROCESSOR_NAME);
-        List<UserActionHistoryEvent> events = userActionHistoryRepository.findEventsAfterId(lastProcessedEventId, BATCH_SIZE);
-        if (events.isEmpty()) {
-            return 0;
+        return processPendingEvents(partitionCount);
+    }
+
+    /**
+     * Есть ли закоммиченные события, которые обработчик пока не видит из-за более старой открытой транзакции.
+     * Когда такая транзакция завершится, NOTIFY может не прийти, поэтому их нужно дождаться отдельно.
+     */
+    public boolean hasEventsAwaitingOlderTransactions() {
+        return userActionHistoryRepository.existsEventsAwaitingOlderTransactions();
+    }
+
+    public int processPendingEvents(int partitions) {
+        if (partitions == 1) {
+            return partitionProcessor.processPartition(UserActionEventPartition.single());
+        }
+
+        List<Future<Integer>> futures = new ArrayList<>(partitions);
+        for (int index = 0; index < partitions; index++) {
+            UserActionEventPartition partition = new UserActionEventPartition(index, partitions);
+            futures.add(partitionExecutor.submit(() -> partitionProcessor.processPartition(partition)));
         }
 
         int processed = 0;
-        for (UserActionHistoryEvent event : events) {
+        IllegalStateException failure = null;
+        for (int index = 0; index < futures.size(); index++) {
             try {
-                for (UserActionEventHandler handler : eventHandlers) {
-                    if (!handler.supports(event)) {
-                        continue;
-                    }
-                    handler.handle(event);
+                processed += futures.get(index).get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted while processing user action event partitions", exception);
+            } catch (ExecutionException exception) {
+                IllegalStateException partitionFailure = new IllegalStateException(
+                        "Failed to process user action event partition %d/%d".formatted(index, partitions),
+                        exception.getCause()
+                );
+                if (failure == null) {
+                    failure = partitionFailure;
+                } else {
+                    failure.addSuppressed(partitionFailure);
                 }
-            } catch (Exception exception) {
-                log.error("Failed to process user action event id={}, userId={}, type={}",
-                        event.id(), event.userId(), event.eventType(), exception);
-            } finally {
-                eventProcessorStateRepository.updateLastEventId(PROCESSOR_NAME, event.id());
             }
-            processed++;
+        }
+        if (failure != null) {
+            throw failure;
         }
 
         return processed;
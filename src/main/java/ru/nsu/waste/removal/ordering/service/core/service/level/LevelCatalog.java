@@ -0,0 +1,107 @@
+package ru.nsu.waste.removal.ordering.service.core.service.level;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
+import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Таблица уровней в памяти: пороги отсортированы по возрастанию, уровень по сумме очков ищется
+ * двоичным поиском. Снимок неизменяемый и подменяется целиком, если изменился отпечаток таблицы в БД.
+ */
+@Component
+@RequiredArgsConstructor
+public class LevelCatalog {
+
+    private final LevelRepository levelRepository;
+    private final Object reloadLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    public Level findLowest() {
+        return current().level(0);
+    }
+
+    public Level findHighest() {
+        Snapshot current = current();
+        return current.level(current.ids().length - 1);
+    }
+
+    /**
+     * Возвращает "следующую цель" по уровню: минимальный уровень, порог которого строго больше totalPoints.
+     * <p>
+     * Пример:
+     * - totalPoints = 0 -> 1000
+     * - totalPoints = 999 -> 1000
+     * - totalPoints = 1000 -> 2000
+     * - totalPoints = 3200 -> 4000
+     * - totalPoints >= max -> Optional.empty()
+     */
+    public Optional<Level> findNextTarget(long totalPoints) {
+        Snapshot current = current();
+        long[] thresholds = current.requiredTotalPoints();
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (thresholds[middle] > totalPoints) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low == thresholds.length ? Optional.empty() : Optional.of(current.level(low));
+    }
+
+    /**
+     * Перезагружает таблицу уровней, если она изменилась в БД с момента последней загрузки.
+     */
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current != null && current.fingerprint().equals(levelRepository.findFingerprint())) {
+            return;
+        }
+        reload(current);
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        return current == null ? reload(null) : current;
+    }
+
+    private Snapshot reload(Snapshot observed) {
+        synchronized (reloadLock) {
+            if (snapshot != observed) {
+                return snapshot;
+            }
+            String fingerprint = levelRepository.findFingerprint();
+            List<Level> levels = levelRepository.findAll();
+            if (levels.isEmpty()) {
+                throw new IllegalStateException("Level table is empty");
+            }
+            int[] ids = new int[levels.size()];
+            long[] requiredTotalPoints = new long[levels.size()];
+            for (int i = 0; i < levels.size(); i++) {
+                ids[i] = levels.get(i).id();
+                requiredTotalPoints[i] = levels.get(i).requiredTotalPoints();
+            }
+            Snapshot reloaded = new Snapshot(fingerprint, ids, requiredTotalPoints);
+            snapshot = reloaded;
+            return reloaded;
+        }
+    }
+
+    private record Snapshot(
+            String fingerprint,
+            int[] ids,
+            long[] requiredTotalPoints
+    ) {
+
+        Level level(int index) {
+            return new Level(ids[index], (int) requiredTotalPoints[index]);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.nsu.waste.removal.ordering.service.core.service.level;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подхватывает изменения таблицы уровней.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.level-catalog.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class LevelCatalogRefreshJob {
+
+    private final LevelCatalog levelCatalog;
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.level-catalog.fixed-delay-ms:60000}",
+            initialDelayString = "${app.jobs.level-catalog.initial-delay-ms:60000}"
+    )
+    public void refresh() {
+        levelCatalog.refreshIfChanged();
+    }
+}
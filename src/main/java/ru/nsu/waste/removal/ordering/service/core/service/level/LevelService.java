@@ -5,24 +5,29 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.mapper.level.LevelParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.model.event.LevelUpEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventContext;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.level.AchieverLevelTarget;
 import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.AchieverProfileRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
 import ru.nsu.waste.removal.ordering.service.core.service.level.param.EmitMaxLevelReachedEventParams;
 import ru.nsu.waste.removal.ordering.service.core.service.level.param.LevelUpContentParams;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 
 @Service
 @Order(40)
@@ -30,7 +35,7 @@ import java.util.Optional;
 public class LevelService implements UserActionEventHandler {
 
     private final AchieverProfileRepository achieverProfileRepository;
-    private final LevelRepository levelRepository;
+    private final LevelCatalog levelCatalog;
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final UserInfoRepository userInfoRepository;
     private final LevelParamsMapper levelParamsMapper;
@@ -44,41 +49,109 @@ public class LevelService implements UserActionEventHandler {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void handle(UserActionHistoryEvent event) {
-        long positiveDelta = resolvePositiveDelta(event);
-        if (positiveDelta == 0L) {
+        handleBatch(UserActionEventBatch.of(event));
+    }
+
+    /**
+     * Очки событий и итоговые суммы пользователей берутся из контекста пачки, куда их записали обработчики
+     * баланса; из БД читается только то, чего в контексте нет. Суммы "до" и "после" каждого события
+     * восстанавливаются вычитанием положительных начислений более поздних событий пачки.
+     */
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        UserActionEventContext context = batch.context();
+        Map<Long, Long> pointsDifferencesByEventId = findMissingPointsDifferences(batch);
+        Map<Long, long[]> positiveDeltasByUserId = new LinkedHashMap<>();
+        batch.eventsByUserId().forEach((userId, events) -> {
+            long[] positiveDeltas = new long[events.size()];
+            boolean hasPositiveDelta = false;
+            for (int i = 0; i < events.size(); i++) {
+                positiveDeltas[i] = resolvePositiveDelta(events.get(i), context, pointsDifferencesByEventId);
+                hasPositiveDelta |= positiveDeltas[i] > 0L;
+            }
+            if (hasPositiveDelta) {
+                positiveDeltasByUserId.put(userId, positiveDeltas);
+            }
+        });
+        if (positiveDeltasByUserId.isEmpty()) {
             return;
         }
 
-        long newTotalPoints = userInfoRepository.findTotalPointsByUserId(event.userId()).orElse(0L);
-        long oldTotalPoints = Math.max(0L, newTotalPoints - positiveDelta);
-        updateLevelIfNeeded(event.userId(), oldTotalPoints, newTotalPoints);
+        Map<Long, AchieverLevelTarget> targetsByUserId =
+                achieverProfileRepository.findLevelTargetsForUpdate(positiveDeltasByUserId.keySet());
+        Map<Long, Long> totalPointsByUserId = findTotalPoints(context, targetsByUserId.keySet());
+
+        positiveDeltasByUserId.forEach((userId, positiveDeltas) -> {
+            AchieverLevelTarget target = targetsByUserId.get(userId);
+            if (target == null) {
+                return;
+            }
+            Level current = new Level(target.levelId(), target.requiredTotalPoints());
+
+            long remainingDelta = 0L;
+            for (long positiveDelta : positiveDeltas) {
+                remainingDelta += positiveDelta;
+            }
+            long finalTotalPoints = totalPointsByUserId.getOrDefault(userId, 0L);
+            for (long positiveDelta : positiveDeltas) {
+                long newTotalPoints = finalTotalPoints - remainingDelta + positiveDelta;
+                remainingDelta -= positiveDelta;
+                if (positiveDelta == 0L) {
+                    continue;
+                }
+                long oldTotalPoints = Math.max(0L, newTotalPoints - positiveDelta);
+                current = updateLevelIfNeeded(userId, current, oldTotalPoints, newTotalPoints);
+            }
+        });
     }
 
-    private long resolvePositiveDelta(UserActionHistoryEvent event) {
-        long pointsDifference = event.pointsDifference();
-        if (pointsDifference == 0L) {
-            pointsDifference = userActionHistoryRepository.findPointsDifferenceByEventId(event.id());
+    private Map<Long, Long> findMissingPointsDifferences(UserActionEventBatch batch) {
+        List<UserActionHistoryEvent> events = batch.events().stream()
+                .filter(event -> batch.context().findPointsDifference(event).isEmpty())
+                .toList();
+        return userActionHistoryRepository.findPointsDifferencesByEvents(events);
+    }
+
+    private Map<Long, Long> findTotalPoints(UserActionEventContext context, Collection<Long> userIds) {
+        Map<Long, Long> totalPointsByUserId = new HashMap<>();
+        List<Long> missingUserIds = new ArrayList<>();
+        for (long userId : userIds) {
+            OptionalLong totalPoints = context.findTotalPoints(userId);
+            if (totalPoints.isPresent()) {
+                totalPointsByUserId.put(userId, totalPoints.getAsLong());
+            } else {
+                missingUserIds.add(userId);
+            }
         }
+        if (!missingUserIds.isEmpty()) {
+            totalPointsByUserId.putAll(userInfoRepository.findTotalPointsByUserIds(missingUserIds));
+        }
+        return totalPointsByUserId;
+    }
+
+    private long resolvePositiveDelta(
+            UserActionHistoryEvent event,
+            UserActionEventContext context,
+            Map<Long, Long> pointsDifferencesByEventId
+    ) {
+        long pointsDifference = context.findPointsDifference(event)
+                .orElseGet(() -> pointsDifferencesByEventId.getOrDefault(event.id(), 0L));
         return Math.max(0L, pointsDifference);
     }
 
-    private void updateLevelIfNeeded(long userId, long oldTotalPoints, long newTotalPoints) {
-        Optional<AchieverLevelTarget> currentTargetOpt = achieverProfileRepository.findLevelTargetForUpdate(userId);
-        if (currentTargetOpt.isEmpty()) {
-            return;
+    private Level updateLevelIfNeeded(long userId, Level current, long oldTotalPoints, long newTotalPoints) {
+        if (newTotalPoints < current.requiredTotalPoints()) {
+            // Порог текущей цели не достигнут: ни повышения, ни достижения максимального уровня быть не может.
+            return current;
         }
 
-        AchieverLevelTarget currentTarget = currentTargetOpt.get();
-        Level current = new Level(currentTarget.levelId(), currentTarget.requiredTotalPoints());
-
-        Level desired = levelRepository.findNextTargetLevelByTotalPoints(newTotalPoints)
-                .orElseGet(levelRepository::findHighestLevel);
+        Level desired = levelCatalog.findNextTarget(newTotalPoints)
+                .orElseGet(levelCatalog::findHighest);
 
         if (desired.id() != current.id()) {
             if (desired.requiredTotalPoints() <= current.requiredTotalPoints()) {
-                return;
+                return current;
             }
 
             achieverProfileRepository.updateLevel(userId, desired.id());
@@ -94,16 +167,17 @@ public class LevelService implements UserActionEventHandler {
                     )),
                     0
             ));
-            return;
+            return desired;
         }
 
         emitMaxLevelReachedEventIfNeeded(
                 levelParamsMapper.mapToEmitMaxLevelReachedEventParams(userId, current, oldTotalPoints, newTotalPoints)
         );
+        return current;
     }
 
     private void emitMaxLevelReachedEventIfNeeded(EmitMaxLevelReachedEventParams params) {
-        Level highest = levelRepository.findHighestLevel();
+        Level highest = levelCatalog.findHighest();
         boolean isHighestTarget = params.current().id() == highest.id();
         boolean crossedMaxThreshold = params.oldTotalPoints() < params.current().requiredTotalPoints()
                 && params.newTotalPoints() >= params.current().requiredTotalPoints();
@@ -0,0 +1,187 @@
+package ru.nsu.waste.removal.ordering.service.core.service.order;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
+import ru.nsu.waste.removal.ordering.service.core.repository.cluster.GeoClusterRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс занятости слотов вывоза: для каждого почтового индекса и слота хранит активные
+ * (NEW и ASSIGNED) заказы и их авторов. Слот «зеленый» для пользователя, если в нем есть заказ
+ * другого пользователя того же кластера, поэтому формирование вариантов слотов не ходит в БД.
+ * <p>
+ * Индекс меняется после коммита транзакций, создающих и завершающих заказы, и периодически
+ * сверяется с БД полной перезагрузкой. Операции идемпотентны по id заказа: изменения,
+ * пришедшие во время перезагрузки, накапливаются в журнале и повторяются поверх загруженного
+ * снимка, так что ни одно из них не теряется и не учитывается дважды.
+ */
+@Component
+public class GreenSlotOccupancyIndex {
+
+    private final GeoClusterRepository geoClusterRepository;
+    private final Clock clock;
+    private final Object reloadLock = new Object();
+    private final Object updateLock = new Object();
+
+    private volatile Map<String, Map<SlotKey, Map<Long, Long>>> ordersBySlot;
+    private List<IndexUpdate> reloadJournal;
+
+    public GreenSlotOccupancyIndex(GeoClusterRepository geoClusterRepository, Clock clock) {
+        this.geoClusterRepository = geoClusterRepository;
+        this.clock = clock;
+    }
+
+    /**
+     * Проверяет, занят ли слот кластера заказом другого пользователя.
+     */
+    public boolean isPlannedByOtherUser(String postalCode, OffsetDateTime pickupFrom, OffsetDateTime pickupTo, long userId) {
+        Map<SlotKey, Map<Long, Long>> slots = loadedIndex().get(postalCode);
+        if (slots == null) {
+            return false;
+        }
+        Map<Long, Long> userIdsByOrderId = slots.get(new SlotKey(pickupFrom.toInstant(), pickupTo.toInstant()));
+        if (userIdsByOrderId == null) {
+            return false;
+        }
+        for (Long orderUserId : userIdsByOrderId.values()) {
+            if (orderUserId != userId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Добавляет заказ в индекс после коммита текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void addOrderAfterCommit(PlannedSlotOrder order) {
+        afterCommit(new IndexUpdate(order, true));
+    }
+
+    /**
+     * Убирает заказ из индекса после коммита текущей транзакции (или сразу, если транзакции нет).
+     */
+    public void removeOrderAfterCommit(PlannedSlotOrder order) {
+        afterCommit(new IndexUpdate(order, false));
+    }
+
+    /**
+     * Перестраивает индекс по активным заказам из БД; заодно выбрасывает прошедшие слоты.
+     */
+    public void reload() {
+        synchronized (reloadLock) {
+            synchronized (updateLock) {
+                reloadJournal = new ArrayList<>();
+            }
+
+            Map<String, Map<SlotKey, Map<Long, Long>>> reloaded = new ConcurrentHashMap<>();
+            try {
+                for (PlannedSlotOrder order : geoClusterRepository.findActivePlannedSlotOrders(OffsetDateTime.now(clock))) {
+                    add(reloaded, order);
+                }
+            } catch (RuntimeException exception) {
+                synchronized (updateLock) {
+                    reloadJournal = null;
+                }
+                throw exception;
+            }
+
+            synchronized (updateLock) {
+                for (IndexUpdate update : reloadJournal) {
+                    update.applyTo(reloaded);
+                }
+                reloadJournal = null;
+                ordersBySlot = reloaded;
+            }
+        }
+    }
+
+    private Map<String, Map<SlotKey, Map<Long, Long>>> loadedIndex() {
+        Map<String, Map<SlotKey, Map<Long, Long>>> current = ordersBySlot;
+        if (current == null) {
+            reload();
+            current = ordersBySlot;
+        }
+        return current;
+    }
+
+    private void afterCommit(IndexUpdate update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(update);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(update);
+            }
+        });
+    }
+
+    private void apply(IndexUpdate update) {
+        synchronized (updateLock) {
+            if (reloadJournal != null) {
+                reloadJournal.add(update);
+            }
+            Map<String, Map<SlotKey, Map<Long, Long>>> current = ordersBySlot;
+            if (current != null) {
+                update.applyTo(current);
+            }
+        }
+    }
+
+    private static void add(Map<String, Map<SlotKey, Map<Long, Long>>> index, PlannedSlotOrder order) {
+        index.computeIfAbsent(order.postalCode(), postalCode -> new ConcurrentHashMap<>())
+                .computeIfAbsent(SlotKey.of(order), slotKey -> new ConcurrentHashMap<>())
+                .put(order.orderId(), order.userId());
+    }
+
+    private static void remove(Map<String, Map<SlotKey, Map<Long, Long>>> index, PlannedSlotOrder order) {
+        Map<SlotKey, Map<Long, Long>> slots = index.get(order.postalCode());
+        if (slots == null) {
+            return;
+        }
+        SlotKey slotKey = SlotKey.of(order);
+        Map<Long, Long> userIdsByOrderId = slots.get(slotKey);
+        if (userIdsByOrderId == null) {
+            return;
+        }
+        userIdsByOrderId.remove(order.orderId());
+        if (userIdsByOrderId.isEmpty()) {
+            slots.remove(slotKey);
+        }
+    }
+
+    private record IndexUpdate(
+            PlannedSlotOrder order,
+            boolean active
+    ) {
+
+        private void applyTo(Map<String, Map<SlotKey, Map<Long, Long>>> index) {
+            if (active) {
+                add(index, order);
+            } else {
+                remove(index, order);
+            }
+        }
+    }
+
+    private record SlotKey(
+            Instant pickupFrom,
+            Instant pickupTo
+    ) {
+
+        private static SlotKey of(PlannedSlotOrder order) {
+            return new SlotKey(order.pickupFrom().toInstant(), order.pickupTo().toInstant());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.nsu.waste.removal.ordering.service.core.service.order;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Прогревает индекс занятости слотов при старте и периодически сверяет его с БД,
+ * подхватывая изменения заказов, сделанные в обход сервисов.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.green-slot-index.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class GreenSlotOccupancyReconcileJob {
+
+    private final GreenSlotOccupancyIndex greenSlotOccupancyIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        greenSlotOccupancyIndex.reload();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.green-slot-index.fixed-delay-ms:300000}",
+            initialDelayString = "${app.jobs.green-slot-index.initial-delay-ms:300000}"
+    )
+    public void reconcile() {
+        greenSlotOccupancyIndex.reload();
+    }
+}
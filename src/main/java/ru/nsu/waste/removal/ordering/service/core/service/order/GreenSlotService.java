@@ -2,7 +2,6 @@ package ru.nsu.waste.removal.ordering.service.core.service.order;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import ru.nsu.waste.removal.ordering.service.core.mapper.cluster.ClusterParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterContext;
 import ru.nsu.waste.removal.ordering.service.core.model.order.GreenSlot;
 import ru.nsu.waste.removal.ordering.service.core.model.order.SlotOption;
@@ -10,16 +9,12 @@ import ru.nsu.waste.removal.ordering.service.core.service.cluster.GeoClusterServ
 
 import java.time.Clock;
 import java.time.DateTimeException;
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -30,7 +25,7 @@ public class GreenSlotService {
     private static final int DAYS_VISIBLE = 2;
 
     private final GeoClusterService geoClusterService;
-    private final ClusterParamsMapper clusterParamsMapper;
+    private final GreenSlotOccupancyIndex greenSlotOccupancyIndex;
     private final Clock clock;
 
     public List<SlotOption> getSlotOptions(long userId) {
@@ -43,27 +38,17 @@ public class GreenSlotService {
             return List.of();
         }
 
-        OffsetDateTime periodFrom = nowInUserZone.toLocalDate().atStartOfDay(userZoneId).toOffsetDateTime();
-        OffsetDateTime periodTo = nowInUserZone.toLocalDate().plusDays(DAYS_VISIBLE)
-                .atStartOfDay(userZoneId)
-                .toOffsetDateTime();
-
-        Set<SlotKey> plannedSlotKeys = geoClusterService.findPlannedSlotsInCluster(
-                        clusterParamsMapper.mapToFindPlannedSlotsInClusterParams(
-                                userId,
-                                clusterContext.clusterKey(),
-                                periodFrom,
-                                periodTo
-                        )
-                ).stream()
-                .map(SlotKey::fromSlot)
-                .collect(Collectors.toSet());
-
+        String postalCode = clusterContext.clusterKey().value();
         return availableSlots.stream()
                 .map(slot -> new SlotOption(
                         slot.pickupFrom(),
                         slot.pickupTo(),
-                        plannedSlotKeys.contains(SlotKey.fromSlot(slot))
+                        greenSlotOccupancyIndex.isPlannedByOtherUser(
+                                postalCode,
+                                slot.pickupFrom(),
+                                slot.pickupTo(),
+                                userId
+                        )
                 ))
                 .sorted(Comparator.comparing(SlotOption::green)
                         .reversed()
@@ -105,17 +90,4 @@ public class GreenSlotService {
 
         return slots;
     }
-
-    private record SlotKey(
-            Instant pickupFrom,
-            Instant pickupTo
-    ) {
-
-        private static SlotKey fromSlot(GreenSlot slot) {
-            return new SlotKey(
-                    slot.pickupFrom().toInstant(),
-                    slot.pickupTo().toInstant()
-            );
-        }
-    }
 }
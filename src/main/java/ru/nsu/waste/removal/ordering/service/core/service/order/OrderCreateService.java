@@ -8,18 +8,23 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.mapper.order.OrderFlowParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterKey;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.OrderCreatedEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.order.FractionMask;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderCreateParams;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderPaymentStatus;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderType;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
 import ru.nsu.waste.removal.ordering.service.core.model.order.SlotOption;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRewardState;
+import ru.nsu.waste.removal.ordering.service.core.repository.courier.CourierOrderRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.order.OrderCreateRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.order.WasteFractionRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.cluster.GeoClusterService;
+import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierFeedBroadcaster;
 import ru.nsu.waste.removal.ordering.service.core.service.order.mapper.OrderCreateParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.service.order.param.OrderCreatedEventParams;
 
@@ -37,9 +42,12 @@ public class OrderCreateService {
     private static final String INVALID_FRACTIONS_MESSAGE = "Некорректный выбор фракций";
 
     private final GreenSlotService greenSlotService;
+    private final GreenSlotOccupancyIndex greenSlotOccupancyIndex;
     private final GeoClusterService geoClusterService;
     private final WasteFractionRepository wasteFractionRepository;
     private final OrderCreateRepository orderCreateRepository;
+    private final CourierOrderRepository courierOrderRepository;
+    private final CourierFeedBroadcaster courierFeedBroadcaster;
     private final OrderCreateParamsMapper orderCreateParamsMapper;
     private final OrderPricingService orderPricingService;
     private final OrderPaymentService orderPaymentService;
@@ -66,13 +74,24 @@ public class OrderCreateService {
                 selectedSlot,
                 clusterKey,
                 costPoints,
-                paymentStatus
+                paymentStatus,
+                FractionMask.of(fractionIds)
         );
         OrderKey orderKey = orderCreateRepository.createOrder(orderCreateParams);
+        greenSlotOccupancyIndex.addOrderAfterCommit(new PlannedSlotOrder(
+                orderKey.id(),
+                userId,
+                clusterKey.value(),
+                selectedSlot.pickupFrom(),
+                selectedSlot.pickupTo()
+        ));
 
         if (type == OrderType.SEPARATE) {
             orderCreateRepository.addFractions(orderKey, fractionIds);
         }
+        courierOrderRepository.findFeedOrder(orderKey)
+                .map(CourierFeedEvent::orderAdded)
+                .ifPresent(courierFeedBroadcaster::publishAfterCommit);
 
         addOrderCreatedEvent(
                 orderFlowParamsMapper.mapToOrderCreatedEventParams(userId, orderKey, type, selectedSlot, fractionIds)
@@ -28,14 +28,6 @@ public class OrderInfoService {
         return orderInfoRepository.countDoneGreenOrders(userId);
     }
 
-    public long countDoneSeparateOrdersCompletedInPeriod(
-            long userId,
-            java.time.OffsetDateTime from,
-            java.time.OffsetDateTime to
-    ) {
-        return orderInfoRepository.countDoneSeparateOrdersCompletedInPeriod(userId, from, to);
-    }
-
     public List<ActiveOrderInfo> findActiveOrders(long userId) {
         return orderInfoRepository.findActiveOrdersByUserId(userId, DEFAULT_ACTIVE_ORDERS_LIMIT);
     }
@@ -48,10 +40,6 @@ public class OrderInfoService {
         return orderInfoRepository.countOrdersByFiltersInPeriod(filters);
     }
 
-    public long countDistinctFractionsByFiltersInPeriod(OrderFiltersInPeriod filters) {
-        return orderInfoRepository.countDistinctFractionsByFiltersInPeriod(filters);
-    }
-
     public List<String> findDistinctFractionNamesByFiltersInPeriod(OrderFiltersInPeriod filters) {
         return orderInfoRepository.findDistinctFractionNamesByFiltersInPeriod(filters);
     }
@@ -17,12 +17,14 @@ public interface OrderCreateParamsMapper {
     @Mapping(target = "clusterKey", source = "clusterKey.value")
     @Mapping(target = "costPoints", source = "costPoints")
     @Mapping(target = "paymentStatus", source = "paymentStatus")
+    @Mapping(target = "fractionMask", source = "fractionMask")
     OrderCreateParams toOrderCreateParams(
             long userId,
             OrderType type,
             SlotOption selectedSlot,
             GeoClusterKey clusterKey,
             long costPoints,
-            OrderPaymentStatus paymentStatus
+            OrderPaymentStatus paymentStatus,
+            long fractionMask
     );
 }
@@ -0,0 +1,37 @@
+package ru.nsu.waste.removal.ordering.service.core.service.partition;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Первое обслуживание партиций выполняется синхронно при старте, до приема запросов,
+ * чтобы DDL не конкурировал за блокировки с рабочей нагрузкой; дальше - по расписанию.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.partition-maintenance.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class PartitionMaintenanceJob {
+
+    private final PartitionMaintenanceService partitionMaintenanceService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainPartitionsOnStartup() {
+        partitionMaintenanceService.maintain();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.partition-maintenance.fixed-delay-ms:3600000}",
+            initialDelayString = "${app.jobs.partition-maintenance.initial-delay-ms:3600000}"
+    )
+    public void maintainPartitions() {
+        partitionMaintenanceService.maintain();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.nsu.waste.removal.ordering.service.core.service.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.PartitionedTable;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.TablePartition;
+import ru.nsu.waste.removal.ordering.service.core.repository.partition.PartitionRepository;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Обслуживает месячные партиции order_info и user_action_history: заранее создает партиции
+ * на {@code app.partitions.months-ahead} месяцев вперед, чтобы вставки не упирались в конец диапазона,
+ * и, если задан {@code app.partitions.retention-months}, отсоединяет старые партиции истории
+ * и переносит их в схему archive.
+ * <p>
+ * Отсоединенные события больше не видны пересборкам счетчиков геймификации и рейтинга,
+ * поэтому горизонт хранения должен быть заметно длиннее самого длинного окна рейтинга.
+ * Партиция с событиями, которые еще не прочитал отстающий обработчик, не отсоединяется.
+ */
+@Slf4j
+@Service
+public class PartitionMaintenanceService {
+
+    private final PartitionRepository partitionRepository;
+    private final PartitionMetrics partitionMetrics;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public PartitionMaintenanceService(
+            PartitionRepository partitionRepository,
+            PartitionMetrics partitionMetrics,
+            Clock clock,
+            @Value("${app.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${app.partitions.retention-months:0}") int retentionMonths
+    ) {
+        if (monthsAhead < 1) {
+            throw new IllegalStateException("Partitions months-ahead must be positive, got %s".formatted(monthsAhead));
+        }
+        if (retentionMonths < 0) {
+            throw new IllegalStateException(
+                    "Partitions retention-months must not be negative, got %s".formatted(retentionMonths)
+            );
+        }
+        this.partitionRepository = partitionRepository;
+        this.partitionMetrics = partitionMetrics;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    public void maintain() {
+        YearMonth currentMonth = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+        for (PartitionedTable table : PartitionedTable.values()) {
+            createMissingPartitions(table, currentMonth);
+            if (retentionMonths > 0 && table.retentionSupported()) {
+                detachExpiredPartitions(table, currentMonth.minusMonths(retentionMonths));
+            }
+            partitionMetrics.record(table, partitionRepository.findPartitions(table));
+        }
+    }
+
+    /**
+     * Новая партиция начинается там, где кончается партиция предыдущего месяца, и кончается там,
+     * где начинается следующая. Границы партиций из V1__init.sql заданы без смещения и легли
+     * по полуночи в часовом поясе сессии миграции, поэтому полночь UTC берется, только если соседа нет:
+     * иначе между партициями остался бы разрыв или они пересеклись бы.
+     */
+    private void createMissingPartitions(PartitionedTable table, YearMonth currentMonth) {
+        Map<YearMonth, TablePartition> existing = new HashMap<>();
+        for (TablePartition partition : partitionRepository.findPartitions(table)) {
+            table.parseMonth(partition.name()).ifPresent(month -> existing.put(month, partition));
+        }
+        for (int offset = 0; offset <= monthsAhead; offset++) {
+            YearMonth month = currentMonth.plusMonths(offset);
+            if (existing.containsKey(month)) {
+                continue;
+            }
+            OffsetDateTime from = Optional.ofNullable(existing.get(month.minusMonths(1)))
+                    .map(TablePartition::upperBound)
+                    .orElseGet(() -> startOfMonthUtc(month));
+            OffsetDateTime to = Optional.ofNullable(existing.get(month.plusMonths(1)))
+                    .map(TablePartition::lowerBound)
+                    .orElseGet(() -> startOfMonthUtc(month.plusMonths(1)));
+            String partitionName = table.partitionName(month);
+            partitionRepository.createPartition(table, month, from, to);
+            existing.put(month, new TablePartition(partitionName, false, 0L, from, to));
+            log.info("Created partition {} of {} for [{}, {})", partitionName, table.tableName(), from, to);
+        }
+    }
+
+    private static OffsetDateTime startOfMonthUtc(YearMonth month) {
+        return month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Отсоединяет партиции, целиком лежащие раньше первого хранимого месяца.
+     */
+    private void detachExpiredPartitions(PartitionedTable table, YearMonth firstRetainedMonth) {
+        List<TablePartition> partitions = partitionRepository.findPartitions(table);
+        for (TablePartition partition : partitions) {
+            Optional<YearMonth> month = table.parseMonth(partition.name());
+            if (month.isEmpty() || !month.get().isBefore(firstRetainedMonth)) {
+                continue;
+            }
+            try {
+                detachPartition(table, partition);
+            } catch (RuntimeException exception) {
+                log.error("Failed to detach partition {} of {}", partition.name(), table.tableName(), exception);
+            }
+        }
+    }
+
+    private void detachPartition(PartitionedTable table, TablePartition partition) {
+        if (partition.detachPending()) {
+            partitionRepository.finalizeDetachPartition(table, partition.name());
+        } else {
+            if (partitionRepository.hasUnprocessedEvents(partition.name())) {
+                log.warn("Partition {} of {} still has unprocessed events; detach postponed",
+                        partition.name(), table.tableName());
+                return;
+            }
+            partitionRepository.detachPartitionConcurrently(table, partition.name());
+        }
+        partitionRepository.moveToArchive(partition.name());
+        log.info("Detached partition {} of {} to archive schema", partition.name(), table.tableName());
+    }
+}
@@ -0,0 +1,48 @@
+package ru.nsu.waste.removal.ordering.service.core.service.partition;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.PartitionedTable;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.TablePartition;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Число и суммарный размер партиций секционированных таблиц. Значения обновляются
+ * при каждом обслуживании партиций, чтобы опрос метрик не ходил в каталог БД.
+ */
+@Component
+public class PartitionMetrics {
+
+    private static final String TABLE_TAG = "table";
+
+    private final Map<PartitionedTable, AtomicLong> partitionCounts = new EnumMap<>(PartitionedTable.class);
+    private final Map<PartitionedTable, AtomicLong> partitionSizes = new EnumMap<>(PartitionedTable.class);
+
+    public PartitionMetrics(MeterRegistry meterRegistry) {
+        for (PartitionedTable table : PartitionedTable.values()) {
+            AtomicLong count = new AtomicLong();
+            AtomicLong size = new AtomicLong();
+            Gauge.builder("db.partitions.count", count, AtomicLong::get)
+                    .description("Attached partitions of the partitioned table")
+                    .tag(TABLE_TAG, table.tableName())
+                    .register(meterRegistry);
+            Gauge.builder("db.partitions.size", size, AtomicLong::get)
+                    .description("Total size of attached partitions including indexes and TOAST")
+                    .baseUnit("bytes")
+                    .tag(TABLE_TAG, table.tableName())
+                    .register(meterRegistry);
+            partitionCounts.put(table, count);
+            partitionSizes.put(table, size);
+        }
+    }
+
+    public void record(PartitionedTable table, List<TablePartition> partitions) {
+        partitionCounts.get(table).set(partitions.size());
+        partitionSizes.get(table).set(partitions.stream().mapToLong(TablePartition::sizeBytes).sum());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+/**
+ * Общая часть реализаций: формула шага одна, реализации отличаются только вычислением V*(s).
+ */
+abstract class AbstractLiederRewardCalculator implements LiederRewardCalculator {
+
+    private final double alpha;
+    private final double theta;
+    private final int maxPoints;
+
+    AbstractLiederRewardCalculator(double alpha, double theta, int maxPoints) {
+        if (!(alpha > 0.0 && alpha < 1.0)) {
+            throw new IllegalArgumentException("alpha must be in (0,1)");
+        }
+        if (!(theta > 0.0 && theta < 1.0)) {
+            throw new IllegalArgumentException("theta must be in (0,1)");
+        }
+        if (maxPoints <= 0) {
+            throw new IllegalArgumentException("maxPoints must be > 0");
+        }
+        this.alpha = alpha;
+        this.theta = theta;
+        this.maxPoints = maxPoints;
+    }
+
+    @Override
+    public double alpha() {
+        return alpha;
+    }
+
+    @Override
+    public double theta() {
+        return theta;
+    }
+
+    @Override
+    public int maxPoints() {
+        return maxPoints;
+    }
+
+    @Override
+    public StepResult step(double habitStrength, boolean success) {
+        double s = clamp01(habitStrength);
+
+        // f(s, 1) = 1 - s
+        // f(s, 0) = V*(s(1-alpha)) - V*(s)
+        double f = success ? (1.0 - s) : (vStar(s * (1.0 - alpha)) - vStar(s));
+        int pointsDelta = (int) Math.round(maxPoints * f);
+
+        double newStrength = success
+                ? (s + alpha * (1.0 - s))
+                : (s * (1.0 - alpha));
+
+        return new StepResult(pointsDelta, clamp01(newStrength), f);
+    }
+
+    /**
+     * V*(s) = r_goal - (1-s) * sum_{i=1..n(s;theta)} (1-alpha)^{i-1}
+     * В разности V*(s') - V*(s) константа r_goal сокращается => можно считать r_goal = 0.
+     */
+    final double vStar(double s) {
+        s = clamp01(s);
+        int n = stepsToReachTheta(s);
+        if (n <= 0) {
+            return 0.0;
+        }
+        return -(1.0 - s) * geometricSum(n);
+    }
+
+    /**
+     * n(s;theta): минимальное число успехов, чтобы по динамике
+     * s_{t+1} = s_t + alpha(1 - s_t)
+     * достигнуть theta.
+     */
+    abstract int stepsToReachTheta(double s);
+
+    /**
+     * 1 + (1-alpha) + ... + (1-alpha)^(n-1).
+     */
+    abstract double geometricSum(int n);
+
+    static double clamp01(double x) {
+        if (x < 0.0) {
+            return 0.0;
+        }
+        if (x > 1.0) {
+            return 1.0;
+        }
+        return x;
+    }
+}
@@ -3,86 +3,61 @@ package ru.nsu.waste.removal.ordering.service.core.service.reward;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.mapper.reward.RewardParamsMapper;
-import ru.nsu.waste.removal.ordering.service.core.mapper.user.UserInfoParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.model.event.LiederRewardEventContent;
-import ru.nsu.waste.removal.ordering.service.core.model.event.LiederRewardRequestEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
-import ru.nsu.waste.removal.ordering.service.core.model.user.UserRewardState;
-import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
-import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventRewardParams;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventContentReader;
 import ru.nsu.waste.removal.ordering.service.core.service.reward.param.RewardContentParams;
 
+/**
+ * Шаг модели Лидер для событий с наградой по силе привычки. Сам обработчиком не является: события
+ * сворачиваются {@link UserRewardEventService} вместе с начислениями за эко-задания, чтобы баланс
+ * пользователя менялся строго в порядке событий.
+ */
 @Service
-@Order(15)
 @RequiredArgsConstructor
-public class LiederGamificationService implements UserActionEventHandler {
+public class LiederGamificationService {
 
     private static final long HABIT_STRENGTH_SCALE = 1_000_000L;
-    private static final double DEFAULT_ALPHA = 0.10;
-    private static final double DEFAULT_THETA = 0.90;
-    private static final int DEFAULT_MAX_POINTS = 50;
 
-    private static final LiederOptimizedRewardCalculator CALCULATOR =
-            new LiederOptimizedRewardCalculator(DEFAULT_ALPHA, DEFAULT_THETA, DEFAULT_MAX_POINTS);
-
-    private final UserInfoRepository userInfoRepository;
-    private final UserActionHistoryRepository userActionHistoryRepository;
-    private final UserInfoParamsMapper userInfoParamsMapper;
+    private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
     private final RewardParamsMapper rewardParamsMapper;
     private final ObjectMapper objectMapper;
+    private final UserActionEventContentReader userActionEventContentReader;
+    private final LiederRewardParametersRegistry liederRewardParametersRegistry;
 
-    @Override
     public boolean supports(UserActionHistoryEvent event) {
         return event.pointsDifference() == 0L && isSupportedRewardEventType(event.eventType());
     }
 
-    @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void handle(UserActionHistoryEvent event) {
-        boolean success = extractSuccess(event.eventType(), event.content());
-
-        UserRewardState state = userInfoRepository.findRewardStateForUpdate(event.userId())
-                .orElseThrow(() -> new IllegalStateException(
-                        "User with id = %s is not found".formatted(event.userId())
-                ));
-
-        double oldStrength = fromDbStrength(state.habitStrength());
-        LiederOptimizedRewardCalculator.StepResult step = CALCULATOR.step(oldStrength, success);
+    /**
+     * Применяет награду события к состоянию пользователя и возвращает ее вместе с балансом после события.
+     * Сила привычки хранится в БД с фиксированной точностью, поэтому следующий шаг считается от округленного
+     * значения, как если бы события обрабатывались по одному.
+     */
+    UpdateEventRewardParams applyEvent(UserRewardFold fold, UserActionHistoryEvent event) {
+        boolean success = extractSuccess(event);
+        double oldStrength = fromDbStrength(fold.habitStrength());
+        LiederRewardPolicy policy = liederRewardParametersRegistry.policy(fold.userType(), event.eventType());
+        LiederRewardCalculator.StepResult step = policy.calculator().step(oldStrength, success);
 
         long calculatedDelta = step.pointsDelta();
-        long newTotalPoints = state.totalPoints();
-        long newCurrentPoints = state.currentPoints();
         long appliedDelta;
-
         if (calculatedDelta > 0) {
             appliedDelta = calculatedDelta;
-            newTotalPoints = safeAdd(newTotalPoints, appliedDelta);
-            newCurrentPoints = safeAdd(newCurrentPoints, appliedDelta);
+            fold.credit(appliedDelta);
         } else if (calculatedDelta < 0) {
-            long wantToSubtract = -calculatedDelta;
-            long canSubtract = Math.min(newCurrentPoints, wantToSubtract);
-            appliedDelta = -canSubtract;
-            newCurrentPoints = newCurrentPoints - canSubtract;
+            appliedDelta = -fold.debit(-calculatedDelta);
         } else {
             appliedDelta = 0;
         }
+        fold.updateHabitStrength(toDbStrength(step.newStrength()));
 
-        long newHabitStrength = toDbStrength(step.newStrength());
-        userInfoRepository.updateRewardState(userInfoParamsMapper.mapToUpdateRewardStateParams(
-                event.userId(),
-                newTotalPoints,
-                newCurrentPoints,
-                newHabitStrength
-        ));
-
-        String rewardContentJson = buildRewardContentJson(rewardParamsMapper.mapToRewardContentParams(
+        String rewardContentJson = buildRewardContentJson(policy, rewardParamsMapper.mapToRewardContentParams(
                 success,
                 oldStrength,
                 step.newStrength(),
@@ -90,11 +65,12 @@ public class LiederGamificationService implements UserActionEventHandler {
                 calculatedDelta,
                 appliedDelta
         ));
-
-        userActionHistoryRepository.updateEventRewardById(
+        return userActionHistoryParamsMapper.mapToUpdateEventRewardParams(
                 event.id(),
+                event.createdAt(),
                 rewardContentJson,
-                appliedDelta
+                appliedDelta,
+                fold.currentPoints()
         );
     }
 
@@ -116,20 +92,14 @@ public class LiederGamificationService implements UserActionEventHandler {
         return x;
     }
 
-    private static long safeAdd(long a, long b) {
-        long result = a + b;
-        if (((a ^ result) & (b ^ result)) < 0) {
-            throw new ArithmeticException("long overflow during points update");
-        }
-        return result;
-    }
-
-    private String buildRewardContentJson(RewardContentParams params) {
+    private String buildRewardContentJson(LiederRewardPolicy policy, RewardContentParams params) {
+        LiederRewardCalculator calculator = policy.calculator();
         LiederRewardEventContent content = new LiederRewardEventContent(
                 "LIEDER_OPTIMIZED",
-                DEFAULT_ALPHA,
-                DEFAULT_THETA,
-                DEFAULT_MAX_POINTS,
+                policy.parameterVersion(),
+                calculator.alpha(),
+                calculator.theta(),
+                calculator.maxPoints(),
                 params.success(),
                 params.oldStrength(),
                 params.newStrength(),
@@ -145,23 +115,25 @@ public class LiederGamificationService implements UserActionEventHandler {
         }
     }
 
-    private boolean extractSuccess(UserActionEventType eventType, String contentJson) {
-        if (eventType == UserActionEventType.SORTING_REGULARITY_MISSED) {
+    /**
+     * Признак успеха берется из колонки success без разбора JSON. Если в содержимом нет логического
+     * success, содержимое разбирается как раньше: объект без поля считается неуспехом,
+     * пустое или нечитаемое содержимое - успехом.
+     */
+    private boolean extractSuccess(UserActionHistoryEvent event) {
+        if (event.eventType() == UserActionEventType.SORTING_REGULARITY_MISSED) {
             return false;
         }
-        if (eventType == UserActionEventType.SORTING_REGULARITY_CONFIRMED) {
+        if (event.eventType() == UserActionEventType.SORTING_REGULARITY_CONFIRMED) {
             return true;
         }
-        if (contentJson == null || contentJson.isBlank()) {
-            return true;
-        }
-        try {
-            LiederRewardRequestEventContent content =
-                    objectMapper.readValue(contentJson, LiederRewardRequestEventContent.class);
-            return content.success();
-        } catch (Exception ignored) {
-            return true;
+        Boolean success = event.payload().success();
+        if (success != null) {
+            return success;
         }
+        return userActionEventContentReader.read(event, LiederRewardEventContent.class)
+                .map(LiederRewardEventContent::success)
+                .orElse(true);
     }
 
     private boolean isSupportedRewardEventType(UserActionEventType eventType) {
@@ -0,0 +1,23 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+/**
+ * Шаг "optimized gamification" (Lieder et al.) для параметров alpha, theta и M.
+ * Реализации обязаны возвращать побитово одинаковые результаты.
+ */
+public interface LiederRewardCalculator {
+
+    double alpha();
+
+    double theta();
+
+    int maxPoints();
+
+    StepResult step(double habitStrength, boolean success);
+
+    record StepResult(
+            int pointsDelta,
+            double newStrength,
+            double fValue
+    ) {
+    }
+}
@@ -0,0 +1,6 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+public enum LiederRewardCalculatorType {
+    ANALYTIC,
+    TABLE
+}
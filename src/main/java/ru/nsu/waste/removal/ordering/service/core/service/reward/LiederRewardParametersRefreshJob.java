@@ -0,0 +1,29 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Подхватывает новые версии параметров адаптивной награды без перезапуска.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.lieder-reward-parameters.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class LiederRewardParametersRefreshJob {
+
+    private final LiederRewardParametersRegistry liederRewardParametersRegistry;
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.lieder-reward-parameters.fixed-delay-ms:60000}",
+            initialDelayString = "${app.jobs.lieder-reward-parameters.initial-delay-ms:60000}"
+    )
+    public void refresh() {
+        liederRewardParametersRegistry.refreshIfChanged();
+    }
+}
@@ -0,0 +1,137 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.reward.LiederRewardParameters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+import ru.nsu.waste.removal.ordering.service.core.repository.reward.LiederRewardParametersRepository;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Реестр параметров адаптивной награды из lieder_reward_parameters. Для каждой пары
+ * (тип пользователя, тип события) заранее собран калькулятор, так что обработчик событий только читает
+ * неизменяемый снимок. Перезагрузка собирает новый снимок в стороне и подменяет ссылку на него,
+ * не блокируя потоки обработки событий.
+ * <p>
+ * Пара без собственной настройки получает параметры типа пользователя, а тип пользователя без строк
+ * в таблице - параметры по умолчанию из конфигурации с версией 0.
+ */
+@Component
+public class LiederRewardParametersRegistry {
+
+    private static final int DEFAULT_PARAMETER_VERSION = 0;
+
+    private final LiederRewardParametersRepository liederRewardParametersRepository;
+    private final LiederRewardCalculatorType calculatorType;
+    private final double defaultAlpha;
+    private final double defaultTheta;
+    private final int defaultMaxPoints;
+    private final Object reloadLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    public LiederRewardParametersRegistry(
+            LiederRewardParametersRepository liederRewardParametersRepository,
+            @Value("${app.rewards.lieder.calculator:TABLE}") LiederRewardCalculatorType calculatorType,
+            @Value("${app.rewards.lieder.alpha:0.10}") double defaultAlpha,
+            @Value("${app.rewards.lieder.theta:0.90}") double defaultTheta,
+            @Value("${app.rewards.lieder.max-points:50}") int defaultMaxPoints
+    ) {
+        this.liederRewardParametersRepository = liederRewardParametersRepository;
+        this.calculatorType = calculatorType;
+        this.defaultAlpha = defaultAlpha;
+        this.defaultTheta = defaultTheta;
+        this.defaultMaxPoints = defaultMaxPoints;
+        // Параметры по умолчанию проверяются при старте, а не при первом событии.
+        calculator(defaultAlpha, defaultTheta, defaultMaxPoints);
+    }
+
+    public LiederRewardPolicy policy(UserType userType, UserActionEventType eventType) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload(null);
+        }
+        return current.policies().get(userType).get(eventType);
+    }
+
+    /**
+     * Перезагружает реестр, если в таблице появились новые версии параметров.
+     */
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current != null && current.stamp().equals(liederRewardParametersRepository.findStamp())) {
+            return;
+        }
+        reload(current);
+    }
+
+    private Snapshot reload(Snapshot observed) {
+        synchronized (reloadLock) {
+            if (snapshot != observed) {
+                return snapshot;
+            }
+            String stamp = liederRewardParametersRepository.findStamp();
+            Map<UserType, Map<UserActionEventType, LiederRewardParameters>> parameters = new EnumMap<>(UserType.class);
+            Map<UserType, LiederRewardParameters> userTypeDefaults = new EnumMap<>(UserType.class);
+            for (LiederRewardParameters row : liederRewardParametersRepository.findLatest()) {
+                if (row.eventType() == null) {
+                    userTypeDefaults.put(row.userType(), row);
+                } else {
+                    parameters.computeIfAbsent(row.userType(), userType -> new EnumMap<>(UserActionEventType.class))
+                            .put(row.eventType(), row);
+                }
+            }
+
+            Map<LiederRewardParameters, LiederRewardPolicy> built = new HashMap<>();
+            Map<UserType, Map<UserActionEventType, LiederRewardPolicy>> policies = new EnumMap<>(UserType.class);
+            for (UserType userType : UserType.values()) {
+                LiederRewardParameters userTypeDefault = userTypeDefaults.getOrDefault(
+                        userType,
+                        new LiederRewardParameters(
+                                userType,
+                                null,
+                                DEFAULT_PARAMETER_VERSION,
+                                defaultAlpha,
+                                defaultTheta,
+                                defaultMaxPoints
+                        )
+                );
+                Map<UserActionEventType, LiederRewardParameters> byEventType = parameters.getOrDefault(userType, Map.of());
+                Map<UserActionEventType, LiederRewardPolicy> userTypePolicies = new EnumMap<>(UserActionEventType.class);
+                for (UserActionEventType eventType : UserActionEventType.values()) {
+                    LiederRewardParameters row = byEventType.getOrDefault(eventType, userTypeDefault);
+                    userTypePolicies.put(eventType, built.computeIfAbsent(row, this::policy));
+                }
+                policies.put(userType, userTypePolicies);
+            }
+
+            Snapshot reloaded = new Snapshot(stamp, policies);
+            snapshot = reloaded;
+            return reloaded;
+        }
+    }
+
+    private LiederRewardPolicy policy(LiederRewardParameters parameters) {
+        return new LiederRewardPolicy(
+                parameters.version(),
+                calculator(parameters.alpha(), parameters.theta(), parameters.maxPoints())
+        );
+    }
+
+    private LiederRewardCalculator calculator(double alpha, double theta, int maxPoints) {
+        return switch (calculatorType) {
+            case ANALYTIC -> new LiederOptimizedRewardCalculator(alpha, theta, maxPoints);
+            case TABLE -> LiederTableRewardCalculator.of(alpha, theta, maxPoints);
+        };
+    }
+
+    private record Snapshot(
+            String stamp,
+            Map<UserType, Map<UserActionEventType, LiederRewardPolicy>> policies
+    ) {
+    }
+}
@@ -0,0 +1,12 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+/**
+ * Калькулятор награды, собранный по конкретной версии параметров.
+ *
+ * @param parameterVersion версия параметров; 0 - параметры по умолчанию из конфигурации
+ */
+public record LiederRewardPolicy(
+        int parameterVersion,
+        LiederRewardCalculator calculator
+) {
+}
@@ -0,0 +1,90 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Табличная реализация, побитово совпадающая с {@link LiederOptimizedRewardCalculator}.
+ * <p>
+ * n(s;theta) - ступенчатая невозрастающая функция s (Math.log полумонотонен), поэтому она задается
+ * границами ступеней: thresholds[k] - наименьший double s, для которого аналитическая реализация дает
+ * n(s) <= k. Границы находятся двоичным поиском по битовому представлению s, а геометрические суммы
+ * считаются той же формулой, что и в аналитической реализации. Шаг неудачи сводится к двоичному
+ * поиску по десятку-другому границ без Math.log и Math.pow, а результат совпадает для любого s,
+ * не только для значений силы привычки с фиксированной точностью из БД.
+ * <p>
+ * Таблицы строятся один раз на набор (alpha, theta, maxPoints) и переиспользуются.
+ */
+public final class LiederTableRewardCalculator extends AbstractLiederRewardCalculator {
+
+    private static final Map<Parameters, LiederTableRewardCalculator> CACHE = new ConcurrentHashMap<>();
+
+    private final double[] thresholds;
+    private final double[] geometricSums;
+
+    private LiederTableRewardCalculator(double alpha, double theta, int maxPoints) {
+        super(alpha, theta, maxPoints);
+        LiederOptimizedRewardCalculator analytic = new LiederOptimizedRewardCalculator(alpha, theta, maxPoints);
+        int maxSteps = analytic.stepsToReachTheta(0.0);
+        thresholds = new double[maxSteps + 1];
+        geometricSums = new double[maxSteps + 1];
+        for (int k = 0; k <= maxSteps; k++) {
+            thresholds[k] = lowestStrengthWithinSteps(analytic, k);
+            geometricSums[k] = k == 0 ? 0.0 : analytic.geometricSum(k);
+        }
+    }
+
+    public static LiederTableRewardCalculator of(double alpha, double theta, int maxPoints) {
+        return CACHE.computeIfAbsent(
+                new Parameters(alpha, theta, maxPoints),
+                parameters -> new LiederTableRewardCalculator(alpha, theta, maxPoints)
+        );
+    }
+
+    /**
+     * Наименьшее k, для которого s >= thresholds[k]; границы не возрастают по k, thresholds[maxSteps] = 0.
+     */
+    @Override
+    int stepsToReachTheta(double s) {
+        int low = 0;
+        int high = thresholds.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (s >= thresholds[middle]) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    double geometricSum(int n) {
+        return geometricSums[n];
+    }
+
+    /**
+     * Для неотрицательных double порядок битовых представлений совпадает с порядком чисел.
+     */
+    private static double lowestStrengthWithinSteps(LiederOptimizedRewardCalculator analytic, int steps) {
+        long low = Double.doubleToRawLongBits(0.0);
+        long high = Double.doubleToRawLongBits(1.0);
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (analytic.stepsToReachTheta(Double.longBitsToDouble(middle)) <= steps) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return Double.longBitsToDouble(low);
+    }
+
+    private record Parameters(
+            double alpha,
+            double theta,
+            int maxPoints
+    ) {
+    }
+}
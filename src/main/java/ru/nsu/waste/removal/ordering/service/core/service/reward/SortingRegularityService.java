@@ -2,13 +2,11 @@ package ru.nsu.waste.removal.ordering.service.core.service.reward;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
-import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserGreenSlotContext;
@@ -16,7 +14,6 @@ import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionH
 import ru.nsu.waste.removal.ordering.service.core.repository.user.SortingRegularityWindowRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
-import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 
 import java.time.Clock;
 import java.time.DateTimeException;
@@ -27,25 +24,43 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.TemporalAdjusters;
 import java.util.Map;
+import java.util.OptionalLong;
 
+@Slf4j
 @Service
 @Order(12)
-@RequiredArgsConstructor
 public class SortingRegularityService implements UserActionEventHandler {
 
     private static final long ZERO_POINTS_DIFFERENCE = 0L;
     private static final String STATUS_CONFIRMED = "CONFIRMED";
-    private static final String STATUS_MISSED = "MISSED";
     private static final String ORDER_TYPE_SEPARATE = "SEPARATE";
-    private static final String ORDER_STATUS_DONE = "DONE";
+    private static final String SOURCE_SCHEDULED_JOB = "SCHEDULED_JOB";
 
     private final SortingRegularityWindowRepository sortingRegularityWindowRepository;
     private final UserInfoRepository userInfoRepository;
-    private final OrderInfoService orderInfoService;
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
     private final ObjectMapper objectMapper;
     private final Clock clock;
+    private final int pageSize;
+
+    public SortingRegularityService(
+            SortingRegularityWindowRepository sortingRegularityWindowRepository,
+            UserInfoRepository userInfoRepository,
+            UserActionHistoryRepository userActionHistoryRepository,
+            UserActionHistoryParamsMapper userActionHistoryParamsMapper,
+            ObjectMapper objectMapper,
+            Clock clock,
+            @Value("${app.jobs.sorting-regularity.page-size:1000}") int pageSize
+    ) {
+        this.sortingRegularityWindowRepository = sortingRegularityWindowRepository;
+        this.userInfoRepository = userInfoRepository;
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.userActionHistoryParamsMapper = userActionHistoryParamsMapper;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.pageSize = pageSize;
+    }
 
     @Override
     public boolean supports(UserActionHistoryEvent event) {
@@ -53,9 +68,8 @@ public class SortingRegularityService implements UserActionEventHandler {
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void handle(UserActionHistoryEvent event) {
-        if (!isSeparateDoneOrder(event.content())) {
+        if (!isSeparateDoneOrder(event)) {
             return;
         }
 
@@ -69,34 +83,47 @@ public class SortingRegularityService implements UserActionEventHandler {
         );
     }
 
-    @Transactional
+    /**
+     * Закрывает прошлую неделю для всех пользователей, сгруппированных по часовому поясу адреса.
+     * Окно пояса закрывается страницами пользователей; страница - один запрос в своей транзакции,
+     * поэтому прерванный проход продолжится следующим запуском без повторных событий.
+     * Пояса, прошлая неделя которых уже закрыта, пропускаются без обращения к пользователям.
+     */
     public void syncClosedWeeklyWindows() {
-        for (UserGreenSlotContext context : userInfoRepository.findAllGreenSlotContexts()) {
-            ZoneId userZoneId = resolveUserZoneId(context.timezone());
-            TimeWindow previousClosedWindow = previousClosedWeeklyWindow(userZoneId);
-
-            long separateDoneCount = orderInfoService.countDoneSeparateOrdersCompletedInPeriod(
-                    context.userId(),
-                    previousClosedWindow.start(),
-                    previousClosedWindow.end()
-            );
+        Map<String, OffsetDateTime> sweptWindowStarts = sortingRegularityWindowRepository.findSweptWindowStarts();
+        for (String timezone : userInfoRepository.findUserTimezones()) {
+            TimeWindow previousClosedWindow = previousClosedWeeklyWindow(resolveUserZoneId(timezone));
+            OffsetDateTime sweptWindowStart = sweptWindowStarts.get(timezone);
+            if (sweptWindowStart != null && !sweptWindowStart.isBefore(previousClosedWindow.start())) {
+                continue;
+            }
+            closeWindowForTimezone(timezone, previousClosedWindow);
+        }
+    }
 
-            if (separateDoneCount > 0L) {
-                tryEmitRegularityEventIfWindowIsNew(
-                        context.userId(),
-                        previousClosedWindow,
-                        STATUS_CONFIRMED,
-                        "SCHEDULED_JOB"
-                );
-            } else {
-                tryEmitRegularityEventIfWindowIsNew(
-                        context.userId(),
-                        previousClosedWindow,
-                        STATUS_MISSED,
-                        "SCHEDULED_JOB"
-                );
+    private void closeWindowForTimezone(String timezone, TimeWindow window) {
+        String contentJson = toJson(Map.of(
+                "windowStart", window.start().toString(),
+                "windowEnd", window.end().toString(),
+                "source", SOURCE_SCHEDULED_JOB
+        ));
+        long afterUserId = 0L;
+        while (true) {
+            OptionalLong lastUserId = sortingRegularityWindowRepository.closeWindowForTimezonePage(
+                    timezone,
+                    window.start(),
+                    window.end(),
+                    contentJson,
+                    afterUserId,
+                    pageSize
+            );
+            if (lastUserId.isEmpty()) {
+                break;
             }
+            afterUserId = lastUserId.getAsLong();
         }
+        sortingRegularityWindowRepository.markTimezoneSwept(timezone, window.start());
+        log.debug("Sorting regularity window {} is closed for timezone {}", window.start(), timezone);
     }
 
     private void tryEmitRegularityEventIfWindowIsNew(
@@ -134,17 +161,12 @@ public class SortingRegularityService implements UserActionEventHandler {
         ));
     }
 
-    private boolean isSeparateDoneOrder(String contentJson) {
-        if (contentJson == null || contentJson.isBlank()) {
-            return false;
-        }
-        try {
-            OrderDoneEventContent content = objectMapper.readValue(contentJson, OrderDoneEventContent.class);
-            return ORDER_TYPE_SEPARATE.equalsIgnoreCase(content.type())
-                    && ORDER_STATUS_DONE.equalsIgnoreCase(content.status());
-        } catch (Exception ignored) {
-            return false;
-        }
+    /**
+     * Тип заказа берется из колонки order_type без разбора содержимого. Событие ORDER_DONE пишется
+     * только при выполнении заказа, поэтому отдельная проверка статуса из содержимого не нужна.
+     */
+    private boolean isSeparateDoneOrder(UserActionHistoryEvent event) {
+        return ORDER_TYPE_SEPARATE.equalsIgnoreCase(event.payload().orderType());
     }
 
     private TimeWindow weeklyWindowByTimestamp(OffsetDateTime timestamp, ZoneId userZoneId) {
@@ -3,15 +3,24 @@ package ru.nsu.waste.removal.ordering.service.core.service.reward;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import ru.nsu.waste.removal.ordering.service.core.mapper.history.UserActionHistoryParamsMapper;
 import ru.nsu.waste.removal.ordering.service.core.mapper.user.UserInfoParamsMapper;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventContext;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRewardState;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventBalanceParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.UpdateEventRewardParams;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UpdateRewardStateParams;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 @Service
 @Order(10)
 @RequiredArgsConstructor
@@ -19,36 +28,87 @@ public class UserRewardEventService implements UserActionEventHandler {
 
     private final UserInfoRepository userInfoRepository;
     private final UserInfoParamsMapper userInfoParamsMapper;
+    private final UserActionHistoryRepository userActionHistoryRepository;
+    private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
+    private final LiederGamificationService liederGamificationService;
 
     @Override
     public boolean supports(UserActionHistoryEvent event) {
-        return event.eventType() == UserActionEventType.ECO_TASK_COMPLETED && event.pointsDifference() > 0L;
+        return isEcoTaskReward(event) || liederGamificationService.supports(event);
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void handle(UserActionHistoryEvent event) {
-        UserRewardState rewardState = userInfoRepository.findRewardStateForUpdate(event.userId())
-                .orElseThrow(() -> new IllegalStateException(
-                        "User with id = %s is not found".formatted(event.userId())
-                ));
+        handleBatch(UserActionEventBatch.of(event));
+    }
+
+    /**
+     * Единственный обработчик, меняющий баланс пользователя: начисления за эко-задания и награды Лидер
+     * сворачиваются одним проходом по событиям пользователя в порядке пачки, как при обработке по одному
+     * событию. Строки всех пользователей пачки блокируются одним запросом по возрастанию id и записываются
+     * одним update. Баланс после каждого события записывается в историю: у начислений одним update баланса,
+     * у наград Лидер одним update вместе с наградой. При вставке событие получило баланс до своих очков.
+     */
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        Map<Long, List<UserActionHistoryEvent>> eventsByUserId = batch.eventsByUserId();
+        Map<Long, UserRewardState> statesByUserId =
+                userInfoRepository.findRewardStatesForUpdate(eventsByUserId.keySet());
 
-        long newTotalPoints = safeAdd(rewardState.totalPoints(), event.pointsDifference());
-        long newCurrentPoints = safeAdd(rewardState.currentPoints(), event.pointsDifference());
+        List<UpdateEventBalanceParams> eventBalances = new ArrayList<>(batch.size());
+        List<UpdateEventRewardParams> eventRewards = new ArrayList<>(batch.size());
+        List<UpdateRewardStateParams> rewardStates = new ArrayList<>(eventsByUserId.size());
+        eventsByUserId.forEach((userId, events) -> {
+            UserRewardState rewardState = statesByUserId.get(userId);
+            if (rewardState == null) {
+                throw new IllegalStateException("User with id = %s is not found".formatted(userId));
+            }
+            rewardStates.add(applyUserEvents(
+                    new UserRewardFold(rewardState),
+                    events,
+                    batch.context(),
+                    eventBalances,
+                    eventRewards
+            ));
+        });
 
-        userInfoRepository.updateRewardState(userInfoParamsMapper.mapToUpdateRewardStateParams(
-                event.userId(),
-                newTotalPoints,
-                newCurrentPoints,
-                rewardState.habitStrength()
-        ));
+        userInfoRepository.updateRewardStates(rewardStates);
+        userActionHistoryRepository.updateEventBalances(eventBalances);
+        userActionHistoryRepository.updateEventRewards(eventRewards);
     }
 
-    private static long safeAdd(long a, long b) {
-        long result = a + b;
-        if (((a ^ result) & (b ^ result)) < 0) {
-            throw new ArithmeticException("long overflow during points update");
+    private UpdateRewardStateParams applyUserEvents(
+            UserRewardFold fold,
+            List<UserActionHistoryEvent> events,
+            UserActionEventContext context,
+            List<UpdateEventBalanceParams> eventBalances,
+            List<UpdateEventRewardParams> eventRewards
+    ) {
+        for (UserActionHistoryEvent event : events) {
+            if (isEcoTaskReward(event)) {
+                fold.credit(event.pointsDifference());
+                eventBalances.add(userActionHistoryParamsMapper.mapToUpdateEventBalanceParams(
+                        event.id(),
+                        event.createdAt(),
+                        fold.currentPoints()
+                ));
+            } else {
+                UpdateEventRewardParams eventReward = liederGamificationService.applyEvent(fold, event);
+                eventRewards.add(eventReward);
+                context.recordReward(event.id(), eventReward.pointsDifference());
+            }
         }
-        return result;
+
+        context.recordTotalPoints(fold.userId(), fold.totalPoints());
+        return userInfoParamsMapper.mapToUpdateRewardStateParams(
+                fold.userId(),
+                fold.totalPoints(),
+                fold.currentPoints(),
+                fold.habitStrength()
+        );
+    }
+
+    private static boolean isEcoTaskReward(UserActionHistoryEvent event) {
+        return event.eventType() == UserActionEventType.ECO_TASK_COMPLETED && event.pointsDifference() > 0L;
     }
 }
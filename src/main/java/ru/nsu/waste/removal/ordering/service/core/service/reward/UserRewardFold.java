@@ -0,0 +1,72 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserRewardState;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+
+/**
+ * Баланс и сила привычки пользователя, поверх которых по порядку сворачиваются все его события пачки,
+ * меняющие баланс. Начисления за эко-задания и награды Лидер идут через один снимок, поэтому списание
+ * ограничивается тем балансом, который был у пользователя к этому событию.
+ */
+final class UserRewardFold {
+
+    private final long userId;
+    private final UserType userType;
+    private long totalPoints;
+    private long currentPoints;
+    private long habitStrength;
+
+    UserRewardFold(UserRewardState state) {
+        this.userId = state.userId();
+        this.userType = state.userType();
+        this.totalPoints = state.totalPoints();
+        this.currentPoints = state.currentPoints();
+        this.habitStrength = state.habitStrength();
+    }
+
+    long userId() {
+        return userId;
+    }
+
+    UserType userType() {
+        return userType;
+    }
+
+    long totalPoints() {
+        return totalPoints;
+    }
+
+    long currentPoints() {
+        return currentPoints;
+    }
+
+    long habitStrength() {
+        return habitStrength;
+    }
+
+    void credit(long points) {
+        totalPoints = safeAdd(totalPoints, points);
+        currentPoints = safeAdd(currentPoints, points);
+    }
+
+    /**
+     * Списывает не больше текущего баланса и возвращает фактически списанные очки.
+     */
+    long debit(long points) {
+        long debited = Math.min(currentPoints, points);
+        currentPoints -= debited;
+        return debited;
+    }
+
+    void updateHabitStrength(long habitStrength) {
+        this.habitStrength = habitStrength;
+    }
+
+    private static long safeAdd(long a, long b) {
+        long result = a + b;
+        if (((a ^ result) & (b ^ result)) < 0) {
+            throw new ArithmeticException("long overflow during points update");
+        }
+        return result;
+    }
+}
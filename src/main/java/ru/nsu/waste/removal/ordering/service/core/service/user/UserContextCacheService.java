@@ -0,0 +1,33 @@
+package ru.nsu.waste.removal.ordering.service.core.service.user;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.CacheNames;
+
+/**
+ * Явная инвалидация кэшей контекста пользователя (тип, почтовый индекс, часовой пояс).
+ * Любой код, меняющий адрес или тип пользователя, должен вызвать {@link #evictUser} после изменения;
+ * без этого устаревшее значение живет не дольше TTL из {@code spring.cache.caffeine.spec}.
+ */
+@Service
+public class UserContextCacheService {
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.USER_TYPE, key = "#userId"),
+            @CacheEvict(cacheNames = CacheNames.USER_GREEN_SLOT_CONTEXT, key = "#userId"),
+            @CacheEvict(cacheNames = CacheNames.USER_CLUSTER_CONTEXT, key = "#userId")
+    })
+    public void evictUser(long userId) {
+        // записи удаляются аннотациями
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.USER_TYPE, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.USER_GREEN_SLOT_CONTEXT, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.USER_CLUSTER_CONTEXT, allEntries = true)
+    })
+    public void evictAll() {
+        // записи удаляются аннотациями
+    }
+}
@@ -8,16 +8,16 @@ import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserGreenSlotContext;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.cluster.GeoClusterService;
+import ru.nsu.waste.removal.ordering.service.core.service.level.LevelCatalog;
 
 @Service
 @RequiredArgsConstructor
 public class UserInfoService {
 
     private final UserInfoRepository userInfoRepository;
-    private final LevelRepository levelRepository;
+    private final LevelCatalog levelCatalog;
     private final GeoClusterService geoClusterService;
     private final UserRegistrationPointsService userRegistrationPointsService;
     private final UserInfoParamsMapper userInfoParamsMapper;
@@ -29,7 +29,7 @@ public class UserInfoService {
                 userInfoParamsMapper.mapToAddUserInfoParams(userType.getId(), addressId, personId, initialPoints)
         );
         if (userType == UserType.ACHIEVER) {
-            Level firstLevel = levelRepository.findLowestLevel();
+            Level firstLevel = levelCatalog.findLowest();
             userInfoRepository.addAchieverProfile(userId, firstLevel.id());
         }
 
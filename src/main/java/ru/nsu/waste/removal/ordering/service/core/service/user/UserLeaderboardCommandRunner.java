@@ -0,0 +1,40 @@
+package ru.nsu.waste.removal.ordering.service.core.service.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Обслуживание материализованного рейтинга при старте приложения:
+ * {@code app.leaderboard.command=rebuild} пересобирает бакеты и окна по обработанной истории.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("app.leaderboard.command")
+public class UserLeaderboardCommandRunner implements ApplicationRunner {
+
+    private static final String REBUILD_COMMAND = "rebuild";
+
+    private final UserLeaderboardScoreService userLeaderboardScoreService;
+    private final String command;
+
+    public UserLeaderboardCommandRunner(
+            UserLeaderboardScoreService userLeaderboardScoreService,
+            @Value("${app.leaderboard.command}") String command
+    ) {
+        this.userLeaderboardScoreService = userLeaderboardScoreService;
+        this.command = command;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!REBUILD_COMMAND.equals(command)) {
+            throw new IllegalStateException("Unknown leaderboard command = %s".formatted(command));
+        }
+        long rebuilt = userLeaderboardScoreService.rebuildAll();
+        log.info("Leaderboard scores rebuilt from history of {} users", rebuilt);
+    }
+}
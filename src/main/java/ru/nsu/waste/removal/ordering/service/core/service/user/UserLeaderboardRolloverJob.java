@@ -0,0 +1,26 @@
+package ru.nsu.waste.removal.ordering.service.core.service.user;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(
+        value = "app.jobs.leaderboard-rollover.enabled",
+        havingValue = "true",
+        matchIfMissing = true
+)
+public class UserLeaderboardRolloverJob {
+
+    private final UserLeaderboardScoreService userLeaderboardScoreService;
+
+    @Scheduled(
+            fixedDelayString = "${app.jobs.leaderboard-rollover.fixed-delay-ms:600000}",
+            initialDelayString = "${app.jobs.leaderboard-rollover.initial-delay-ms:60000}"
+    )
+    public void rollOverWindows() {
+        userLeaderboardScoreService.rollOverWindowsIfNeeded();
+    }
+}
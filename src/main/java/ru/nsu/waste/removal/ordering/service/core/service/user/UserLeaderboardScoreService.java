@@ -0,0 +1,221 @@
+package ru.nsu.waste.removal.ordering.service.core.service.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.EventProcessorStateRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.AddLeaderboardScoreParams;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.param.UserHistoryPositionParams;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventHandler;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventPartitionProcessor;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ведет материализованный рейтинг районов: положительные начисления событий складываются
+ * в дневные бакеты (сутки по UTC) и в суммы скользящих окон периодов.
+ * <p>
+ * Окно периода длиной N дней - это N последних суток, включая текущие. Сдвиг окна вычитает
+ * выпавшие бакеты из сумм и выполняется раз в сутки плановой задачей. Чтение рейтинга тоже пробует
+ * сдвинуть устаревшее окно, но только если блокировка состояния окон берется без ожидания:
+ * иначе просмотр страницы вставал бы в очередь за пачками конвейера, а конвейер - за ним.
+ * Обработчик идет после начисления наград, поэтому видит итоговые очки событий пачки.
+ */
+@Slf4j
+@Service
+@Order(22)
+public class UserLeaderboardScoreService implements UserActionEventHandler {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserLeaderboardRepository userLeaderboardRepository;
+    private final UserActionHistoryRepository userActionHistoryRepository;
+    private final EventProcessorStateRepository eventProcessorStateRepository;
+    private final UserInfoRepository userInfoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readPathTransactionTemplate;
+    private final Clock clock;
+    private final int partitions;
+
+    private volatile LocalDate rolledOverDay;
+
+    public UserLeaderboardScoreService(
+            UserLeaderboardRepository userLeaderboardRepository,
+            UserActionHistoryRepository userActionHistoryRepository,
+            EventProcessorStateRepository eventProcessorStateRepository,
+            UserInfoRepository userInfoRepository,
+            PlatformTransactionManager transactionManager,
+            Clock clock,
+            @Value("${app.jobs.user-action-event-processor.partitions:1}") int partitions
+    ) {
+        this.userLeaderboardRepository = userLeaderboardRepository;
+        this.userActionHistoryRepository = userActionHistoryRepository;
+        this.eventProcessorStateRepository = eventProcessorStateRepository;
+        this.userInfoRepository = userInfoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readPathTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readPathTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public boolean supports(UserActionHistoryEvent event) {
+        return true;
+    }
+
+    @Override
+    public void handle(UserActionHistoryEvent event) {
+        handleBatch(UserActionEventBatch.of(event));
+    }
+
+    @Override
+    public void handleBatch(UserActionEventBatch batch) {
+        List<UserActionHistoryEvent> missingEvents = batch.events().stream()
+                .filter(event -> batch.context().findPointsDifference(event).isEmpty())
+                .toList();
+        Map<Long, Long> pointsDifferencesByEventId =
+                userActionHistoryRepository.findPointsDifferencesByEvents(missingEvents);
+
+        List<AddLeaderboardScoreParams> scores = new ArrayList<>();
+        for (UserActionHistoryEvent event : batch.events()) {
+            long pointsDifference = batch.context().findPointsDifference(event)
+                    .orElseGet(() -> pointsDifferencesByEventId.getOrDefault(event.id(), 0L));
+            if (pointsDifference > 0L) {
+                scores.add(new AddLeaderboardScoreParams(
+                        event.userId(),
+                        toDay(event),
+                        pointsDifference
+                ));
+            }
+        }
+        userLeaderboardRepository.addScores(scores);
+    }
+
+    /**
+     * Сдвигает окна периодов к текущим суткам, если это еще не сделано. Вызывается только плановой
+     * задачей: блокировка состояния окон ждет завершения транзакций конвейера.
+     */
+    public void rollOverWindowsIfNeeded() {
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        if (today.equals(rolledOverDay)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(
+                status -> rollOverWindows(today, userLeaderboardRepository.lockWindowStates())
+        );
+        rolledOverDay = today;
+    }
+
+    /**
+     * Для чтения рейтинга: сдвигает устаревшие окна, только если состояние окон сейчас никто не держит.
+     * Попытка идет в отдельной транзакции, чтобы отказ в блокировке не прерывал транзакцию вызывающего;
+     * при отказе рейтинг читается по текущим окнам, а сдвиг сделает плановая задача.
+     */
+    public void tryRollOverWindowsIfNeeded() {
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        if (today.equals(rolledOverDay)) {
+            return;
+        }
+        Boolean rolledOver = readPathTransactionTemplate.execute(status -> {
+            Optional<Map<LeaderboardPeriod, LocalDate>> windowStarts = userLeaderboardRepository.tryLockWindowStates();
+            if (windowStarts.isEmpty()) {
+                status.setRollbackOnly();
+                return false;
+            }
+            rollOverWindows(today, windowStarts.get());
+            return true;
+        });
+        if (Boolean.TRUE.equals(rolledOver)) {
+            rolledOverDay = today;
+        } else {
+            log.debug("Leaderboard window state is locked by the event pipeline, rollover left to the job");
+        }
+    }
+
+    /**
+     * Пересобирает бакеты по уже обработанной истории и заново инициализирует окна.
+     * Курсоры обработчиков блокируются на время пересборки.
+     *
+     * @return число пользователей, чья история просмотрена
+     */
+    @Transactional
+    public long rebuildAll() {
+        Map<String, UserActionEventCursor> cursors = eventProcessorStateRepository.findAllCursorsForUpdate();
+        userLeaderboardRepository.lockWindowStates();
+        userLeaderboardRepository.deleteAll();
+
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        LocalDate minDay = oldestWindowStart(today);
+
+        long rebuilt = 0;
+        long afterUserId = 0;
+        List<Long> userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        while (!userIds.isEmpty()) {
+            List<UserHistoryPositionParams> positions = userIds.stream()
+                    .map(userId -> new UserHistoryPositionParams(
+                            userId,
+                            UserActionEventPartitionProcessor.nextUnprocessedPosition(cursors, userId, partitions)
+                    ))
+                    .toList();
+            userLeaderboardRepository.addDailyScoresFromHistory(positions, minDay);
+
+            rebuilt += userIds.size();
+            afterUserId = userIds.getLast();
+            userIds = userInfoRepository.findUserIdsAfter(afterUserId, CHUNK_SIZE);
+        }
+
+        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+            userLeaderboardRepository.initWindow(period, windowStart(period, today));
+        }
+        rolledOverDay = today;
+        return rebuilt;
+    }
+
+    private void rollOverWindows(LocalDate today, Map<LeaderboardPeriod, LocalDate> windowStarts) {
+        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+            LocalDate targetStart = windowStart(period, today);
+            LocalDate currentStart = windowStarts.get(period);
+            if (currentStart == null) {
+                userLeaderboardRepository.initWindow(period, targetStart);
+            } else if (currentStart.isBefore(targetStart)) {
+                userLeaderboardRepository.shiftWindow(period, currentStart, targetStart);
+            }
+        }
+        userLeaderboardRepository.deleteDailyScoresBefore(oldestWindowStart(today));
+    }
+
+    private static LocalDate windowStart(LeaderboardPeriod period, LocalDate today) {
+        return today.minusDays(period.lengthDays() - 1L);
+    }
+
+    private static LocalDate oldestWindowStart(LocalDate today) {
+        return Arrays.stream(LeaderboardPeriod.values())
+                .map(period -> windowStart(period, today))
+                .min(LocalDate::compareTo)
+                .orElse(today);
+    }
+
+    private static LocalDate toDay(UserActionHistoryEvent event) {
+        return event.createdAt().atZoneSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -12,10 +12,9 @@ import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntr
 import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
 
-import java.time.Clock;
-import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -24,16 +23,16 @@ public class UserLeaderboardService {
     private static final long ZERO_POINTS_DIFFERENCE = 0L;
 
     private final UserLeaderboardRepository userLeaderboardRepository;
+    private final UserLeaderboardScoreService userLeaderboardScoreService;
     private final UserActionHistoryRepository userActionHistoryRepository;
     private final UserActionHistoryParamsMapper userActionHistoryParamsMapper;
     private final ObjectMapper objectMapper;
-    private final Clock clock;
 
     public UserLeaderboard getLeaderboard(long userId, LeaderboardPeriod period, int topLimit) {
-        OffsetDateTime since = OffsetDateTime.now(clock).minusDays(period.lengthDays());
+        userLeaderboardScoreService.tryRollOverWindowsIfNeeded();
         List<UserLeaderboardEntry> topEntries =
-                userLeaderboardRepository.findTopEntriesByUserDistrict(userId, since, topLimit);
-        UserLeaderboardEntry currentUserEntry = userLeaderboardRepository.findRankEntry(userId, since)
+                userLeaderboardRepository.findTopEntriesByUserDistrict(userId, period, topLimit);
+        UserLeaderboardEntry currentUserEntry = userLeaderboardRepository.findRankEntry(userId, period)
                 .orElse(null);
 
         addLeaderboardOpenedEvent(userId, period);
@@ -47,6 +46,12 @@ public class UserLeaderboardService {
         );
     }
 
+    public Optional<Integer> findRankPosition(long userId, LeaderboardPeriod period) {
+        userLeaderboardScoreService.tryRollOverWindowsIfNeeded();
+        return userLeaderboardRepository.findRankEntry(userId, period)
+                .map(UserLeaderboardEntry::rankPosition);
+    }
+
     private void addLeaderboardOpenedEvent(long userId, LeaderboardPeriod period) {
         userActionHistoryRepository.addEvent(userActionHistoryParamsMapper.mapToAddEventParams(
                 userId,
@@ -9,10 +9,10 @@ import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRegistrationResult;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.achievement.AchievementService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecotask.EcoTaskService;
 import ru.nsu.waste.removal.ordering.service.core.service.infocard.InfoCardService;
+import ru.nsu.waste.removal.ordering.service.core.service.level.LevelCatalog;
 
 import java.util.List;
 
@@ -36,7 +36,7 @@ public class UserProfileService {
     private final EcoTaskService ecoTaskService;
     private final AchievementService achievementService;
     private final InfoCardService infoCardService;
-    private final LevelRepository levelRepository;
+    private final LevelCatalog levelCatalog;
 
     public UserRegistrationResult getUserProfile(long userId) {
         UserProfileInfo userProfile = userInfoService.getProfileByUserId(userId);
@@ -89,7 +89,7 @@ public class UserProfileService {
             long currentPoints
     ) {
         if (userType == UserType.ACHIEVER) {
-            Level firstLevel = levelRepository.findLowestLevel();
+            Level firstLevel = levelCatalog.findLowest();
             return new UserRegistrationResult.MotivationBlock(
                     userType.getRussianName(),
                     firstLevel.requiredTotalPoints(),
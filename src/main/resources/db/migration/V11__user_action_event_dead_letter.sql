@@ -0,0 +1,18 @@
+create table if not exists user_action_event_dead_letter
+(
+    id               bigserial primary key,
+    processor_name   varchar(64)  not null,
+    event_id         bigint       not null,
+    event_created_at timestamptz  not null,
+    user_id          bigint       not null,
+    event_type       varchar(64)  not null,
+    handler_name     varchar(128) not null,
+    error_message    text         not null,
+    failed_at        timestamptz  not null default now()
+);
+
+create index if not exists ix_user_action_event_dead_letter_event_id
+    on user_action_event_dead_letter (event_id);
+
+create index if not exists ix_user_action_event_dead_letter_failed_at
+    on user_action_event_dead_letter (failed_at desc);
@@ -0,0 +1,17 @@
+create or replace function notify_user_action_event() returns trigger
+    language plpgsql
+as
+$$
+begin
+    perform pg_notify('user_action_event', '');
+    return null;
+end;
+$$;
+
+drop trigger if exists user_action_history_notify_trg on user_action_history;
+
+create trigger user_action_history_notify_trg
+    after insert
+    on user_action_history
+    for each statement
+execute function notify_user_action_event();
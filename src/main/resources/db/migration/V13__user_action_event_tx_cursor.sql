@@ -0,0 +1,14 @@
+-- Курсор обработчика событий по (tx_id, id): строки с tx_id ниже xmin текущего снимка
+-- уже не могут появиться задним числом, поэтому события не теряются при позднем коммите.
+-- Существующие строки получают tx_id = 0 и обрабатываются раньше всех новых.
+alter table if exists user_action_history
+    add column if not exists tx_id xid8 not null default '0';
+
+alter table if exists user_action_history
+    alter column tx_id set default pg_current_xact_id();
+
+create index if not exists ix_uah_tx_id_id
+    on user_action_history (tx_id, id);
+
+alter table if exists event_processor_state
+    add column if not exists last_tx_id xid8 not null default '0';
@@ -0,0 +1,19 @@
+-- Проекция счетчиков геймификации, которую инкрементально ведет обработчик событий.
+-- Счетчики событий соответствуют истории до курсора обработчика, счетчики заказов - таблице order_info.
+-- separate_fraction_mask: бит (fraction_id - 1) выставлен, если фракция встречалась в выполненном
+-- раздельном заказе; идентификаторы фракций укладываются в 63 бита.
+create table if not exists user_gamification_counters
+(
+    user_id                bigint      primary key,
+    done_orders            bigint      not null default 0,
+    done_separate_orders   bigint      not null default 0,
+    done_green_orders      bigint      not null default 0,
+    separate_fraction_mask bigint      not null default 0,
+    level_ups              bigint      not null default 0,
+    leaderboard_opens      bigint      not null default 0,
+    eco_profile_opens      bigint      not null default 0,
+    info_card_views        bigint      not null default 0,
+    updated_at             timestamptz not null default now(),
+    constraint user_gamification_counters_user_id_fk
+        foreign key (user_id) references user_info (id) on delete cascade
+);
@@ -0,0 +1,38 @@
+-- Материализованный рейтинг района (postal_code), который инкрементально ведет обработчик событий.
+-- leaderboard_daily_score: положительные начисления пользователя за сутки (UTC), хранятся за самое длинное окно.
+-- leaderboard_window_score: суммы за скользящее окно периода, из них без сканирования истории
+-- отвечают топ района и место пользователя.
+-- leaderboard_window_state: первый день окна каждого периода; суммы окна учитывают бакеты начиная с этого дня.
+create table if not exists leaderboard_daily_score
+(
+    postal_code varchar(16) not null,
+    user_id     bigint      not null,
+    day         date        not null,
+    score       bigint      not null,
+    primary key (postal_code, day, user_id),
+    constraint leaderboard_daily_score_user_id_fk
+        foreign key (user_id) references user_info (id) on delete cascade
+);
+
+create index if not exists ix_leaderboard_daily_score_day
+    on leaderboard_daily_score (day);
+
+create table if not exists leaderboard_window_state
+(
+    period       varchar(16) primary key,
+    window_start date        not null
+);
+
+create table if not exists leaderboard_window_score
+(
+    period      varchar(16) not null,
+    postal_code varchar(16) not null,
+    user_id     bigint      not null,
+    score       bigint      not null,
+    primary key (period, postal_code, user_id),
+    constraint leaderboard_window_score_user_id_fk
+        foreign key (user_id) references user_info (id) on delete cascade
+);
+
+create index if not exists ix_leaderboard_window_score_rank
+    on leaderboard_window_score (period, postal_code, score desc, user_id);
@@ -0,0 +1,3 @@
+-- Схема для партиций user_action_history, отсоединенных по горизонту хранения (app.partitions.retention-months).
+-- Партиции остаются обычными таблицами: их можно выгрузить или удалить вручную.
+create schema if not exists archive;
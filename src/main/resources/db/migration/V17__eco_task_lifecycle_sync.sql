@@ -0,0 +1,110 @@
+-- Синхронизация жизненного цикла эко-заданий за один вызов для любого числа пользователей:
+-- просроченные назначения помечаются EXPIRED, затем каждому пользователю добавляются задания его типа
+-- до min(p_active_limit, числа активных заданий типа). Сначала назначаются задания, которых
+-- у пользователя еще не было, затем ранее не выполненные; внутри группы - по возрастанию id.
+-- Срок действия: WEEKLY - до ближайшего воскресенья 23:59:59, MONTHLY - до последнего дня месяца
+-- 23:59:59 по часовому поясу адреса пользователя (неизвестный PostgreSQL пояс считается UTC).
+create or replace function known_timezone_or_utc(p_timezone text) returns text
+    language plpgsql
+    stable
+as
+$$
+begin
+    perform now() at time zone p_timezone;
+    return p_timezone;
+exception
+    when others then
+        return 'UTC';
+end;
+$$;
+
+create or replace function sync_eco_task_lifecycle(
+    p_user_ids bigint[],
+    p_now timestamptz,
+    p_active_limit int
+) returns int
+    language plpgsql
+as
+$$
+declare
+    v_assigned int;
+begin
+    update user_eco_task
+    set status = 'EXPIRED'
+    where user_id = any (p_user_ids)
+      and status = 'ASSIGNED'
+      and expired_at < p_now;
+
+    with target_user as (select ui.id      as user_id,
+                                ui.type_id as user_type_id,
+                                a.timezone
+                         from user_info ui
+                                  join address a on a.id = ui.address_id
+                         where ui.id = any (p_user_ids)),
+         user_zone as (select tu.user_id,
+                              tu.user_type_id,
+                              zone.name as zone
+                       from target_user tu
+                                join (select distinct timezone,
+                                                      known_timezone_or_utc(timezone) as name
+                                      from target_user) zone on zone.timezone = tu.timezone),
+         available as (select uz.user_id,
+                              uz.zone,
+                              et.id                                  as eco_task_id,
+                              et.period,
+                              count(*) over (partition by uz.user_id) as available_count
+                       from user_zone uz
+                                join eco_task et on et.user_type_id = uz.user_type_id and et.is_active),
+         history as (select uet.user_id,
+                            uet.eco_task_id,
+                            bool_or(uet.status = 'ASSIGNED') as active,
+                            bool_or(uet.status = 'DONE')     as done
+                     from user_eco_task uet
+                     where uet.user_id = any (p_user_ids)
+                     group by uet.user_id, uet.eco_task_id),
+         active_count as (select h.user_id,
+                                 count(*) filter (where h.active) as active_count
+                          from history h
+                          group by h.user_id),
+         candidate as (select av.user_id,
+                              av.eco_task_id,
+                              av.period,
+                              av.zone,
+                              p_now at time zone av.zone                               as local_now,
+                              row_number() over (partition by av.user_id
+                                  order by h.eco_task_id is not null, av.eco_task_id) as candidate_rank,
+                              least(p_active_limit, av.available_count)
+                                  - coalesce(ac.active_count, 0)                      as missing_count
+                       from available av
+                                left join history h
+                                          on h.user_id = av.user_id and h.eco_task_id = av.eco_task_id
+                                left join active_count ac on ac.user_id = av.user_id
+                       where not coalesce(h.active, false)
+                         and not coalesce(h.done, false))
+    insert
+    into user_eco_task(user_id, eco_task_id, status, assigned_at, expired_at)
+    select c.user_id,
+           c.eco_task_id,
+           'ASSIGNED',
+           p_now,
+           case
+               when c.period = 'WEEKLY' and bound.week_end >= c.local_now then bound.week_end
+               when c.period = 'WEEKLY' then bound.week_end + interval '7 days'
+               when bound.month_end >= c.local_now then bound.month_end
+               else bound.next_month_end
+               end at time zone c.zone
+    from candidate c
+             cross join lateral (select c.local_now::date
+                                            + (7 - extract(isodow from c.local_now)::int) % 7
+                                            + time '23:59:59'                                     as week_end,
+                                        (date_trunc('month', c.local_now) + interval '1 month - 1 day')::date
+                                            + time '23:59:59'                                     as month_end,
+                                        (date_trunc('month', c.local_now) + interval '2 months - 1 day')::date
+                                            + time '23:59:59'                                     as next_month_end) bound
+    where c.candidate_rank <= c.missing_count
+    on conflict do nothing;
+
+    get diagnostics v_assigned = row_count;
+    return v_assigned;
+end;
+$$;
@@ -0,0 +1,4 @@
+-- Индекс фоновой просрочки назначений: выборка самых старых просроченных ASSIGNED без скана таблицы.
+create index if not exists ix_user_eco_task_assigned_expired_at
+    on user_eco_task (expired_at)
+    where status = 'ASSIGNED';
@@ -0,0 +1,71 @@
+-- Прогресс назначений эко-заданий, который инкрементально ведет обработчик событий по скомпилированным
+-- правилам eco_task.rule, так что проверка выполнения не требует агрегирующих запросов.
+-- progress: значение, сравниваемое с rule.target (число заказов или действий, число различных фракций).
+-- fraction_mask: бит (fraction_id - 1) выставлен, если фракция уже засчитана; идентификаторы фракций
+-- укладываются в 63 бита, как и в user_gamification_counters.
+-- backfilled_until: события раньше этого момента уже учтены при заполнении прогресса по сырым таблицам.
+create table if not exists user_eco_task_progress
+(
+    user_eco_task_id bigint primary key,
+    progress         bigint      not null default 0,
+    fraction_mask    bigint      not null default 0,
+    backfilled_until timestamptz,
+    updated_at       timestamptz not null default now(),
+    constraint user_eco_task_progress_user_eco_task_id_fk
+        foreign key (user_eco_task_id) references user_eco_task (id) on delete cascade
+);
+
+-- Активные на момент миграции назначения получают прогресс, посчитанный так же, как его раньше считали
+-- запросы при каждом событии. События до backfilled_until обработчик для них больше не учитывает,
+-- поэтому еще не обработанные события не засчитываются дважды.
+insert into user_eco_task_progress(user_eco_task_id, progress, fraction_mask, backfilled_until)
+select uet.id,
+       case et.rule ->> 'type'
+           when 'ORDER_COUNT' then o.done_orders
+           when 'DISTINCT_FRACTIONS' then f.distinct_fractions
+           else a.actions
+           end,
+       coalesce(f.fraction_mask, 0),
+       b.backfilled_until
+from user_eco_task uet
+         join eco_task et on et.id = uet.eco_task_id
+         cross join (select now() as backfilled_until) b
+         cross join lateral (
+    select count(*) as done_orders
+    from order_info oi
+    where oi.user_id = uet.user_id
+      and oi.status = 'DONE'
+      and coalesce(oi.completed_at, oi.created_at) >= uet.assigned_at
+      and coalesce(oi.completed_at, oi.created_at) <= uet.expired_at
+      and coalesce(oi.completed_at, oi.created_at) < b.backfilled_until
+      and (et.rule -> 'filters' ->> 'type' is null or oi.type = et.rule -> 'filters' ->> 'type')
+      and (et.rule -> 'filters' ->> 'green_chosen' is null
+        or oi.green_chosen = cast(et.rule -> 'filters' ->> 'green_chosen' as boolean))
+    ) o
+         cross join lateral (
+    select count(distinct owf.fraction_id)                                   as distinct_fractions,
+           bit_or(cast(1 as bigint) << cast(owf.fraction_id - 1 as integer)) as fraction_mask
+    from order_info oi
+             join order_waste_fraction owf
+                  on owf.order_id = oi.id
+                      and owf.order_created_at = oi.created_at
+    where oi.user_id = uet.user_id
+      and oi.status = 'DONE'
+      and coalesce(oi.completed_at, oi.created_at) >= uet.assigned_at
+      and coalesce(oi.completed_at, oi.created_at) <= uet.expired_at
+      and coalesce(oi.completed_at, oi.created_at) < b.backfilled_until
+      and (et.rule -> 'filters' ->> 'type' is null or oi.type = et.rule -> 'filters' ->> 'type')
+      and (et.rule -> 'filters' ->> 'green_chosen' is null
+        or oi.green_chosen = cast(et.rule -> 'filters' ->> 'green_chosen' as boolean))
+    ) f
+         cross join lateral (
+    select count(*) as actions
+    from user_action_history uah
+    where uah.user_id = uet.user_id
+      and uah.event_type = coalesce(et.rule -> 'filters' ->> 'event_type', et.trigger_event)
+      and uah.created_at >= uet.assigned_at
+      and uah.created_at <= uet.expired_at
+      and uah.created_at < b.backfilled_until
+    ) a
+where uet.status = 'ASSIGNED'
+on conflict (user_eco_task_id) do nothing;
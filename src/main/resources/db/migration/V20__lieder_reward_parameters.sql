@@ -0,0 +1,25 @@
+-- Параметры адаптивной награды (Lieder et al.) по типу пользователя и, при необходимости, типу события.
+-- Строки не изменяются: новая настройка добавляется строкой со следующей version, а действующей считается
+-- последняя версия для (user_type_id, event_type). Версия записывается в содержимое события награды,
+-- поэтому любую начисленную награду можно пересчитать по тем же параметрам.
+-- event_type = null - параметры типа пользователя для событий без собственной настройки.
+create table if not exists lieder_reward_parameters
+(
+    id           serial primary key,
+    user_type_id int              not null,
+    event_type   varchar(64),
+    version      int              not null check ( version > 0 ),
+    alpha        double precision not null check ( alpha > 0 and alpha < 1 ),
+    theta        double precision not null check ( theta > 0 and theta < 1 ),
+    max_points   int              not null check ( max_points > 0 ),
+    created_at   timestamptz      not null default now(),
+    constraint lieder_reward_parameters_user_type_id_fk foreign key (user_type_id) references user_type (id)
+);
+
+create unique index if not exists lieder_reward_parameters_version_idx
+    on lieder_reward_parameters (user_type_id, coalesce(event_type, ''), version);
+
+insert into lieder_reward_parameters (user_type_id, event_type, version, alpha, theta, max_points)
+select ut.id, null, 1, 0.10, 0.90, 50
+from user_type ut
+on conflict do nothing;
@@ -0,0 +1,14 @@
+-- Отметки закрытия недельных окон регулярности сортировки: фоновая задача закрывает окно сразу для всех
+-- пользователей часового пояса и пропускает пояса, прошлая неделя которых уже закрыта.
+-- timezone - значение address.timezone как есть, window_start - начало последнего закрытого окна.
+create table if not exists sorting_regularity_sweep
+(
+    timezone     text primary key,
+    window_start timestamptz not null,
+    updated_at   timestamptz not null default now()
+);
+
+-- Проверка "был ли выполненный раздельный заказ в окне" для пачки пользователей без чтения их остальных заказов.
+create index if not exists ix_order_info_done_separate_completed
+    on order_info (user_id, (coalesce(completed_at, created_at)))
+    where status = 'DONE' and type = 'SEPARATE';
@@ -0,0 +1,19 @@
+-- Баланс пользователя (current_points) сразу после события, записанный в момент записи строки.
+-- При вставке события сохраняется текущий баланс пользователя; обработчик, который применяет очки события
+-- к балансу, перезаписывает его точным значением после применения. Лента истории читает баланс из строки
+-- и не восстанавливает его проходом от текущего баланса назад, поэтому страница любой глубины стоит O(страницы).
+alter table if exists user_action_history
+    add column if not exists balance_after bigint;
+
+-- Уже записанные события здесь не заполняются: один update всей истории внутри транзакции миграции
+-- держал бы блокировки строк всей таблицы и удвоил бы число мертвых строк. Лента для строк без снимка
+-- берет ближайший более ранний снимок, а сами снимки заполняются порциями по пользователям командой
+-- app.history.command=backfill-balances (UserHistoryCommandRunner).
+
+-- Покрывающий индекс ленты истории: ключ совпадает с порядком keyset-пагинации (created_at, id),
+-- а фильтр по типу и знаку очков и баланс берутся из индекса. Заменяет ix_uah_user_created_at с тем же ключом.
+create index if not exists ix_uah_user_history
+    on user_action_history (user_id, created_at desc, id desc)
+    include (event_type, points_difference, balance_after);
+
+drop index if exists ix_uah_user_created_at;
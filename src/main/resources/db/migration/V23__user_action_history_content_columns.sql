@@ -0,0 +1,19 @@
+-- Часто проверяемые поля содержимого события вынесены в вычисляемые колонки: обработчики и запросы
+-- читают их без разбора JSON. Значение другого типа JSON (или отсутствующее поле) дает null,
+-- поэтому вставка произвольного содержимого не ломается на приведении типа.
+-- success - признак успеха действия (запросы наград, регулярность сортировки, содержимое награды Lieder);
+-- order_type и green_chosen - тип заказа и выбор зеленого слота в событиях заказа.
+-- Колонки добавляются одним alter table: каждая вычисляемая stored-колонка переписывает все партиции
+-- под ACCESS EXCLUSIVE, а в одной команде перезапись выполняется один раз.
+alter table if exists user_action_history
+    add column if not exists success boolean generated always as (
+        case when jsonb_typeof(content -> 'success') = 'boolean' then cast(content ->> 'success' as boolean) end
+        ) stored,
+    add column if not exists order_type varchar(32) generated always as (
+        case when jsonb_typeof(content -> 'type') = 'string' then cast(content ->> 'type' as varchar(32)) end
+        ) stored,
+    add column if not exists green_chosen boolean generated always as (
+        case
+            when jsonb_typeof(content -> 'greenChosen') = 'boolean'
+                then cast(content ->> 'greenChosen' as boolean) end
+        ) stored;
@@ -0,0 +1,40 @@
+-- Лента заказов курьера читается только из order_info: заказ при создании получает снимок адреса
+-- пользователя (city, detailed_address) и маску фракций.
+-- fraction_mask: бит (fraction_id - 1) выставлен, если фракция выбрана в заказе; идентификаторы фракций
+-- укладываются в 63 бита, как и в user_gamification_counters. Названия фракций подставляются
+-- из waste_fraction по маске, поэтому их переименование сразу видно в ленте.
+alter table order_info
+    add column if not exists city             text,
+    add column if not exists detailed_address text,
+    add column if not exists fraction_mask    bigint not null default 0;
+
+update order_info oi
+set city             = a.city,
+    detailed_address = a.detailed_address
+from user_info ui
+         join address a on a.id = ui.address_id
+where ui.id = oi.user_id;
+
+update order_info oi
+set fraction_mask = f.fraction_mask
+from (select owf.order_id,
+             owf.order_created_at,
+             bit_or(cast(1 as bigint) << cast(owf.fraction_id - 1 as integer)) as fraction_mask
+      from order_waste_fraction owf
+      group by owf.order_id, owf.order_created_at) f
+where f.order_id = oi.id
+  and f.order_created_at = oi.created_at;
+
+-- Индексы групп содержат все колонки ленты, так что доступные и назначенные заказы читаются
+-- index-only сканом в порядке (pickup_from, pickup_to, created_at) без сортировки.
+drop index if exists ix_order_info_available_grouping;
+create index if not exists ix_order_info_available_grouping
+    on order_info (postal_code, pickup_from, pickup_to, created_at)
+    include (id, user_id, type, status, green_chosen, fraction_mask, city, detailed_address)
+    where status = 'NEW' and courier_id is null;
+
+drop index if exists ix_order_info_assigned_grouping;
+create index if not exists ix_order_info_assigned_grouping
+    on order_info (courier_id, pickup_from, pickup_to, created_at)
+    include (id, user_id, postal_code, type, status, green_chosen, fraction_mask, city, detailed_address)
+    where status = 'ASSIGNED';
@@ -9,7 +9,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 		"spring.datasource.driver-class-name=org.h2.Driver",
 		"spring.datasource.username=sa",
 		"spring.datasource.password=",
-		"app.jobs.user-action-event-processor.enabled=false"
+		"app.jobs.user-action-event-processor.enabled=false",
+		"app.jobs.partition-maintenance.enabled=false",
+		"app.jobs.green-slot-index.enabled=false",
+		"app.jobs.eco-task-rules.enabled=false",
+		"app.jobs.lieder-reward-parameters.enabled=false",
+		"app.jobs.level-catalog.enabled=false"
 })
 class WasteRemovalOrderingServiceTests {
 
@@ -10,9 +10,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
 import ru.nsu.waste.removal.ordering.service.app.constant.AttributeNames;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderGroupActionForm;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRunActionForm;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierOrderGroupTakeViewModel;
 import ru.nsu.waste.removal.ordering.service.core.facade.CourierFacade;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -36,12 +39,9 @@ class CourierControllerTest {
     @Test
     void takeOrderGroup_withValidForm_setsSuccessFlashAndRedirects() {
         long courierId = 77L;
-        CourierOrderGroupActionForm form = new CourierOrderGroupActionForm();
-        form.setClusterKey("630000");
-        form.setPickupFrom(OffsetDateTime.parse("2026-03-21T10:00:00+07:00"));
-        form.setPickupTo(OffsetDateTime.parse("2026-03-21T12:00:00+07:00"));
-        form.setExpectedOrderCount(2);
+        CourierOrderGroupActionForm form = groupForm();
         when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.takeOrderGroup(courierId, form)).thenReturn(new CourierOrderGroupTakeViewModel(2, 2, null));
 
         RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
         String view = courierController.takeOrderGroup(courierId, form, redirectAttributes);
@@ -54,6 +54,51 @@ class CourierControllerTest {
         verify(courierFacade).takeOrderGroup(courierId, form);
     }
 
+    @Test
+    void takeOrderGroup_whenPartOfGroupVanished_offersRemainingOrders() {
+        long courierId = 77L;
+        CourierOrderGroupActionForm form = groupForm();
+        CourierOrderGroupTakeViewModel.CourierOrderGroupOfferViewModel offer =
+                new CourierOrderGroupTakeViewModel.CourierOrderGroupOfferViewModel(
+                        form.getClusterKey(),
+                        form.getPickupFrom(),
+                        form.getPickupTo(),
+                        List.of(new CourierOrderGroupTakeViewModel.CourierOrderKeyViewModel(
+                                2L,
+                                form.getOrderCreatedAts().get(1)
+                        ))
+                );
+        when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.takeOrderGroup(courierId, form)).thenReturn(new CourierOrderGroupTakeViewModel(2, 0, offer));
+
+        RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
+        String view = courierController.takeOrderGroup(courierId, form, redirectAttributes);
+
+        assertEquals("redirect:/courier/77/home", view);
+        assertEquals(
+                "Часть заказов группы уже недоступна: свободно 1 из 2",
+                redirectAttributes.getFlashAttributes().get(AttributeNames.ERROR_MESSAGE)
+        );
+        assertEquals(offer, redirectAttributes.getFlashAttributes().get(AttributeNames.GROUP_TAKE_OFFER));
+    }
+
+    @Test
+    void takeOrderGroup_whenRemainingOrdersTaken_reportsTakenOfRequested() {
+        long courierId = 77L;
+        CourierOrderGroupActionForm form = groupForm();
+        form.setAcceptPartial(true);
+        when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.takeOrderGroup(courierId, form)).thenReturn(new CourierOrderGroupTakeViewModel(2, 1, null));
+
+        RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
+        courierController.takeOrderGroup(courierId, form, redirectAttributes);
+
+        assertEquals(
+                "В работу взято 1 из 2 заказов группы",
+                redirectAttributes.getFlashAttributes().get(AttributeNames.SUCCESS_MESSAGE)
+        );
+    }
+
     @Test
     void takeOrderGroup_withValidationErrors_setsErrorFlashAndRedirects() {
         long courierId = 77L;
@@ -70,4 +115,75 @@ class CourierControllerTest {
         );
         verifyNoInteractions(courierFacade);
     }
+
+    @Test
+    void completeOrderGroup_whenCompleted_setsSuccessFlashAndRedirects() {
+        long courierId = 77L;
+        CourierOrderGroupActionForm form = groupForm();
+        when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.completeOrderGroup(courierId, form)).thenReturn(2);
+
+        RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
+        String view = courierController.completeOrderGroup(courierId, form, redirectAttributes);
+
+        assertEquals("redirect:/courier/77/home", view);
+        assertEquals(
+                "Выполненными отмечено 2 заказов",
+                redirectAttributes.getFlashAttributes().get(AttributeNames.SUCCESS_MESSAGE)
+        );
+    }
+
+    @Test
+    void takeRun_whenTaken_setsSuccessFlashAndRedirectsToPanel() {
+        long courierId = 77L;
+        CourierRunActionForm form = new CourierRunActionForm();
+        form.setOrderIds(List.of(1L, 2L));
+        form.setOrderCreatedAts(List.of(
+                OffsetDateTime.parse("2026-03-20T08:00:00Z"),
+                OffsetDateTime.parse("2026-03-20T08:05:00Z")
+        ));
+        when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.takeRun(courierId, form)).thenReturn(2);
+
+        RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
+        String view = courierController.takeRun(courierId, form, redirectAttributes);
+
+        assertEquals("redirect:/courier/77/home", view);
+        assertEquals(
+                "В работу взят маршрут из 2 заказов",
+                redirectAttributes.getFlashAttributes().get(AttributeNames.SUCCESS_MESSAGE)
+        );
+    }
+
+    @Test
+    void takeRun_whenRunChanged_setsErrorFlashAndRedirectsBackToRun() {
+        long courierId = 77L;
+        CourierRunActionForm form = new CourierRunActionForm();
+        when(validator.validate(form)).thenReturn(Set.of());
+        when(courierFacade.takeRun(courierId, form)).thenThrow(
+                new IllegalStateException("Часть заказов маршрута уже недоступна, постройте маршрут заново")
+        );
+
+        RedirectAttributesModelMap redirectAttributes = new RedirectAttributesModelMap();
+        String view = courierController.takeRun(courierId, form, redirectAttributes);
+
+        assertEquals("redirect:/courier/77/run", view);
+        assertEquals(
+                "Часть заказов маршрута уже недоступна, постройте маршрут заново",
+                redirectAttributes.getFlashAttributes().get(AttributeNames.ERROR_MESSAGE)
+        );
+    }
+
+    private static CourierOrderGroupActionForm groupForm() {
+        CourierOrderGroupActionForm form = new CourierOrderGroupActionForm();
+        form.setClusterKey("630000");
+        form.setPickupFrom(OffsetDateTime.parse("2026-03-21T10:00:00+07:00"));
+        form.setPickupTo(OffsetDateTime.parse("2026-03-21T12:00:00+07:00"));
+        form.setOrderIds(List.of(1L, 2L));
+        form.setOrderCreatedAts(List.of(
+                OffsetDateTime.parse("2026-03-20T10:00:00+07:00"),
+                OffsetDateTime.parse("2026-03-20T11:00:00+07:00")
+        ));
+        return form;
+    }
 }
@@ -2,22 +2,33 @@ package ru.nsu.waste.removal.ordering.service.core.facade;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierOrderGroupActionForm;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierFeedEventViewModel;
+import ru.nsu.waste.removal.ordering.service.app.view.CourierOrderGroupTakeViewModel;
 import ru.nsu.waste.removal.ordering.service.app.view.CourierPanelViewModel;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroup;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupTake;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierPanel;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierProfileInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierFeedBroadcaster;
 import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.courier.CourierPanelService;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -33,6 +44,9 @@ class CourierFacadeTest {
     @Mock
     private CourierInfoService courierInfoService;
 
+    @Mock
+    private CourierFeedBroadcaster courierFeedBroadcaster;
+
     @InjectMocks
     private CourierFacade courierFacade;
 
@@ -94,14 +108,18 @@ class CourierFacadeTest {
                 new CourierProfileInfo(courierId, "Иванов Иван Иванович", "630000", "Asia/Novosibirsk", 40L)
         );
 
+        when(courierFeedBroadcaster.currentVersion("630000")).thenReturn(7L);
+
         CourierPanelViewModel viewModel = courierFacade.getPanel(courierId);
 
+        assertEquals(7L, viewModel.feedVersion());
         assertEquals(1, viewModel.availableOrderGroups().size());
         CourierPanelViewModel.CourierOrderGroupViewModel group = viewModel.availableOrderGroups().getFirst();
         assertEquals("Взять все 2 заказов", group.takeActionLabel());
         assertEquals(OffsetDateTime.parse("2026-03-03T14:00:00+07:00"), group.pickupFrom());
         assertEquals(OffsetDateTime.parse("2026-03-03T16:00:00+07:00"), group.pickupTo());
         assertEquals(2, group.ordersCount());
+        assertEquals("630000|2026-03-03T07:00:00Z|2026-03-03T09:00:00Z", group.groupKey());
 
         CourierPanelViewModel.CourierOrderViewModel firstOrderView = group.orders().getFirst();
         assertEquals("Новый", firstOrderView.status());
@@ -112,7 +130,8 @@ class CourierFacadeTest {
     @Test
     void takeOrderGroup_withInvalidForm_throwsValidationErrorBeforeServiceCall() {
         CourierOrderGroupActionForm form = new CourierOrderGroupActionForm();
-        form.setExpectedOrderCount(3);
+        form.setOrderIds(List.of(1L));
+        form.setOrderCreatedAts(List.of(OffsetDateTime.parse("2026-03-20T10:00:00+07:00")));
 
         IllegalStateException exception = assertThrows(
                 IllegalStateException.class,
@@ -122,20 +141,111 @@ class CourierFacadeTest {
     }
 
     @Test
-    void takeOrderGroup_withValidForm_callsService() {
+    void takeOrderGroup_withValidForm_passesOrderKeysToService() {
+        long courierId = 100L;
+        CourierOrderGroupActionForm form = groupForm();
+        List<OrderKey> orderKeys = List.of(
+                new OrderKey(1L, form.getOrderCreatedAts().get(0)),
+                new OrderKey(2L, form.getOrderCreatedAts().get(1))
+        );
+        when(courierPanelService.takeOrderGroup(eq(courierId), any(), eq(orderKeys), eq(false)))
+                .thenReturn(new CourierOrderGroupTake(2, orderKeys, orderKeys));
+
+        CourierOrderGroupTakeViewModel take = courierFacade.takeOrderGroup(courierId, form);
+
+        assertEquals(2, take.requestedCount());
+        assertEquals(2, take.takenCount());
+        assertNull(take.offer());
+    }
+
+    @Test
+    void takeOrderGroup_whenNothingTaken_offersAvailableOrders() {
         long courierId = 100L;
+        CourierOrderGroupActionForm form = groupForm();
+        OrderKey available = new OrderKey(2L, form.getOrderCreatedAts().get(1));
+        when(courierPanelService.takeOrderGroup(eq(courierId), any(), any(), eq(false)))
+                .thenReturn(new CourierOrderGroupTake(2, List.of(), List.of(available)));
+
+        CourierOrderGroupTakeViewModel take = courierFacade.takeOrderGroup(courierId, form);
+
+        assertEquals(0, take.takenCount());
+        assertEquals("630000", take.offer().clusterKey());
+        assertEquals(form.getPickupFrom(), take.offer().pickupFrom());
+        assertEquals(
+                List.of(new CourierOrderGroupTakeViewModel.CourierOrderKeyViewModel(2L, available.createdAt())),
+                take.offer().orderKeys()
+        );
+    }
+
+    @Test
+    void takeOrderGroup_withMismatchedOrderKeys_throwsBeforeServiceCall() {
+        CourierOrderGroupActionForm form = groupForm();
+        form.setOrderIds(List.of(1L));
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> courierFacade.takeOrderGroup(100L, form)
+        );
+        assertEquals("Некорректный состав группы заказов", exception.getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void subscribeToFeed_mapsEventsToCourierTimezoneWithPanelGroupKey() {
+        long courierId = 10L;
+        SseEmitter emitter = new SseEmitter();
+        when(courierInfoService.getProfile(courierId)).thenReturn(
+                new CourierProfileInfo(courierId, "Иванов Иван Иванович", "630000", "Asia/Novosibirsk", 40L)
+        );
+        ArgumentCaptor<Function<CourierFeedEvent, Object>> mapperCaptor = ArgumentCaptor.forClass(Function.class);
+        when(courierFeedBroadcaster.subscribe(eq("630000"), mapperCaptor.capture())).thenReturn(emitter);
+
+        assertSame(emitter, courierFacade.subscribeToFeed(courierId));
+
+        OffsetDateTime createdAt = OffsetDateTime.parse("2026-03-03T06:30:00+00:00");
+        CourierOrderInfo order = new CourierOrderInfo(
+                77L,
+                createdAt,
+                100L,
+                "630000",
+                "Новосибирск",
+                "Ленина, 1",
+                "SEPARATE",
+                "NEW",
+                OffsetDateTime.parse("2026-03-03T07:00:00+00:00"),
+                OffsetDateTime.parse("2026-03-03T09:00:00+00:00"),
+                true,
+                List.of("Бумага")
+        );
+        CourierFeedEventViewModel added = (CourierFeedEventViewModel) mapperCaptor.getValue()
+                .apply(CourierFeedEvent.orderAdded(order));
+
+        assertEquals(List.of(77L), added.orderIds());
+        assertEquals("630000|2026-03-03T07:00:00Z|2026-03-03T09:00:00Z", added.order().groupKey());
+        assertEquals("2026-03-03T14:00+07:00", added.order().pickupFrom());
+        assertEquals("2026-03-03 14:00", added.order().pickupFromText());
+        assertEquals("2026-03-03 16:00", added.order().pickupToText());
+        assertEquals("Новый", added.order().status());
+
+        CourierFeedEventViewModel taken = (CourierFeedEventViewModel) mapperCaptor.getValue().apply(
+                CourierFeedEvent.ordersTaken("630000", 11L, List.of(new OrderKey(77L, createdAt)))
+        );
+
+        assertEquals(List.of(77L), taken.orderIds());
+        assertEquals(11L, taken.courierId());
+        assertNull(taken.order());
+    }
+
+    private static CourierOrderGroupActionForm groupForm() {
         CourierOrderGroupActionForm form = new CourierOrderGroupActionForm();
         form.setClusterKey("630000");
         form.setPickupFrom(OffsetDateTime.parse("2026-03-21T10:00:00+07:00"));
         form.setPickupTo(OffsetDateTime.parse("2026-03-21T12:00:00+07:00"));
-        form.setExpectedOrderCount(2);
-
-        courierFacade.takeOrderGroup(courierId, form);
-
-        verify(courierPanelService).takeOrderGroup(
-                eq(courierId),
-                any(),
-                eq(2)
-        );
+        form.setOrderIds(List.of(1L, 2L));
+        form.setOrderCreatedAts(List.of(
+                OffsetDateTime.parse("2026-03-20T10:00:00+07:00"),
+                OffsetDateTime.parse("2026-03-20T11:00:00+07:00")
+        ));
+        return form;
     }
 }
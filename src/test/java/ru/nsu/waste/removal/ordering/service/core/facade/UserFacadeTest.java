@@ -10,19 +10,17 @@ import ru.nsu.waste.removal.ordering.service.core.model.order.ActiveOrderInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserGreenSlotContext;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserProfileInfo;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
-import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
 import ru.nsu.waste.removal.ordering.service.core.repository.user.AchieverProfileRepository;
-import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.achievement.AchievementService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.EcoDashboardService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecoprofile.UserHistoryService;
 import ru.nsu.waste.removal.ordering.service.core.service.ecotask.EcoTaskService;
 import ru.nsu.waste.removal.ordering.service.core.service.infocard.InfoCardService;
+import ru.nsu.waste.removal.ordering.service.core.service.level.LevelCatalog;
 import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.user.UserInfoService;
 import ru.nsu.waste.removal.ordering.service.core.service.user.UserLeaderboardService;
 
-import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.List;
 
@@ -42,10 +40,7 @@ class UserFacadeTest {
     private AchieverProfileRepository achieverProfileRepository;
 
     @Mock
-    private LevelRepository levelRepository;
-
-    @Mock
-    private UserLeaderboardRepository userLeaderboardRepository;
+    private LevelCatalog levelCatalog;
 
     @Mock
     private UserLeaderboardService userLeaderboardService;
@@ -65,9 +60,6 @@ class UserFacadeTest {
     @Mock
     private UserHistoryService userHistoryService;
 
-    @Mock
-    private Clock clock;
-
     @InjectMocks
     private UserFacade userFacade;
 
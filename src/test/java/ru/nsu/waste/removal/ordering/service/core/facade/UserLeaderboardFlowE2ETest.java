@@ -11,15 +11,27 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.nsu.waste.removal.ordering.service.app.view.UserLeaderboardViewModel;
 import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.EventProcessorStateRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserLeaderboardRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventProcessorService;
+import ru.nsu.waste.removal.ordering.service.core.service.user.UserLeaderboardScoreService;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +39,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 @SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
 @Tag("e2e")
@@ -55,9 +68,30 @@ class UserLeaderboardFlowE2ETest {
     @Autowired
     private UserActionEventProcessorService userActionEventProcessorService;
 
+    @Autowired
+    private UserLeaderboardScoreService userLeaderboardScoreService;
+
+    @Autowired
+    private UserLeaderboardRepository userLeaderboardRepository;
+
+    @Autowired
+    private UserActionHistoryRepository userActionHistoryRepository;
+
+    @Autowired
+    private EventProcessorStateRepository eventProcessorStateRepository;
+
+    @Autowired
+    private UserInfoRepository userInfoRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private DataSource dataSource;
+
     @BeforeEach
     void resetRuntimeData() {
         jdbcTemplate.execute("""
@@ -88,6 +122,7 @@ class UserLeaderboardFlowE2ETest {
             addPointsEvent(users.get(i), 100L - i, "2026-03-19T10:00:00+00:00");
         }
         long targetUserId = users.get(11);
+        processUntilNoPendingEvents();
 
         UserLeaderboardViewModel leaderboard = userFacade.getLeaderboard(targetUserId, LeaderboardPeriod.WEEK);
 
@@ -121,6 +156,76 @@ class UserLeaderboardFlowE2ETest {
         assertEquals(1, countUserAchievementByCode(secondUserId, "SOC_TOP3_WEEK"));
     }
 
+    @Test
+    void rebuildAll_restoresScoresOfProcessedEventsOnly() {
+        long firstUserId = createSocializer("79000000201", "630002");
+        long secondUserId = createSocializer("79000000202", "630002");
+        long thirdUserId = createSocializer("79000000203", "630002");
+
+        addPointsEvent(firstUserId, 90L, "2026-03-19T10:00:00+00:00");
+        addPointsEvent(secondUserId, 60L, "2026-03-01T10:00:00+00:00");
+        processUntilNoPendingEvents();
+        addPointsEvent(thirdUserId, 500L, "2026-03-19T11:00:00+00:00");
+        jdbcTemplate.execute("truncate table leaderboard_window_score, leaderboard_daily_score");
+
+        userLeaderboardScoreService.rebuildAll();
+
+        UserLeaderboardViewModel weekly = userFacade.getLeaderboard(thirdUserId, LeaderboardPeriod.WEEK);
+        assertEquals(List.of(firstUserId, secondUserId, thirdUserId),
+                weekly.entries().stream().map(UserLeaderboardViewModel.EntryViewModel::userId).toList());
+        assertEquals(List.of(1, 2, 2),
+                weekly.entries().stream().map(UserLeaderboardViewModel.EntryViewModel::rankPosition).toList());
+
+        UserLeaderboardViewModel monthly = userFacade.getLeaderboard(thirdUserId, LeaderboardPeriod.MONTH);
+        assertEquals(List.of(1, 2, 3),
+                monthly.entries().stream().map(UserLeaderboardViewModel.EntryViewModel::rankPosition).toList());
+
+        processUntilNoPendingEvents();
+
+        UserLeaderboardViewModel processed = userFacade.getLeaderboard(thirdUserId, LeaderboardPeriod.WEEK);
+        assertEquals(thirdUserId, processed.entries().getFirst().userId());
+    }
+
+    @Test
+    void tryRollOverWindowsIfNeeded_whenPipelineHoldsWindowState_skipsWithoutWaiting() throws SQLException {
+        long userId = createSocializer("79000000301", "630003");
+        userFacade.getLeaderboard(userId, LeaderboardPeriod.WEEK);
+        UserLeaderboardScoreService nextDayService = new UserLeaderboardScoreService(
+                userLeaderboardRepository,
+                userActionHistoryRepository,
+                eventProcessorStateRepository,
+                userInfoRepository,
+                transactionManager,
+                Clock.fixed(Instant.parse("2026-03-21T00:05:00Z"), ZoneOffset.UTC),
+                1
+        );
+
+        try (Connection pipelineBatch = dataSource.getConnection()) {
+            pipelineBatch.setAutoCommit(false);
+            try (Statement statement = pipelineBatch.createStatement()) {
+                statement.execute("select period from leaderboard_window_state for share");
+            }
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), nextDayService::tryRollOverWindowsIfNeeded);
+            assertEquals(LocalDate.parse("2026-03-14"), findWindowStart(LeaderboardPeriod.WEEK));
+
+            pipelineBatch.commit();
+        }
+
+        nextDayService.tryRollOverWindowsIfNeeded();
+        assertEquals(LocalDate.parse("2026-03-15"), findWindowStart(LeaderboardPeriod.WEEK));
+
+        userLeaderboardScoreService.rebuildAll();
+    }
+
+    private LocalDate findWindowStart(LeaderboardPeriod period) {
+        return jdbcTemplate.queryForObject(
+                "select window_start from leaderboard_window_state where period = ?",
+                LocalDate.class,
+                period.name()
+        );
+    }
+
     private int processUntilNoPendingEvents() {
         int totalProcessed = 0;
         for (int i = 0; i < 10; i++) {
@@ -0,0 +1,164 @@
+package ru.nsu.waste.removal.ordering.service.core.repository.user;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntry;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.enabled=false",
+        "app.jobs.leaderboard-rollover.enabled=false"
+})
+@Tag("benchmark")
+@Testcontainers
+class UserLeaderboardLatencyBenchmark {
+
+    private static final String POSTAL_CODE = "630000";
+    private static final LocalDate TODAY = LocalDate.parse("2026-02-18");
+    private static final int TOP_LIMIT = 10;
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int MEASURED_ITERATIONS = 500;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private UserLeaderboardRepository userLeaderboardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000})
+    void findTopAndRank_latencyByDistrictSize(int districtSize) {
+        List<Long> userIds = seedDistrict(districtSize);
+        Random random = new Random(districtSize);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            long userId = userIds.get(random.nextInt(userIds.size()));
+            userLeaderboardRepository.findTopEntriesByUserDistrict(userId, LeaderboardPeriod.WEEK, TOP_LIMIT);
+            userLeaderboardRepository.findRankEntry(userId, LeaderboardPeriod.WEEK);
+        }
+
+        long[] topNanos = new long[MEASURED_ITERATIONS];
+        long[] rankNanos = new long[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long userId = userIds.get(random.nextInt(userIds.size()));
+
+            long startedAt = System.nanoTime();
+            List<UserLeaderboardEntry> top =
+                    userLeaderboardRepository.findTopEntriesByUserDistrict(userId, LeaderboardPeriod.WEEK, TOP_LIMIT);
+            topNanos[i] = System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            UserLeaderboardEntry entry = userLeaderboardRepository.findRankEntry(userId, LeaderboardPeriod.WEEK)
+                    .orElseThrow();
+            rankNanos[i] = System.nanoTime() - startedAt;
+
+            assertEquals(TOP_LIMIT, top.size());
+            assertTrue(entry.rankPosition() >= 1);
+        }
+
+        printLatency("top", districtSize, topNanos);
+        printLatency("rank", districtSize, rankNanos);
+    }
+
+    private List<Long> seedDistrict(int districtSize) {
+        jdbcTemplate.execute("""
+                truncate table
+                    leaderboard_window_state,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        jdbcTemplate.update(
+                """
+                        insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                        values ('RU', ?, 'City', 'Region', 'Street 1', 'UTC')
+                        """,
+                POSTAL_CODE
+        );
+        jdbcTemplate.update(
+                """
+                        insert into person_info(phone, email, name, surname)
+                        select 75000000000 + g, 'user' || g || '@mail.test', 'Name', 'Surname'
+                        from generate_series(1, ?) g
+                        """,
+                districtSize
+        );
+        jdbcTemplate.update("""
+                insert into user_info(type_id, address_id, person_id)
+                select (select id from user_type where name = 'SOCIALIZER'), 1, p.id
+                from person_info p
+                """);
+        // Около 10% пользователей без начислений, у остальных до трех дней с очками за последние 10 суток.
+        jdbcTemplate.update(
+                """
+                        insert into leaderboard_daily_score(postal_code, user_id, day, score)
+                        select ?, ui.id, cast(? as date) - d, 1 + cast(floor(random() * 500) as bigint)
+                        from user_info ui
+                                 cross join generate_series(0, 9) d
+                        where ui.id % 10 <> 0
+                          and (ui.id + d) % 4 = 0
+                        """,
+                POSTAL_CODE,
+                TODAY
+        );
+        for (LeaderboardPeriod period : LeaderboardPeriod.values()) {
+            userLeaderboardRepository.initWindow(period, TODAY.minusDays(period.lengthDays() - 1L));
+        }
+        jdbcTemplate.execute("vacuum analyze");
+
+        return jdbcTemplate.queryForList("select id from user_info order by id", Long.class);
+    }
+
+    private static void printLatency(String query, int districtSize, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf(
+                "leaderboard %s: districtSize=%d, p50=%.2f ms, p95=%.2f ms, p99=%.2f ms%n",
+                query,
+                districtSize,
+                percentile(sorted, 0.50) / 1_000_000.0,
+                percentile(sorted, 0.95) / 1_000_000.0,
+                percentile(sorted, 0.99) / 1_000_000.0
+        );
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[index];
+    }
+}
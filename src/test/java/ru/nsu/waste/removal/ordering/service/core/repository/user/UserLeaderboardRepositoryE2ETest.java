@@ -11,9 +11,18 @@ import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventBatch;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPayload;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.user.LeaderboardPeriod;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserLeaderboardEntry;
+import ru.nsu.waste.removal.ordering.service.core.service.user.UserLeaderboardScoreService;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -41,9 +50,14 @@ class UserLeaderboardRepositoryE2ETest {
     @Autowired
     private UserLeaderboardRepository userLeaderboardRepository;
 
+    @Autowired
+    private UserLeaderboardScoreService userLeaderboardScoreService;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    private final List<UserActionHistoryEvent> events = new ArrayList<>();
+
     @BeforeEach
     void resetRuntimeData() {
         jdbcTemplate.execute("""
@@ -53,30 +67,110 @@ class UserLeaderboardRepositoryE2ETest {
                     order_info,
                     user_action_history,
                     user_eco_task,
+                    leaderboard_window_state,
                     achiever_profile,
                     user_info,
                     address,
                     person_info
                 restart identity cascade
                 """);
+        events.clear();
     }
 
     @Test
-    void findWeeklyRankPosition_ignoresOrderPaidWithPointsSpendingEvents() {
+    void findRankEntry_ignoresOrderPaidWithPointsSpendingEvents() {
         long firstUserId = createUser("70010000001", "630000");
         long secondUserId = createUser("70010000002", "630000");
+        userLeaderboardRepository.initWindow(LeaderboardPeriod.WEEK, LocalDate.parse("2026-03-13"));
 
         addEvent(firstUserId, UserActionEventType.SEPARATE_CHOSEN.dbName(), 50L, "2026-03-19T10:00:00+00:00");
         addEvent(firstUserId, UserActionEventType.ORDER_PAID_WITH_POINTS.dbName(), -100L, "2026-03-19T11:00:00+00:00");
         addEvent(secondUserId, UserActionEventType.GREEN_SLOT_CHOSEN.dbName(), 40L, "2026-03-19T10:30:00+00:00");
+        applyEvents();
 
-        int rank = userLeaderboardRepository.findWeeklyRankPosition(
-                        firstUserId,
-                        OffsetDateTime.parse("2026-03-13T00:00:00+00:00")
-                )
+        UserLeaderboardEntry entry = userLeaderboardRepository.findRankEntry(firstUserId, LeaderboardPeriod.WEEK)
                 .orElseThrow(() -> new IllegalStateException("Rank is expected"));
 
-        assertEquals(1, rank);
+        assertEquals(1, entry.rankPosition());
+        assertEquals(50L, entry.score());
+    }
+
+    @Test
+    void findTopEntriesByUserDistrict_ranksTiesDenselyAndAppendsUsersWithoutPoints() {
+        long firstUserId = createUser("70010000011", "630000");
+        long secondUserId = createUser("70010000012", "630000");
+        long thirdUserId = createUser("70010000013", "630000");
+        long idleUserId = createUser("70010000014", "630000");
+        long otherDistrictUserId = createUser("70010000015", "630099");
+        userLeaderboardRepository.initWindow(LeaderboardPeriod.WEEK, LocalDate.parse("2026-03-13"));
+
+        addEvent(firstUserId, UserActionEventType.ORDER_DONE.dbName(), 20L, "2026-03-18T10:00:00+00:00");
+        addEvent(secondUserId, UserActionEventType.ORDER_DONE.dbName(), 30L, "2026-03-18T10:00:00+00:00");
+        addEvent(secondUserId, UserActionEventType.ORDER_DONE.dbName(), 20L, "2026-03-19T10:00:00+00:00");
+        addEvent(thirdUserId, UserActionEventType.ORDER_DONE.dbName(), 50L, "2026-03-19T10:00:00+00:00");
+        addEvent(otherDistrictUserId, UserActionEventType.ORDER_DONE.dbName(), 500L, "2026-03-19T10:00:00+00:00");
+        applyEvents();
+
+        List<UserLeaderboardEntry> top = userLeaderboardRepository.findTopEntriesByUserDistrict(
+                idleUserId,
+                LeaderboardPeriod.WEEK,
+                10
+        );
+
+        assertEquals(List.of(secondUserId, thirdUserId, firstUserId, idleUserId),
+                top.stream().map(UserLeaderboardEntry::userId).toList());
+        assertEquals(List.of(1, 1, 2, 3), top.stream().map(UserLeaderboardEntry::rankPosition).toList());
+        assertEquals(3, userLeaderboardRepository.findRankEntry(idleUserId, LeaderboardPeriod.WEEK)
+                .orElseThrow()
+                .rankPosition());
+    }
+
+    @Test
+    void shiftWindow_subtractsExpiredDaysFromWindowScores() {
+        long firstUserId = createUser("70010000021", "630000");
+        long secondUserId = createUser("70010000022", "630000");
+
+        addEvent(firstUserId, UserActionEventType.ORDER_DONE.dbName(), 30L, "2026-03-13T23:59:59+00:00");
+        addEvent(firstUserId, UserActionEventType.ORDER_DONE.dbName(), 5L, "2026-03-14T00:00:00+00:00");
+        addEvent(secondUserId, UserActionEventType.ORDER_DONE.dbName(), 10L, "2026-03-19T10:00:00+00:00");
+        applyEvents();
+        userLeaderboardRepository.initWindow(LeaderboardPeriod.WEEK, LocalDate.parse("2026-03-13"));
+
+        assertEquals(1, userLeaderboardRepository.findRankEntry(firstUserId, LeaderboardPeriod.WEEK)
+                .orElseThrow()
+                .rankPosition());
+
+        userLeaderboardRepository.shiftWindow(
+                LeaderboardPeriod.WEEK,
+                LocalDate.parse("2026-03-13"),
+                LocalDate.parse("2026-03-14")
+        );
+
+        UserLeaderboardEntry first = userLeaderboardRepository.findRankEntry(firstUserId, LeaderboardPeriod.WEEK)
+                .orElseThrow();
+        assertEquals(5L, first.score());
+        assertEquals(2, first.rankPosition());
+
+        userLeaderboardRepository.shiftWindow(
+                LeaderboardPeriod.WEEK,
+                LocalDate.parse("2026-03-14"),
+                LocalDate.parse("2026-03-15")
+        );
+
+        assertEquals(0L, userLeaderboardRepository.findRankEntry(firstUserId, LeaderboardPeriod.WEEK)
+                .orElseThrow()
+                .score());
+        assertEquals(1, countWindowScores());
+    }
+
+    private void applyEvents() {
+        userLeaderboardScoreService.handleBatch(new UserActionEventBatch(events));
+        events.clear();
+    }
+
+    private int countWindowScores() {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from leaderboard_window_score", Integer.class);
+        return count == null ? 0 : count;
     }
 
     private long createUser(String phone, String postalCode) {
@@ -127,16 +221,29 @@ class UserLeaderboardRepositoryE2ETest {
     }
 
     private void addEvent(long userId, String eventType, long pointsDifference, String createdAt) {
-        jdbcTemplate.update(
+        Long eventId = jdbcTemplate.queryForObject(
                 """
                         insert into user_action_history(user_id, event_type, content, points_difference, created_at)
                         values (?, ?, cast('{}' as jsonb), ?, ?::timestamptz)
+                        returning id
                         """,
+                Long.class,
                 userId,
                 eventType,
                 pointsDifference,
                 createdAt
         );
+        if (eventId == null) {
+            throw new IllegalStateException("Failed to prepare test event");
+        }
+        events.add(new UserActionHistoryEvent(
+                eventId,
+                0L,
+                OffsetDateTime.parse(createdAt),
+                userId,
+                UserActionEventType.fromDbName(eventType),
+                pointsDifference,
+                UserActionEventPayload.ofJson("{}")
+        ));
     }
 }
-
@@ -0,0 +1,342 @@
+package ru.nsu.waste.removal.ordering.service.core.service.achievement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCounters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGamificationCountersMismatch;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddEventParams;
+import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventProcessorService;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
+@Tag("e2e")
+@Testcontainers
+class UserGamificationCountersE2ETest {
+
+    private static final long PLASTIC_FRACTION_ID = 1L;
+    private static final long PAPER_FRACTION_ID = 2L;
+    private static final long GLASS_FRACTION_ID = 3L;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserActionHistoryRepository userActionHistoryRepository;
+
+    @Autowired
+    private UserActionEventProcessorService userActionEventProcessorService;
+
+    @Autowired
+    private UserGamificationCountersService userGamificationCountersService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_history,
+                    achievement_user,
+                    order_waste_fraction,
+                    order_info,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+    }
+
+    @Test
+    void processPendingEvents_maintainsCountersAndUnlocksAchievementsFromThem() {
+        long userId = registerAchiever("77006670001");
+        addDoneSeparateOrder(userId, OffsetDateTime.parse("2026-02-18T11:00:00Z"), PLASTIC_FRACTION_ID, PAPER_FRACTION_ID);
+        addDoneSeparateOrder(userId, OffsetDateTime.parse("2026-02-18T12:00:00Z"), PAPER_FRACTION_ID, GLASS_FRACTION_ID);
+        addEvents(userId, UserActionEventType.ORDER_DONE, 2);
+        addEvents(userId, UserActionEventType.INFO_CARD_VIEWED, 3);
+        addEvents(userId, UserActionEventType.LEVEL_UP, 1);
+
+        processAllPendingEvents();
+
+        UserGamificationCounters counters = findCounters(userId);
+        assertEquals(2L, counters.doneOrders());
+        assertEquals(2L, counters.doneSeparateOrders());
+        assertEquals(0L, counters.doneGreenOrders());
+        assertEquals(0b111L, counters.separateFractionMask());
+        assertEquals(3, counters.distinctSeparateFractions());
+        assertEquals(3L, counters.infoCardViews());
+        assertEquals(1L, counters.levelUps());
+
+        assertEquals(1, countUserAchievementsByCode(userId, "ACH_FIRST_ORDER"));
+        assertEquals(1, countUserAchievementsByCode(userId, "ACH_FIRST_SEPARATE"));
+        assertEquals(1, countUserAchievementsByCode(userId, "ACH_LEVEL_UP"));
+        assertTrue(userGamificationCountersService.findMismatches().isEmpty());
+    }
+
+    @Test
+    void processPendingEvents_whenCountersRowIsMissing_initializesItFromProcessedHistory() {
+        long userId = registerAchiever("77006670002");
+        addEvents(userId, UserActionEventType.INFO_CARD_VIEWED, 3);
+        processAllPendingEvents();
+        jdbcTemplate.update("delete from user_gamification_counters where user_id = ?", userId);
+
+        addEvents(userId, UserActionEventType.INFO_CARD_VIEWED, 2);
+        processAllPendingEvents();
+
+        assertEquals(5L, findCounters(userId).infoCardViews());
+        assertTrue(userGamificationCountersService.findMismatches().isEmpty());
+    }
+
+    @Test
+    void rebuildAll_restoresCountersReportedByConsistencyCheck() {
+        long userId = registerAchiever("77006670003");
+        addEvents(userId, UserActionEventType.INFO_CARD_VIEWED, 4);
+        addEvents(userId, UserActionEventType.LEADERBOARD_OPENED, 1);
+        processAllPendingEvents();
+        addEvents(userId, UserActionEventType.INFO_CARD_VIEWED, 1);
+
+        jdbcTemplate.update(
+                "update user_gamification_counters set info_card_views = 0, leaderboard_opens = 7 where user_id = ?",
+                userId
+        );
+
+        List<UserGamificationCountersMismatch> mismatches = userGamificationCountersService.findMismatches();
+        assertEquals(1, mismatches.size());
+        assertEquals(userId, mismatches.getFirst().userId());
+        assertEquals(4L, mismatches.getFirst().expected().infoCardViews());
+
+        userGamificationCountersService.rebuildAll();
+
+        UserGamificationCounters rebuilt = findCounters(userId);
+        assertEquals(4L, rebuilt.infoCardViews());
+        assertEquals(1L, rebuilt.leaderboardOpens());
+        assertTrue(userGamificationCountersService.findMismatches().isEmpty());
+
+        processAllPendingEvents();
+        assertEquals(5L, findCounters(userId).infoCardViews());
+    }
+
+    @Test
+    void processPendingEvents_incrementsOrderCountersFromOrderDoneContent() {
+        long userId = registerAchiever("77006670004");
+        long firstOrderId = addDoneOrder(userId, OffsetDateTime.parse("2026-02-18T11:00:00Z"), "SEPARATE", true,
+                PLASTIC_FRACTION_ID, PAPER_FRACTION_ID);
+        addOrderDoneEvent(userId, firstOrderId, "SEPARATE", true, PLASTIC_FRACTION_ID, PAPER_FRACTION_ID);
+
+        processAllPendingEvents();
+
+        UserGamificationCounters counters = findCounters(userId);
+        assertEquals(1L, counters.doneOrders());
+        assertEquals(1L, counters.doneSeparateOrders());
+        assertEquals(1L, counters.doneGreenOrders());
+        assertEquals(0b11L, counters.separateFractionMask());
+        assertTrue(userGamificationCountersService.findMismatches().isEmpty());
+
+        jdbcTemplate.update("update user_gamification_counters set done_orders = 10 where user_id = ?", userId);
+        long secondOrderId = addDoneOrder(userId, OffsetDateTime.parse("2026-02-18T12:00:00Z"), "SEPARATE", false,
+                GLASS_FRACTION_ID);
+        addOrderDoneEvent(userId, secondOrderId, "SEPARATE", false, GLASS_FRACTION_ID);
+
+        processAllPendingEvents();
+
+        counters = findCounters(userId);
+        assertEquals(11L, counters.doneOrders());
+        assertEquals(2L, counters.doneSeparateOrders());
+        assertEquals(1L, counters.doneGreenOrders());
+        assertEquals(0b111L, counters.separateFractionMask());
+
+        userGamificationCountersService.rebuildAll();
+        assertEquals(2L, findCounters(userId).doneOrders());
+        assertTrue(userGamificationCountersService.findMismatches().isEmpty());
+    }
+
+    private void processAllPendingEvents() {
+        while (userActionEventProcessorService.processPendingEvents() > 0) {
+            // события, порожденные обработчиками, дочитываются следующими пачками
+        }
+    }
+
+    private UserGamificationCounters findCounters(long userId) {
+        return userGamificationCountersService.findByUserIds(List.of(userId)).get(userId);
+    }
+
+    private void addEvents(long userId, UserActionEventType eventType, int count) {
+        for (int i = 0; i < count; i++) {
+            userActionHistoryRepository.addEvent(new AddEventParams(userId, eventType.dbName(), "{}", 0));
+        }
+    }
+
+    private void addDoneSeparateOrder(long userId, OffsetDateTime createdAt, long... fractionIds) {
+        addDoneOrder(userId, createdAt, "SEPARATE", false, fractionIds);
+    }
+
+    private long addDoneOrder(
+            long userId,
+            OffsetDateTime createdAt,
+            String type,
+            boolean greenChosen,
+            long... fractionIds
+    ) {
+        OffsetDateTime pickupFrom = createdAt.plusDays(1);
+        Long orderId = jdbcTemplate.queryForObject(
+                """
+                        insert into order_info(
+                                               user_id,
+                                               created_at,
+                                               completed_at,
+                                               type,
+                                               status,
+                                               pickup_from,
+                                               pickup_to,
+                                               green_chosen,
+                                               postal_code,
+                                               cost_points
+                                               )
+                        values (?, ?, ?, ?, 'DONE', ?, ?, ?, '050000', 10)
+                        returning id
+                        """,
+                Long.class,
+                userId,
+                createdAt,
+                createdAt.plusMinutes(30),
+                type,
+                pickupFrom,
+                pickupFrom.plusHours(2),
+                greenChosen
+        );
+        for (long fractionId : fractionIds) {
+            jdbcTemplate.update(
+                    "insert into order_waste_fraction(order_id, order_created_at, fraction_id) values (?, ?, ?)",
+                    orderId,
+                    createdAt,
+                    fractionId
+            );
+        }
+        return orderId;
+    }
+
+    private void addOrderDoneEvent(long userId, long orderId, String type, boolean greenChosen, long... fractionIds) {
+        String fractions = Arrays.stream(fractionIds)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(","));
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.ORDER_DONE.dbName(),
+                """
+                        {"orderId":%d,"type":"%s","greenChosen":%s,"fractionIds":[%s],"status":"DONE"}
+                        """.formatted(orderId, type, greenChosen, fractions).trim(),
+                0
+        ));
+    }
+
+    private int countUserAchievementsByCode(long userId, String achievementCode) {
+        Integer count = jdbcTemplate.queryForObject(
+                """
+                        select count(*)
+                        from achievement_user au
+                                 join achievement a on a.id = au.achievement_id
+                        where au.user_id = ?
+                          and a.code = ?
+                        """,
+                Integer.class,
+                userId,
+                achievementCode
+        );
+        return count == null ? 0 : count;
+    }
+
+    private long registerAchiever(String phone) {
+        long userId = registrationService.register(validForm(phone), achieverAnswers()).userId();
+        jdbcTemplate.update("delete from user_action_history where user_id = ?", userId);
+        return userId;
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone("Asia/Almaty");
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+
+    @TestConfiguration
+    static class FixedClockConfiguration {
+
+        @Bean
+        @Primary
+        Clock fixedClock() {
+            return Clock.fixed(Instant.parse("2026-02-18T10:15:30Z"), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "app.jobs.user-action-event-processor.enabled=false",
+                "app.jobs.sorting-regularity.enabled=false",
+                "app.jobs.green-slot-index.enabled=false"
+        }
+)
+@Tag("benchmark")
+@Testcontainers
+class CourierFeedBenchmark {
+
+    private static final int SUBSCRIBERS = 1_000;
+    private static final int WARMUP_EVENTS = 20;
+    private static final int MEASURED_EVENTS = 200;
+    private static final String PHONE = "79031000001";
+    private static final String PASSWORD = "secret123";
+    private static final String POSTAL_CODE = "630000";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CourierRegistrationService courierRegistrationService;
+
+    @Autowired
+    private CourierFeedBroadcaster courierFeedBroadcaster;
+
+    private final AtomicReference<CountDownLatch> pendingDelivery = new AtomicReference<>(new CountDownLatch(0));
+
+    @Test
+    void publish_fanOutLatencyToThousandOpenStreams() throws Exception {
+        long courierId = registerCourier();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        try {
+            String sessionCookie = login(client);
+            HttpRequest feedRequest = HttpRequest.newBuilder(uri("/courier/%d/feed".formatted(courierId)))
+                    .header("Cookie", sessionCookie)
+                    .header("Accept", "text/event-stream")
+                    .build();
+
+            long heapBefore = usedHeap();
+            CountDownLatch greeted = new CountDownLatch(SUBSCRIBERS);
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                Thread.ofVirtual().start(() -> readStream(client, feedRequest, greeted));
+            }
+            assertTrue(greeted.await(60, TimeUnit.SECONDS), "not all streams received hello");
+            assertEquals(SUBSCRIBERS, courierFeedBroadcaster.subscriberCount());
+            long heapPerSubscriber = (usedHeap() - heapBefore) / SUBSCRIBERS;
+
+            for (int i = 0; i < WARMUP_EVENTS; i++) {
+                publishAndAwait(courierId, i);
+            }
+            long[] latencies = new long[MEASURED_EVENTS];
+            for (int i = 0; i < MEASURED_EVENTS; i++) {
+                latencies[i] = publishAndAwait(courierId, WARMUP_EVENTS + i);
+            }
+            Arrays.sort(latencies);
+
+            System.out.printf(
+                    "courier feed: subscribers=%d, events=%d, fan-out mean=%d us, p50=%d us, p99=%d us, "
+                            + "heap per stream (server and client)=%d bytes%n",
+                    SUBSCRIBERS,
+                    latencies.length,
+                    Arrays.stream(latencies).sum() / latencies.length / 1_000,
+                    latencies[latencies.length / 2] / 1_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000,
+                    heapPerSubscriber
+            );
+        } finally {
+            courierFeedBroadcaster.shutdown();
+            client.shutdownNow();
+        }
+    }
+
+    /**
+     * Время от публикации события до его получения последним из подписчиков.
+     */
+    private long publishAndAwait(long courierId, long orderId) throws InterruptedException {
+        CountDownLatch delivered = new CountDownLatch(SUBSCRIBERS);
+        pendingDelivery.set(delivered);
+        long startedAt = System.nanoTime();
+        courierFeedBroadcaster.publish(CourierFeedEvent.orderCompleted(
+                POSTAL_CODE,
+                courierId,
+                new OrderKey(orderId, OffsetDateTime.parse("2026-03-20T08:00:00Z"))
+        ));
+        assertTrue(delivered.await(30, TimeUnit.SECONDS), "event was not delivered to all streams");
+        return System.nanoTime() - startedAt;
+    }
+
+    private void readStream(HttpClient client, HttpRequest request, CountDownLatch greeted) {
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.equals("event:hello")) {
+                        greeted.countDown();
+                    } else if (line.equals("event:order-completed")) {
+                        pendingDelivery.get().countDown();
+                    }
+                }
+            }
+        } catch (Exception ignored) {
+            // Поток закрывается при остановке теста.
+        }
+    }
+
+    private String login(HttpClient client) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/courier/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("phone=%s&password=%s".formatted(PHONE, PASSWORD)))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("JSESSIONID="))
+                .map(cookie -> cookie.substring(0, cookie.indexOf(';')))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Courier login did not create a session"));
+    }
+
+    private long registerCourier() {
+        CourierRegistrationForm form = new CourierRegistrationForm();
+        form.setPhone(PHONE);
+        form.setEmail(PHONE + "@courier.test");
+        form.setPassword(PASSWORD);
+        form.setName("Иван");
+        form.setSurname("Курьеров");
+        form.setPatronymic("Андреевич");
+        form.setPostalCode(POSTAL_CODE);
+        form.setTimezone("Asia/Omsk");
+        return courierRegistrationService.register(form).courierId();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:%d%s".formatted(port, path));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,155 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierFeedEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourierFeedBroadcasterTest {
+
+    private static final String POSTAL_CODE = "630000";
+    private static final OrderKey ORDER_KEY = new OrderKey(1L, OffsetDateTime.parse("2026-03-20T08:00:00Z"));
+
+    @Test
+    void subscribe_sendsCurrentVersionThenNumberedEventsOfOwnPostalCode() throws Exception {
+        RecordingBroadcaster broadcaster = new RecordingBroadcaster(8, null);
+        broadcaster.publish(CourierFeedEvent.ordersTaken(POSTAL_CODE, 5L, List.of(ORDER_KEY)));
+
+        broadcaster.subscribe(POSTAL_CODE, event -> Map.of("courierId", event.courierId()));
+        broadcaster.publishAfterCommit(CourierFeedEvent.orderCompleted(POSTAL_CODE, 7L, ORDER_KEY));
+        broadcaster.publishAfterCommit(CourierFeedEvent.orderCompleted("630001", 8L, ORDER_KEY));
+
+        assertEquals("id:1\nevent:hello\ndata:1\n\n", broadcaster.emitter.next());
+        assertEquals("id:2\nevent:order-completed\ndata:{\"courierId\":7}\n\n", broadcaster.emitter.next());
+        assertEquals(2L, broadcaster.currentVersion(POSTAL_CODE));
+        assertEquals(1L, broadcaster.currentVersion("630001"));
+        assertEquals(0L, broadcaster.currentVersion("630002"));
+        assertNull(broadcaster.emitter.sent.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void publishAfterCommit_waitsForTransactionCommit() throws Exception {
+        RecordingBroadcaster broadcaster = new RecordingBroadcaster(8, null);
+        broadcaster.subscribe(POSTAL_CODE, event -> Map.of());
+        assertEquals("id:0\nevent:hello\ndata:0\n\n", broadcaster.emitter.next());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            broadcaster.publishAfterCommit(CourierFeedEvent.orderCompleted(POSTAL_CODE, 7L, ORDER_KEY));
+            assertEquals(0L, broadcaster.currentVersion(POSTAL_CODE));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1L, broadcaster.currentVersion(POSTAL_CODE));
+        assertTrue(broadcaster.emitter.next().startsWith("id:1\nevent:order-completed"));
+    }
+
+    @Test
+    void publish_whenSubscriberQueueOverflows_sendsResyncAndDropsSubscriber() throws Exception {
+        CountDownLatch releaseFirstSend = new CountDownLatch(1);
+        RecordingBroadcaster broadcaster = new RecordingBroadcaster(2, releaseFirstSend);
+        broadcaster.subscribe(POSTAL_CODE, event -> Map.of());
+        broadcaster.emitter.firstSendStarted.await(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 3; i++) {
+            broadcaster.publish(CourierFeedEvent.ordersTaken(POSTAL_CODE, 5L, List.of(ORDER_KEY)));
+        }
+        releaseFirstSend.countDown();
+
+        assertEquals("id:0\nevent:hello\ndata:0\n\n", broadcaster.emitter.next());
+        assertEquals("event:resync\ndata:{}\n\n", broadcaster.emitter.next());
+        assertTrue(broadcaster.emitter.completed.await(5, TimeUnit.SECONDS));
+        for (int attempt = 0; attempt < 50 && broadcaster.subscriberCount() > 0; attempt++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    private static final class RecordingBroadcaster extends CourierFeedBroadcaster {
+
+        private final CountDownLatch releaseFirstSend;
+        private RecordingEmitter emitter;
+
+        private RecordingBroadcaster(int queueCapacity, CountDownLatch releaseFirstSend) {
+            super(new ObjectMapper(), queueCapacity, 60_000L, 0L);
+            this.releaseFirstSend = releaseFirstSend;
+        }
+
+        @Override
+        SseEmitter newEmitter(long timeoutMs) {
+            emitter = new RecordingEmitter(releaseFirstSend);
+            return emitter;
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        private final CountDownLatch firstSendStarted = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch releaseFirstSend;
+
+        private RecordingEmitter(CountDownLatch releaseFirstSend) {
+            this.releaseFirstSend = releaseFirstSend;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (firstSendStarted.getCount() > 0) {
+                firstSendStarted.countDown();
+                awaitRelease();
+            }
+            sent.add(builder.build().stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .map(String::valueOf)
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public void send(Object object, MediaType mediaType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        private String next() throws InterruptedException {
+            return sent.poll(5, TimeUnit.SECONDS);
+        }
+
+        private void awaitRelease() {
+            if (releaseFirstSend == null) {
+                return;
+            }
+            try {
+                releaseFirstSend.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupKey;
+import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
+
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.enabled=false",
+        "app.jobs.green-slot-index.enabled=false"
+})
+@Tag("benchmark")
+@Testcontainers
+class CourierOrderCompletionBenchmark {
+
+    private static final String POSTAL_CODE = "630000";
+    private static final int USERS = 500;
+    private static final int GROUP_SIZE = 10;
+    private static final int WARMUP_GROUPS = 20;
+    private static final int MEASURED_GROUPS = 200;
+    private static final OffsetDateTime FIRST_SLOT = OffsetDateTime.parse("2026-03-21T08:00:00Z");
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private CourierRegistrationService courierRegistrationService;
+
+    @Autowired
+    private CourierPanelService courierPanelService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long courierId;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    order_waste_fraction,
+                    order_info,
+                    user_action_history,
+                    courier,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        courierId = registerCourier();
+        seedAssignedGroups(2 * (WARMUP_GROUPS + MEASURED_GROUPS));
+    }
+
+    @Test
+    void completeOrders_oneByOneVersusWholeGroup() {
+        int group = 0;
+        for (int i = 0; i < WARMUP_GROUPS; i++) {
+            completeOneByOne(group++);
+            completeWholeGroup(group++);
+        }
+
+        long[] oneByOne = new long[MEASURED_GROUPS];
+        long[] wholeGroup = new long[MEASURED_GROUPS];
+        for (int i = 0; i < MEASURED_GROUPS; i++) {
+            oneByOne[i] = completeOneByOne(group++);
+            wholeGroup[i] = completeWholeGroup(group++);
+        }
+        Arrays.sort(oneByOne);
+        Arrays.sort(wholeGroup);
+
+        assertEquals(
+                (long) group * GROUP_SIZE,
+                jdbcTemplate.queryForObject(
+                        "select count(*) from user_action_history where event_type = 'ORDER_DONE'",
+                        Long.class
+                )
+        );
+        System.out.printf(
+                "courier order completion: group size=%d, groups=%d; one by one p50=%d us, p99=%d us; "
+                        + "whole group p50=%d us, p99=%d us%n",
+                GROUP_SIZE,
+                MEASURED_GROUPS,
+                oneByOne[oneByOne.length / 2] / 1_000,
+                oneByOne[(int) (oneByOne.length * 0.99)] / 1_000,
+                wholeGroup[wholeGroup.length / 2] / 1_000,
+                wholeGroup[(int) (wholeGroup.length * 0.99)] / 1_000
+        );
+    }
+
+    private long completeOneByOne(int group) {
+        List<OrderKey> orderKeys = findGroupOrderKeys(group);
+        long startedAt = System.nanoTime();
+        for (OrderKey orderKey : orderKeys) {
+            courierPanelService.completeOrder(courierId, orderKey);
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private long completeWholeGroup(int group) {
+        List<OrderKey> orderKeys = findGroupOrderKeys(group);
+        CourierOrderGroupKey groupKey = new CourierOrderGroupKey(
+                POSTAL_CODE,
+                slotFrom(group),
+                slotFrom(group).plusHours(2)
+        );
+        long startedAt = System.nanoTime();
+        courierPanelService.completeOrderGroup(courierId, groupKey, orderKeys);
+        return System.nanoTime() - startedAt;
+    }
+
+    private List<OrderKey> findGroupOrderKeys(int group) {
+        return jdbcTemplate.query(
+                """
+                        select id, created_at
+                        from order_info
+                        where courier_id = ?
+                          and status = 'ASSIGNED'
+                          and pickup_from = ?
+                        order by id
+                        """,
+                (rs, rowNum) -> new OrderKey(rs.getLong("id"), rs.getObject("created_at", OffsetDateTime.class)),
+                courierId,
+                slotFrom(group)
+        );
+    }
+
+    /**
+     * Группа g - GROUP_SIZE назначенных курьеру заказов разных пользователей в слоте g;
+     * каждый второй заказ раздельный с двумя фракциями.
+     */
+    private void seedAssignedGroups(int groups) {
+        jdbcTemplate.update(
+                """
+                        insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                        select 'RU', ?, 'Новосибирск', 'Новосибирская область', 'Ленина, ' || g, 'UTC'
+                        from generate_series(1, ?) g
+                        """,
+                POSTAL_CODE,
+                USERS
+        );
+        jdbcTemplate.update(
+                """
+                        insert into person_info(phone, email, name, surname)
+                        select 79200000000 + g, 'bench' || g || '@mail.test', 'Ivan', 'Petrov'
+                        from generate_series(1, ?) g
+                        """,
+                USERS
+        );
+        jdbcTemplate.update(
+                """
+                        insert into user_info(type_id, address_id, person_id)
+                        select (select id from user_type where name = 'ACHIEVER'), g, g
+                        from generate_series(1, ?) g
+                        """,
+                USERS
+        );
+        jdbcTemplate.update(
+                """
+                        insert into order_info(user_id, courier_id, created_at, assigned_at, type, status,
+                                               pickup_from, pickup_to, green_chosen, postal_code, cost_points,
+                                               city, detailed_address)
+                        select (g - 1) % ? + 1,
+                               ?,
+                               timestamptz '2026-03-01T00:00:00Z' + g * interval '1 minute',
+                               timestamptz '2026-03-20T09:00:00Z',
+                               case when g % 2 = 0 then 'SEPARATE' else 'MIXED' end,
+                               'ASSIGNED',
+                               ? + ((g - 1) / ?) * interval '2 hours',
+                               ? + ((g - 1) / ?) * interval '2 hours' + interval '2 hours',
+                               g % 3 = 0,
+                               ?,
+                               100,
+                               'Новосибирск',
+                               'Ленина, ' || g
+                        from generate_series(1, ?) g
+                        """,
+                USERS,
+                courierId,
+                FIRST_SLOT,
+                GROUP_SIZE,
+                FIRST_SLOT,
+                GROUP_SIZE,
+                POSTAL_CODE,
+                groups * GROUP_SIZE
+        );
+        jdbcTemplate.update("""
+                insert into order_waste_fraction(order_id, order_created_at, fraction_id)
+                select oi.id, oi.created_at, f.fraction_id
+                from order_info oi
+                         cross join lateral (values (oi.id % 5 + 1), ((oi.id + 2) % 5 + 1)) f(fraction_id)
+                where oi.type = 'SEPARATE'
+                """);
+        jdbcTemplate.update("""
+                update order_info oi
+                set fraction_mask = (cast(1 as bigint) << cast(oi.id % 5 as integer))
+                    | (cast(1 as bigint) << cast((oi.id + 2) % 5 as integer))
+                where oi.type = 'SEPARATE'
+                """);
+        jdbcTemplate.execute("vacuum analyze order_info");
+        jdbcTemplate.execute("vacuum analyze order_waste_fraction");
+    }
+
+    private long registerCourier() {
+        CourierRegistrationForm form = new CourierRegistrationForm();
+        form.setPhone("79031200001");
+        form.setEmail("79031200001@courier.test");
+        form.setPassword("secret123");
+        form.setName("Иван");
+        form.setSurname("Курьеров");
+        form.setPatronymic("Андреевич");
+        form.setPostalCode(POSTAL_CODE);
+        form.setTimezone("Asia/Omsk");
+        return courierRegistrationService.register(form).courierId();
+    }
+
+    private static OffsetDateTime slotFrom(int group) {
+        return FIRST_SLOT.plusHours(2L * group);
+    }
+}
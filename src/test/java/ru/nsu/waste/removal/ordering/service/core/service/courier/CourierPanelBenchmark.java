@@ -0,0 +1,235 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.CourierRegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierPanel;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.enabled=false",
+        "app.jobs.green-slot-index.enabled=false"
+})
+@Tag("benchmark")
+@Testcontainers
+class CourierPanelBenchmark {
+
+    private static final int POSTAL_CODE_COUNT = 4;
+    private static final int OPEN_ORDERS_PER_POSTAL_CODE = 5_000;
+    private static final int USERS_PER_POSTAL_CODE = 500;
+    private static final int WARMUP_CALLS = 50;
+    private static final int CALLS_PER_COURIER = 250;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private CourierRegistrationService courierRegistrationService;
+
+    @Autowired
+    private CourierPanelService courierPanelService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> courierIds = new ArrayList<>();
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    order_waste_fraction,
+                    order_info,
+                    user_action_history,
+                    courier,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        courierIds.clear();
+        for (int i = 0; i < POSTAL_CODE_COUNT; i++) {
+            courierIds.add(registerCourier("7903100%04d".formatted(i), postalCode(i)));
+        }
+        seedOrders();
+    }
+
+    @Test
+    void getPanel_latencyWithFiveThousandOpenOrdersPerPostalCode() {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            courierPanelService.getPanel(courierIds.get(i % courierIds.size()));
+        }
+
+        long[] latencies = new long[CALLS_PER_COURIER * courierIds.size()];
+        int call = 0;
+        for (int round = 0; round < CALLS_PER_COURIER; round++) {
+            for (long courierId : courierIds) {
+                long startedAt = System.nanoTime();
+                CourierPanel panel = courierPanelService.getPanel(courierId);
+                latencies[call++] = System.nanoTime() - startedAt;
+                assertFalse(panel.availableOrderGroups().isEmpty());
+            }
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf(
+                "courier panel: postal codes=%d, open orders per postal code=%d, calls=%d, mean=%d us, p50=%d us, p99=%d us%n",
+                POSTAL_CODE_COUNT,
+                OPEN_ORDERS_PER_POSTAL_CODE,
+                latencies.length,
+                Arrays.stream(latencies).sum() / latencies.length / 1_000,
+                latencies[latencies.length / 2] / 1_000,
+                latencies[(int) (latencies.length * 0.99)] / 1_000
+        );
+    }
+
+    /**
+     * Пользователь и адрес i живут в индексе (i - 1) % POSTAL_CODE_COUNT; каждый второй заказ раздельный
+     * с двумя фракциями. Каждый сотый заказ уже назначен курьеру своего индекса, остальные открыты.
+     */
+    private void seedOrders() {
+        int userCount = USERS_PER_POSTAL_CODE * POSTAL_CODE_COUNT;
+        int orderCount = OPEN_ORDERS_PER_POSTAL_CODE * POSTAL_CODE_COUNT;
+        jdbcTemplate.update(
+                """
+                        insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                        select 'RU', cast(630000 + (g - 1) % ? as text), 'Новосибирск', 'Новосибирская область',
+                               'Ленина, ' || g, 'UTC'
+                        from generate_series(1, ?) g
+                        """,
+                POSTAL_CODE_COUNT,
+                userCount
+        );
+        jdbcTemplate.update(
+                """
+                        insert into person_info(phone, email, name, surname)
+                        select 79200000000 + g, 'bench' || g || '@mail.test', 'Ivan', 'Petrov'
+                        from generate_series(1, ?) g
+                        """,
+                userCount
+        );
+        jdbcTemplate.update(
+                """
+                        insert into user_info(type_id, address_id, person_id)
+                        select (select id from user_type where name = 'ACHIEVER'), g, g
+                        from generate_series(1, ?) g
+                        """,
+                userCount
+        );
+        jdbcTemplate.update(
+                """
+                        insert into order_info(user_id, created_at, type, status, pickup_from, pickup_to,
+                                               green_chosen, postal_code, cost_points, city, detailed_address)
+                        select u.user_id,
+                               timestamptz '2026-03-01T00:00:00Z' + g * interval '1 minute',
+                               case when g % 2 = 0 then 'SEPARATE' else 'MIXED' end,
+                               'NEW',
+                               s.pickup_from,
+                               s.pickup_from + interval '2 hours',
+                               g % 3 = 0,
+                               a.postal_code,
+                               100,
+                               a.city,
+                               a.detailed_address
+                        from generate_series(1, ?) g
+                                 cross join lateral (select (g - 1) % ? + 1 as user_id) u
+                                 join address a on a.id = u.user_id
+                                 cross join lateral (
+                            select timestamptz '2026-03-21T08:00:00Z'
+                                       + (g % 7) * interval '1 day'
+                                       + (g % 6) * interval '2 hours' as pickup_from
+                            ) s
+                        """,
+                orderCount,
+                userCount
+        );
+        jdbcTemplate.update("""
+                insert into order_waste_fraction(order_id, order_created_at, fraction_id)
+                select oi.id, oi.created_at, f.fraction_id
+                from order_info oi
+                         cross join lateral (values (oi.id % 5 + 1), ((oi.id + 2) % 5 + 1)) f(fraction_id)
+                where oi.type = 'SEPARATE'
+                """);
+        jdbcTemplate.update("""
+                update order_info oi
+                set fraction_mask = (cast(1 as bigint) << cast(oi.id % 5 as integer))
+                    | (cast(1 as bigint) << cast((oi.id + 2) % 5 as integer))
+                where oi.type = 'SEPARATE'
+                """);
+        jdbcTemplate.update("""
+                update order_info oi
+                set status = 'ASSIGNED',
+                    courier_id = c.id,
+                    assigned_at = oi.created_at + interval '1 hour'
+                from courier c
+                where c.postal_code = oi.postal_code
+                  and oi.id % 100 = 0
+                """);
+        jdbcTemplate.execute("vacuum analyze order_info");
+        jdbcTemplate.execute("vacuum analyze order_waste_fraction");
+    }
+
+    private long registerCourier(String phone, String postalCode) {
+        CourierRegistrationForm form = new CourierRegistrationForm();
+        form.setPhone(phone);
+        form.setEmail(phone + "@courier.test");
+        form.setPassword("secret123");
+        form.setName("Иван");
+        form.setSurname("Курьеров");
+        form.setPatronymic("Андреевич");
+        form.setPostalCode(postalCode);
+        form.setTimezone("Asia/Omsk");
+        return courierRegistrationService.register(form).courierId();
+    }
+
+    private static String postalCode(int index) {
+        return String.valueOf(630_000 + index);
+    }
+
+    @TestConfiguration
+    static class FixedClockConfiguration {
+
+        @Bean
+        @Primary
+        Clock fixedClock() {
+            return Clock.fixed(Instant.parse("2026-03-20T10:15:30Z"), ZoneOffset.UTC);
+        }
+    }
+}
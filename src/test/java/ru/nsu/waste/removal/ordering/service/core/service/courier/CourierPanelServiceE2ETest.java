@@ -1,5 +1,6 @@
 package ru.nsu.waste.removal.ordering.service.core.service.courier;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
@@ -16,21 +17,29 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.nsu.waste.removal.ordering.service.app.form.CourierRegistrationForm;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupKey;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderGroupTake;
 import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierPanel;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
 import ru.nsu.waste.removal.ordering.service.core.model.order.OrderKey;
 import ru.nsu.waste.removal.ordering.service.core.service.order.OrderInfoService;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
@@ -65,12 +74,21 @@ class CourierPanelServiceE2ETest {
     @Autowired
     private CourierPanelService courierPanelService;
 
+    @Autowired
+    private CourierRunService courierRunService;
+
     @Autowired
     private OrderInfoService orderInfoService;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void resetRuntimeData() {
         jdbcTemplate.execute("""
@@ -158,6 +176,10 @@ class CourierPanelServiceE2ETest {
         assertEquals(1, firstGroup.mixedOrdersCount());
         assertEquals(firstInGroup.id(), firstGroup.orders().get(0).orderId());
         assertEquals(secondInGroup.id(), firstGroup.orders().get(1).orderId());
+        assertEquals("Новосибирск", firstGroup.orders().get(0).city());
+        assertEquals("Ленина, 1", firstGroup.orders().get(0).detailedAddress());
+        assertEquals(List.of("Бумага"), firstGroup.orders().get(0).fractions());
+        assertEquals(List.of(), firstGroup.orders().get(1).fractions());
 
         var secondGroup = panel.availableOrderGroups().get(1);
         assertEquals(1, secondGroup.ordersCount());
@@ -182,12 +204,15 @@ class CourierPanelServiceE2ETest {
         OrderKey order3 = addOrder(user3, "MIXED", "NEW", PRIMARY_CLUSTER, null,
                 OffsetDateTime.parse("2026-03-20T08:10:00Z"), slotFrom, slotTo);
 
-        courierPanelService.takeOrderGroup(
+        CourierOrderGroupTake take = courierPanelService.takeOrderGroup(
                 courierId,
                 new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo),
-                3
+                List.of(order3, order1, order2),
+                false
         );
 
+        assertEquals(3, take.requestedCount());
+        assertEquals(List.of(order1.id(), order2.id(), order3.id()), orderIds(take.takenOrderKeys()));
         assertAssignedToCourier(order1, courierId);
         assertAssignedToCourier(order2, courierId);
         assertAssignedToCourier(order3, courierId);
@@ -199,7 +224,7 @@ class CourierPanelServiceE2ETest {
     }
 
     @Test
-    void takeOrderGroup_rollsBackIfCompositionChanged() {
+    void takeOrderGroup_offersRemainingOrdersIfCompositionChanged() {
         long firstCourierId = registerCourier("79030000121", PRIMARY_CLUSTER);
         long secondCourierId = registerCourier("79030000122", PRIMARY_CLUSTER);
 
@@ -209,6 +234,7 @@ class CourierPanelServiceE2ETest {
 
         OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-21T16:00:00Z");
         OffsetDateTime slotTo = slotFrom.plusHours(2);
+        CourierOrderGroupKey groupKey = new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo);
 
         OrderKey firstOrder = addOrder(user1, "MIXED", "NEW", PRIMARY_CLUSTER, null,
                 OffsetDateTime.parse("2026-03-20T08:00:00Z"), slotFrom, slotTo);
@@ -219,28 +245,82 @@ class CourierPanelServiceE2ETest {
 
         courierPanelService.takeOrder(secondCourierId, firstOrder);
 
-        IllegalStateException exception = assertThrows(
-                IllegalStateException.class,
-                () -> courierPanelService.takeOrderGroup(
-                        firstCourierId,
-                        new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo),
-                        3
-                )
+        CourierOrderGroupTake offer = courierPanelService.takeOrderGroup(
+                firstCourierId,
+                groupKey,
+                List.of(firstOrder, secondOrder, thirdOrder),
+                false
         );
-        assertEquals("Состав группы изменился, обновите страницу", exception.getMessage());
 
-        OrderState firstState = findOrderState(firstOrder);
-        OrderState secondState = findOrderState(secondOrder);
-        OrderState thirdState = findOrderState(thirdOrder);
+        assertTrue(offer.takenOrderKeys().isEmpty());
+        assertEquals(List.of(secondOrder.id(), thirdOrder.id()), orderIds(offer.availableOrderKeys()));
+        assertEquals(secondCourierId, findOrderState(firstOrder).courierId());
+        assertEquals("NEW", findOrderState(secondOrder).status());
+        assertNull(findOrderState(secondOrder).courierId());
+        assertEquals("NEW", findOrderState(thirdOrder).status());
+        assertNull(findOrderState(thirdOrder).courierId());
+
+        CourierOrderGroupTake take = courierPanelService.takeOrderGroup(
+                firstCourierId,
+                groupKey,
+                offer.availableOrderKeys(),
+                true
+        );
 
-        assertEquals("ASSIGNED", firstState.status());
-        assertEquals(secondCourierId, firstState.courierId());
+        assertEquals(List.of(secondOrder.id(), thirdOrder.id()), orderIds(take.takenOrderKeys()));
+        assertAssignedToCourier(secondOrder, firstCourierId);
+        assertAssignedToCourier(thirdOrder, firstCourierId);
+        assertEquals(secondCourierId, findOrderState(firstOrder).courierId());
+    }
 
-        assertEquals("NEW", secondState.status());
-        assertNull(secondState.courierId());
+    @Test
+    void takeOrderGroup_skipsOrdersLockedByAnotherCourierWithoutWaiting() throws Exception {
+        long courierId = registerCourier("79030000171", PRIMARY_CLUSTER);
+
+        long user1 = createUser("79100000171", PRIMARY_CLUSTER, "Новосибирск", "Нарымская, 1");
+        long user2 = createUser("79100000172", PRIMARY_CLUSTER, "Новосибирск", "Нарымская, 2");
+
+        OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-21T18:00:00Z");
+        OffsetDateTime slotTo = slotFrom.plusHours(2);
+        CourierOrderGroupKey groupKey = new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo);
+
+        OrderKey freeOrder = addOrder(user1, "MIXED", "NEW", PRIMARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T09:00:00Z"), slotFrom, slotTo);
+        OrderKey lockedOrder = addOrder(user2, "MIXED", "NEW", PRIMARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T09:05:00Z"), slotFrom, slotTo);
+
+        double offeredBefore = groupTakes("partial_offered");
+        double contendedBefore = meterRegistry.get("courier.order.group.take.contended").summary().totalAmount();
+
+        try (Connection competitor = dataSource.getConnection()) {
+            competitor.setAutoCommit(false);
+            try (PreparedStatement lock = competitor.prepareStatement(
+                    "select id from order_info where id = ? and created_at = ? for update"
+            )) {
+                lock.setLong(1, lockedOrder.id());
+                lock.setObject(2, lockedOrder.createdAt());
+                lock.executeQuery().close();
+            }
+
+            CourierOrderGroupTake offer = courierPanelService.takeOrderGroup(
+                    courierId,
+                    groupKey,
+                    List.of(freeOrder, lockedOrder),
+                    false
+            );
+
+            assertTrue(offer.takenOrderKeys().isEmpty());
+            assertEquals(List.of(freeOrder.id()), orderIds(offer.availableOrderKeys()));
+            competitor.rollback();
+        }
 
-        assertEquals("NEW", thirdState.status());
-        assertNull(thirdState.courierId());
+        assertEquals(offeredBefore + 1, groupTakes("partial_offered"));
+        assertEquals(
+                contendedBefore + 1,
+                meterRegistry.get("courier.order.group.take.contended").summary().totalAmount()
+        );
+        assertEquals("NEW", findOrderState(freeOrder).status());
+        assertEquals("NEW", findOrderState(lockedOrder).status());
     }
 
     @Test
@@ -264,7 +344,8 @@ class CourierPanelServiceE2ETest {
         courierPanelService.takeOrderGroup(
                 courierId,
                 new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo),
-                3
+                List.of(order1, order2, order3),
+                false
         );
 
         long user2DoneBefore = orderInfoService.countDoneOrders(user2);
@@ -289,6 +370,96 @@ class CourierPanelServiceE2ETest {
         assertEquals(0L, countEvents(user3, UserActionEventType.ORDER_DONE));
     }
 
+    @Test
+    void completeOrderGroup_completesWholeGroupInOneStatementAndRecordsEvents() {
+        long courierId = registerCourier("79030000181", PRIMARY_CLUSTER);
+
+        long user1 = createUser("79100000181", PRIMARY_CLUSTER, "Новосибирск", "Кирова, 1");
+        long user2 = createUser("79100000182", PRIMARY_CLUSTER, "Новосибирск", "Кирова, 2");
+
+        OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-22T12:00:00Z");
+        OffsetDateTime slotTo = slotFrom.plusHours(2);
+        CourierOrderGroupKey groupKey = new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo);
+
+        OrderKey order1 = addOrder(user1, "SEPARATE", "ASSIGNED", PRIMARY_CLUSTER, courierId,
+                OffsetDateTime.parse("2026-03-20T07:00:00Z"), slotFrom, slotTo);
+        OrderKey order2 = addOrder(user2, "MIXED", "ASSIGNED", PRIMARY_CLUSTER, courierId,
+                OffsetDateTime.parse("2026-03-20T07:05:00Z"), slotFrom, slotTo);
+        long courierPointsBefore = findCourierTotalPoints(courierId);
+
+        int completed = courierPanelService.completeOrderGroup(courierId, groupKey, List.of(order1, order2));
+
+        assertEquals(2, completed);
+        assertEquals("DONE", findOrderState(order1).status());
+        assertEquals(FIXED_NOW.toInstant(), findOrderState(order1).completedAt().toInstant());
+        assertEquals("DONE", findOrderState(order2).status());
+        assertEquals(courierPointsBefore + 40L, findCourierTotalPoints(courierId));
+        assertEquals(1L, countEvents(user1, UserActionEventType.ORDER_DONE));
+        assertEquals(1L, countEvents(user2, UserActionEventType.ORDER_DONE));
+
+        Map<String, Object> content = jdbcTemplate.queryForMap(
+                """
+                        select content ->> 'orderId'            as order_id,
+                               content ->> 'courierId'          as courier_id,
+                               content ->> 'status'             as status,
+                               content ->> 'completedAt'        as completed_at,
+                               content ->> 'pickupFrom'         as pickup_from,
+                               cast(content -> 'fractionIds' as text) as fraction_ids,
+                               order_type,
+                               green_chosen,
+                               points_difference
+                        from user_action_history
+                        where user_id = ?
+                          and event_type = 'ORDER_DONE'
+                        """,
+                user1
+        );
+        Long paperId = jdbcTemplate.queryForObject("select id from waste_fraction where type = 'PAPER'", Long.class);
+        assertEquals(String.valueOf(order1.id()), content.get("order_id"));
+        assertEquals(String.valueOf(courierId), content.get("courier_id"));
+        assertEquals("DONE", content.get("status"));
+        assertEquals(FIXED_NOW.toInstant(), OffsetDateTime.parse((String) content.get("completed_at")).toInstant());
+        assertEquals(slotFrom.toInstant(), OffsetDateTime.parse((String) content.get("pickup_from")).toInstant());
+        assertEquals("[" + paperId + "]", content.get("fraction_ids"));
+        assertEquals("SEPARATE", content.get("order_type"));
+        assertEquals(Boolean.TRUE, content.get("green_chosen"));
+        assertEquals(0L, ((Number) content.get("points_difference")).longValue());
+    }
+
+    @Test
+    void completeOrderGroup_completesNothingIfAnyOrderIsNoLongerAssigned() {
+        long courierId = registerCourier("79030000191", PRIMARY_CLUSTER);
+
+        long user1 = createUser("79100000191", PRIMARY_CLUSTER, "Новосибирск", "Кирова, 11");
+        long user2 = createUser("79100000192", PRIMARY_CLUSTER, "Новосибирск", "Кирова, 12");
+
+        OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-22T16:00:00Z");
+        OffsetDateTime slotTo = slotFrom.plusHours(2);
+
+        OrderKey assigned = addOrder(user1, "MIXED", "ASSIGNED", PRIMARY_CLUSTER, courierId,
+                OffsetDateTime.parse("2026-03-20T07:00:00Z"), slotFrom, slotTo);
+        OrderKey done = addOrder(user2, "MIXED", "DONE", PRIMARY_CLUSTER, courierId,
+                OffsetDateTime.parse("2026-03-20T07:05:00Z"), slotFrom, slotTo);
+        long courierPointsBefore = findCourierTotalPoints(courierId);
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> courierPanelService.completeOrderGroup(
+                        courierId,
+                        new CourierOrderGroupKey(PRIMARY_CLUSTER, slotFrom, slotTo),
+                        List.of(assigned, done)
+                )
+        );
+        assertEquals(
+                "Часть заказов группы уже завершена или не назначена вам, обновите страницу",
+                exception.getMessage()
+        );
+
+        assertEquals("ASSIGNED", findOrderState(assigned).status());
+        assertEquals(courierPointsBefore, findCourierTotalPoints(courierId));
+        assertEquals(0L, countEvents(user1, UserActionEventType.ORDER_DONE));
+    }
+
     @Test
     void singleOrderFlowsStillWork() {
         long firstCourierId = registerCourier("79030000141", PRIMARY_CLUSTER);
@@ -320,6 +491,141 @@ class CourierPanelServiceE2ETest {
         assertTrue(findCourierTotalPoints(firstCourierId) >= 20L);
     }
 
+    @Test
+    void planRun_ordersNeighbouringClustersByTimeWindowsAndTakeRunAssignsWholeRun() {
+        long courierId = registerCourier("79030000151", PRIMARY_CLUSTER);
+        long otherCourierId = registerCourier("79030000152", PRIMARY_CLUSTER);
+
+        long nearUser = createUser("79100000151", PRIMARY_CLUSTER, "Новосибирск", "Ленина, 20");
+        long neighbourUser = createUser("79100000152", SECONDARY_CLUSTER, "Новосибирск", "Ленина, 21");
+        long secondNeighbourUser = createUser("79100000153", "630002", "Новосибирск", "Мира, 5");
+        long farUser = createUser("79100000154", "630005", "Новосибирск", "Мира, 50");
+
+        OffsetDateTime morningFrom = OffsetDateTime.parse("2026-03-21T10:00:00Z");
+        OffsetDateTime noonFrom = morningFrom.plusHours(2);
+
+        OrderKey secondNeighbourOrder = addOrder(secondNeighbourUser, "MIXED", "NEW", "630002", null,
+                OffsetDateTime.parse("2026-03-20T08:00:00Z"), morningFrom, noonFrom);
+        OrderKey nearOrder = addOrder(nearUser, "SEPARATE", "NEW", PRIMARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T08:05:00Z"), morningFrom, noonFrom);
+        OrderKey neighbourOrder = addOrder(neighbourUser, "MIXED", "NEW", SECONDARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T08:10:00Z"), noonFrom, noonFrom.plusHours(2));
+        addOrder(farUser, "MIXED", "NEW", "630005", null,
+                OffsetDateTime.parse("2026-03-20T08:15:00Z"), morningFrom, noonFrom);
+        addOrder(nearUser, "MIXED", "ASSIGNED", PRIMARY_CLUSTER, otherCourierId,
+                OffsetDateTime.parse("2026-03-20T08:20:00Z"), morningFrom, noonFrom);
+
+        CourierRun run = courierRunService.planRun(courierId);
+
+        assertEquals(
+                List.of(nearOrder.id(), secondNeighbourOrder.id(), neighbourOrder.id()),
+                run.stops().stream().map(stop -> stop.order().orderId()).toList()
+        );
+        assertEquals(morningFrom.toInstant(), run.startsAt().toInstant());
+        assertEquals(54, run.travelMinutes());
+        assertEquals(morningFrom.plusMinutes(10).toInstant(), run.stops().get(0).pickupAt().toInstant());
+        assertEquals(morningFrom.plusMinutes(41).toInstant(), run.stops().get(1).pickupAt().toInstant());
+        assertEquals(noonFrom.toInstant(), run.stops().get(2).pickupAt().toInstant());
+        assertEquals(List.of("Бумага"), run.stops().get(0).order().fractions());
+
+        courierRunService.takeRun(
+                courierId,
+                run.stops().stream()
+                        .map(stop -> new OrderKey(stop.order().orderId(), stop.order().orderCreatedAt()))
+                        .toList()
+        );
+
+        assertAssignedToCourier(nearOrder, courierId);
+        assertAssignedToCourier(secondNeighbourOrder, courierId);
+        assertAssignedToCourier(neighbourOrder, courierId);
+        assertEquals(3, courierPanelService.getPanel(courierId).assignedOrderGroups().stream()
+                .mapToInt(group -> group.ordersCount())
+                .sum());
+        assertTrue(courierRunService.planRun(courierId).stops().isEmpty());
+    }
+
+    @Test
+    void takeRun_rollsBackWholeRunIfAnyOrderWasTaken() {
+        long firstCourierId = registerCourier("79030000161", PRIMARY_CLUSTER);
+        long secondCourierId = registerCourier("79030000162", PRIMARY_CLUSTER);
+
+        long user1 = createUser("79100000161", PRIMARY_CLUSTER, "Новосибирск", "Советская, 1");
+        long user2 = createUser("79100000162", SECONDARY_CLUSTER, "Новосибирск", "Советская, 2");
+
+        OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-21T10:00:00Z");
+        OffsetDateTime slotTo = slotFrom.plusHours(2);
+        OrderKey takenOrder = addOrder(user1, "MIXED", "NEW", PRIMARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T08:00:00Z"), slotFrom, slotTo);
+        OrderKey freeOrder = addOrder(user2, "MIXED", "NEW", SECONDARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T08:05:00Z"), slotFrom, slotTo);
+
+        courierPanelService.takeOrder(secondCourierId, takenOrder);
+
+        IllegalStateException exception = assertThrows(
+                IllegalStateException.class,
+                () -> courierRunService.takeRun(firstCourierId, List.of(takenOrder, freeOrder))
+        );
+        assertEquals("Часть заказов маршрута уже недоступна, постройте маршрут заново", exception.getMessage());
+
+        assertEquals(secondCourierId, findOrderState(takenOrder).courierId());
+        assertEquals("NEW", findOrderState(freeOrder).status());
+        assertNull(findOrderState(freeOrder).courierId());
+    }
+
+    @Test
+    void takeRun_whenOrderIsLockedByAnotherCourier_failsWithoutWaiting() throws Exception {
+        long courierId = registerCourier("79030000181", PRIMARY_CLUSTER);
+
+        long user1 = createUser("79100000181", PRIMARY_CLUSTER, "Новосибирск", "Каменская, 1");
+        long user2 = createUser("79100000182", SECONDARY_CLUSTER, "Новосибирск", "Каменская, 2");
+
+        OffsetDateTime slotFrom = OffsetDateTime.parse("2026-03-21T14:00:00Z");
+        OffsetDateTime slotTo = slotFrom.plusHours(2);
+        OrderKey freeOrder = addOrder(user1, "MIXED", "NEW", PRIMARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T10:00:00Z"), slotFrom, slotTo);
+        OrderKey lockedOrder = addOrder(user2, "MIXED", "NEW", SECONDARY_CLUSTER, null,
+                OffsetDateTime.parse("2026-03-20T10:05:00Z"), slotFrom, slotTo);
+
+        try (Connection competitor = dataSource.getConnection()) {
+            competitor.setAutoCommit(false);
+            try (PreparedStatement lock = competitor.prepareStatement(
+                    "select id from order_info where id = ? and created_at = ? for update"
+            )) {
+                lock.setLong(1, lockedOrder.id());
+                lock.setObject(2, lockedOrder.createdAt());
+                lock.executeQuery().close();
+            }
+
+            IllegalStateException exception = assertTimeoutPreemptively(
+                    Duration.ofSeconds(5),
+                    () -> assertThrows(
+                            IllegalStateException.class,
+                            () -> courierRunService.takeRun(courierId, List.of(freeOrder, lockedOrder))
+                    )
+            );
+            assertEquals("Часть заказов маршрута сейчас берет другой курьер, попробуйте еще раз", exception.getMessage());
+            competitor.rollback();
+        }
+
+        assertEquals("NEW", findOrderState(freeOrder).status());
+        assertNull(findOrderState(freeOrder).courierId());
+
+        courierRunService.takeRun(courierId, List.of(freeOrder, lockedOrder));
+
+        assertAssignedToCourier(freeOrder, courierId);
+        assertAssignedToCourier(lockedOrder, courierId);
+    }
+
+    private double groupTakes(String outcome) {
+        return meterRegistry.get("courier.order.group.takes").tag("outcome", outcome).counter().count();
+    }
+
+    private static List<Long> orderIds(List<OrderKey> orderKeys) {
+        return orderKeys.stream()
+                .map(OrderKey::id)
+                .toList();
+    }
+
     private void assertAssignedToCourier(OrderKey orderKey, long courierId) {
         OrderState state = findOrderState(orderKey);
         assertEquals("ASSIGNED", state.status());
@@ -420,9 +726,14 @@ class CourierPanelServiceE2ETest {
                                                pickup_to,
                                                green_chosen,
                                                postal_code,
-                                               cost_points
+                                               cost_points,
+                                               city,
+                                               detailed_address
                                                )
-                        values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        select ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, a.city, a.detailed_address
+                        from user_info ui
+                                 join address a on a.id = ui.address_id
+                        where ui.id = ?
                         returning id, created_at
                         """,
                 (rs, rowNum) -> new OrderKey(
@@ -440,7 +751,8 @@ class CourierPanelServiceE2ETest {
                 pickupTo,
                 true,
                 postalCode,
-                100L
+                100L,
+                userId
         );
 
         if (orderKey == null) {
@@ -473,6 +785,17 @@ class CourierPanelServiceE2ETest {
                 orderKey.createdAt(),
                 fractionId
         );
+        jdbcTemplate.update(
+                """
+                        update order_info
+                        set fraction_mask = fraction_mask | (cast(1 as bigint) << cast(? - 1 as integer))
+                        where id = ?
+                          and created_at = ?
+                        """,
+                fractionId,
+                orderKey.id(),
+                orderKey.createdAt()
+        );
     }
 
     private OrderState findOrderState(OrderKey orderKey) {
@@ -0,0 +1,149 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Tag("benchmark")
+class CourierRoutePlannerBenchmark {
+
+    private static final long[] CITY_POSTAL_PREFIXES = {630_000L, 634_000L, 644_000L};
+    private static final int POSTAL_CODES_PER_CITY = 40;
+    private static final int STREETS_PER_POSTAL_CODE = 15;
+    private static final int ADJACENT_POSTAL_CODE_RANGE = 2;
+    private static final int CANDIDATES_PER_RUN = 200;
+    private static final int SLOTS_PER_DAY = 6;
+    private static final int MAX_STOPS = 12;
+    private static final int WARMUP_RUNS = 300;
+    private static final int MEASURED_RUNS = 3_000;
+
+    private static final OffsetDateTime NOW = OffsetDateTime.parse("2026-03-20T10:15:30Z");
+    private static final OffsetDateTime FIRST_SLOT = OffsetDateTime.parse("2026-03-21T08:00:00Z");
+
+    @Test
+    void plan_syntheticCities() {
+        CourierRoutePlanner planner = new CourierRoutePlanner(MAX_STOPS, 50, 5, 4);
+        Random random = new Random(42L);
+
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            Instance instance = instance(random);
+            planner.plan(instance.courierPostalCode(), instance.candidates(), NOW);
+        }
+
+        long[] latencies = new long[MEASURED_RUNS];
+        long plannedStops = 0;
+        long plannedTravel = 0;
+        long groupStops = 0;
+        long groupTravel = 0;
+        for (int run = 0; run < MEASURED_RUNS; run++) {
+            Instance instance = instance(random);
+            long startedAt = System.nanoTime();
+            CourierRun courierRun = planner.plan(instance.courierPostalCode(), instance.candidates(), NOW);
+            latencies[run] = System.nanoTime() - startedAt;
+
+            plannedStops += courierRun.stops().size();
+            plannedTravel += courierRun.travelMinutes();
+            List<CourierOrderInfo> group = firstSlotGroup(instance);
+            groupStops += group.size();
+            groupTravel += groupTravelMinutes(instance.courierPostalCode(), group);
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf(
+                "courier run planner: cities=%d, candidates=%d, runs=%d, p50=%d us, p99=%d us, max=%d us%n",
+                CITY_POSTAL_PREFIXES.length,
+                CANDIDATES_PER_RUN,
+                MEASURED_RUNS,
+                latencies[latencies.length / 2] / 1_000,
+                latencies[(int) (latencies.length * 0.99)] / 1_000,
+                latencies[latencies.length - 1] / 1_000
+        );
+        System.out.printf(
+                "courier run planner: run stops=%.2f, travel per stop=%.1f min; slot group stops=%.2f, travel per stop=%.1f min%n",
+                plannedStops / (double) MEASURED_RUNS,
+                plannedTravel / (double) plannedStops,
+                groupStops / (double) MEASURED_RUNS,
+                groupTravel / (double) groupStops
+        );
+        assertTrue(latencies[(int) (latencies.length * 0.99)] < 50_000_000L);
+        assertTrue(plannedStops >= groupStops);
+    }
+
+    /**
+     * Кандидаты курьера: открытые заказы его и соседних индексов одного из городов в двухчасовых
+     * интервалах дня. Часть заказов приходится на один адрес.
+     */
+    private static Instance instance(Random random) {
+        long prefix = CITY_POSTAL_PREFIXES[random.nextInt(CITY_POSTAL_PREFIXES.length)];
+        long courierCode = prefix + ADJACENT_POSTAL_CODE_RANGE
+                + random.nextInt(POSTAL_CODES_PER_CITY - 2 * ADJACENT_POSTAL_CODE_RANGE);
+        List<CourierOrderInfo> candidates = new ArrayList<>(CANDIDATES_PER_RUN);
+        for (int index = 0; index < CANDIDATES_PER_RUN; index++) {
+            long postalCode = courierCode + random.nextInt(2 * ADJACENT_POSTAL_CODE_RANGE + 1)
+                    - ADJACENT_POSTAL_CODE_RANGE;
+            OffsetDateTime pickupFrom = FIRST_SLOT.plusHours(2L * random.nextInt(SLOTS_PER_DAY));
+            candidates.add(new CourierOrderInfo(
+                    index + 1L,
+                    NOW.minusMinutes(index),
+                    index + 1L,
+                    String.valueOf(postalCode),
+                    "Город " + prefix,
+                    "Улица " + random.nextInt(STREETS_PER_POSTAL_CODE) + ", " + (1 + random.nextInt(3)),
+                    random.nextBoolean() ? "SEPARATE" : "MIXED",
+                    "NEW",
+                    pickupFrom,
+                    pickupFrom.plusHours(2),
+                    false,
+                    List.of()
+            ));
+        }
+        candidates.sort((left, right) -> left.pickupFrom().compareTo(right.pickupFrom()));
+        return new Instance(String.valueOf(courierCode), candidates);
+    }
+
+    /**
+     * То, что курьер берет сейчас: группа своего индекса в ближайшем интервале.
+     */
+    private static List<CourierOrderInfo> firstSlotGroup(Instance instance) {
+        Map<OffsetDateTime, List<CourierOrderInfo>> groups = new HashMap<>();
+        for (CourierOrderInfo order : instance.candidates()) {
+            if (order.postalCode().equals(instance.courierPostalCode())) {
+                groups.computeIfAbsent(order.pickupFrom(), ignored -> new ArrayList<>()).add(order);
+            }
+        }
+        return groups.entrySet().stream()
+                .min(Map.Entry.comparingByKey())
+                .map(Map.Entry::getValue)
+                .map(orders -> orders.subList(0, Math.min(orders.size(), MAX_STOPS)))
+                .orElse(List.of());
+    }
+
+    private static long groupTravelMinutes(String courierPostalCode, List<CourierOrderInfo> group) {
+        long travel = 0;
+        String postalCode = courierPostalCode;
+        String address = null;
+        for (CourierOrderInfo order : group) {
+            travel += CourierRoutePlanner.travelMinutes(postalCode, address, order.postalCode(), order.detailedAddress());
+            postalCode = order.postalCode();
+            address = order.detailedAddress();
+        }
+        return travel;
+    }
+
+    private record Instance(
+            String courierPostalCode,
+            List<CourierOrderInfo> candidates
+    ) {
+    }
+}
@@ -0,0 +1,136 @@
+package ru.nsu.waste.removal.ordering.service.core.service.courier;
+
+import org.junit.jupiter.api.Test;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierOrderInfo;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRun;
+import ru.nsu.waste.removal.ordering.service.core.model.courier.CourierRunStop;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourierRoutePlannerTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.parse("2026-03-20T10:15:30Z");
+    private static final OffsetDateTime SLOT_FROM = OffsetDateTime.parse("2026-03-21T10:00:00Z");
+
+    private final CourierRoutePlanner planner = new CourierRoutePlanner(12, 50, 5, 4);
+
+    @Test
+    void plan_startsAtFirstWindowAndVisitsOrdersWithinTheirWindows() {
+        CourierOrderInfo late = order(1, "630000", "Ленина, 1", SLOT_FROM.plusHours(2), SLOT_FROM.plusHours(4));
+        CourierOrderInfo early = order(2, "630000", "Ленина, 2", SLOT_FROM, SLOT_FROM.plusHours(2));
+        CourierOrderInfo beyondHorizon = order(3, "630000", "Ленина, 3", SLOT_FROM.plusHours(5), SLOT_FROM.plusHours(7));
+        CourierOrderInfo expired = order(4, "630000", "Ленина, 4", NOW.minusHours(3), NOW.minusHours(1));
+
+        CourierRun run = planner.plan("630000", List.of(late, early, beyondHorizon, expired), NOW);
+
+        assertEquals(List.of(2L, 1L), orderIds(run));
+        assertEquals(SLOT_FROM, run.startsAt());
+        assertEquals(SLOT_FROM.plusMinutes(10), run.stops().get(0).pickupAt());
+        assertEquals(SLOT_FROM.plusHours(2), run.stops().get(1).pickupAt());
+        assertEquals(SLOT_FROM.plusHours(2).plusMinutes(5), run.finishesAt());
+        assertEquals(20, run.travelMinutes());
+    }
+
+    @Test
+    void plan_visitsNeighbouringPostalCodesInAddressOrder() {
+        CourierOrderInfo farthest = order(1, "630003", "Мира, 1", SLOT_FROM, SLOT_FROM.plusHours(2));
+        CourierOrderInfo home = order(2, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2));
+        CourierOrderInfo next = order(3, "630001", "Мира, 2", SLOT_FROM, SLOT_FROM.plusHours(2));
+        CourierOrderInfo middle = order(4, "630002", "Мира, 3", SLOT_FROM, SLOT_FROM.plusHours(2));
+
+        CourierRun run = planner.plan("630000", List.of(farthest, home, next, middle), NOW);
+
+        assertEquals(List.of(2L, 3L, 4L, 1L), orderIds(run));
+        assertEquals(10 + 18 + 18 + 18, run.travelMinutes());
+    }
+
+    @Test
+    void plan_insertsOrderDroppedByGreedyStepAndShortensRunByTwoOpt() {
+        // Жадный шаг едет к ближайшему адресу, после чего срочный дальний заказ уже не успеть.
+        // Вставка ставит его первым, а 2-opt переставляет оставшиеся остановки по пути обратно.
+        CourierOrderInfo home = order(1, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusMinutes(200));
+        CourierOrderInfo neighbour = order(2, "630001", "Мира, 2", SLOT_FROM, SLOT_FROM.plusMinutes(200));
+        CourierOrderInfo urgentFar = order(3, "630003", "Мира, 3", SLOT_FROM, SLOT_FROM.plusMinutes(40));
+
+        CourierRun run = planner.plan("630000", List.of(home, neighbour, urgentFar), NOW);
+
+        assertEquals(List.of(3L, 2L, 1L), orderIds(run));
+        assertEquals(34 + 26 + 18, run.travelMinutes());
+        assertWindowsRespected(run);
+    }
+
+    @Test
+    void plan_limitsRunByMaxStops() {
+        CourierRoutePlanner shortRunPlanner = new CourierRoutePlanner(3, 50, 5, 4);
+        List<CourierOrderInfo> orders = List.of(
+                order(1, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2)),
+                order(2, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2)),
+                order(3, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2)),
+                order(4, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2)),
+                order(5, "630000", "Ленина, 1", SLOT_FROM, SLOT_FROM.plusHours(2))
+        );
+
+        CourierRun run = shortRunPlanner.plan("630000", orders, NOW);
+
+        assertEquals(3, run.stops().size());
+        assertEquals(10, run.travelMinutes());
+    }
+
+    @Test
+    void plan_withoutCandidates_returnsEmptyRun() {
+        CourierRun run = planner.plan("630000", List.of(), NOW);
+
+        assertTrue(run.stops().isEmpty());
+        assertEquals(NOW, run.startsAt());
+        assertEquals(0, run.travelMinutes());
+    }
+
+    @Test
+    void travelMinutes_growsWithPostalCodeDistance() {
+        assertEquals(0, CourierRoutePlanner.travelMinutes("630000", "a", "630000", "a"));
+        assertEquals(10, CourierRoutePlanner.travelMinutes("630000", "a", "630000", "b"));
+        assertEquals(26, CourierRoutePlanner.travelMinutes("630000", "a", "630002", "b"));
+        assertEquals(90, CourierRoutePlanner.travelMinutes("630000", "a", "640000", "b"));
+        assertEquals(90, CourierRoutePlanner.travelMinutes("A-1", "a", "A-2", "b"));
+    }
+
+    private static void assertWindowsRespected(CourierRun run) {
+        for (CourierRunStop stop : run.stops()) {
+            assertTrue(!stop.pickupAt().isBefore(stop.order().pickupFrom()), "stop " + stop);
+            assertTrue(!stop.pickupAt().isAfter(stop.order().pickupTo()), "stop " + stop);
+        }
+    }
+
+    private static List<Long> orderIds(CourierRun run) {
+        return run.stops().stream()
+                .map(stop -> stop.order().orderId())
+                .toList();
+    }
+
+    private static CourierOrderInfo order(
+            long orderId,
+            String postalCode,
+            String detailedAddress,
+            OffsetDateTime pickupFrom,
+            OffsetDateTime pickupTo
+    ) {
+        return new CourierOrderInfo(
+                orderId,
+                NOW.minusDays(1).plusMinutes(orderId),
+                orderId,
+                postalCode,
+                "Новосибирск",
+                detailedAddress,
+                "MIXED",
+                "NEW",
+                pickupFrom,
+                pickupTo,
+                false,
+                List.of()
+        );
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -12,16 +15,29 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistory;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryCursor;
+import ru.nsu.waste.removal.ordering.service.core.model.ecoprofile.UserHistoryItem;
 import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddEventParams;
+import ru.nsu.waste.removal.ordering.service.core.service.user.UserContextCacheService;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.history.lookback-days=30"
+})
 @Tag("e2e")
 @Testcontainers
 class UserHistoryServiceE2ETest {
@@ -45,6 +61,15 @@ class UserHistoryServiceE2ETest {
     @Autowired
     private UserHistoryService userHistoryService;
 
+    @Autowired
+    private UserActionHistoryRepository userActionHistoryRepository;
+
+    @Autowired
+    private UserContextCacheService userContextCacheService;
+
+    @Autowired
+    private UserHistoryBalanceBackfillService userHistoryBalanceBackfillService;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -64,6 +89,7 @@ class UserHistoryServiceE2ETest {
                     person_info
                 restart identity cascade
                 """);
+        userContextCacheService.evictAll();
     }
 
     @Test
@@ -79,6 +105,7 @@ class UserHistoryServiceE2ETest {
                         {"orderId":101,"type":"SEPARATE","pickupFrom":"2026-03-20T10:00:00+00:00","pickupTo":"2026-03-20T12:00:00+00:00","greenChosen":true,"fractionIds":[%d,%d]}
                         """.formatted(paperId, glassId).trim(),
                 0L,
+                180L,
                 OffsetDateTime.parse("2026-03-20T12:00:00+00:00")
         );
         addEvent(
@@ -88,6 +115,7 @@ class UserHistoryServiceE2ETest {
                         {"orderId":101,"spentPoints":100}
                         """.trim(),
                 -100L,
+                180L,
                 OffsetDateTime.parse("2026-03-20T11:30:00+00:00")
         );
         addEvent(
@@ -95,6 +123,7 @@ class UserHistoryServiceE2ETest {
                 UserActionEventType.SEPARATE_CHOSEN.dbName(),
                 "{\"success\":true}",
                 12L,
+                280L,
                 OffsetDateTime.parse("2026-03-20T11:00:00+00:00")
         );
         addEvent(
@@ -102,6 +131,7 @@ class UserHistoryServiceE2ETest {
                 UserActionEventType.GREEN_SLOT_CHOSEN.dbName(),
                 "{\"success\":true}",
                 8L,
+                268L,
                 OffsetDateTime.parse("2026-03-20T10:50:00+00:00")
         );
         addEvent(
@@ -109,6 +139,7 @@ class UserHistoryServiceE2ETest {
                 UserActionEventType.ORDER_DONE.dbName(),
                 "{}",
                 -15L,
+                260L,
                 OffsetDateTime.parse("2026-03-20T10:40:00+00:00")
         );
 
@@ -199,6 +230,152 @@ class UserHistoryServiceE2ETest {
         ));
     }
 
+    @Test
+    void getUserHistory_skipsEventsOlderThanLookbackWindow() {
+        long userId = createUser("75550000004", "100004", 200L, 200L, "UTC");
+
+        addEvent(
+                userId,
+                UserActionEventType.LEADERBOARD_OPENED.dbName(),
+                "{}",
+                0L,
+                OffsetDateTime.parse("2026-03-20T11:00:00+00:00")
+        );
+        addEvent(
+                userId,
+                UserActionEventType.INFO_CARD_VIEWED.dbName(),
+                "{}",
+                0L,
+                OffsetDateTime.parse("2026-02-10T11:00:00+00:00")
+        );
+
+        UserHistory history = userHistoryService.getUserHistory(userId, 10);
+
+        assertEquals(1, history.items().size());
+        assertEquals("Открыта страница рейтинга", history.items().getFirst().description());
+    }
+
+    @Test
+    void getUserHistory_pagesByCursorWithoutGapsOrDuplicates() {
+        long userId = createUser("75550000005", "100005", 500L, 250L, "UTC");
+        OffsetDateTime base = OffsetDateTime.parse("2026-03-20T10:00:00+00:00");
+        for (int i = 0; i < 25; i++) {
+            // По два события на одну минуту: порядок внутри минуты задает id.
+            addEvent(
+                    userId,
+                    UserActionEventType.INFO_CARD_VIEWED.dbName(),
+                    "{\"cardId\":%d,\"title\":\"card %d\"}".formatted(i, i),
+                    0L,
+                    250L,
+                    base.plusMinutes(i / 2)
+            );
+        }
+        List<String> expectedDescriptions = jdbcTemplate.queryForList(
+                """
+                        select 'Просмотрена карточка: ' || (content ->> 'title')
+                        from user_action_history
+                        where user_id = ?
+                        order by created_at desc, id desc
+                        """,
+                String.class,
+                userId
+        );
+
+        List<String> pagedDescriptions = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        UserHistoryCursor cursor = UserHistoryCursor.initial();
+        while (cursor != null) {
+            UserHistory page = userHistoryService.getUserHistory(userId, cursor, 10);
+            pageSizes.add(page.items().size());
+            page.items().forEach(item -> pagedDescriptions.add(item.description()));
+            cursor = page.nextCursor() == null ? null : UserHistoryCursor.fromQuery(page.nextCursor().toQuery());
+        }
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(expectedDescriptions, pagedDescriptions);
+    }
+
+    @Test
+    void getUserHistory_whenRowHasNoBalanceSnapshot_usesNearestEarlierSnapshot() {
+        long userId = createUser("75550000006", "100006", 300L, 120L, "UTC");
+
+        addEvent(
+                userId,
+                UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                "{\"success\":true}",
+                20L,
+                120L,
+                OffsetDateTime.parse("2026-03-20T10:00:00+00:00")
+        );
+        addEvent(
+                userId,
+                UserActionEventType.INFO_CARD_VIEWED.dbName(),
+                "{}",
+                0L,
+                null,
+                OffsetDateTime.parse("2026-03-20T11:00:00+00:00")
+        );
+
+        UserHistory history = userHistoryService.getUserHistory(userId, 10);
+
+        assertEquals(List.of(120L, 120L), history.items().stream().map(UserHistoryItem::balanceAfter).toList());
+        assertNull(history.nextCursor());
+    }
+
+    @Test
+    void addEvent_storesCurrentBalanceAsSnapshot() {
+        long userId = createUser("75550000007", "100007", 300L, 75L, "UTC");
+
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.LEADERBOARD_OPENED.dbName(),
+                "{}",
+                0L
+        ));
+
+        Long balanceAfter = jdbcTemplate.queryForObject(
+                "select balance_after from user_action_history where user_id = ?",
+                Long.class,
+                userId
+        );
+        assertEquals(75L, balanceAfter);
+        assertEquals(75L, userHistoryService.getUserHistory(userId).items().getFirst().balanceAfter());
+    }
+
+    @Test
+    void backfillBalances_fillsMissingSnapshotsFromCurrentBalanceBackwards() {
+        long userId = createUser("75550000008", "100008", 300L, 120L, "UTC");
+        long otherUserId = createUser("75550000009", "100009", 300L, 40L, "UTC");
+
+        addEvent(userId, UserActionEventType.ECO_TASK_COMPLETED.dbName(), "{}", 50L,
+                OffsetDateTime.parse("2026-03-20T09:00:00+00:00"));
+        addEvent(userId, UserActionEventType.ORDER_PAID_WITH_POINTS.dbName(), "{}", -30L,
+                OffsetDateTime.parse("2026-03-20T10:00:00+00:00"));
+        addEvent(userId, UserActionEventType.SEPARATE_CHOSEN.dbName(), "{\"success\":true}", 20L,
+                OffsetDateTime.parse("2026-03-20T11:00:00+00:00"));
+        addEvent(otherUserId, UserActionEventType.SEPARATE_CHOSEN.dbName(), "{\"success\":true}", 10L, 999L,
+                OffsetDateTime.parse("2026-03-20T11:00:00+00:00"));
+
+        assertEquals(3L, userHistoryBalanceBackfillService.backfillBalances());
+
+        assertEquals(List.of(120L, 100L, 130L), findBalancesAfter(userId));
+        assertEquals(List.of(999L), findBalancesAfter(otherUserId));
+        assertEquals(0L, userHistoryBalanceBackfillService.backfillBalances());
+    }
+
+    private List<Long> findBalancesAfter(long userId) {
+        return jdbcTemplate.queryForList(
+                """
+                        select balance_after
+                        from user_action_history
+                        where user_id = ?
+                        order by created_at desc, id desc
+                        """,
+                Long.class,
+                userId
+        );
+    }
+
     private long createUser(String phone, String postalCode, long totalPoints, long currentPoints, String timezone) {
         Long personId = jdbcTemplate.queryForObject(
                 """
@@ -267,20 +444,43 @@ class UserHistoryServiceE2ETest {
             String content,
             long pointsDifference,
             OffsetDateTime createdAt
+    ) {
+        addEvent(userId, eventType, content, pointsDifference, null, createdAt);
+    }
+
+    private void addEvent(
+            long userId,
+            String eventType,
+            String content,
+            long pointsDifference,
+            Long balanceAfter,
+            OffsetDateTime createdAt
     ) {
         Integer updated = jdbcTemplate.update(
                 """
-                        insert into user_action_history(user_id, event_type, content, points_difference, created_at)
-                        values (?, ?, cast(? as jsonb), ?, ?)
+                        insert into user_action_history(user_id, event_type, content, points_difference,
+                                                        balance_after, created_at)
+                        values (?, ?, cast(? as jsonb), ?, ?, ?)
                         """,
                 userId,
                 eventType,
                 content,
                 pointsDifference,
+                balanceAfter,
                 createdAt
         );
         if (updated == null || updated != 1) {
             throw new IllegalStateException("Failed to insert history event");
         }
     }
+
+    @TestConfiguration
+    static class FixedClockConfiguration {
+
+        @Bean
+        @Primary
+        Clock fixedClock() {
+            return Clock.fixed(Instant.parse("2026-03-21T09:00:00Z"), ZoneOffset.UTC);
+        }
+    }
 }
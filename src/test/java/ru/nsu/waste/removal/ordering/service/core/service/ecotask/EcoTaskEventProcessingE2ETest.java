@@ -40,6 +40,7 @@ class EcoTaskEventProcessingE2ETest {
 
     private static final String TZ_ALMATY = "Asia/Almaty";
     private static final String ACHIEVER_TASK_CODE = "TASK_ACH_SEPARATE_5_WEEK";
+    private static final String EXPLORER_FRACTIONS_TASK_CODE = "TASK_EXP_FRACTIONS_3_MONTH";
     private static final long INITIAL_USER_POINTS = 1000L;
 
     @Container
@@ -76,6 +77,7 @@ class EcoTaskEventProcessingE2ETest {
                 truncate table
                     event_processor_state,
                     user_action_history,
+                    user_eco_task_progress,
                     order_waste_fraction,
                     order_info,
                     user_eco_task,
@@ -90,8 +92,7 @@ class EcoTaskEventProcessingE2ETest {
     @Test
     void processPendingEvents_whenEcoTaskConditionReached_emitsCompletionEventAndAppliesPointsViaEvent() {
         long userId = registerAchiever("77008887766");
-        addDoneSeparateOrders(userId, 5);
-        addOrderDoneEvents(userId, 5);
+        addDoneSeparateOrdersWithEvents(userId, 5);
 
         int firstProcessed = userActionEventProcessorService.processPendingEvents();
 
@@ -120,14 +121,63 @@ class EcoTaskEventProcessingE2ETest {
         assertEquals(expectedTotal, findUserCurrentPoints(userId));
     }
 
-    private void addDoneSeparateOrders(long userId, int count) {
+    @Test
+    void processPendingEvents_tracksDistinctFractionsProgressOnlyInsideAssignmentWindow() {
+        long userId = registrationService.register(validForm("77008887767", TZ_ALMATY), explorerAnswers()).userId();
+        addSeparateOrderDoneEvent(userId, List.of(1L, 2L), "2026-02-18T11:00:00Z");
+        addSeparateOrderDoneEvent(userId, List.of(2L), "2026-02-18T12:00:00Z");
+        addSeparateOrderDoneEvent(userId, List.of(3L), "2026-02-18T09:00:00Z");
+
+        userActionEventProcessorService.processPendingEvents();
+
+        assertTrue(hasEcoTaskAssignmentStatus(userId, EXPLORER_FRACTIONS_TASK_CODE, "ASSIGNED"));
+        assertEquals(List.of(2L, 3L), findProgress(userId, EXPLORER_FRACTIONS_TASK_CODE));
+
+        addSeparateOrderDoneEvent(userId, List.of(3L), "2026-02-18T13:00:00Z");
+        userActionEventProcessorService.processPendingEvents();
+
+        assertTrue(hasEcoTaskAssignmentStatus(userId, EXPLORER_FRACTIONS_TASK_CODE, "DONE"));
+        assertEquals(List.of(3L, 7L), findProgress(userId, EXPLORER_FRACTIONS_TASK_CODE));
+        assertEquals(1, countEventsByType(userId, UserActionEventType.ECO_TASK_COMPLETED));
+    }
+
+    private void addSeparateOrderDoneEvent(long userId, List<Long> fractionIds, String completedAt) {
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.ORDER_DONE.dbName(),
+                """
+                        {"orderId": 1, "type": "SEPARATE", "greenChosen": false, "fractionIds": %s,
+                         "status": "DONE", "completedAt": "%s"}
+                        """.formatted(fractionIds, completedAt),
+                0
+        ));
+    }
+
+    private List<Long> findProgress(long userId, String ecoTaskCode) {
+        return jdbcTemplate.queryForObject(
+                """
+                        select p.progress, p.fraction_mask
+                        from user_eco_task_progress p
+                                 join user_eco_task uet on uet.id = p.user_eco_task_id
+                                 join eco_task et on et.id = uet.eco_task_id
+                        where uet.user_id = ?
+                          and et.code = ?
+                        """,
+                (rs, rowNum) -> List.of(rs.getLong("progress"), rs.getLong("fraction_mask")),
+                userId,
+                ecoTaskCode
+        );
+    }
+
+    private void addDoneSeparateOrdersWithEvents(long userId, int count) {
         OffsetDateTime baseCreatedAt = OffsetDateTime.parse("2026-02-18T11:00:00Z");
         for (int i = 0; i < count; i++) {
             OffsetDateTime createdAt = baseCreatedAt.plusHours(i);
+            OffsetDateTime completedAt = createdAt.plusMinutes(30);
             OffsetDateTime pickupFrom = createdAt.plusDays(1);
             OffsetDateTime pickupTo = pickupFrom.plusHours(2);
 
-            jdbcTemplate.update(
+            Long orderId = jdbcTemplate.queryForObject(
                     """
                             insert into order_info(
                                                    user_id,
@@ -153,22 +203,22 @@ class EcoTaskEventProcessingE2ETest {
                                     '050000',
                                     10
                                     )
+                            returning id
                             """,
+                    Long.class,
                     userId,
                     createdAt,
-                    createdAt.plusMinutes(30),
+                    completedAt,
                     pickupFrom,
                     pickupTo
             );
-        }
-    }
-
-    private void addOrderDoneEvents(long userId, int count) {
-        for (int i = 0; i < count; i++) {
             userActionHistoryRepository.addEvent(new AddEventParams(
                     userId,
                     UserActionEventType.ORDER_DONE.dbName(),
-                    "{}",
+                    """
+                            {"orderId": %d, "type": "SEPARATE", "greenChosen": false, "fractionIds": [],
+                             "status": "DONE", "completedAt": "%s"}
+                            """.formatted(orderId, completedAt),
                     0
             ));
         }
@@ -296,6 +346,21 @@ class EcoTaskEventProcessingE2ETest {
         return form;
     }
 
+    private QuizAnswerForm explorerAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 3L,
+                2L, 6L,
+                3L, 9L,
+                4L, 12L,
+                5L, 15L,
+                6L, 18L,
+                7L, 21L
+        ));
+        return form;
+    }
+
     @TestConfiguration
     static class FixedClockConfiguration {
 
@@ -18,11 +18,16 @@ import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
 import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
 import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskAssignmentStatus;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRegistrationResult;
+import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.UserEcoTaskRepository;
 import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -34,6 +39,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 class EcoTaskLifecycleE2ETest {
 
     private static final String TZ_ALMATY = "Asia/Almaty";
+    private static final String TZ_NOVOSIBIRSK = "Asia/Novosibirsk";
+    private static final String TZ_NEW_YORK = "America/New_York";
 
     @Container
     static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
@@ -57,6 +64,12 @@ class EcoTaskLifecycleE2ETest {
     @Autowired
     private EcoTaskService ecoTaskService;
 
+    @Autowired
+    private UserEcoTaskRepository userEcoTaskRepository;
+
+    @Autowired
+    private Clock clock;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -106,6 +119,77 @@ class EcoTaskLifecycleE2ETest {
         assertEquals(1, countActiveAssignments(userId));
     }
 
+    @Test
+    void syncLifecycle_forSeveralUsers_reassignsExpiredTasksUntilPeriodEndInUserTimezone() {
+        long explorerId = registrationService.register(
+                validForm("77009990002", TZ_NOVOSIBIRSK),
+                explorerAnswers()
+        ).userId();
+        long achieverId = registrationService.register(
+                validForm("77009990003", TZ_NEW_YORK),
+                achieverAnswers()
+        ).userId();
+        jdbcTemplate.update("update user_eco_task set expired_at = '2026-02-01T00:00:00+00:00'");
+
+        ecoTaskService.syncLifecycle(List.of(explorerId, achieverId));
+
+        assertEquals(
+                List.of(
+                        ZonedDateTime.of(2026, 3, 15, 23, 59, 59, 0, ZoneId.of(TZ_NOVOSIBIRSK)).toInstant(),
+                        ZonedDateTime.of(2026, 3, 31, 23, 59, 59, 0, ZoneId.of(TZ_NOVOSIBIRSK)).toInstant()
+                ),
+                findActiveExpirations(explorerId)
+        );
+        assertEquals(
+                List.of(ZonedDateTime.of(2026, 3, 15, 23, 59, 59, 0, ZoneId.of(TZ_NEW_YORK)).toInstant()),
+                findActiveExpirations(achieverId)
+        );
+        assertEquals(3L, countExpiredAssignments());
+    }
+
+    @Test
+    void expireOverdueAssignments_expiresOnlyOverdueRowsInBoundedBatches() {
+        long firstUserId = registerAchiever("77009990004");
+        long secondUserId = registerAchiever("77009990005");
+        long activeUserId = registerAchiever("77009990006");
+        jdbcTemplate.update(
+                "update user_eco_task set expired_at = '2026-02-01T00:00:00+00:00' where user_id in (?, ?)",
+                firstUserId,
+                secondUserId
+        );
+
+        assertEquals(1, new EcoTaskExpirationService(userEcoTaskRepository, clock, 1, 1, 0).expireOverdueAssignments());
+        assertEquals(1, new EcoTaskExpirationService(userEcoTaskRepository, clock, 1, 10, 0).expireOverdueAssignments());
+        assertEquals(0, new EcoTaskExpirationService(userEcoTaskRepository, clock, 1, 10, 0).expireOverdueAssignments());
+
+        assertEquals(0, countActiveAssignments(firstUserId));
+        assertEquals(0, countActiveAssignments(secondUserId));
+        assertEquals(1, countActiveAssignments(activeUserId));
+        assertEquals(2L, countExpiredAssignments());
+    }
+
+    private List<Instant> findActiveExpirations(long userId) {
+        return jdbcTemplate.query(
+                """
+                        select expired_at
+                        from user_eco_task
+                        where user_id = ?
+                          and status = 'ASSIGNED'
+                        order by expired_at
+                        """,
+                (rs, rowNum) -> rs.getObject("expired_at", OffsetDateTime.class).toInstant(),
+                userId
+        );
+    }
+
+    private long countExpiredAssignments() {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from user_eco_task where status = 'EXPIRED'",
+                Long.class
+        );
+        return count == null ? 0L : count;
+    }
+
     private long countActiveAssignments(long userId) {
         Long count = jdbcTemplate.queryForObject(
                 """
@@ -178,6 +262,21 @@ class EcoTaskLifecycleE2ETest {
         return form;
     }
 
+    private QuizAnswerForm explorerAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 3L,
+                2L, 6L,
+                3L, 9L,
+                4L, 12L,
+                5L, 15L,
+                6L, 18L,
+                7L, 21L
+        ));
+        return form;
+    }
+
     @TestConfiguration
     static class FixedClockConfiguration {
 
@@ -0,0 +1,186 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.enabled=false"
+})
+@Tag("benchmark")
+@Testcontainers
+class EcoTaskLifecycleSyncBenchmark {
+
+    private static final String TZ_ALMATY = "Asia/Almaty";
+    private static final int USER_COUNT = 300;
+    private static final int ROUNDS = 5;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private EcoTaskService ecoTaskService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_history,
+                    order_waste_fraction,
+                    order_info,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        userIds.clear();
+        for (int i = 0; i < USER_COUNT; i++) {
+            userIds.add(registrationService.register(validForm("7700800%04d".formatted(i)), achieverAnswers()).userId());
+        }
+    }
+
+    @Test
+    void syncLifecycle_perUserPagePath() {
+        long elapsedNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            expireAllAssignments();
+            long startedAt = System.nanoTime();
+            for (long userId : userIds) {
+                ecoTaskService.findAllAssignmentsByUserId(userId);
+            }
+            elapsedNanos += System.nanoTime() - startedAt;
+        }
+        report("per-user page path", elapsedNanos);
+        assertEquals(USER_COUNT, countUsersWithActiveAssignments());
+    }
+
+    @Test
+    void syncLifecycle_batchPath() {
+        long elapsedNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            expireAllAssignments();
+            long startedAt = System.nanoTime();
+            ecoTaskService.syncLifecycle(userIds);
+            elapsedNanos += System.nanoTime() - startedAt;
+        }
+        report("batch", elapsedNanos);
+        assertEquals(USER_COUNT, countUsersWithActiveAssignments());
+    }
+
+    private void report(String path, long elapsedNanos) {
+        long syncs = (long) USER_COUNT * ROUNDS;
+        System.out.printf(
+                "eco task lifecycle sync: path=%s, user syncs=%d, elapsed=%d ms, throughput=%.1f users/s%n",
+                path,
+                syncs,
+                elapsedNanos / 1_000_000,
+                syncs / (elapsedNanos / 1_000_000_000.0)
+        );
+    }
+
+    private void expireAllAssignments() {
+        jdbcTemplate.update("""
+                update user_eco_task
+                set expired_at = '2026-02-01T00:00:00+00:00'
+                where status = 'ASSIGNED'
+                """);
+    }
+
+    private long countUsersWithActiveAssignments() {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(distinct user_id) from user_eco_task where status = 'ASSIGNED'",
+                Long.class
+        );
+        return count == null ? 0L : count;
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone(TZ_ALMATY);
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+
+    @TestConfiguration
+    static class FixedClockConfiguration {
+
+        @Bean
+        @Primary
+        Clock fixedClock() {
+            return Clock.fixed(Instant.parse("2026-03-12T10:15:30Z"), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.nsu.waste.removal.ordering.service.core.service.ecotask.rule;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskProgress;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleDefinition;
+import ru.nsu.waste.removal.ordering.service.core.model.ecotask.EcoTaskRuleEvent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.repository.ecotask.EcoTaskRepository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EcoTaskRuleCatalogTest {
+
+    private static final OffsetDateTime OCCURRED_AT = OffsetDateTime.parse("2026-02-18T12:00:00Z");
+
+    @Mock
+    private EcoTaskRepository ecoTaskRepository;
+
+    private EcoTaskRuleCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new EcoTaskRuleCatalog(
+                ecoTaskRepository,
+                new ObjectMapper(),
+                List.of(new OrderCountRuleCompiler(), new DistinctFractionsRuleCompiler(), new ActionCountRuleCompiler())
+        );
+    }
+
+    @Test
+    void find_orderCountRule_countsOnlyOrdersMatchingFilters() {
+        when(ecoTaskRepository.findCatalogFingerprint()).thenReturn("v1");
+        when(ecoTaskRepository.findAllRuleDefinitions()).thenReturn(List.of(definition(1, """
+                {"type": "ORDER_COUNT", "filters": {"green_chosen": true, "status": "DONE"}, "target": 2}
+                """)));
+
+        EcoTaskRule rule = catalog.find(1).orElseThrow().rule();
+        EcoTaskProgress progress = rule.apply(EcoTaskProgress.ZERO, orderDone("SEPARATE", true, List.of()));
+        progress = rule.apply(progress, orderDone("MIXED", false, List.of()));
+        progress = rule.apply(progress, action(UserActionEventType.ECO_PROFILE_OPENED));
+
+        assertEquals(1L, progress.value());
+        assertFalse(rule.isReached(progress));
+        assertTrue(rule.isReached(rule.apply(progress, orderDone("MIXED", true, List.of()))));
+    }
+
+    @Test
+    void find_distinctFractionsRule_countsEachFractionOnce() {
+        when(ecoTaskRepository.findCatalogFingerprint()).thenReturn("v1");
+        when(ecoTaskRepository.findAllRuleDefinitions()).thenReturn(List.of(definition(1, """
+                {"type": "DISTINCT_FRACTIONS", "filters": {"type": "SEPARATE", "status": "DONE"}, "target": 3}
+                """)));
+
+        EcoTaskRule rule = catalog.find(1).orElseThrow().rule();
+        EcoTaskProgress progress = rule.apply(EcoTaskProgress.ZERO, orderDone("SEPARATE", false, List.of(1L, 2L)));
+        EcoTaskProgress repeated = rule.apply(progress, orderDone("SEPARATE", false, List.of(2L)));
+
+        assertSame(progress, repeated);
+        assertEquals(new EcoTaskProgress(2L, 0b11L), progress);
+        assertEquals(progress, rule.apply(progress, orderDone("MIXED", false, List.of(3L))));
+        assertTrue(rule.isReached(rule.apply(progress, orderDone("SEPARATE", false, List.of(3L)))));
+    }
+
+    @Test
+    void find_actionCountRuleWithoutFilter_countsTriggerEvents() {
+        when(ecoTaskRepository.findCatalogFingerprint()).thenReturn("v1");
+        when(ecoTaskRepository.findAllRuleDefinitions()).thenReturn(List.of(definition(1, """
+                {"type": "ACTION_COUNT", "target": 1}
+                """)));
+
+        EcoTaskRule rule = catalog.find(1).orElseThrow().rule();
+
+        assertEquals(EcoTaskProgress.ZERO, rule.apply(EcoTaskProgress.ZERO, action(UserActionEventType.LEVEL_UP)));
+        assertTrue(rule.isReached(rule.apply(EcoTaskProgress.ZERO, action(UserActionEventType.ECO_PROFILE_OPENED))));
+    }
+
+    @Test
+    void find_skipsUnsupportedRuleAndReloadsOnlyForUnknownTasks() {
+        when(ecoTaskRepository.findCatalogFingerprint()).thenReturn("v1", "v2");
+        when(ecoTaskRepository.findAllRuleDefinitions())
+                .thenReturn(List.of(definition(1, """
+                        {"type": "ORDER_COUNT", "filters": {"status": "NEW"}, "target": 1}
+                        """)))
+                .thenReturn(List.of(
+                        definition(1, """
+                                {"type": "ORDER_COUNT", "filters": {"status": "NEW"}, "target": 1}
+                                """),
+                        definition(2, """
+                                {"type": "ACTION_COUNT", "target": 1}
+                                """)
+                ));
+
+        assertTrue(catalog.find(1).isEmpty());
+        assertTrue(catalog.find(1).isEmpty());
+        assertTrue(catalog.find(2).isPresent());
+        verify(ecoTaskRepository, times(2)).findAllRuleDefinitions();
+    }
+
+    @Test
+    void refreshIfChanged_reloadsOnlyWhenFingerprintChanges() {
+        when(ecoTaskRepository.findCatalogFingerprint()).thenReturn("v1", "v1", "v2", "v2");
+        when(ecoTaskRepository.findAllRuleDefinitions())
+                .thenReturn(List.of(definition(1, """
+                        {"type": "ACTION_COUNT", "target": 1}
+                        """)))
+                .thenReturn(List.of(definition(1, """
+                        {"type": "ACTION_COUNT", "target": 2}
+                        """)));
+        EcoTaskProgress oneAction = new EcoTaskProgress(1L, 0L);
+        assertTrue(catalog.find(1).orElseThrow().rule().isReached(oneAction));
+
+        catalog.refreshIfChanged();
+        assertTrue(catalog.find(1).orElseThrow().rule().isReached(oneAction));
+
+        catalog.refreshIfChanged();
+        assertFalse(catalog.find(1).orElseThrow().rule().isReached(oneAction));
+        verify(ecoTaskRepository, times(2)).findAllRuleDefinitions();
+    }
+
+    private EcoTaskRuleDefinition definition(int id, String ruleJson) {
+        return new EcoTaskRuleDefinition(id, "TASK_" + id, 10L, UserActionEventType.ECO_PROFILE_OPENED, ruleJson);
+    }
+
+    private EcoTaskRuleEvent orderDone(String type, boolean greenChosen, List<Long> fractionIds) {
+        return new EcoTaskRuleEvent(
+                UserActionEventType.ORDER_DONE,
+                OCCURRED_AT,
+                new OrderDoneEventContent(1L, type, greenChosen, null, null, fractionIds, 1L, "DONE", null)
+        );
+    }
+
+    private EcoTaskRuleEvent action(UserActionEventType eventType) {
+        return new EcoTaskRuleEvent(eventType, OCCURRED_AT, null);
+    }
+}
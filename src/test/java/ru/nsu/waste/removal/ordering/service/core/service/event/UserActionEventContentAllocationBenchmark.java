@@ -0,0 +1,146 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.nsu.waste.removal.ordering.service.configuration.objectmapper.ObjectMapperConfiguration;
+import ru.nsu.waste.removal.ordering.service.core.model.event.LiederRewardEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPayload;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+
+import java.lang.management.ManagementFactory;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Выделение памяти на чтение содержимого событий за один проход обработчиков.
+ * Прежний путь: каждый обработчик сам разбирает JSON (SortingRegularityService и EcoTaskService -
+ * ORDER_DONE, LiederGamificationService - запрос награды). Новый путь: признаки success и order_type
+ * приходят из колонок, а содержимое ORDER_DONE разбирается один раз и кэшируется в событии.
+ */
+@Tag("benchmark")
+class UserActionEventContentAllocationBenchmark {
+
+    private static final int EVENT_COUNT = 100_000;
+    private static final int ROUNDS = 5;
+    private static final String ORDER_DONE_JSON = """
+            {"orderId":%d,"type":"SEPARATE","greenChosen":true,"pickupFrom":"2026-03-20T10:00:00Z",\
+            "pickupTo":"2026-03-20T12:00:00Z","fractionIds":[1,2,3],"courierId":3,"status":"DONE",\
+            "completedAt":"2026-03-20T11:00:00Z"}""";
+    private static final String REWARD_REQUEST_JSON = "{\"success\":true}";
+
+    private final ObjectMapper objectMapper = new ObjectMapperConfiguration().objectMapper();
+    private final UserActionEventContentReader reader = new UserActionEventContentReader(objectMapper);
+
+    @Test
+    void readContent_perHandlerParseVersusCachedPayload() {
+        // Прогрев, чтобы в замер не попали классы Jackson и JIT.
+        measure(this::perHandlerParse);
+        measure(this::cachedPayload);
+
+        long[] perHandler = measure(this::perHandlerParse);
+        long[] cached = measure(this::cachedPayload);
+        report("per-handler parse", perHandler);
+        report("cached payload + columns", cached);
+
+        assertEquals(perHandler[2], cached[2]);
+    }
+
+    private long perHandlerParse(List<UserActionHistoryEvent> events) {
+        long separateOrders = 0;
+        for (UserActionHistoryEvent event : events) {
+            try {
+                if (event.eventType() == UserActionEventType.ORDER_DONE) {
+                    OrderDoneEventContent sorting = objectMapper.readValue(event.content(), OrderDoneEventContent.class);
+                    OrderDoneEventContent ecoTask = objectMapper.readValue(event.content(), OrderDoneEventContent.class);
+                    if ("SEPARATE".equals(sorting.type()) && ecoTask.fractionIds().size() == 3) {
+                        separateOrders++;
+                    }
+                } else if (objectMapper.readValue(event.content(), LiederRewardEventContent.class).success()) {
+                    separateOrders++;
+                }
+            } catch (Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+        return separateOrders;
+    }
+
+    private long cachedPayload(List<UserActionHistoryEvent> events) {
+        long separateOrders = 0;
+        for (UserActionHistoryEvent event : events) {
+            if (event.eventType() == UserActionEventType.ORDER_DONE) {
+                boolean separate = "SEPARATE".equals(event.payload().orderType());
+                OrderDoneEventContent ecoTask = reader.read(event, OrderDoneEventContent.class).orElseThrow();
+                if (separate && ecoTask.fractionIds().size() == 3) {
+                    separateOrders++;
+                }
+            } else if (Boolean.TRUE.equals(event.payload().success())) {
+                separateOrders++;
+            }
+        }
+        return separateOrders;
+    }
+
+    /**
+     * @return {байт на событие, наносекунд на событие, результат последнего прохода}
+     */
+    private long[] measure(ToLongFunction<List<UserActionHistoryEvent>> pass) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBytes = 0;
+        long elapsedNanos = 0;
+        long result = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<UserActionHistoryEvent> events = events();
+            long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+            long startedAt = System.nanoTime();
+            result = pass.applyAsLong(events);
+            elapsedNanos += System.nanoTime() - startedAt;
+            allocatedBytes += threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        long processed = (long) EVENT_COUNT * ROUNDS;
+        return new long[]{allocatedBytes / processed, elapsedNanos / processed, result};
+    }
+
+    private void report(String path, long[] measurement) {
+        System.out.printf(
+                "event content read: path=%s, events=%d, allocated=%d B/event, time=%d ns/event%n",
+                path,
+                EVENT_COUNT,
+                measurement[0],
+                measurement[1]
+        );
+    }
+
+    /**
+     * Половина событий - выполненные раздельные заказы, половина - запросы наград с признаком успеха;
+     * колонки заполнены так же, как их вычисляет PostgreSQL при вставке.
+     */
+    private static List<UserActionHistoryEvent> events() {
+        OffsetDateTime createdAt = OffsetDateTime.parse("2026-03-20T11:00:00Z");
+        List<UserActionHistoryEvent> events = new ArrayList<>(EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            boolean orderDone = i % 2 == 0;
+            UserActionEventPayload payload = orderDone
+                    ? new UserActionEventPayload(ORDER_DONE_JSON.formatted(i), null, "SEPARATE", true)
+                    : new UserActionEventPayload(REWARD_REQUEST_JSON, true, null, null);
+            events.add(new UserActionHistoryEvent(
+                    i,
+                    i,
+                    createdAt,
+                    i % 64,
+                    orderDone ? UserActionEventType.ORDER_DONE : UserActionEventType.SEPARATE_CHOSEN,
+                    0L,
+                    payload
+            ));
+        }
+        return events;
+    }
+}
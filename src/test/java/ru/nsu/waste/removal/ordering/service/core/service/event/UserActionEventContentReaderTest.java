@@ -0,0 +1,94 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import ru.nsu.waste.removal.ordering.service.configuration.objectmapper.ObjectMapperConfiguration;
+import ru.nsu.waste.removal.ordering.service.core.model.event.LiederRewardEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.OrderDoneEventContent;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventPayload;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UserActionEventContentReaderTest {
+
+    private static final String ORDER_DONE_JSON = """
+            {"orderId":7,"type":"SEPARATE","greenChosen":true,"fractionIds":[1,2],"courierId":3,
+             "status":"DONE","completedAt":"2026-03-20T10:00:00Z"}
+            """;
+
+    private ObjectMapper objectMapper;
+    private UserActionEventContentReader reader;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = spy(new ObjectMapperConfiguration().objectMapper());
+        reader = new UserActionEventContentReader(objectMapper);
+    }
+
+    @Test
+    void read_parsesContentByEventTypeOnlyOnce() throws Exception {
+        UserActionHistoryEvent event = event(UserActionEventType.ORDER_DONE, ORDER_DONE_JSON);
+
+        Optional<OrderDoneEventContent> first = reader.read(event, OrderDoneEventContent.class);
+        Optional<OrderDoneEventContent> second = reader.read(event, OrderDoneEventContent.class);
+
+        assertTrue(first.isPresent());
+        assertEquals(List.of(1L, 2L), first.get().fractionIds());
+        assertSame(first.get(), second.get());
+        verify(objectMapper, times(1)).readValue(anyString(), ArgumentMatchers.<Class<Object>>any());
+    }
+
+    @Test
+    void read_whenContentDoesNotMatchRequestedType_returnsEmpty() {
+        UserActionHistoryEvent event = event(UserActionEventType.ORDER_DONE, ORDER_DONE_JSON);
+
+        assertEquals(Optional.empty(), reader.read(event, LiederRewardEventContent.class));
+    }
+
+    @Test
+    void read_whenContentIsInvalidOrTypeHasNoContent_returnsEmptyAndDoesNotRetry() throws Exception {
+        UserActionHistoryEvent invalid = event(UserActionEventType.ORDER_DONE, "\"unexpected\"");
+        UserActionHistoryEvent withoutContent = event(UserActionEventType.LEADERBOARD_OPENED, "{}");
+
+        assertEquals(Optional.empty(), reader.read(invalid, OrderDoneEventContent.class));
+        assertEquals(Optional.empty(), reader.read(invalid, OrderDoneEventContent.class));
+        assertEquals(Optional.empty(), reader.read(withoutContent.eventType(), withoutContent.payload()));
+        verify(objectMapper, times(1)).readValue(anyString(), ArgumentMatchers.<Class<Object>>any());
+    }
+
+    @Test
+    void read_rewardRequestWithoutReward_readsSuccessFlag() {
+        UserActionHistoryEvent event = event(UserActionEventType.SEPARATE_CHOSEN, "{\"success\":true}");
+
+        assertEquals(
+                Optional.of(true),
+                reader.read(event, LiederRewardEventContent.class).map(LiederRewardEventContent::success)
+        );
+    }
+
+    private static UserActionHistoryEvent event(UserActionEventType eventType, String json) {
+        return new UserActionHistoryEvent(
+                1L,
+                1L,
+                OffsetDateTime.parse("2026-03-20T10:00:00Z"),
+                1L,
+                eventType,
+                0L,
+                UserActionEventPayload.ofJson(json)
+        );
+    }
+}
@@ -0,0 +1,241 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.user-action-event-processor.parallelism=4",
+        "spring.datasource.hikari.maximum-pool-size=30"
+})
+@Tag("e2e")
+@Testcontainers
+class UserActionEventCursorConcurrencyE2ETest {
+
+    private static final int USER_COUNT = 4;
+    private static final int WRITER_COUNT = 8;
+    private static final int EVENTS_PER_WRITER = 60;
+    private static final int PARTITIONS = 4;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserActionEventProcessorService userActionEventProcessorService;
+
+    @Autowired
+    private RecordingEventHandler recordingEventHandler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_history,
+                    achievement_user,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        recordingEventHandler.reset();
+    }
+
+    @Test
+    void processPendingEvents_whenTransactionsCommitOutOfIdOrder_processesEveryEventExactlyOnce() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < USER_COUNT; i++) {
+            userIds.add(registrationService.register(validForm("7700979%04d".formatted(i)), achieverAnswers()).userId());
+        }
+        jdbcTemplate.execute("truncate table event_processor_state, user_action_history restart identity");
+
+        Set<Long> committedEventIds = ConcurrentHashMap.newKeySet();
+        AtomicBoolean writersFinished = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITER_COUNT + 1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITER_COUNT; writer++) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < EVENTS_PER_WRITER; i++) {
+                        long userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+                        Long eventId = transactionTemplate.execute(status -> insertEventAndHoldTransaction(userId));
+                        committedEventIds.add(eventId);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> processor = executor.submit(() -> {
+                start.await();
+                while (!writersFinished.get()) {
+                    userActionEventProcessorService.processPendingEvents(PARTITIONS);
+                }
+                while (userActionEventProcessorService.processPendingEvents(PARTITIONS) > 0) {
+                    // дочитываем хвост после завершения писателей
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(2, TimeUnit.MINUTES);
+            }
+            writersFinished.set(true);
+            processor.get(2, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Long, AtomicInteger> handledEvents = recordingEventHandler.handledEvents();
+        assertEquals(WRITER_COUNT * EVENTS_PER_WRITER, committedEventIds.size());
+        assertEquals(committedEventIds, handledEvents.keySet());
+        assertTrue(handledEvents.values().stream().allMatch(count -> count.get() == 1));
+    }
+
+    private Long insertEventAndHoldTransaction(long userId) {
+        Long eventId = jdbcTemplate.queryForObject(
+                """
+                        insert into user_action_history(user_id, event_type, content, points_difference)
+                        values (?, ?, cast(? as jsonb), 0)
+                        returning id
+                        """,
+                Long.class,
+                userId,
+                UserActionEventType.INFO_CARD_VIEWED.dbName(),
+                "{\"cardId\":1}"
+        );
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(0, 15));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+        return eventId;
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone("Asia/Almaty");
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+
+    static class RecordingEventHandler implements UserActionEventHandler {
+
+        private final Map<Long, AtomicInteger> handledEvents = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean supports(UserActionHistoryEvent event) {
+            return event.eventType() == UserActionEventType.INFO_CARD_VIEWED;
+        }
+
+        @Override
+        public void handle(UserActionHistoryEvent event) {
+            handledEvents.computeIfAbsent(event.id(), id -> new AtomicInteger()).incrementAndGet();
+        }
+
+        Map<Long, AtomicInteger> handledEvents() {
+            return handledEvents;
+        }
+
+        void reset() {
+            handledEvents.clear();
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingHandlerConfiguration {
+
+        @Bean
+        RecordingEventHandler recordingEventHandler() {
+            return new RecordingEventHandler();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionHistoryEvent;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false"
+})
+@Tag("e2e")
+@Testcontainers
+class UserActionEventHandlerIsolationE2ETest {
+
+    private static final String POISON_CONTENT = "{\"success\":true,\"poison\":true}";
+    private static final String HEALTHY_CONTENT = "{\"success\":true}";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserActionEventProcessorService userActionEventProcessorService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_event_dead_letter,
+                    user_action_history,
+                    achievement_user,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+    }
+
+    @Test
+    void processPendingEvents_whenHandlerFailsOnOneEvent_rollsBackOnlyThatEventInThatHandler() {
+        long userId = registrationService.register(validForm("77009810001"), achieverAnswers()).userId();
+        jdbcTemplate.execute("truncate table event_processor_state, user_action_history restart identity");
+
+        long firstHealthyEventId = insertSeparateChosenEvent(userId, HEALTHY_CONTENT);
+        long poisonEventId = insertSeparateChosenEvent(userId, POISON_CONTENT);
+        long secondHealthyEventId = insertSeparateChosenEvent(userId, HEALTHY_CONTENT);
+
+        while (userActionEventProcessorService.processPendingEvents() > 0) {
+            // дочитываем события, порожденные обработчиками
+        }
+
+        List<Map<String, Object>> deadLetters = jdbcTemplate.queryForList(
+                "select event_id, handler_name from user_action_event_dead_letter"
+        );
+        assertEquals(1, deadLetters.size());
+        assertEquals(poisonEventId, ((Number) deadLetters.getFirst().get("event_id")).longValue());
+        assertEquals("PoisonEventHandler", deadLetters.getFirst().get("handler_name"));
+
+        List<Long> echoedEventIds = jdbcTemplate.queryForList(
+                """
+                        select cast(content ->> 'sourceEventId' as bigint)
+                        from user_action_history
+                        where event_type = ?
+                        order by id
+                        """,
+                Long.class,
+                UserActionEventType.INFO_CARD_VIEWED.dbName()
+        );
+        assertEquals(List.of(firstHealthyEventId, secondHealthyEventId), echoedEventIds);
+
+        Long rewardedEvents = jdbcTemplate.queryForObject(
+                """
+                        select count(*)
+                        from user_action_history
+                        where event_type = ?
+                          and content ->> 'algo' is not null
+                        """,
+                Long.class,
+                UserActionEventType.SEPARATE_CHOSEN.dbName()
+        );
+        assertEquals(3L, rewardedEvents);
+    }
+
+    private long insertSeparateChosenEvent(long userId, String content) {
+        Long eventId = jdbcTemplate.queryForObject(
+                """
+                        insert into user_action_history(user_id, event_type, content, points_difference)
+                        values (?, ?, cast(? as jsonb), 0)
+                        returning id
+                        """,
+                Long.class,
+                userId,
+                UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                content
+        );
+        return eventId == null ? 0L : eventId;
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone("Asia/Almaty");
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+
+    /**
+     * Пишет в историю событие-отклик на каждое обработанное событие и падает на "отравленном":
+     * по откликам видно, что откатились только изменения упавшего события.
+     */
+    static class PoisonEventHandler implements UserActionEventHandler {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        PoisonEventHandler(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public boolean supports(UserActionHistoryEvent event) {
+            return event.eventType() == UserActionEventType.SEPARATE_CHOSEN;
+        }
+
+        @Override
+        public void handle(UserActionHistoryEvent event) {
+            jdbcTemplate.update(
+                    """
+                            insert into user_action_history(user_id, event_type, content, points_difference)
+                            values (?, ?, cast(? as jsonb), 0)
+                            """,
+                    event.userId(),
+                    UserActionEventType.INFO_CARD_VIEWED.dbName(),
+                    "{\"sourceEventId\":" + event.id() + "}"
+            );
+            if (event.content().contains("poison")) {
+                throw new IllegalStateException("Poison event id = %s".formatted(event.id()));
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class PoisonHandlerConfiguration {
+
+        @Bean
+        @Order(11)
+        PoisonEventHandler poisonEventHandler(JdbcTemplate jdbcTemplate) {
+            return new PoisonEventHandler(jdbcTemplate);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.UserActionHistoryRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.history.param.AddEventParams;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=true",
+        "app.jobs.user-action-event-processor.notify.enabled=true",
+        "app.jobs.user-action-event-processor.fixed-delay-ms=600000"
+})
+@Tag("e2e")
+@Testcontainers
+class UserActionEventNotificationE2ETest {
+
+    private static final long WAIT_TIMEOUT_MS = 5_000L;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserActionHistoryRepository userActionHistoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void addEvent_whenPollingIsEffectivelyOff_processesEventAfterNotification() throws InterruptedException {
+        long userId = registrationService.register(validForm("77007780001"), achieverAnswers()).userId();
+
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                "{\"success\":true}",
+                0
+        ));
+
+        assertTrue(awaitRewardApplied(userId));
+    }
+
+    @Test
+    void addEvent_whenOlderTransactionIsOpenDuringNotification_processesEventAfterItCommits()
+            throws InterruptedException, SQLException {
+        long userId = registrationService.register(validForm("77007780002"), achieverAnswers()).userId();
+
+        try (Connection olderTransaction = dataSource.getConnection()) {
+            olderTransaction.setAutoCommit(false);
+            try (Statement statement = olderTransaction.createStatement()) {
+                statement.execute("select pg_current_xact_id()");
+            }
+
+            userActionHistoryRepository.addEvent(new AddEventParams(
+                    userId,
+                    UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                    "{\"success\":true}",
+                    0
+            ));
+            Thread.sleep(500L);
+            assertFalse(isRewardApplied(userId));
+
+            olderTransaction.commit();
+        }
+
+        assertTrue(awaitRewardApplied(userId));
+    }
+
+    private boolean awaitRewardApplied(long userId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+        boolean processed = false;
+        while (!processed && System.currentTimeMillis() < deadline) {
+            processed = isRewardApplied(userId);
+            if (!processed) {
+                Thread.sleep(50L);
+            }
+        }
+        return processed;
+    }
+
+    private boolean isRewardApplied(long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                """
+                        select count(*)
+                        from user_action_history
+                        where user_id = ?
+                          and event_type = ?
+                          and content ->> 'algo' is not null
+                        """,
+                Long.class,
+                userId,
+                UserActionEventType.SEPARATE_CHOSEN.dbName()
+        );
+        return count != null && count > 0L;
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone("Asia/Almaty");
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+}
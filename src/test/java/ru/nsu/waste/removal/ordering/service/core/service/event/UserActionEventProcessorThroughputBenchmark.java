@@ -0,0 +1,203 @@
+package ru.nsu.waste.removal.ordering.service.core.service.event;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.app.form.QuizAnswerForm;
+import ru.nsu.waste.removal.ordering.service.app.form.RegistrationForm;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.enabled=false",
+        "app.jobs.user-action-event-processor.parallelism=16",
+        "spring.datasource.hikari.maximum-pool-size=40"
+})
+@Tag("benchmark")
+@Testcontainers
+class UserActionEventProcessorThroughputBenchmark {
+
+    private static final String TZ_ALMATY = "Asia/Almaty";
+    private static final int USER_COUNT = 64;
+    private static final int EVENTS_PER_USER = 50;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserActionEventProcessorService userActionEventProcessorService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_history,
+                    achievement_user,
+                    user_eco_task,
+                    achiever_profile,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        userIds.clear();
+        for (int i = 0; i < USER_COUNT; i++) {
+            userIds.add(registerAchiever("7700900%04d".formatted(i)));
+        }
+        jdbcTemplate.execute("truncate table event_processor_state, user_action_history restart identity");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 16})
+    void processPendingEvents_throughputByPartitionCount(int partitions) {
+        int seededEvents = seedRewardEvents();
+
+        long startedAt = System.nanoTime();
+        int processed = 0;
+        int lastBatch;
+        do {
+            lastBatch = userActionEventProcessorService.processPendingEvents(partitions);
+            processed += lastBatch;
+        } while (lastBatch > 0);
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        double eventsPerSecond = processed / (elapsedNanos / 1_000_000_000.0);
+        System.out.printf(
+                "user action event processor: partitions=%d, events=%d, elapsed=%d ms, throughput=%.1f events/s%n",
+                partitions,
+                processed,
+                elapsedNanos / 1_000_000,
+                eventsPerSecond
+        );
+
+        assertTrue(processed >= seededEvents);
+        assertEquals(0L, countUsersWithUnprocessedRewards());
+    }
+
+    private int seedRewardEvents() {
+        List<Object[]> rows = new ArrayList<>(USER_COUNT * EVENTS_PER_USER);
+        for (int i = 0; i < EVENTS_PER_USER; i++) {
+            for (long userId : userIds) {
+                boolean success = (i + userId) % 4 != 0;
+                rows.add(new Object[]{
+                        userId,
+                        UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                        "{\"success\":" + success + "}"
+                });
+            }
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                        insert into user_action_history(user_id, event_type, content, points_difference)
+                        values (?, ?, cast(? as jsonb), 0)
+                        """,
+                rows
+        );
+        return rows.size();
+    }
+
+    private long countUsersWithUnprocessedRewards() {
+        Long count = jdbcTemplate.queryForObject(
+                """
+                        select count(distinct user_id)
+                        from user_action_history
+                        where event_type = ?
+                          and content ->> 'algo' is null
+                        """,
+                Long.class,
+                UserActionEventType.SEPARATE_CHOSEN.dbName()
+        );
+        return count == null ? 0L : count;
+    }
+
+    private long registerAchiever(String phone) {
+        return registrationService.register(validForm(phone), achieverAnswers()).userId();
+    }
+
+    private RegistrationForm validForm(String phone) {
+        RegistrationForm form = new RegistrationForm();
+        form.setPhone(phone);
+        form.setEmail("user@example.com");
+        form.setPassword("secret123");
+        form.setName("Ivan");
+        form.setSurname("Petrov");
+        form.setPatronymic("Sergeevich");
+        form.setCountryCode("KZ");
+        form.setRegion("Almaty Region");
+        form.setCity("Almaty");
+        form.setPostalCode("050000");
+        form.setDetailedAddress("Abay 10");
+        form.setTimezone(TZ_ALMATY);
+        return form;
+    }
+
+    private QuizAnswerForm achieverAnswers() {
+        QuizAnswerForm form = new QuizAnswerForm();
+        form.setQuizId(1L);
+        form.setAnswers(Map.of(
+                1L, 1L,
+                2L, 4L,
+                3L, 7L,
+                4L, 10L,
+                5L, 13L,
+                6L, 16L,
+                7L, 19L
+        ));
+        return form;
+    }
+
+    @TestConfiguration
+    static class FixedClockConfiguration {
+
+        @Bean
+        @Primary
+        Clock fixedClock() {
+            return Clock.fixed(Instant.parse("2026-02-18T10:15:30Z"), ZoneOffset.UTC);
+        }
+    }
+}
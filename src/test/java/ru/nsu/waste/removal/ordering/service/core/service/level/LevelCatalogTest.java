@@ -0,0 +1,70 @@
+package ru.nsu.waste.removal.ordering.service.core.service.level;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.nsu.waste.removal.ordering.service.core.model.level.Level;
+import ru.nsu.waste.removal.ordering.service.core.repository.level.LevelRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LevelCatalogTest {
+
+    private static final List<Level> LEVELS = List.of(
+            new Level(1, 1000),
+            new Level(2, 2000),
+            new Level(3, 4000)
+    );
+
+    @Mock
+    private LevelRepository levelRepository;
+
+    private LevelCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new LevelCatalog(levelRepository);
+    }
+
+    @Test
+    void findNextTarget_returnsLowestLevelAboveTotalPoints() {
+        when(levelRepository.findFingerprint()).thenReturn("v1");
+        when(levelRepository.findAll()).thenReturn(LEVELS);
+
+        assertEquals(Optional.of(new Level(1, 1000)), catalog.findNextTarget(0L));
+        assertEquals(Optional.of(new Level(1, 1000)), catalog.findNextTarget(999L));
+        assertEquals(Optional.of(new Level(2, 2000)), catalog.findNextTarget(1000L));
+        assertEquals(Optional.of(new Level(3, 4000)), catalog.findNextTarget(3200L));
+        assertEquals(Optional.empty(), catalog.findNextTarget(4000L));
+        assertEquals(Optional.empty(), catalog.findNextTarget(Long.MAX_VALUE));
+        assertEquals(new Level(1, 1000), catalog.findLowest());
+        assertEquals(new Level(3, 4000), catalog.findHighest());
+        verify(levelRepository, times(1)).findAll();
+    }
+
+    @Test
+    void refreshIfChanged_reloadsOnlyWhenFingerprintChanges() {
+        when(levelRepository.findFingerprint()).thenReturn("v1", "v1", "v2", "v2");
+        when(levelRepository.findAll())
+                .thenReturn(LEVELS)
+                .thenReturn(List.of(new Level(1, 1000), new Level(2, 2000), new Level(3, 4000), new Level(4, 8000)));
+
+        assertEquals(new Level(3, 4000), catalog.findHighest());
+        catalog.refreshIfChanged();
+        assertEquals(Optional.empty(), catalog.findNextTarget(5000L));
+
+        catalog.refreshIfChanged();
+
+        assertEquals(Optional.of(new Level(4, 8000)), catalog.findNextTarget(5000L));
+        verify(levelRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,109 @@
+package ru.nsu.waste.removal.ordering.service.core.service.order;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.nsu.waste.removal.ordering.service.core.model.order.PlannedSlotOrder;
+import ru.nsu.waste.removal.ordering.service.core.repository.cluster.GeoClusterRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GreenSlotOccupancyIndexTest {
+
+    private static final String POSTAL_CODE = "050000";
+    private static final OffsetDateTime SLOT_FROM = OffsetDateTime.parse("2026-02-18T18:00:00+05:00");
+    private static final OffsetDateTime SLOT_TO = SLOT_FROM.plusHours(2);
+
+    @Mock
+    private GeoClusterRepository geoClusterRepository;
+
+    private GreenSlotOccupancyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new GreenSlotOccupancyIndex(
+                geoClusterRepository,
+                Clock.fixed(Instant.parse("2026-02-18T10:15:30Z"), ZoneOffset.UTC)
+        );
+    }
+
+    @Test
+    void isPlannedByOtherUser_loadsIndexOnceAndIgnoresOwnOrders() {
+        when(geoClusterRepository.findActivePlannedSlotOrders(any()))
+                .thenReturn(List.of(order(1L, 10L)));
+
+        assertTrue(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 20L));
+        assertFalse(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 10L));
+        assertFalse(index.isPlannedByOtherUser("630000", SLOT_FROM, SLOT_TO, 20L));
+        assertFalse(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_TO, SLOT_TO.plusHours(2), 20L));
+        verify(geoClusterRepository, times(1)).findActivePlannedSlotOrders(any());
+    }
+
+    @Test
+    void removeOrderAfterCommit_keepsSlotGreenWhileOtherOrdersRemain() {
+        when(geoClusterRepository.findActivePlannedSlotOrders(any()))
+                .thenReturn(List.of(order(1L, 10L), order(2L, 11L)));
+        index.reload();
+
+        index.removeOrderAfterCommit(order(1L, 10L));
+        assertTrue(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 20L));
+
+        index.removeOrderAfterCommit(order(2L, 11L));
+        assertFalse(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 20L));
+    }
+
+    @Test
+    void addOrderAfterCommit_inTransaction_appliesOnlyAfterCommit() {
+        when(geoClusterRepository.findActivePlannedSlotOrders(any())).thenReturn(List.of());
+        index.reload();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.addOrderAfterCommit(order(1L, 10L));
+            assertFalse(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 20L));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 20L));
+    }
+
+    @Test
+    void reload_replaysUpdatesCommittedWhileSnapshotWasLoading() {
+        when(geoClusterRepository.findActivePlannedSlotOrders(any()))
+                .thenReturn(List.of(order(1L, 10L)))
+                .thenAnswer(invocation -> {
+                    index.addOrderAfterCommit(order(2L, 11L));
+                    index.removeOrderAfterCommit(order(1L, 10L));
+                    return List.of(order(1L, 10L));
+                });
+        index.reload();
+
+        index.reload();
+
+        assertTrue(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 10L));
+        assertFalse(index.isPlannedByOtherUser(POSTAL_CODE, SLOT_FROM, SLOT_TO, 11L));
+    }
+
+    private PlannedSlotOrder order(long orderId, long userId) {
+        return new PlannedSlotOrder(orderId, userId, POSTAL_CODE, SLOT_FROM, SLOT_TO);
+    }
+}
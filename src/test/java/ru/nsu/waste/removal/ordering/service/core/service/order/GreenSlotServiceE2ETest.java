@@ -64,6 +64,9 @@ class GreenSlotServiceE2ETest {
     @Autowired
     private GreenSlotService greenSlotService;
 
+    @Autowired
+    private GreenSlotOccupancyIndex greenSlotOccupancyIndex;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -80,6 +83,7 @@ class GreenSlotServiceE2ETest {
                     person_info
                 restart identity cascade
                 """);
+        greenSlotOccupancyIndex.reload();
     }
 
     @Test
@@ -185,6 +189,7 @@ class GreenSlotServiceE2ETest {
                 pickupTo,
                 postalCode
         );
+        greenSlotOccupancyIndex.reload();
     }
 
     private long registerAchiever(String phone, String postalCode) {
@@ -21,6 +21,7 @@ import ru.nsu.waste.removal.ordering.service.core.model.order.SlotOption;
 import ru.nsu.waste.removal.ordering.service.core.model.user.UserRegistrationResult;
 import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventProcessorService;
 import ru.nsu.waste.removal.ordering.service.core.service.registration.RegistrationService;
+import ru.nsu.waste.removal.ordering.service.core.service.user.UserContextCacheService;
 
 import java.time.Clock;
 import java.time.Instant;
@@ -71,6 +72,12 @@ class OrderCreateServiceE2ETest {
     @Autowired
     private UserActionEventProcessorService userActionEventProcessorService;
 
+    @Autowired
+    private UserContextCacheService userContextCacheService;
+
+    @Autowired
+    private GreenSlotOccupancyIndex greenSlotOccupancyIndex;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -89,6 +96,8 @@ class OrderCreateServiceE2ETest {
                     person_info
                 restart identity cascade
                 """);
+        userContextCacheService.evictAll();
+        greenSlotOccupancyIndex.reload();
     }
 
     @Test
@@ -174,13 +183,18 @@ class OrderCreateServiceE2ETest {
                 .findFirst()
                 .orElseThrow(() -> new IllegalStateException("Green slot was expected"));
 
+        List<Long> fractionIds = findTwoActiveFractionIds();
         long orderId = orderCreateService.createOrder(
                 userId,
-                new OrderCreateCommand("SEPARATE", greenSlot.key(), findTwoActiveFractionIds(), true)
+                new OrderCreateCommand("SEPARATE", greenSlot.key(), fractionIds, true)
         );
 
         OrderRow row = findOrderRow(orderId);
         assertEquals("SEPARATE", row.type());
+        assertEquals(
+                (1L << (fractionIds.get(0) - 1)) | (1L << (fractionIds.get(1) - 1)),
+                findOrderFractionMask(orderId)
+        );
         assertEquals("PAID_WITH_POINTS", row.paymentStatus());
         assertEquals(300L - row.costPoints(), findUserCurrentPoints(userId));
         assertEquals(300L, findUserTotalPoints(userId));
@@ -399,6 +413,7 @@ class OrderCreateServiceE2ETest {
                 newPostalCode,
                 userId
         );
+        userContextCacheService.evictUser(userId);
     }
 
     private String findOrderPostalCode(long orderId) {
@@ -415,6 +430,21 @@ class OrderCreateServiceE2ETest {
         );
     }
 
+    private long findOrderFractionMask(long orderId) {
+        Long fractionMask = jdbcTemplate.queryForObject(
+                """
+                        select fraction_mask
+                        from order_info
+                        where id = ?
+                        order by created_at desc
+                        limit 1
+                        """,
+                Long.class,
+                orderId
+        );
+        return fractionMask == null ? 0L : fractionMask;
+    }
+
     private long findUserTotalPoints(long userId) {
         Long totalPoints = jdbcTemplate.queryForObject(
                 "select total_points from user_info where id = ?",
@@ -465,6 +495,7 @@ class OrderCreateServiceE2ETest {
                 pickupTo,
                 postalCode
         );
+        greenSlotOccupancyIndex.reload();
     }
 
     private long registerAchiever(String phone, String postalCode) {
@@ -0,0 +1,204 @@
+package ru.nsu.waste.removal.ordering.service.core.service.partition;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.PartitionedTable;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.TablePartition;
+import ru.nsu.waste.removal.ordering.service.core.repository.partition.PartitionRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.partition-maintenance.enabled=false"
+})
+@Tag("e2e")
+@Testcontainers
+class PartitionMaintenanceServiceE2ETest {
+
+    private static final int MONTHS_AHEAD = 3;
+    private static final int RETENTION_MONTHS = 12;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private PartitionRepository partitionRepository;
+
+    @Autowired
+    private PartitionMetrics partitionMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    event_processor_state,
+                    user_action_history,
+                    order_waste_fraction,
+                    order_info,
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+    }
+
+    @Test
+    void maintain_createsPartitionsAheadIdempotentlyAndReportsThem() {
+        PartitionMaintenanceService service = serviceAt("2026-12-15T10:00:00Z");
+
+        service.maintain();
+        service.maintain();
+
+        for (PartitionedTable table : PartitionedTable.values()) {
+            List<String> names = partitionNames(table);
+            assertTrue(names.contains(table.tableName() + "_2027_01"));
+            assertTrue(names.contains(table.tableName() + "_2027_03"));
+            assertTrue(names.contains(table.tableName() + "_2026_12"));
+            assertEquals(
+                    names.size(),
+                    meterRegistry.get("db.partitions.count").tag("table", table.tableName()).gauge().value()
+            );
+        }
+        assertTrue(meterRegistry.get("db.partitions.size")
+                .tag("table", PartitionedTable.USER_ACTION_HISTORY.tableName())
+                .gauge()
+                .value() > 0);
+
+        long userId = createUser();
+        addEvent(userId, OffsetDateTime.parse("2027-03-31T23:59:59Z"));
+        assertEquals(1, countEvents(userId));
+    }
+
+    @Test
+    void maintain_detachesExpiredHistoryPartitionsOnlyAfterTheirEventsAreProcessed() {
+        long userId = createUser();
+        addEvent(userId, OffsetDateTime.parse("2026-03-10T12:00:00Z"));
+        addEvent(userId, OffsetDateTime.parse("2026-10-10T12:00:00Z"));
+        PartitionMaintenanceService service = serviceAt("2027-09-15T10:00:00Z");
+
+        service.maintain();
+
+        List<String> historyPartitions = partitionNames(PartitionedTable.USER_ACTION_HISTORY);
+        assertTrue(historyPartitions.contains("user_action_history_2026_03"));
+        assertFalse(historyPartitions.contains("user_action_history_2026_02"));
+        assertFalse(historyPartitions.contains("user_action_history_2026_08"));
+        assertTrue(historyPartitions.contains("user_action_history_2026_09"));
+        assertTrue(archivedTables().contains("user_action_history_2026_02"));
+        assertTrue(partitionNames(PartitionedTable.ORDER_INFO).contains("order_info_2026_02"));
+
+        jdbcTemplate.update("""
+                insert into event_processor_state(processor_name, last_tx_id, last_event_id)
+                select 'test-processor', max(tx_id), max(id)
+                from user_action_history
+                """);
+        service.maintain();
+
+        assertFalse(partitionNames(PartitionedTable.USER_ACTION_HISTORY).contains("user_action_history_2026_03"));
+        assertTrue(archivedTables().contains("user_action_history_2026_03"));
+        assertEquals(1, countEvents(userId));
+    }
+
+    private PartitionMaintenanceService serviceAt(String instant) {
+        return new PartitionMaintenanceService(
+                partitionRepository,
+                partitionMetrics,
+                Clock.fixed(Instant.parse(instant), ZoneOffset.UTC),
+                MONTHS_AHEAD,
+                RETENTION_MONTHS
+        );
+    }
+
+    private List<String> partitionNames(PartitionedTable table) {
+        return partitionRepository.findPartitions(table).stream()
+                .map(TablePartition::name)
+                .toList();
+    }
+
+    private List<String> archivedTables() {
+        return jdbcTemplate.queryForList(
+                "select tablename from pg_tables where schemaname = 'archive'",
+                String.class
+        );
+    }
+
+    private long createUser() {
+        jdbcTemplate.update("""
+                insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                values ('RU', '630000', 'City', 'Region', 'Street 1', 'UTC')
+                """);
+        jdbcTemplate.update("""
+                insert into person_info(phone, email, name, surname)
+                values (75550009999, 'partitions@mail.test', 'Name', 'Surname')
+                """);
+        Long userId = jdbcTemplate.queryForObject(
+                """
+                        insert into user_info(type_id, address_id, person_id)
+                        values ((select id from user_type where name = 'ACHIEVER'), 1, 1)
+                        returning id
+                        """,
+                Long.class
+        );
+        if (userId == null) {
+            throw new IllegalStateException("Failed to prepare test user");
+        }
+        return userId;
+    }
+
+    private void addEvent(long userId, OffsetDateTime createdAt) {
+        jdbcTemplate.update(
+                """
+                        insert into user_action_history(user_id, event_type, content, created_at)
+                        values (?, 'INFO_CARD_VIEWED', '{}', ?)
+                        """,
+                userId,
+                createdAt
+        );
+    }
+
+    private long countEvents(long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from user_action_history where user_id = ?",
+                Long.class,
+                userId
+        );
+        return count == null ? 0L : count;
+    }
+}
@@ -0,0 +1,144 @@
+package ru.nsu.waste.removal.ordering.service.core.service.partition;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.PartitionedTable;
+import ru.nsu.waste.removal.ordering.service.core.model.partition.TablePartition;
+import ru.nsu.waste.removal.ordering.service.core.repository.partition.PartitionRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Миграции и приложение работают в сессиях с часовым поясом +07: так партиции из V1__init.sql
+ * получают границы по местной, а не UTC полуночи.
+ */
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.partition-maintenance.enabled=false",
+        "spring.flyway.init-sqls=set time zone 'Asia/Novosibirsk'",
+        "spring.datasource.hikari.connection-init-sql=set time zone 'Asia/Novosibirsk'"
+})
+@Tag("e2e")
+@Testcontainers
+class PartitionMaintenanceServiceNonUtcE2ETest {
+
+    private static final int MONTHS_AHEAD = 3;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private PartitionRepository partitionRepository;
+
+    @Autowired
+    private PartitionMetrics partitionMetrics;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void maintain_whenInitialPartitionsEndAtLocalMidnight_continuesFromTheirActualBounds() {
+        PartitionMaintenanceService service = new PartitionMaintenanceService(
+                partitionRepository,
+                partitionMetrics,
+                Clock.fixed(Instant.parse("2026-12-15T10:00:00Z"), ZoneOffset.UTC),
+                MONTHS_AHEAD,
+                0
+        );
+
+        service.maintain();
+
+        for (PartitionedTable table : PartitionedTable.values()) {
+            TablePartition december = findPartition(table, table.tableName() + "_2026_12");
+            TablePartition january = findPartition(table, table.tableName() + "_2027_01");
+            TablePartition february = findPartition(table, table.tableName() + "_2027_02");
+            assertTrue(OffsetDateTime.parse("2026-12-31T17:00:00Z").isEqual(december.upperBound()));
+            assertTrue(december.upperBound().isEqual(january.lowerBound()));
+            assertTrue(january.upperBound().isEqual(february.lowerBound()));
+        }
+
+        long userId = createUser();
+        addEvent(userId, OffsetDateTime.parse("2026-12-31T20:00:00Z"));
+        addEvent(userId, OffsetDateTime.parse("2027-03-31T23:59:59Z"));
+        assertEquals(2, countEvents(userId));
+    }
+
+    private TablePartition findPartition(PartitionedTable table, String partitionName) {
+        return partitionRepository.findPartitions(table).stream()
+                .filter(partition -> partition.name().equals(partitionName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Partition %s not found".formatted(partitionName)));
+    }
+
+    private long createUser() {
+        jdbcTemplate.update("""
+                insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                values ('RU', '630000', 'City', 'Region', 'Street 1', 'Asia/Novosibirsk')
+                """);
+        jdbcTemplate.update("""
+                insert into person_info(phone, email, name, surname)
+                values (75550009998, 'partitions-tz@mail.test', 'Name', 'Surname')
+                """);
+        Long userId = jdbcTemplate.queryForObject(
+                """
+                        insert into user_info(type_id, address_id, person_id)
+                        values ((select id from user_type where name = 'ACHIEVER'),
+                                (select max(id) from address),
+                                (select max(id) from person_info))
+                        returning id
+                        """,
+                Long.class
+        );
+        if (userId == null) {
+            throw new IllegalStateException("Failed to prepare test user");
+        }
+        return userId;
+    }
+
+    private void addEvent(long userId, OffsetDateTime createdAt) {
+        jdbcTemplate.update(
+                """
+                        insert into user_action_history(user_id, event_type, content, created_at)
+                        values (?, 'INFO_CARD_VIEWED', '{}', ?)
+                        """,
+                userId,
+                createdAt
+        );
+    }
+
+    private long countEvents(long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "select count(*) from user_action_history where user_id = ?",
+                Long.class,
+                userId
+        );
+        return count == null ? 0L : count;
+    }
+}
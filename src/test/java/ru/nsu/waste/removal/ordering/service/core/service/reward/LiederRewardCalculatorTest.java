@@ -0,0 +1,46 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LiederRewardCalculatorTest {
+
+    private static final int HABIT_STRENGTH_SCALE = 1_000_000;
+
+    /**
+     * Сила привычки хранится в БД как long с масштабом 1_000_000, поэтому перебирается вся область значений.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0.10, 0.90, 50",
+            "0.01, 0.99, 50",
+            "0.30, 0.50, 100",
+            "0.05, 0.75, 7"
+    })
+    void step_tableMatchesAnalyticBitForBitOverWholeStrengthDomain(double alpha, double theta, int maxPoints) {
+        LiederRewardCalculator analytic = new LiederOptimizedRewardCalculator(alpha, theta, maxPoints);
+        LiederRewardCalculator table = LiederTableRewardCalculator.of(alpha, theta, maxPoints);
+
+        for (int scaled = 0; scaled <= HABIT_STRENGTH_SCALE; scaled++) {
+            double strength = scaled / (double) HABIT_STRENGTH_SCALE;
+            assertStepEquals(analytic.step(strength, false), table.step(strength, false), strength);
+            assertStepEquals(analytic.step(strength, true), table.step(strength, true), strength);
+        }
+        assertSame(table, LiederTableRewardCalculator.of(alpha, theta, maxPoints));
+    }
+
+    private void assertStepEquals(
+            LiederRewardCalculator.StepResult expected,
+            LiederRewardCalculator.StepResult actual,
+            double strength
+    ) {
+        if (expected.pointsDelta() != actual.pointsDelta()
+                || Double.doubleToRawLongBits(expected.newStrength()) != Double.doubleToRawLongBits(actual.newStrength())
+                || Double.doubleToRawLongBits(expected.fValue()) != Double.doubleToRawLongBits(actual.fValue())) {
+            assertEquals(expected, actual, "strength = %s".formatted(strength));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ru.nsu.waste.removal.ordering.service.core.service.reward;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.nsu.waste.removal.ordering.service.core.model.event.UserActionEventType;
+import ru.nsu.waste.removal.ordering.service.core.model.reward.LiederRewardParameters;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+import ru.nsu.waste.removal.ordering.service.core.repository.reward.LiederRewardParametersRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LiederRewardParametersRegistryTest {
+
+    @Mock
+    private LiederRewardParametersRepository liederRewardParametersRepository;
+
+    private LiederRewardParametersRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new LiederRewardParametersRegistry(
+                liederRewardParametersRepository,
+                LiederRewardCalculatorType.TABLE,
+                0.10,
+                0.90,
+                50
+        );
+    }
+
+    @Test
+    void policy_userTypeWithoutRows_usesConfiguredDefaults() {
+        when(liederRewardParametersRepository.findStamp()).thenReturn("0|");
+        when(liederRewardParametersRepository.findLatest()).thenReturn(List.of());
+
+        LiederRewardPolicy policy = registry.policy(UserType.ACHIEVER, UserActionEventType.GREEN_SLOT_CHOSEN);
+
+        assertEquals(0, policy.parameterVersion());
+        assertEquals(0.10, policy.calculator().alpha());
+        assertEquals(0.90, policy.calculator().theta());
+        assertEquals(50, policy.calculator().maxPoints());
+    }
+
+    @Test
+    void policy_eventTypeRow_overridesUserTypeRow() {
+        when(liederRewardParametersRepository.findStamp()).thenReturn("2|2");
+        when(liederRewardParametersRepository.findLatest()).thenReturn(List.of(
+                new LiederRewardParameters(UserType.ACHIEVER, null, 1, 0.20, 0.80, 40),
+                new LiederRewardParameters(UserType.ACHIEVER, UserActionEventType.SEPARATE_CHOSEN, 3, 0.30, 0.70, 20)
+        ));
+
+        LiederRewardPolicy separate = registry.policy(UserType.ACHIEVER, UserActionEventType.SEPARATE_CHOSEN);
+        LiederRewardPolicy green = registry.policy(UserType.ACHIEVER, UserActionEventType.GREEN_SLOT_CHOSEN);
+        LiederRewardPolicy missed = registry.policy(UserType.ACHIEVER, UserActionEventType.SORTING_REGULARITY_MISSED);
+
+        assertEquals(3, separate.parameterVersion());
+        assertEquals(20, separate.calculator().maxPoints());
+        assertEquals(1, green.parameterVersion());
+        assertEquals(40, green.calculator().maxPoints());
+        assertSame(green, missed);
+        verify(liederRewardParametersRepository, times(1)).findLatest();
+    }
+
+    @Test
+    void refreshIfChanged_reloadsOnlyWhenStampChanges() {
+        when(liederRewardParametersRepository.findStamp()).thenReturn("1|1", "1|1", "2|2", "2|2");
+        when(liederRewardParametersRepository.findLatest())
+                .thenReturn(List.of(new LiederRewardParameters(UserType.ACHIEVER, null, 1, 0.10, 0.90, 50)))
+                .thenReturn(List.of(new LiederRewardParameters(UserType.ACHIEVER, null, 2, 0.15, 0.85, 60)));
+
+        LiederRewardPolicy before = registry.policy(UserType.ACHIEVER, UserActionEventType.SEPARATE_CHOSEN);
+        registry.refreshIfChanged();
+        assertSame(before, registry.policy(UserType.ACHIEVER, UserActionEventType.SEPARATE_CHOSEN));
+
+        registry.refreshIfChanged();
+        LiederRewardPolicy after = registry.policy(UserType.ACHIEVER, UserActionEventType.SEPARATE_CHOSEN);
+
+        assertEquals(1, before.parameterVersion());
+        assertEquals(2, after.parameterVersion());
+        assertEquals(60, after.calculator().maxPoints());
+        verify(liederRewardParametersRepository, times(2)).findLatest();
+    }
+}
@@ -65,6 +65,9 @@ class RewardPipelineE2ETest {
     @Autowired
     private UserActionEventProcessorService userActionEventProcessorService;
 
+    @Autowired
+    private LiederRewardParametersRegistry liederRewardParametersRegistry;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -81,6 +84,8 @@ class RewardPipelineE2ETest {
                     person_info
                 restart identity cascade
                 """);
+        jdbcTemplate.update("delete from lieder_reward_parameters where version > 1");
+        liederRewardParametersRegistry.refreshIfChanged();
     }
 
     @Test
@@ -168,6 +173,27 @@ class RewardPipelineE2ETest {
         assertTrue(rewardAfterMiss > rewardBeforeMiss);
     }
 
+    @Test
+    void processPendingEvents_whenEventTypeParametersAdded_usesNewVersionWithoutRestart() {
+        long userId = registerAchiever("77007770014");
+        jdbcTemplate.update("""
+                insert into lieder_reward_parameters (user_type_id, event_type, version, alpha, theta, max_points)
+                select id, 'SEPARATE_CHOSEN', 2, 0.10, 0.90, 5
+                from user_type
+                where name = 'ACHIEVER'
+                """);
+        liederRewardParametersRegistry.refreshIfChanged();
+        addRewardTriggerEvent(userId, UserActionEventType.SEPARATE_CHOSEN, true);
+        addRewardTriggerEvent(userId, UserActionEventType.GREEN_SLOT_CHOSEN, true);
+
+        userActionEventProcessorService.processPendingEvents();
+
+        long separateDelta = findLatestPointsDifferenceByType(userId, UserActionEventType.SEPARATE_CHOSEN);
+        assertTrue(separateDelta > 0L && separateDelta <= 5L);
+        assertEquals("2|5", findRewardParameters(userId, UserActionEventType.SEPARATE_CHOSEN));
+        assertEquals("1|50", findRewardParameters(userId, UserActionEventType.GREEN_SLOT_CHOSEN));
+    }
+
     @Test
     void processPendingEvents_whenEcoTaskCompletedEventHasPositiveDelta_appliesPointsViaPipeline() {
         long userId = registerAchiever("77007770003");
@@ -212,6 +238,90 @@ class RewardPipelineE2ETest {
         assertEquals(-100L, findLatestPointsDifferenceByType(userId, UserActionEventType.ORDER_PAID_WITH_POINTS));
     }
 
+    @Test
+    void processPendingEvents_whenBatchSpansSeveralUsers_appliesEachUserStateIndependently() {
+        long firstUserId = registerAchiever("77007770021");
+        long secondUserId = registerAchiever("77007770022");
+        long thirdUserId = registerAchiever("77007770023");
+        addRewardTriggerEvent(firstUserId, UserActionEventType.SEPARATE_CHOSEN, true);
+        addRewardTriggerEvent(secondUserId, UserActionEventType.GREEN_SLOT_CHOSEN, true);
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                thirdUserId,
+                UserActionEventType.ECO_TASK_COMPLETED.dbName(),
+                "{\"source\":\"test\"}",
+                50
+        ));
+        addRewardTriggerEvent(firstUserId, UserActionEventType.SEPARATE_CHOSEN, true);
+
+        int processed = userActionEventProcessorService.processPendingEvents();
+        assertEquals(4, processed);
+
+        List<Long> firstUserDeltas = findPointsDifferencesByType(firstUserId, UserActionEventType.SEPARATE_CHOSEN);
+        assertTrue(firstUserDeltas.getFirst() > firstUserDeltas.get(1));
+        long firstUserPoints = INITIAL_USER_POINTS + firstUserDeltas.getFirst() + firstUserDeltas.get(1);
+        assertEquals(firstUserPoints, findUserTotalPoints(firstUserId));
+        assertEquals(firstUserPoints, findUserCurrentPoints(firstUserId));
+        assertEquals(firstUserPoints, findLatestBalanceAfter(firstUserId));
+
+        long secondUserDelta = findLatestPointsDifferenceByType(secondUserId, UserActionEventType.GREEN_SLOT_CHOSEN);
+        assertEquals(firstUserDeltas.getFirst(), secondUserDelta);
+        assertEquals(INITIAL_USER_POINTS + secondUserDelta, findUserCurrentPoints(secondUserId));
+
+        assertEquals(INITIAL_USER_POINTS + 50L, findUserTotalPoints(thirdUserId));
+        assertEquals(INITIAL_USER_POINTS + 50L, findLatestBalanceAfter(thirdUserId));
+    }
+
+    @Test
+    void processPendingEvents_whenLiederPenaltyPrecedesEcoTaskRewardInBatch_appliesThemInEventOrder() {
+        long userId = registerAchiever("77007770031");
+        jdbcTemplate.update(
+                "update user_info set total_points = 100, current_points = 0, habit_strength = 500000 where id = ?",
+                userId
+        );
+        addRewardTriggerEvent(userId, UserActionEventType.SEPARATE_CHOSEN, false);
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.ECO_TASK_COMPLETED.dbName(),
+                "{\"source\":\"test\"}",
+                120
+        ));
+
+        int processed = userActionEventProcessorService.processPendingEvents();
+        assertEquals(2, processed);
+
+        assertEquals(0L, findLatestPointsDifferenceByType(userId, UserActionEventType.SEPARATE_CHOSEN));
+        assertEquals(220L, findUserTotalPoints(userId));
+        assertEquals(120L, findUserCurrentPoints(userId));
+        assertTrue(findHabitStrength(userId) < 500000L);
+    }
+
+    @Test
+    void processPendingEvents_whenUserHasMixedEventsInBatch_chainsBalanceAfterInEventOrder() {
+        long userId = registerAchiever("77007770032");
+        addRewardTriggerEvent(userId, UserActionEventType.SEPARATE_CHOSEN, true);
+        userActionHistoryRepository.addEvent(new AddEventParams(
+                userId,
+                UserActionEventType.ECO_TASK_COMPLETED.dbName(),
+                "{\"source\":\"test\"}",
+                50
+        ));
+        addRewardTriggerEvent(userId, UserActionEventType.SEPARATE_CHOSEN, false);
+        addRewardTriggerEvent(userId, UserActionEventType.GREEN_SLOT_CHOSEN, true);
+
+        int processed = userActionEventProcessorService.processPendingEvents();
+        assertEquals(4, processed);
+
+        List<long[]> balanceChain = findBalanceChain(userId);
+        assertEquals(4, balanceChain.size());
+        assertTrue(balanceChain.get(2)[0] < 0);
+        long expectedBalance = INITIAL_USER_POINTS;
+        for (long[] pointsAndBalance : balanceChain) {
+            expectedBalance += pointsAndBalance[0];
+            assertEquals(expectedBalance, pointsAndBalance[1]);
+        }
+        assertEquals(expectedBalance, findUserCurrentPoints(userId));
+    }
+
     private void addRewardTriggerEvent(long userId, UserActionEventType eventType, boolean success) {
         userActionHistoryRepository.addEvent(new AddEventParams(
                 userId,
@@ -238,6 +348,22 @@ class RewardPipelineE2ETest {
         return pointsDifference == null ? 0L : pointsDifference;
     }
 
+    private String findRewardParameters(long userId, UserActionEventType eventType) {
+        return jdbcTemplate.queryForObject(
+                """
+                        select concat_ws('|', content ->> 'parameterVersion', content ->> 'maxPoints')
+                        from user_action_history
+                        where user_id = ?
+                          and event_type = ?
+                        order by id desc
+                        limit 1
+                        """,
+                String.class,
+                userId,
+                eventType.dbName()
+        );
+    }
+
     private List<Long> findPointsDifferencesByType(long userId, UserActionEventType eventType) {
         return jdbcTemplate.query(
                 """
@@ -253,6 +379,38 @@ class RewardPipelineE2ETest {
         );
     }
 
+    private long findLatestBalanceAfter(long userId) {
+        Long balanceAfter = jdbcTemplate.queryForObject(
+                """
+                        select balance_after
+                        from user_action_history
+                        where user_id = ?
+                        order by created_at desc, id desc
+                        limit 1
+                        """,
+                Long.class,
+                userId
+        );
+        return balanceAfter == null ? 0L : balanceAfter;
+    }
+
+    private List<long[]> findBalanceChain(long userId) {
+        return jdbcTemplate.query(
+                """
+                        select points_difference, balance_after
+                        from user_action_history
+                        where user_id = ?
+                          and event_type in (?, ?, ?)
+                        order by created_at asc, id asc
+                        """,
+                (rs, rowNum) -> new long[]{rs.getLong("points_difference"), rs.getLong("balance_after")},
+                userId,
+                UserActionEventType.SEPARATE_CHOSEN.dbName(),
+                UserActionEventType.ECO_TASK_COMPLETED.dbName(),
+                UserActionEventType.GREEN_SLOT_CHOSEN.dbName()
+        );
+    }
+
     private long findHabitStrength(long userId) {
         Long habitStrength = jdbcTemplate.queryForObject(
                 "select habit_strength from user_info where id = ?",
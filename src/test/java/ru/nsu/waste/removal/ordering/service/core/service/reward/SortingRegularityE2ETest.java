@@ -21,16 +21,23 @@ import ru.nsu.waste.removal.ordering.service.core.service.event.UserActionEventP
 
 import java.time.Clock;
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
+@SpringBootTest(properties = {
+        "app.jobs.user-action-event-processor.enabled=false",
+        "app.jobs.sorting-regularity.page-size=1"
+})
 @Tag("e2e")
 @Testcontainers
 class SortingRegularityE2ETest {
 
+    private static final String TZ_UTC = "UTC";
+    private static final String TZ_NOVOSIBIRSK = "Asia/Novosibirsk";
+
     @Container
     static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
             .withDatabaseName("wros_test")
@@ -65,6 +72,7 @@ class SortingRegularityE2ETest {
                 truncate table
                     event_processor_state,
                     sorting_regularity_window,
+                    sorting_regularity_sweep,
                     achievement_user,
                     user_action_history,
                     order_waste_fraction,
@@ -122,6 +130,45 @@ class SortingRegularityE2ETest {
         assertTrue(habitStrengthAfter < 500_000L);
     }
 
+    @Test
+    void syncClosedWeeklyWindows_closesPreviousWeekPerTimezoneAndSkipsClosedTimezones() {
+        long confirmedUtc = createSocializer("79001110003", "630012", TZ_UTC);
+        long missedUtc = createSocializer("79001110004", "630013", TZ_UTC);
+        long lateNovosibirsk = createSocializer("79001110005", "630014", TZ_NOVOSIBIRSK);
+        long confirmedNovosibirsk = createSocializer("79001110006", "630015", TZ_NOVOSIBIRSK);
+        addDoneSeparateOrder(confirmedUtc, "2026-03-12T10:00:00Z");
+        // Неделя Новосибирска закончилась 2026-03-15T17:00Z: первый заказ уже в следующей неделе.
+        addDoneSeparateOrder(lateNovosibirsk, "2026-03-15T18:00:00Z");
+        addDoneSeparateOrder(confirmedNovosibirsk, "2026-03-15T16:00:00Z");
+
+        sortingRegularityService.syncClosedWeeklyWindows();
+
+        assertEquals("CONFIRMED", findRegularityStatus(confirmedUtc));
+        assertEquals("MISSED", findRegularityStatus(missedUtc));
+        assertEquals("MISSED", findRegularityStatus(lateNovosibirsk));
+        assertEquals("CONFIRMED", findRegularityStatus(confirmedNovosibirsk));
+        assertEquals(1, countEventsByType(confirmedUtc, UserActionEventType.SORTING_REGULARITY_CONFIRMED.dbName()));
+        assertEquals(1, countEventsByType(lateNovosibirsk, UserActionEventType.SORTING_REGULARITY_MISSED.dbName()));
+        assertEquals(
+                "2026-03-09T00:00+07:00|SCHEDULED_JOB|true",
+                jdbcTemplate.queryForObject(
+                        """
+                                select concat_ws('|', content ->> 'windowStart', content ->> 'source', content ->> 'success')
+                                from user_action_history
+                                where user_id = ?
+                                """,
+                        String.class,
+                        confirmedNovosibirsk
+                )
+        );
+
+        long registeredAfterSweep = createSocializer("79001110007", "630016", TZ_UTC);
+        sortingRegularityService.syncClosedWeeklyWindows();
+
+        assertEquals(0, countRegularityWindows(registeredAfterSweep));
+        assertEquals(4, countAllRegularityWindows());
+    }
+
     private int processUntilNoPendingEvents() {
         int totalProcessed = 0;
         for (int i = 0; i < 10; i++) {
@@ -143,6 +190,35 @@ class SortingRegularityE2ETest {
         return count == null ? 0 : count;
     }
 
+    private int countAllRegularityWindows() {
+        Integer count = jdbcTemplate.queryForObject("select count(*) from sorting_regularity_window", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private String findRegularityStatus(long userId) {
+        return jdbcTemplate.queryForObject(
+                "select status from sorting_regularity_window where user_id = ?",
+                String.class,
+                userId
+        );
+    }
+
+    private void addDoneSeparateOrder(long userId, String completedAt) {
+        OffsetDateTime completed = OffsetDateTime.parse(completedAt);
+        jdbcTemplate.update(
+                """
+                        insert into order_info(user_id, created_at, completed_at, type, status, pickup_from, pickup_to,
+                                               green_chosen, postal_code, cost_points)
+                        values (?, ?, ?, 'SEPARATE', 'DONE', ?, ?, false, '630010', 100)
+                        """,
+                userId,
+                completed.minusDays(1),
+                completed,
+                completed.minusHours(2),
+                completed
+        );
+    }
+
     private int countEventsByType(long userId, String eventType) {
         Integer count = jdbcTemplate.queryForObject(
                 "select count(*) from user_action_history where user_id = ? and event_type = ?",
@@ -179,9 +255,24 @@ class SortingRegularityE2ETest {
         return value == null ? 0L : value;
     }
 
+    private long createSocializer(String phone, String postalCode, String timezone) {
+        return createSocializer(phone, postalCode, timezone, 0L, 0L, 0L);
+    }
+
+    private long createSocializer(
+            String phone,
+            String postalCode,
+            long totalPoints,
+            long currentPoints,
+            long habitStrength
+    ) {
+        return createSocializer(phone, postalCode, TZ_UTC, totalPoints, currentPoints, habitStrength);
+    }
+
     private long createSocializer(
             String phone,
             String postalCode,
+            String timezone,
             long totalPoints,
             long currentPoints,
             long habitStrength
@@ -212,7 +303,7 @@ class SortingRegularityE2ETest {
                 "City",
                 "Region",
                 "Street 1",
-                "UTC"
+                timezone
         );
 
         Long userId = jdbcTemplate.queryForObject(
@@ -0,0 +1,147 @@
+package ru.nsu.waste.removal.ordering.service.core.service.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.nsu.waste.removal.ordering.service.core.model.cluster.GeoClusterContext;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserGreenSlotContext;
+import ru.nsu.waste.removal.ordering.service.core.model.user.UserType;
+import ru.nsu.waste.removal.ordering.service.core.repository.cluster.GeoClusterRepository;
+import ru.nsu.waste.removal.ordering.service.core.repository.constant.CacheNames;
+import ru.nsu.waste.removal.ordering.service.core.repository.user.UserInfoRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "app.jobs.user-action-event-processor.enabled=false")
+@Tag("e2e")
+@Testcontainers
+class UserContextCacheE2ETest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.3-alpine")
+            .withDatabaseName("wros_test")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    @DynamicPropertySource
+    static void overrideDataSourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.flyway.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.flyway.user", POSTGRES::getUsername);
+        registry.add("spring.flyway.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private UserInfoRepository userInfoRepository;
+
+    @Autowired
+    private GeoClusterRepository geoClusterRepository;
+
+    @Autowired
+    private UserContextCacheService userContextCacheService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void resetRuntimeData() {
+        jdbcTemplate.execute("""
+                truncate table
+                    user_info,
+                    address,
+                    person_info
+                restart identity cascade
+                """);
+        userContextCacheService.evictAll();
+    }
+
+    @Test
+    void findContexts_serveRepeatedLookupsFromCacheUntilUserIsEvicted() {
+        long userId = createUser("630000", "Asia/Novosibirsk");
+        double hitsBefore = cacheGets(CacheNames.USER_GREEN_SLOT_CONTEXT, "hit");
+
+        UserGreenSlotContext first = userInfoRepository.findGreenSlotContextByUserId(userId).orElseThrow();
+        GeoClusterContext cluster = geoClusterRepository.findUserClusterContext(userId).orElseThrow();
+        assertEquals(UserType.ACHIEVER, userInfoRepository.findUserTypeByUserId(userId).orElseThrow());
+        jdbcTemplate.update("update address set postal_code = '050000', timezone = 'Asia/Almaty'");
+
+        assertEquals(first, userInfoRepository.findGreenSlotContextByUserId(userId).orElseThrow());
+        assertEquals(cluster, geoClusterRepository.findUserClusterContext(userId).orElseThrow());
+        assertEquals(hitsBefore + 1, cacheGets(CacheNames.USER_GREEN_SLOT_CONTEXT, "hit"));
+
+        userContextCacheService.evictUser(userId);
+
+        UserGreenSlotContext refreshed = userInfoRepository.findGreenSlotContextByUserId(userId).orElseThrow();
+        assertEquals("050000", refreshed.postalCode());
+        assertEquals("Asia/Almaty", refreshed.timezone());
+        assertEquals(
+                "050000",
+                geoClusterRepository.findUserClusterContext(userId).orElseThrow().clusterKey().value()
+        );
+    }
+
+    @Test
+    void findContexts_doNotCacheMissingUsers() {
+        long missingUserId = 1L;
+        double missesBefore = cacheGets(CacheNames.USER_TYPE, "miss");
+
+        assertEquals(Optional.empty(), userInfoRepository.findUserTypeByUserId(missingUserId));
+        long userId = createUser("630000", "UTC");
+
+        assertEquals(missingUserId, userId);
+        assertEquals(UserType.ACHIEVER, userInfoRepository.findUserTypeByUserId(userId).orElseThrow());
+        assertTrue(cacheGets(CacheNames.USER_TYPE, "miss") >= missesBefore + 2);
+    }
+
+    private double cacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private long createUser(String postalCode, String timezone) {
+        jdbcTemplate.update(
+                """
+                        insert into address(country_code, postal_code, city, region, detailed_address, timezone)
+                        values ('RU', ?, 'City', 'Region', 'Street 1', ?)
+                        """,
+                postalCode,
+                timezone
+        );
+        jdbcTemplate.update("""
+                insert into person_info(phone, email, name, surname)
+                values (75550008888, 'cache@mail.test', 'Name', 'Surname')
+                """);
+        Long userId = jdbcTemplate.queryForObject(
+                """
+                        insert into user_info(type_id, address_id, person_id)
+                        values ((select id from user_type where name = 'ACHIEVER'), 1, 1)
+                        returning id
+                        """,
+                Long.class
+        );
+        if (userId == null) {
+            throw new IllegalStateException("Failed to prepare test user");
+        }
+        return userId;
+    }
+}